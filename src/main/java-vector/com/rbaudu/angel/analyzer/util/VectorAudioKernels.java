@@ -0,0 +1,109 @@
+package com.rbaudu.angel.analyzer.util;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implémentation des {@link AudioKernels} avec l'API Vector du JDK.
+ * <p>
+ * Cette classe n'est compilée que par le profil Maven {@code vector}, et
+ * chargée par réflexion depuis {@link AudioKernels} si le module
+ * {@code jdk.incubator.vector} est présent : aucune autre classe ne doit la
+ * référencer. Les bornes sont vérifiées par l'appelant ; la fin de chaque plage
+ * qui ne remplit pas un vecteur complet est traitée en scalaire.
+ */
+final class VectorAudioKernels implements AudioKernels.Backend {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    VectorAudioKernels() {
+    }
+
+    @Override
+    public float peak(float[] samples, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        FloatVector max = FloatVector.zero(SPECIES);
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            max = max.max(FloatVector.fromArray(SPECIES, samples, i).abs());
+        }
+        float result = max.reduceLanes(VectorOperators.MAX);
+        for (; i < end; i++) {
+            result = Math.max(result, Math.abs(samples[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public double sumAbs(float[] samples, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        FloatVector sum = FloatVector.zero(SPECIES);
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            sum = sum.add(FloatVector.fromArray(SPECIES, samples, i).abs());
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            result += Math.abs(samples[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(float[] samples, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        FloatVector sum = FloatVector.zero(SPECIES);
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, samples, i);
+            sum = v.fma(v, sum);
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            result += samples[i] * samples[i];
+        }
+        return result;
+    }
+
+    @Override
+    public double sumSquares(float[] real, float[] imaginary, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        FloatVector sum = FloatVector.zero(SPECIES);
+        for (int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector re = FloatVector.fromArray(SPECIES, real, i);
+            FloatVector im = FloatVector.fromArray(SPECIES, imaginary, i);
+            sum = im.fma(im, re.fma(re, sum));
+        }
+        double result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            result += real[i] * real[i] + imaginary[i] * imaginary[i];
+        }
+        return result;
+    }
+
+    @Override
+    public int zeroCrossings(float[] samples, int offset, int length) {
+        // Chaque échantillon i est comparé au précédent, chargé avec un décalage d'une position
+        int end = offset + length;
+        int i = offset + 1;
+        int crossings = 0;
+        for (int bound = offset + 1 + SPECIES.loopBound(length - 1); i < bound; i += SPECIES.length()) {
+            FloatVector current = FloatVector.fromArray(SPECIES, samples, i);
+            FloatVector previous = FloatVector.fromArray(SPECIES, samples, i - 1);
+            VectorMask<Float> rising = current.compare(VectorOperators.GT, 0f)
+                    .and(previous.compare(VectorOperators.LE, 0f));
+            VectorMask<Float> falling = current.compare(VectorOperators.LT, 0f)
+                    .and(previous.compare(VectorOperators.GE, 0f));
+            crossings += rising.or(falling).trueCount();
+        }
+        for (; i < end; i++) {
+            if ((samples[i] > 0 && samples[i - 1] <= 0) || (samples[i] < 0 && samples[i - 1] >= 0)) {
+                crossings++;
+            }
+        }
+        return crossings;
+    }
+}
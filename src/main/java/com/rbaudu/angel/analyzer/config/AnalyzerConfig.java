@@ -3,6 +3,9 @@ package com.rbaudu.angel.analyzer.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration centralisée pour le module d'analyse d'activités.
  * Cette classe est automatiquement peuplée par Spring Boot à partir des propriétés
@@ -65,6 +68,53 @@ public class AnalyzerConfig {
      * Activer/désactiver l'analyse audio
      */
     private boolean audioAnalysisEnabled = true;
+    
+    /**
+     * Ne lancer l'inférence que sur les trames en mouvement
+     */
+    private boolean motionGatingEnabled = true;
+    
+    /**
+     * Intervalle minimal entre deux analyses d'une scène statique, en millisecondes
+     */
+    private long staticAnalysisIntervalMs = 5000;
+    
+    /**
+     * Nombre de threads d'analyse
+     */
+    private int analysisThreads = 2;
+    
+    /**
+     * Nombre maximal de médias en attente d'analyse ; au-delà, les médias sont écartés
+     */
+    private int analysisQueueCapacity = 4;
+    
+    /**
+     * Durée d'audio fournie à l'analyse, en millisecondes, lue dans l'historique
+     * continu et se terminant au segment synchronisé (0 pour le seul segment)
+     */
+    private long audioContextMs = 3000;
+    
+    /**
+     * Ne lancer l'inférence audio que sur les fenêtres non silencieuses
+     */
+    private boolean vadEnabled = true;
+    
+    /**
+     * Niveau RMS (0.0-1.0) sous lequel une trame audio est considérée silencieuse
+     */
+    private double vadSilenceRms = 0.01;
+    
+    /**
+     * Planéité spectrale (0.0-1.0) au-delà de laquelle un son est considéré comme du bruit plutôt que de la voix
+     */
+    private double vadFlatnessThreshold = 0.3;
+    
+    /**
+     * Régions d'intérêt par source vidéo : rectangle "x,y,largeur,hauteur" ou
+     * polygone "x1:y1;x2:y2;...", en coordonnées relatives à l'image (0.0-1.0)
+     */
+    private Map<String, String> regionsOfInterest = new HashMap<>();
 
     /**
      * Getter pour humanDetectionModel
@@ -219,4 +269,130 @@ public class AnalyzerConfig {
     public void setAudioAnalysisEnabled(boolean audioAnalysisEnabled) {
         this.audioAnalysisEnabled = audioAnalysisEnabled;
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter pour motionGatingEnabled
+     */
+    public boolean isMotionGatingEnabled() {
+        return motionGatingEnabled;
+    }
+
+    /**
+     * Setter pour motionGatingEnabled
+     */
+    public void setMotionGatingEnabled(boolean motionGatingEnabled) {
+        this.motionGatingEnabled = motionGatingEnabled;
+    }
+
+    /**
+     * Getter pour staticAnalysisIntervalMs
+     */
+    public long getStaticAnalysisIntervalMs() {
+        return staticAnalysisIntervalMs;
+    }
+
+    /**
+     * Setter pour staticAnalysisIntervalMs
+     */
+    public void setStaticAnalysisIntervalMs(long staticAnalysisIntervalMs) {
+        this.staticAnalysisIntervalMs = staticAnalysisIntervalMs;
+    }
+
+    /**
+     * Getter pour analysisThreads
+     */
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    /**
+     * Setter pour analysisThreads
+     */
+    public void setAnalysisThreads(int analysisThreads) {
+        this.analysisThreads = analysisThreads;
+    }
+
+    /**
+     * Getter pour analysisQueueCapacity
+     */
+    public int getAnalysisQueueCapacity() {
+        return analysisQueueCapacity;
+    }
+
+    /**
+     * Setter pour analysisQueueCapacity
+     */
+    public void setAnalysisQueueCapacity(int analysisQueueCapacity) {
+        this.analysisQueueCapacity = analysisQueueCapacity;
+    }
+
+    /**
+     * Getter pour regionsOfInterest
+     */
+    public Map<String, String> getRegionsOfInterest() {
+        return regionsOfInterest;
+    }
+
+    /**
+     * Setter pour regionsOfInterest
+     */
+    public void setRegionsOfInterest(Map<String, String> regionsOfInterest) {
+        this.regionsOfInterest = regionsOfInterest;
+    }
+
+    /**
+     * Getter pour audioContextMs
+     */
+    public long getAudioContextMs() {
+        return audioContextMs;
+    }
+
+    /**
+     * Setter pour audioContextMs
+     */
+    public void setAudioContextMs(long audioContextMs) {
+        this.audioContextMs = audioContextMs;
+    }
+
+    /**
+     * Getter pour vadEnabled
+     */
+    public boolean isVadEnabled() {
+        return vadEnabled;
+    }
+
+    /**
+     * Setter pour vadEnabled
+     */
+    public void setVadEnabled(boolean vadEnabled) {
+        this.vadEnabled = vadEnabled;
+    }
+
+    /**
+     * Getter pour vadSilenceRms
+     */
+    public double getVadSilenceRms() {
+        return vadSilenceRms;
+    }
+
+    /**
+     * Setter pour vadSilenceRms
+     */
+    public void setVadSilenceRms(double vadSilenceRms) {
+        this.vadSilenceRms = vadSilenceRms;
+    }
+
+    /**
+     * Getter pour vadFlatnessThreshold
+     */
+    public double getVadFlatnessThreshold() {
+        return vadFlatnessThreshold;
+    }
+
+    /**
+     * Setter pour vadFlatnessThreshold
+     */
+    public void setVadFlatnessThreshold(double vadFlatnessThreshold) {
+        this.vadFlatnessThreshold = vadFlatnessThreshold;
+    }
+}
@@ -22,6 +22,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
 import com.rbaudu.angel.analyzer.model.ActivityType;
 import com.rbaudu.angel.analyzer.model.AnalysisResultDto;
+import com.rbaudu.angel.analyzer.model.RegionOfInterest;
+import com.rbaudu.angel.analyzer.service.AnalysisService;
 import com.rbaudu.angel.event.SynchronizedMediaEvent;
 import com.rbaudu.angel.model.SynchronizedMedia;
 import com.rbaudu.angel.model.VideoFrame;
@@ -58,7 +60,10 @@ public class AnalysisController {
     @Autowired
     private PresenceDetector presenceDetector;
     
-    // Stockage des derniers résultats d'analyse pour l'API
+    @Autowired
+    private AnalysisService analysisService;
+    
+    // Stockage des derniers résultats d'analyse pour l'API, par source vidéo
     private final Map<String, AnalysisResultDto> latestResults = new ConcurrentHashMap<>();
     private final List<AnalysisResultDto> recentAnalyses = new ArrayList<>();
     private static final int MAX_RECENT_ANALYSES = 100;
@@ -95,6 +100,34 @@ public class AnalysisController {
                 config.setActivityConfidenceThreshold((Double) configUpdates.get("activityConfidenceThreshold"));
             }
             
+            if (configUpdates.containsKey("motionGatingEnabled")) {
+                config.setMotionGatingEnabled((Boolean) configUpdates.get("motionGatingEnabled"));
+            }
+            
+            if (configUpdates.containsKey("staticAnalysisIntervalMs")) {
+                config.setStaticAnalysisIntervalMs(((Number) configUpdates.get("staticAnalysisIntervalMs")).longValue());
+            }
+            
+            if (configUpdates.containsKey("vadEnabled")) {
+                config.setVadEnabled((Boolean) configUpdates.get("vadEnabled"));
+            }
+            
+            if (configUpdates.containsKey("vadSilenceRms")) {
+                config.setVadSilenceRms(((Number) configUpdates.get("vadSilenceRms")).doubleValue());
+            }
+            
+            if (configUpdates.containsKey("regionsOfInterest")) {
+                // Valider chaque région avant de remplacer la configuration
+                Map<String, String> regions = new HashMap<>();
+                ((Map<?, ?>) configUpdates.get("regionsOfInterest")).forEach((sourceId, spec) -> {
+                    if (spec != null && !spec.toString().isBlank()) {
+                        RegionOfInterest.parse(spec.toString());
+                        regions.put(sourceId.toString(), spec.toString());
+                    }
+                });
+                config.setRegionsOfInterest(regions);
+            }
+            
             // Autres propriétés...
             
             return ResponseEntity.ok(config);
@@ -105,16 +138,34 @@ public class AnalysisController {
     }
     
     /**
-     * Récupère le dernier résultat d'analyse.
+     * Récupère les statistiques du service d'analyse, dont la proportion de
+     * médias écartés faute de mouvement.
      * 
+     * @return les statistiques d'analyse
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(analysisService.getStats());
+    }
+    
+    /**
+     * Récupère le dernier résultat d'analyse, toutes sources confondues ou pour une source.
+     * 
+     * @param sourceId identifiant de la source vidéo (optionnel)
      * @return le dernier résultat d'analyse
      */
     @GetMapping("/latest")
-    public ResponseEntity<AnalysisResultDto> getLatestAnalysis() {
+    public ResponseEntity<AnalysisResultDto> getLatestAnalysis(
+            @RequestParam(required = false) String sourceId) {
         if (latestResults.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
         
+        if (sourceId != null) {
+            AnalysisResultDto result = latestResults.get(sourceId);
+            return result != null ? ResponseEntity.ok(result) : ResponseEntity.noContent().build();
+        }
+        
         // Retourner le résultat le plus récent
         return ResponseEntity.ok(recentAnalyses.get(0));
     }
@@ -236,8 +287,8 @@ public class AnalysisController {
                     media.getAnalysisResults(), 
                     AnalysisResultDto.class);
             
-            // Stocker le résultat
-            latestResults.put(media.getId(), result);
+            // Stocker le résultat comme dernier résultat de sa source
+            latestResults.put(result.getSourceId() != null ? result.getSourceId() : "default", result);
             
             // Ajouter au début de la liste des résultats récents
             synchronized (recentAnalyses) {
@@ -14,6 +14,11 @@ public class AnalysisResult {
      */
     private String id;
     
+    /**
+     * Identifiant de la source vidéo analysée
+     */
+    private String sourceId;
+    
     /**
      * Horodatage de l'analyse
      */
@@ -43,9 +48,10 @@ public class AnalysisResult {
     /**
      * Constructeur avec tous les champs
      */
-    public AnalysisResult(String id, Instant timestamp, ActivityType activityType, 
+    public AnalysisResult(String id, String sourceId, Instant timestamp, ActivityType activityType, 
                          double confidence, boolean personPresent) {
         this.id = id;
+        this.sourceId = sourceId;
         this.timestamp = timestamp;
         this.activityType = activityType;
         this.confidence = confidence;
@@ -63,6 +69,14 @@ public class AnalysisResult {
         this.id = id;
     }
 
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
     public Instant getTimestamp() {
         return timestamp;
     }
@@ -132,6 +146,7 @@ public class AnalysisResult {
         return Double.compare(that.confidence, confidence) == 0 &&
                 personPresent == that.personPresent &&
                 Objects.equals(id, that.id) &&
+                Objects.equals(sourceId, that.sourceId) &&
                 Objects.equals(timestamp, that.timestamp) &&
                 activityType == that.activityType;
     }
@@ -141,7 +156,7 @@ public class AnalysisResult {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, timestamp, activityType, confidence, personPresent);
+        return Objects.hash(id, sourceId, timestamp, activityType, confidence, personPresent);
     }
 
     /**
@@ -151,6 +166,7 @@ public class AnalysisResult {
     public String toString() {
         return "AnalysisResult{" +
                 "id='" + id + '\'' +
+                ", sourceId='" + sourceId + '\'' +
                 ", timestamp=" + timestamp +
                 ", activityType=" + activityType +
                 ", confidence=" + confidence +
@@ -167,6 +183,7 @@ public class AnalysisResult {
 
     public static class Builder {
         private String id;
+        private String sourceId;
         private Instant timestamp;
         private ActivityType activityType;
         private double confidence;
@@ -177,6 +194,11 @@ public class AnalysisResult {
             return this;
         }
 
+        public Builder sourceId(String sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+
         public Builder timestamp(Instant timestamp) {
             this.timestamp = timestamp;
             return this;
@@ -198,7 +220,7 @@ public class AnalysisResult {
         }
 
         public AnalysisResult build() {
-            return new AnalysisResult(id, timestamp, activityType, confidence, personPresent);
+            return new AnalysisResult(id, sourceId, timestamp, activityType, confidence, personPresent);
         }
     }
 }
\ No newline at end of file
@@ -10,6 +10,11 @@ import java.util.Objects;
  */
 public class AnalysisResultDto {
     
+    /**
+     * Identifiant de la source vidéo analysée
+     */
+    private String sourceId;
+    
     /**
      * Date et heure de l'analyse
      */
@@ -39,14 +44,29 @@ public class AnalysisResultDto {
     /**
      * Constructeur avec tous les champs
      */
-    public AnalysisResultDto(LocalDateTime timestamp, ActivityType activityType, 
+    public AnalysisResultDto(String sourceId, LocalDateTime timestamp, ActivityType activityType, 
                            double confidence, boolean personPresent) {
+        this.sourceId = sourceId;
         this.timestamp = timestamp;
         this.activityType = activityType;
         this.confidence = confidence;
         this.personPresent = personPresent;
     }
     
+    /**
+     * Getter pour sourceId
+     */
+    public String getSourceId() {
+        return sourceId;
+    }
+    
+    /**
+     * Setter pour sourceId
+     */
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+    
     /**
      * Getter pour timestamp
      */
@@ -115,6 +135,7 @@ public class AnalysisResultDto {
         
         return Double.compare(that.confidence, confidence) == 0 &&
                personPresent == that.personPresent &&
+               Objects.equals(sourceId, that.sourceId) &&
                Objects.equals(timestamp, that.timestamp) &&
                activityType == that.activityType;
     }
@@ -124,7 +145,7 @@ public class AnalysisResultDto {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(timestamp, activityType, confidence, personPresent);
+        return Objects.hash(sourceId, timestamp, activityType, confidence, personPresent);
     }
     
     /**
@@ -133,7 +154,8 @@ public class AnalysisResultDto {
     @Override
     public String toString() {
         return "AnalysisResultDto{" +
-               "timestamp=" + timestamp +
+               "sourceId='" + sourceId + '\'' +
+               ", timestamp=" + timestamp +
                ", activityType=" + activityType +
                ", confidence=" + confidence +
                ", personPresent=" + personPresent +
@@ -160,6 +182,7 @@ public class AnalysisResultDto {
             : null;
         
         return AnalysisResultDto.builder()
+                .sourceId(result.getSourceId())
                 .timestamp(localDateTime)
                 .activityType(result.getActivityType())
                 .confidence(result.getConfidence())
@@ -171,11 +194,17 @@ public class AnalysisResultDto {
      * Classe Builder pour AnalysisResultDto
      */
     public static class Builder {
+        private String sourceId;
         private LocalDateTime timestamp;
         private ActivityType activityType;
         private double confidence;
         private boolean personPresent;
         
+        public Builder sourceId(String sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+        
         public Builder timestamp(LocalDateTime timestamp) {
             this.timestamp = timestamp;
             return this;
@@ -207,7 +236,7 @@ public class AnalysisResultDto {
         }
         
         public AnalysisResultDto build() {
-            return new AnalysisResultDto(timestamp, activityType, confidence, personPresent);
+            return new AnalysisResultDto(sourceId, timestamp, activityType, confidence, personPresent);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.rbaudu.angel.analyzer.model;
+
+import org.bytedeco.opencv.opencv_core.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Région d'intérêt d'une caméra : un rectangle ou un polygone dont les
+ * coordonnées sont exprimées en fraction de la largeur et de la hauteur de
+ * l'image (entre 0.0 et 1.0), ce qui les rend indépendantes de la résolution.
+ * <p>
+ * Formats acceptés :
+ * <ul>
+ *   <li>rectangle : {@code x,y,largeur,hauteur}, par exemple {@code 0.25,0.1,0.5,0.9}</li>
+ *   <li>polygone : {@code x1:y1;x2:y2;x3:y3;...} (au moins trois sommets)</li>
+ * </ul>
+ * Les modèles reçoivent le rectangle englobant de la région ; pour un polygone,
+ * les détections situées hors du polygone sont ignorées.
+ */
+public class RegionOfInterest {
+
+    private final String spec;
+    private final double[] xs;
+    private final double[] ys;
+    private final boolean rectangle;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private RegionOfInterest(String spec, double[] xs, double[] ys, boolean rectangle) {
+        this.spec = spec;
+        this.xs = xs;
+        this.ys = ys;
+        this.rectangle = rectangle;
+        this.minX = Arrays.stream(xs).min().orElse(0.0);
+        this.minY = Arrays.stream(ys).min().orElse(0.0);
+        this.maxX = Arrays.stream(xs).max().orElse(1.0);
+        this.maxY = Arrays.stream(ys).max().orElse(1.0);
+        if (maxX - minX <= 0 || maxY - minY <= 0) {
+            throw new IllegalArgumentException("Région d'intérêt vide: " + spec);
+        }
+    }
+
+    /**
+     * Analyse la description textuelle d'une région d'intérêt.
+     *
+     * @param spec rectangle {@code x,y,l,h} ou polygone {@code x1:y1;x2:y2;...}
+     * @return la région d'intérêt
+     * @throws IllegalArgumentException si la description est invalide
+     */
+    public static RegionOfInterest parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new IllegalArgumentException("Région d'intérêt non définie");
+        }
+        String trimmed = spec.trim();
+
+        if (trimmed.contains(":")) {
+            String[] points = trimmed.split(";");
+            if (points.length < 3) {
+                throw new IllegalArgumentException("Un polygone doit avoir au moins trois sommets: " + spec);
+            }
+            double[] xs = new double[points.length];
+            double[] ys = new double[points.length];
+            for (int i = 0; i < points.length; i++) {
+                String[] coords = points[i].split(":");
+                if (coords.length != 2) {
+                    throw new IllegalArgumentException("Sommet invalide '" + points[i] + "': " + spec);
+                }
+                xs[i] = parseCoordinate(coords[0], spec);
+                ys[i] = parseCoordinate(coords[1], spec);
+            }
+            return new RegionOfInterest(trimmed, xs, ys, false);
+        }
+
+        String[] values = trimmed.split(",");
+        if (values.length != 4) {
+            throw new IllegalArgumentException("Un rectangle s'écrit x,y,largeur,hauteur: " + spec);
+        }
+        double x = parseCoordinate(values[0], spec);
+        double y = parseCoordinate(values[1], spec);
+        double right = x + parseCoordinate(values[2], spec);
+        double bottom = y + parseCoordinate(values[3], spec);
+        if (right > 1.0 || bottom > 1.0) {
+            throw new IllegalArgumentException("Le rectangle dépasse de l'image: " + spec);
+        }
+        return new RegionOfInterest(trimmed,
+                new double[] {x, right, right, x},
+                new double[] {y, y, bottom, bottom},
+                true);
+    }
+
+    private static double parseCoordinate(String value, String spec) {
+        double coordinate;
+        try {
+            coordinate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Coordonnée invalide '" + value + "': " + spec, e);
+        }
+        if (coordinate < 0.0 || coordinate > 1.0) {
+            throw new IllegalArgumentException("Coordonnée hors de [0, 1] '" + value + "': " + spec);
+        }
+        return coordinate;
+    }
+
+    /**
+     * Calcule le rectangle englobant de la région en pixels, borné à l'image.
+     *
+     * @param frameWidth largeur de l'image
+     * @param frameHeight hauteur de l'image
+     * @return le rectangle englobant, d'au moins un pixel de côté
+     */
+    public Rect toPixelRect(int frameWidth, int frameHeight) {
+        int x = Math.min(frameWidth - 1, (int) Math.floor(minX * frameWidth));
+        int y = Math.min(frameHeight - 1, (int) Math.floor(minY * frameHeight));
+        int right = Math.max(x + 1, Math.min(frameWidth, (int) Math.ceil(maxX * frameWidth)));
+        int bottom = Math.max(y + 1, Math.min(frameHeight, (int) Math.ceil(maxY * frameHeight)));
+        return new Rect(x, y, right - x, bottom - y);
+    }
+
+    /**
+     * Indique si un point, exprimé en coordonnées relatives au rectangle
+     * englobant (celles des détections faites sur l'image recadrée), est dans la région.
+     *
+     * @param cropX abscisse relative au rectangle englobant (0-1)
+     * @param cropY ordonnée relative au rectangle englobant (0-1)
+     * @return true si le point est dans la région
+     */
+    public boolean containsCropPoint(double cropX, double cropY) {
+        return contains(minX + cropX * (maxX - minX), minY + cropY * (maxY - minY));
+    }
+
+    /**
+     * Indique si un point, exprimé en coordonnées relatives à l'image entière, est dans la région.
+     *
+     * @param x abscisse relative (0-1)
+     * @param y ordonnée relative (0-1)
+     * @return true si le point est dans la région
+     */
+    public boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        if (rectangle) {
+            return true;
+        }
+
+        // Lancer de rayon : un point est intérieur s'il croise un nombre impair d'arêtes
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y)
+                    && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * @return true si la région est un rectangle
+     */
+    public boolean isRectangle() {
+        return rectangle;
+    }
+
+    /**
+     * @return la proportion de l'image couverte par le rectangle englobant
+     */
+    public double getBoundingArea() {
+        return (maxX - minX) * (maxY - minY);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rbaudu.angel.analyzer.model;
+
+/**
+ * Activité vocale détectée dans une fenêtre audio.
+ */
+public enum VoiceActivity {
+    /**
+     * Aucun son significatif : l'inférence audio n'est pas lancée
+     */
+    SILENCE,
+    
+    /**
+     * Son non vocal (bruit de fond, musique, appareils...)
+     */
+    NOISE,
+    
+    /**
+     * Voix humaine probable
+     */
+    VOICE
+}
@@ -3,10 +3,12 @@ package com.rbaudu.angel.analyzer.service;
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
 import com.rbaudu.angel.analyzer.model.ActivityType;
 import com.rbaudu.angel.analyzer.model.AnalysisResult;
+import com.rbaudu.angel.analyzer.model.RegionOfInterest;
 import com.rbaudu.angel.analyzer.service.audio.AudioPatternDetector;
 import com.rbaudu.angel.analyzer.service.fusion.MultimodalFusion;
 import com.rbaudu.angel.analyzer.service.video.PresenceDetector;
 import com.rbaudu.angel.analyzer.service.video.VisualActivityClassifier;
+import com.rbaudu.angel.service.PcmWindow;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +17,7 @@ import org.springframework.stereotype.Service;
 import javax.sound.sampled.AudioInputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service d'orchestration du processus d'analyse d'activités.
@@ -24,12 +27,18 @@ import java.util.Map;
 public class AnalysisOrchestrator {
     private static final Logger logger = LoggerFactory.getLogger(AnalysisOrchestrator.class);
     
+    // Marqueur des descriptions de région invalides, pour ne les signaler qu'une fois
+    private static final RegionOfInterest FULL_FRAME = RegionOfInterest.parse("0,0,1,1");
+    
     private final PresenceDetector presenceDetector;
     private final VisualActivityClassifier visualClassifier;
     private final AudioPatternDetector audioDetector;
     private final MultimodalFusion fusion;
     private final AnalyzerConfig config;
     
+    // Régions d'intérêt déjà analysées, indexées par leur description
+    private final Map<String, RegionOfInterest> parsedRegions = new ConcurrentHashMap<>();
+    
     /**
      * Constructeur avec injection de dépendances.
      * @param presenceDetector Détecteur de présence
@@ -57,11 +66,39 @@ public class AnalysisOrchestrator {
      * @return Résultat de l'analyse
      */
     public AnalysisResult analyzeFrame(Mat videoFrame, AudioInputStream audioStream) {
+        return analyzeFrame(videoFrame, audioStream, null);
+    }
+    
+    /**
+     * Analyse une frame vidéo et un flux audio synchronisés, en limitant
+     * l'analyse visuelle à la région d'intérêt configurée pour la source.
+     * @param videoFrame Frame vidéo à analyser
+     * @param audioStream Flux audio synchronisé avec la vidéo
+     * @param sourceId Identifiant de la source vidéo (peut être null)
+     * @return Résultat de l'analyse
+     */
+    public AnalysisResult analyzeFrame(Mat videoFrame, AudioInputStream audioStream, String sourceId) {
+        return analyzeFrame(videoFrame, audioStream, null, sourceId);
+    }
+    
+    /**
+     * Analyse une frame vidéo et l'audio synchronisé, fourni soit sous forme de
+     * fenêtre de l'historique continu du microphone, soit sous forme de flux.
+     * @param videoFrame Frame vidéo à analyser
+     * @param audioStream Flux audio synchronisé avec la vidéo, utilisé en l'absence de fenêtre
+     * @param audioWindow Fenêtre de l'historique audio synchronisée avec la vidéo (peut être null)
+     * @param sourceId Identifiant de la source vidéo (peut être null)
+     * @return Résultat de l'analyse
+     */
+    public AnalysisResult analyzeFrame(Mat videoFrame, AudioInputStream audioStream, PcmWindow audioWindow,
+                                       String sourceId) {
         logger.debug("Début de l'analyse d'une nouvelle frame");
         
         try {
+            RegionOfInterest region = resolveRegion(sourceId);
+            
             // Étape 1: Vérifier si une personne est présente
-            boolean isPersonPresent = presenceDetector.isPersonPresent(videoFrame);
+            boolean isPersonPresent = presenceDetector.isPersonPresent(videoFrame, region);
             
             if (!isPersonPresent) {
                 logger.debug("Aucune personne détectée dans la frame");
@@ -69,11 +106,13 @@ public class AnalysisOrchestrator {
             }
             
             // Étape 2: Classifier l'activité basée sur la vidéo
-            Map<ActivityType, Double> videoClassification = visualClassifier.classifyActivity(videoFrame);
+            Map<ActivityType, Double> videoClassification = visualClassifier.classifyActivity(videoFrame, region);
             
             // Étape 3: Détecter les patterns audio si l'analyse audio est activée
             Map<ActivityType, Double> audioClassification = new HashMap<>();
-            if (config.isAudioAnalysisEnabled() && audioStream != null) {
+            if (config.isAudioAnalysisEnabled() && audioWindow != null) {
+                audioClassification = audioDetector.detectAudioPatterns(audioWindow);
+            } else if (config.isAudioAnalysisEnabled() && audioStream != null) {
                 audioClassification = audioDetector.detectAudioPatterns(audioStream);
             }
             
@@ -89,6 +128,32 @@ public class AnalysisOrchestrator {
         }
     }
     
+    /**
+     * Récupère la région d'intérêt configurée pour une source.
+     * Une description invalide est signalée une fois puis ignorée.
+     * @param sourceId Identifiant de la source vidéo
+     * @return la région d'intérêt, ou null pour analyser l'image entière
+     */
+    private RegionOfInterest resolveRegion(String sourceId) {
+        if (sourceId == null || config.getRegionsOfInterest() == null) {
+            return null;
+        }
+        String spec = config.getRegionsOfInterest().get(sourceId);
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+        RegionOfInterest region = parsedRegions.computeIfAbsent(spec, s -> {
+            try {
+                return RegionOfInterest.parse(s);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Région d'intérêt invalide pour la source {}, image entière analysée: {}",
+                        sourceId, e.getMessage());
+                return FULL_FRAME;
+            }
+        });
+        return region == FULL_FRAME ? null : region;
+    }
+    
     /**
      * Analyse une frame vidéo sans audio.
      * @param videoFrame Frame vidéo à analyser
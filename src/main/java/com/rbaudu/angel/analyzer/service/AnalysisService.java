@@ -1,6 +1,16 @@
 package com.rbaudu.angel.analyzer.service;
 
 import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -17,18 +27,35 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
 import com.rbaudu.angel.analyzer.model.AnalysisResult;
 import com.rbaudu.angel.analyzer.model.AnalysisResultDto;
+import com.rbaudu.angel.analyzer.service.audio.AudioPatternDetector;
+import com.rbaudu.angel.config.AppConfig;
 import com.rbaudu.angel.event.SynchronizedMediaEvent;
 import com.rbaudu.angel.model.AudioChunk;
 import com.rbaudu.angel.model.SynchronizedMedia;
 import com.rbaudu.angel.model.VideoFrame;
+import com.rbaudu.angel.service.AudioBufferLease;
+import com.rbaudu.angel.service.AudioCaptureService;
+import com.rbaudu.angel.service.CaptureRateController;
+import com.rbaudu.angel.service.LatencyHistogram;
 import com.rbaudu.angel.service.MediaEventPublisher;
+import com.rbaudu.angel.service.PcmWindow;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service responsable d'analyser les médias synchronisés pour détecter
  * la présence humaine et les activités.
+ * Lorsque la détection de mouvement est active, l'inférence n'est lancée que
+ * sur les trames en mouvement ; une scène statique n'est réanalysée qu'à
+ * intervalle régulier.
+ * Les analyses s'exécutent sur un pool borné : lorsque la file est pleine, le
+ * média est écarté, et le temps de séjour des analyses (attente dans la file
+ * et inférence) et le remplissage de la file sont exposés au régulateur de
+ * cadence de capture.
  */
 @Service
-public class AnalysisService {
+public class AnalysisService implements CaptureRateController.LoadSource {
 
     private static final Logger log = LoggerFactory.getLogger(AnalysisService.class);
 
@@ -44,6 +71,54 @@ public class AnalysisService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private AppConfig appConfig;
+    
+    @Autowired
+    private AudioCaptureService audioCaptureService;
+    
+    @Autowired
+    private AudioPatternDetector audioPatternDetector;
+    
+    // Instant de la dernière analyse admise, par source vidéo
+    private final Map<String, Long> lastAnalysisNanos = new ConcurrentHashMap<>();
+    private final AtomicLong consideredCount = new AtomicLong();
+    private final AtomicLong motionAnalyzedCount = new AtomicLong();
+    private final AtomicLong staticAnalyzedCount = new AtomicLong();
+    private final AtomicLong gatedCount = new AtomicLong();
+    
+    // Dernier segment audio soumis à l'analyse, par source vidéo et microphone
+    private final Map<String, Long> analyzedChunks = new ConcurrentHashMap<>();
+    private final AtomicLong repeatedAudioSkipped = new AtomicLong();
+    
+    // Pool borné des analyses et mesures de charge
+    private ThreadPoolExecutor analysisExecutor;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final LatencyHistogram inferenceLatency = new LatencyHistogram();
+    private volatile double recentSojournMs;
+    private static final double SOJOURN_SMOOTHING = 0.2;
+    
+    /**
+     * Crée le pool d'exécution des analyses.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        analysisExecutor = new ThreadPoolExecutor(
+                config.getAnalysisThreads(),
+                config.getAnalysisThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getAnalysisQueueCapacity())),
+                r -> {
+                    Thread thread = new Thread(r, "analysis-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Pool d'analyse: {} thread(s), file de {} média(s)",
+                config.getAnalysisThreads(), config.getAnalysisQueueCapacity());
+    }
+    
     /**
      * Écoute les événements de média synchronisé pour lancer l'analyse.
      * 
@@ -58,6 +133,10 @@ public class AnalysisService {
             return;
         }
         
+        if (!admitByMotion(media)) {
+            return;
+        }
+        
         try {
             // Lancer l'analyse de manière asynchrone pour ne pas bloquer le flux d'événements
             analyzeMediaAsync(media);
@@ -66,32 +145,235 @@ public class AnalysisService {
         }
     }
     
+    /**
+     * Décide si un média doit être analysé au vu du mouvement détecté.
+     * Les trames en mouvement sont toujours analysées ; sur une scène statique,
+     * une analyse est admise au plus toutes les staticAnalysisIntervalMs.
+     * 
+     * @param media le média synchronisé
+     * @return true si l'inférence doit être lancée
+     */
+    private boolean admitByMotion(SynchronizedMedia media) {
+        VideoFrame videoFrame = media.getVideoFrame();
+        if (videoFrame == null) {
+            return true;
+        }
+        
+        consideredCount.incrementAndGet();
+        String sourceKey = media.getSourceId() != null ? media.getSourceId() : "default";
+        long now = System.nanoTime();
+        
+        if (!config.isMotionGatingEnabled() || !appConfig.isMotionDetectionEnabled()
+                || videoFrame.isMotionDetected()) {
+            lastAnalysisNanos.put(sourceKey, now);
+            motionAnalyzedCount.incrementAndGet();
+            return true;
+        }
+        
+        // Scène statique : limiter l'inférence à une analyse par intervalle
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getStaticAnalysisIntervalMs());
+        Long last = lastAnalysisNanos.get(sourceKey);
+        if (last == null || now - last >= intervalNanos) {
+            lastAnalysisNanos.put(sourceKey, now);
+            staticAnalyzedCount.incrementAndGet();
+            return true;
+        }
+        
+        gatedCount.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Récupère les statistiques de filtrage des analyses par le mouvement.
+     * 
+     * @return médias considérés, analysés (mouvement ou scène statique) et écartés,
+     *         segments audio déjà analysés avec la trame précédente, et inférences audio ignorées sur silence
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long considered = consideredCount.get();
+        long gated = gatedCount.get();
+        stats.put("motionGatingEnabled", config.isMotionGatingEnabled() && appConfig.isMotionDetectionEnabled());
+        stats.put("considered", considered);
+        stats.put("analyzedOnMotion", motionAnalyzedCount.get());
+        stats.put("analyzedStatic", staticAnalyzedCount.get());
+        stats.put("gated", gated);
+        stats.put("gatedFraction", considered > 0 ? Math.round(gated * 1000.0 / considered) / 1000.0 : 0.0);
+        stats.put("repeatedAudioSkipped", repeatedAudioSkipped.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("queueCapacity", getQueueCapacity());
+        stats.put("activeAnalyses", analysisExecutor != null ? analysisExecutor.getActiveCount() : 0);
+        stats.put("sojournTimeMs", Math.round(getSojournTimeMs() * 10.0) / 10.0);
+        stats.put("inferenceLatency", inferenceLatency.snapshot());
+        stats.put("audioGate", audioPatternDetector.getStats());
+        return stats;
+    }
+    
     /**
      * Lance une analyse asynchrone du média synchronisé.
      * 
      * @param media le média synchronisé à analyser
      */
     private void analyzeMediaAsync(SynchronizedMedia media) {
-        // Lancer l'analyse dans un thread séparé pour ne pas bloquer
-        new Thread(() -> {
+        // Conserver la matrice partagée de la trame pendant toute l'analyse
+        VideoFrame videoFrame = media.getVideoFrame();
+        if (videoFrame != null && !videoFrame.retainFrame()) {
+            log.debug("Matrice de la trame {} déjà rendue au pool, analyse ignorée", videoFrame.getSequenceNumber());
+            return;
+        }
+        
+        // De même pour le buffer PCM du segment audio ; s'il a déjà été rendu, ou déjà analysé
+        // avec la trame précédente, l'analyse se fait sans audio
+        AudioChunk audioChunk = media.getAudioChunk();
+        if (audioChunk != null && !audioChunk.retainAudio()) {
+            audioChunk = null;
+        } else if (audioChunk != null && isAudioAlreadyAnalyzed(media, audioChunk)) {
+            audioChunk.releaseAudio();
+            audioChunk = null;
+        }
+        AudioChunk retainedAudio = audioChunk;
+        
+        // Lancer l'analyse sur le pool borné pour ne pas bloquer
+        try {
+            analysisExecutor.execute(new QueuedAnalysis(System.nanoTime()) {
+                @Override
+                void analyze() {
+                    try {
+                        long start = System.nanoTime();
+                        AnalysisResult result = analyzeSynchronizedMedia(media, retainedAudio);
+                        inferenceLatency.recordNanos(System.nanoTime() - start);
+                        result.setSourceId(media.getSourceId());
+                        updateMediaWithAnalysisResults(media, result);
+                    } catch (Exception e) {
+                        log.error("Erreur lors de l'analyse du média synchronisé", e);
+                    } finally {
+                        if (videoFrame != null) {
+                            videoFrame.releaseFrame();
+                        }
+                        if (retainedAudio != null) {
+                            retainedAudio.releaseAudio();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // File d'analyse pleine : le média est écarté plutôt que mis en attente
+            rejectedCount.incrementAndGet();
+            if (videoFrame != null) {
+                videoFrame.releaseFrame();
+            }
+            if (retainedAudio != null) {
+                retainedAudio.releaseAudio();
+            }
+            log.debug("File d'analyse pleine, média {} écarté", media.getId());
+        }
+    }
+    
+    /**
+     * Indique si le segment d'un média a déjà été soumis à l'analyse avec la
+     * trame précédente de la source, auquel cas son inférence audio est évitée.
+     * Seule une reprise marquée par la synchronisation est écartée, et
+     * seulement si le segment a bien été analysé : une trame précédente écartée
+     * par le filtrage du mouvement n'a pas consommé l'analyse de son segment.
+     * 
+     * @param media le média synchronisé
+     * @param audioChunk son segment audio
+     * @return true si l'inférence audio du segment est déjà faite
+     */
+    private boolean isAudioAlreadyAnalyzed(SynchronizedMedia media, AudioChunk audioChunk) {
+        String key = media.getSourceId() + "/" + audioChunk.getSourceId();
+        Long previous = analyzedChunks.put(key, audioChunk.getSequenceNumber());
+        if (media.isAudioRepeated() && previous != null && previous == audioChunk.getSequenceNumber()) {
+            repeatedAudioSkipped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Analyse horodatée à sa soumission au pool, pour mesurer son temps de séjour
+     * de la soumission à la fin de l'inférence.
+     */
+    private abstract class QueuedAnalysis implements Runnable {
+        private final long submittedNanos;
+        
+        QueuedAnalysis(long submittedNanos) {
+            this.submittedNanos = submittedNanos;
+        }
+        
+        abstract void analyze();
+        
+        @Override
+        public void run() {
             try {
-                AnalysisResult result = analyzeSynchronizedMedia(media);
-                updateMediaWithAnalysisResults(media, result);
-            } catch (Exception e) {
-                log.error("Erreur lors de l'analyse du média synchronisé", e);
+                analyze();
+            } finally {
+                recordSojourn(System.nanoTime() - submittedNanos);
             }
-        }).start();
+        }
+    }
+    
+    /**
+     * Met à jour la moyenne glissante du temps de séjour des analyses.
+     * 
+     * @param nanos temps écoulé entre la soumission de l'analyse et sa fin, en nanosecondes
+     */
+    private void recordSojourn(long nanos) {
+        double ms = nanos / 1_000_000.0;
+        recentSojournMs = recentSojournMs == 0 ? ms : recentSojournMs + SOJOURN_SMOOTHING * (ms - recentSojournMs);
+    }
+    
+    /**
+     * Temps de séjour courant : la moyenne glissante des analyses terminées, ou
+     * l'âge de la plus ancienne analyse en attente s'il est plus grand, de sorte
+     * qu'un pool bloqué soit vu sans attendre une fin d'analyse. Pool inactif et
+     * file vide, il n'y a pas de contre-pression : la moyenne est oubliée.
+     */
+    @Override
+    public double getSojournTimeMs() {
+        if (analysisExecutor == null) {
+            return 0;
+        }
+        Runnable oldest = analysisExecutor.getQueue().peek();
+        if (oldest == null && analysisExecutor.getActiveCount() == 0) {
+            recentSojournMs = 0;
+            return 0;
+        }
+        double waitingMs = oldest instanceof QueuedAnalysis queued
+                ? (System.nanoTime() - queued.submittedNanos) / 1_000_000.0 : 0;
+        return Math.max(recentSojournMs, waitingMs);
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        return analysisExecutor != null ? analysisExecutor.getQueue().size() : 0;
+    }
+    
+    @Override
+    public int getQueueCapacity() {
+        return Math.max(1, config.getAnalysisQueueCapacity());
+    }
+    
+    /**
+     * Arrête le pool d'analyse.
+     */
+    @PreDestroy
+    public void cleanup() {
+        if (analysisExecutor != null) {
+            analysisExecutor.shutdownNow();
+        }
     }
     
     /**
      * Analyse un média synchronisé.
      * 
      * @param media le média synchronisé à analyser
+     * @param audioChunk le segment audio du média, dont le buffer est retenu, ou null
      * @return le résultat de l'analyse
      */
-    private AnalysisResult analyzeSynchronizedMedia(SynchronizedMedia media) {
+    private AnalysisResult analyzeSynchronizedMedia(SynchronizedMedia media, AudioChunk audioChunk) {
         VideoFrame videoFrame = media.getVideoFrame();
-        AudioChunk audioChunk = media.getAudioChunk();
         
         // Si le média n'a pas de vidéo, on ne peut pas faire d'analyse
         if (!media.isHasVideo() || videoFrame == null) {
@@ -108,15 +390,57 @@ public class AnalysisService {
             return AnalysisResult.unknownActivity(0.0);
         }
         
-        // Préparer l'audio si disponible
+        // Préparer l'audio si disponible : fenêtre jointe à la trame, contexte lu dans l'historique
+        // continu, ou à défaut le seul segment
+        PcmWindow audioWindow = null;
         AudioInputStream audioStream = null;
-        if (media.isHasAudio() && audioChunk != null && audioChunk.getAudioData() != null) {
-            audioStream = convertToAudioStream(audioChunk);
+        if (media.isHasAudio() && media.getAudioWindow() != null) {
+            audioWindow = openAudioContext(media.getAudioWindow());
+        } else if (media.isHasAudio() && audioChunk != null && audioChunk.hasAudioData()) {
+            audioWindow = openAudioContext(audioChunk);
+            if (audioWindow == null) {
+                audioStream = convertToAudioStream(audioChunk);
+            }
         }
         
         // Appeler l'orchestrateur d'analyse avec la frame vidéo et l'audio (qui peut être null)
-        log.debug("Lancement de l'analyse pour le média synchronisé {}", media.getId());
-        return analysisOrchestrator.analyzeFrame(frame, audioStream);
+        log.debug("Lancement de l'analyse pour le média synchronisé {} (source {})", media.getId(), media.getSourceId());
+        return analysisOrchestrator.analyzeFrame(frame, audioStream, audioWindow, media.getSourceId());
+    }
+    
+    /**
+     * Ouvre la fenêtre de contexte audio se terminant au segment, lue dans
+     * l'historique continu du microphone du segment.
+     * 
+     * @param audioChunk le segment audio synchronisé
+     * @return la fenêtre, ou null si le contexte est désactivé ou indisponible
+     */
+    private PcmWindow openAudioContext(AudioChunk audioChunk) {
+        long contextMs = config.getAudioContextMs();
+        if (contextMs <= audioChunk.getDurationMs() || audioChunk.getTimestamp() == null) {
+            return null;
+        }
+        PcmWindow window = audioCaptureService.getAnalysisWindow(audioChunk.getSourceId(),
+                audioChunk.getEndTimestamp().minusMillis(contextMs), audioChunk.getEndTimestamp());
+        return window != null && window.getDurationMs() > audioChunk.getDurationMs() ? window : null;
+    }
+    
+    /**
+     * Étend au contexte audio configuré une fenêtre jointe à la trame plus courte
+     * que lui ; la fenêtre est conservée telle quelle si elle le couvre déjà.
+     * 
+     * @param audioWindow la fenêtre audio du média synchronisé
+     * @return la fenêtre de contexte se terminant à la même trame, ou la fenêtre du média
+     */
+    private PcmWindow openAudioContext(PcmWindow audioWindow) {
+        long contextMs = config.getAudioContextMs();
+        if (contextMs <= audioWindow.getDurationMs()) {
+            return audioWindow;
+        }
+        Instant end = audioWindow.getStartTime()
+                .plusNanos(audioWindow.getFrameCount() * 1_000_000_000L / audioWindow.getSampleRate());
+        PcmWindow window = audioCaptureService.getAnalysisWindow(audioWindow.getSourceId(), end.minusMillis(contextMs), end);
+        return window != null && window.getDurationMs() > audioWindow.getDurationMs() ? window : audioWindow;
     }
     
     /**
@@ -127,9 +451,20 @@ public class AnalysisService {
      */
     private AudioInputStream convertToAudioStream(AudioChunk audioChunk) {
         try {
-            // Utiliser Base64.getDecoder().decode() pour convertir la chaîne Base64 en bytes
-            byte[] audioData = java.util.Base64.getDecoder().decode(audioChunk.getAudioData());
-            if (audioData == null || audioData.length == 0) {
+            // Lire directement le buffer PCM partagé, retenu pendant l'analyse ;
+            // à défaut, décoder les données Base64
+            byte[] audioData;
+            int length;
+            AudioBufferLease lease = audioChunk.getAudioLease();
+            if (lease != null) {
+                audioData = lease.getData();
+                length = lease.getLength();
+            } else {
+                String encoded = audioChunk.getAudioData();
+                audioData = encoded != null ? java.util.Base64.getDecoder().decode(encoded) : null;
+                length = audioData != null ? audioData.length : 0;
+            }
+            if (audioData == null || length == 0) {
                 return null;
             }
             
@@ -143,11 +478,11 @@ public class AnalysisService {
             );
             
             // Créer un AudioInputStream à partir des données brutes
-            ByteArrayInputStream bis = new ByteArrayInputStream(audioData);
+            ByteArrayInputStream bis = new ByteArrayInputStream(audioData, 0, length);
             return new AudioInputStream(
                     bis,
                     format,
-                    audioData.length / format.getFrameSize()
+                    length / format.getFrameSize()
             );
         } catch (Exception e) {
             log.error("Erreur lors de la conversion de l'AudioChunk en AudioInputStream", e);
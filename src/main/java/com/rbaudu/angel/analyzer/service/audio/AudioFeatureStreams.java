@@ -0,0 +1,184 @@
+package com.rbaudu.angel.analyzer.service.audio;
+
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.util.FeaturePlan;
+import com.rbaudu.angel.analyzer.util.StreamingMfcc;
+import com.rbaudu.angel.service.PcmWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extraction incrémentale des MFCC de chaque microphone, lue dans son historique audio continu.
+ * <p>
+ * Les fenêtres de contexte de deux analyses successives se recouvrent
+ * largement : seules les trames postérieures à la dernière fenêtre traitée
+ * sont lues et calculées, les coefficients des trames précédentes sont
+ * conservés pour la durée du contexte. Les trames sont repérées par leur
+ * position absolue dans l'historique de la source ; un trou dans le signal
+ * (capture redémarrée, historique écrasé) réinitialise l'extracteur. Un
+ * changement de fréquence d'échantillonnage remplace l'extracteur de la
+ * source, dont le plan MFCC et la capacité en trames en dépendent.
+ */
+@Service
+public class AudioFeatureStreams {
+    private static final Logger logger = LoggerFactory.getLogger(AudioFeatureStreams.class);
+    
+    // Paramètres MFCC du modèle de classification audio
+    static final int FRAME_SIZE = 1024;
+    static final int HOP_SIZE = 512;
+    static final int NUM_COEFFICIENTS = 13;
+    static final int FILTER_COUNT = 40;
+    static final float MIN_FREQUENCY = 300;
+    static final float MAX_FREQUENCY = 3000;
+    
+    private final AnalyzerConfig config;
+    private final Map<String, SourceStream> streams = new ConcurrentHashMap<>();
+    
+    private final AtomicLong computedFrames = new AtomicLong();
+    private final AtomicLong reusedFrames = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration de l'analyseur
+     */
+    public AudioFeatureStreams(AnalyzerConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Calcule la moyenne des MFCC des trames contenues dans une fenêtre audio.
+     * @param window Fenêtre de l'historique continu d'un microphone
+     * @return Les coefficients moyens, nuls si la fenêtre est plus courte qu'une trame
+     * @throws IllegalStateException si la fenêtre a été écrasée pendant la lecture
+     */
+    public float[] averageMfcc(PcmWindow window) {
+        int sampleRate = window.getSampleRate();
+        SourceStream stream = streams.compute(window.getSourceId(), (id, current) -> {
+            if (current != null && current.sampleRate == sampleRate) {
+                return current;
+            }
+            if (current != null) {
+                resets.incrementAndGet();
+                logger.info("Extraction MFCC de {} reconstruite pour {} Hz (au lieu de {} Hz)",
+                        id, sampleRate, current.sampleRate);
+            }
+            return new SourceStream(sampleRate);
+        });
+        synchronized (stream) {
+            return stream.average(window);
+        }
+    }
+    
+    /**
+     * Récupère les statistiques de l'extraction incrémentale.
+     * 
+     * @return trames calculées, trames reprises d'une analyse précédente et réinitialisations
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long computed = computedFrames.get();
+        long reused = reusedFrames.get();
+        stats.put("sources", streams.size());
+        stats.put("computedFrames", computed);
+        stats.put("reusedFrames", reused);
+        stats.put("reusedFraction", computed + reused > 0
+                ? Math.round(reused * 1000.0 / (computed + reused)) / 1000.0 : 0.0);
+        stats.put("resets", resets.get());
+        stats.put("plans", FeaturePlan.getCacheStats());
+        return stats;
+    }
+    
+    /**
+     * Extracteur et trames récentes d'un microphone. Accès sous le verrou de l'instance.
+     */
+    private final class SourceStream {
+        private final StreamingMfcc mfcc;
+        private final int sampleRate;
+        
+        // Trames récentes, en tableau circulaire : coefficients et position absolue de fin
+        private final float[][] frames;
+        private final long[] frameEnds;
+        private int frameCount;
+        private int nextSlot;
+        
+        // Position absolue de l'origine de l'extracteur, et du prochain échantillon à lui fournir
+        private long origin;
+        private long nextPosition = -1;
+        private float[] scratch = new float[0];
+        
+        SourceStream(int sampleRate) {
+            this.sampleRate = sampleRate;
+            this.mfcc = new StreamingMfcc(FeaturePlan.of(sampleRate, FRAME_SIZE, NUM_COEFFICIENTS,
+                    FILTER_COUNT, MIN_FREQUENCY, MAX_FREQUENCY), HOP_SIZE);
+            int capacity = (int) (Math.max(1000, config.getAudioContextMs()) * sampleRate / 1000 / HOP_SIZE) + 2;
+            this.frames = new float[capacity][NUM_COEFFICIENTS];
+            this.frameEnds = new long[capacity];
+        }
+        
+        float[] average(PcmWindow window) {
+            long start = window.getStartFrame();
+            long end = start + window.getFrameCount();
+            
+            // Trou dans le signal : les trames conservées ne sont plus contiguës
+            if (nextPosition < 0 || start > nextPosition) {
+                if (nextPosition >= 0) {
+                    resets.incrementAndGet();
+                    logger.debug("Extraction MFCC de {} réinitialisée à la position {}", window.getSourceId(), start);
+                }
+                mfcc.reset();
+                frameCount = 0;
+                origin = start;
+                nextPosition = start;
+            }
+            
+            // Ne calculer que les échantillons postérieurs à la dernière fenêtre traitée
+            int computedNow = 0;
+            if (end > nextPosition) {
+                int count = (int) (end - nextPosition);
+                if (scratch.length < count) {
+                    scratch = new float[count];
+                }
+                window.readMono((int) (nextPosition - start), scratch, 0, count);
+                computedNow = mfcc.process(scratch, 0, count, this::store);
+                computedFrames.addAndGet(computedNow);
+                nextPosition = end;
+            }
+            
+            // Moyenne des trames entièrement contenues dans la fenêtre
+            float[] average = new float[NUM_COEFFICIENTS];
+            int used = 0;
+            for (int i = 0; i < frameCount; i++) {
+                int slot = Math.floorMod(nextSlot - 1 - i, frames.length);
+                long frameEnd = frameEnds[slot];
+                if (frameEnd <= end && frameEnd - FRAME_SIZE >= start) {
+                    float[] coefficients = frames[slot];
+                    for (int c = 0; c < NUM_COEFFICIENTS; c++) {
+                        average[c] += coefficients[c];
+                    }
+                    used++;
+                }
+            }
+            if (used > 0) {
+                for (int c = 0; c < NUM_COEFFICIENTS; c++) {
+                    average[c] /= used;
+                }
+            }
+            reusedFrames.addAndGet(Math.max(0, used - computedNow));
+            return average;
+        }
+        
+        private void store(long frameIndex, long endSample, float[] coefficients) {
+            System.arraycopy(coefficients, 0, frames[nextSlot], 0, NUM_COEFFICIENTS);
+            frameEnds[nextSlot] = origin + endSample;
+            nextSlot = (nextSlot + 1) % frames.length;
+            frameCount = Math.min(frameCount + 1, frames.length);
+        }
+    }
+}
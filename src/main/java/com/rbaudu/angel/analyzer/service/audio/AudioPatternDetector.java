@@ -2,8 +2,11 @@ package com.rbaudu.angel.analyzer.service.audio;
 
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
 import com.rbaudu.angel.analyzer.model.ActivityType;
+import com.rbaudu.angel.analyzer.model.VoiceActivity;
+import com.rbaudu.angel.analyzer.util.AudioKernels;
 import com.rbaudu.angel.analyzer.util.AudioUtils;
 import com.rbaudu.angel.analyzer.util.ModelLoader;
+import com.rbaudu.angel.service.PcmWindow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -18,12 +21,21 @@ import jakarta.annotation.PostConstruct;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import java.nio.FloatBuffer;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service de détection de patterns audio pour l'identification d'activités.
+ * Chaque fenêtre passe d'abord par le {@link VoiceActivityDetector} : le modèle
+ * n'est exécuté que sur les fenêtres non silencieuses, et une fenêtre
+ * silencieuse ne produit aucun score, pour laisser la fusion s'appuyer sur la
+ * seule vidéo plutôt que sur une classe silence inventée. Les fenêtres lues dans
+ * l'historique continu d'un microphone bénéficient de l'extraction
+ * incrémentale des MFCC ({@link AudioFeatureStreams}).
  */
 @Service
 public class AudioPatternDetector {
@@ -32,19 +44,36 @@ public class AudioPatternDetector {
     private final ModelLoader modelLoader;
     private final AudioUtils audioUtils;
     private final AnalyzerConfig config;
+    private final VoiceActivityDetector voiceActivityDetector;
+    private final AudioFeatureStreams featureStreams;
+    
+    // Échantillons mono lus pour le détecteur d'activité vocale, propres à chaque thread d'analyse
+    private final ThreadLocal<float[]> vadSamples = ThreadLocal.withInitial(() -> new float[0]);
     
     private SavedModelBundle model;
     
+    private final Map<VoiceActivity, AtomicLong> activityCounts = new EnumMap<>(VoiceActivity.class);
+    private final AtomicLong inferenceCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    
     /**
      * Constructeur avec injection de dépendances.
      * @param modelLoader Chargeur de modèle TensorFlow
      * @param audioUtils Utilitaires audio
      * @param config Configuration de l'analyseur
+     * @param voiceActivityDetector Détecteur d'activité vocale
+     * @param featureStreams Extraction incrémentale des MFCC par microphone
      */
-    public AudioPatternDetector(ModelLoader modelLoader, AudioUtils audioUtils, AnalyzerConfig config) {
+    public AudioPatternDetector(ModelLoader modelLoader, AudioUtils audioUtils, AnalyzerConfig config,
+                                VoiceActivityDetector voiceActivityDetector, AudioFeatureStreams featureStreams) {
         this.modelLoader = modelLoader;
         this.audioUtils = audioUtils;
         this.config = config;
+        this.voiceActivityDetector = voiceActivityDetector;
+        this.featureStreams = featureStreams;
+        for (VoiceActivity activity : VoiceActivity.values()) {
+            activityCounts.put(activity, new AtomicLong());
+        }
     }
     
     /**
@@ -97,42 +126,120 @@ public class AudioPatternDetector {
             byte[] audioData = new byte[(int) standardizedStream.getFrameLength() * targetFormat.getFrameSize()];
             standardizedStream.read(audioData);
             
-            float[] mfcc = audioUtils.extractMFCC(audioData, targetFormat.getSampleRate(), 13);
-            
-            // Conversion en Tensor
-            TFloat32 featureTensor = audioUtils.audioToTensor(mfcc);
-            
-            // Exécution de l'inférence
-            Session.Runner runner = model.session().runner()
-                    .feed("input", featureTensor)
-                    .fetch("output");
-            
-            Result outputs = runner.run();
-            TFloat32 resultTensor = (TFloat32) outputs.get(0);
+            // Filtrage par l'activité vocale : pas d'inférence sur un silence
+            if (config.isVadEnabled()) {
+                float[] samples = audioUtils.pcmToFloat(audioData);
+                if (isSilent(samples, samples.length)) {
+                    return new HashMap<>();
+                }
+            }
+            inferenceCount.incrementAndGet();
             
-            // Extraire les résultats du tensor en utilisant un tampon
-            int numClasses = 5; // Supposons 5 types de sons identifiables
-            float[] audioClasses = new float[numClasses];
-           
-            // Pour TensorFlow 0.4.0, extraire d'abord les données dans un FloatBuffer
-            FloatBuffer resultBuffer = FloatBuffer.allocate(numClasses);
-            resultTensor.copyTo(DataBuffers.of(resultBuffer));
-            resultBuffer.position(0);  // Rewind the buffer
-            resultBuffer.get(audioClasses);
+            float[] mfcc = audioUtils.extractMFCC(audioData, targetFormat.getSampleRate(), 13);
+            return classifyFeatures(mfcc);
             
-            // Conversion en Map d'activités
-            Map<ActivityType, Double> result = new HashMap<>();
-            mapAudioClassesToActivities(audioClasses, result);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la détection de patterns audio", e);
+            return new HashMap<>();
+        }
+    }
+    
+    /**
+     * Détecte des patterns audio dans une fenêtre de l'historique continu d'un
+     * microphone. Les échantillons sont lus directement dans l'historique, et
+     * les MFCC des trames déjà calculées lors d'une analyse précédente sont repris.
+     * @param window Fenêtre audio à analyser
+     * @return Map des types d'activités avec leur score de confiance
+     */
+    public Map<ActivityType, Double> detectAudioPatterns(PcmWindow window) {
+        if (!config.isAudioAnalysisEnabled() || model == null) {
+            logger.warn("Détection de patterns audio impossible : désactivée ou modèle non chargé");
+            return new HashMap<>();
+        }
+        
+        // Une fenêtre à une autre fréquence que celle du modèle passe par la conversion de format
+        if (window.getSampleRate() != config.getAudioSampleRate()) {
+            return detectAudioPatterns(window.openStream());
+        }
+        
+        try {
+            // Filtrage par l'activité vocale : pas d'inférence sur un silence
+            if (config.isVadEnabled()) {
+                float[] samples = vadSamples.get();
+                if (samples.length < window.getFrameCount()) {
+                    samples = new float[window.getFrameCount()];
+                    vadSamples.set(samples);
+                }
+                int length = window.readMono(samples, 0);
+                if (isSilent(samples, length)) {
+                    return new HashMap<>();
+                }
+            }
+            inferenceCount.incrementAndGet();
             
-            logger.debug("Patterns audio détectés: {}", result);
-            return result;
+            return classifyFeatures(featureStreams.averageMfcc(window));
             
+        } catch (IllegalStateException e) {
+            logger.debug("Fenêtre audio {} écrasée avant son analyse", window.getSourceId());
+            return new HashMap<>();
         } catch (Exception e) {
             logger.error("Erreur lors de la détection de patterns audio", e);
             return new HashMap<>();
         }
     }
     
+    /**
+     * Classe une fenêtre avec le détecteur d'activité vocale et compte le résultat.
+     * @param samples Échantillons mono normalisés
+     * @param length Nombre d'échantillons significatifs
+     * @return true si la fenêtre est silencieuse et que l'inférence doit être ignorée
+     */
+    private boolean isSilent(float[] samples, int length) {
+        VoiceActivity activity = voiceActivityDetector.classify(samples, length);
+        activityCounts.get(activity).incrementAndGet();
+        if (activity == VoiceActivity.SILENCE) {
+            skippedCount.incrementAndGet();
+            logger.debug("Fenêtre audio silencieuse, inférence ignorée");
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Exécute le modèle de classification sur des coefficients MFCC.
+     * @param mfcc Coefficients MFCC moyens de la fenêtre
+     * @return Map des types d'activités avec leur score de confiance
+     */
+    private Map<ActivityType, Double> classifyFeatures(float[] mfcc) {
+        // Conversion en Tensor
+        TFloat32 featureTensor = audioUtils.audioToTensor(mfcc);
+        
+        // Exécution de l'inférence
+        Session.Runner runner = model.session().runner()
+                .feed("input", featureTensor)
+                .fetch("output");
+        
+        Result outputs = runner.run();
+        TFloat32 resultTensor = (TFloat32) outputs.get(0);
+        
+        // Extraire les résultats du tensor en utilisant un tampon
+        int numClasses = 5; // Supposons 5 types de sons identifiables
+        float[] audioClasses = new float[numClasses];
+       
+        // Pour TensorFlow 0.4.0, extraire d'abord les données dans un FloatBuffer
+        FloatBuffer resultBuffer = FloatBuffer.allocate(numClasses);
+        resultTensor.copyTo(DataBuffers.of(resultBuffer));
+        resultBuffer.position(0);  // Rewind the buffer
+        resultBuffer.get(audioClasses);
+        
+        // Conversion en Map d'activités
+        Map<ActivityType, Double> result = new HashMap<>();
+        mapAudioClassesToActivities(audioClasses, result);
+        
+        logger.debug("Patterns audio détectés: {}", result);
+        return result;
+    }
+    
     /**
      * Mappe les classes audio vers des types d'activités.
      * @param audioClasses Probabilités des classes audio
@@ -191,12 +298,13 @@ public class AudioPatternDetector {
             float[] samples = audioUtils.pcmToFloat(audioData);
             
             // Calcul du niveau sonore (RMS)
-            double rms = calculateRMS(samples);
+            double rms = AudioKernels.rms(samples, 0, samples.length);
             features.put("soundLevel", rms);
             
-            // Détection de parole (simplifiée)
-            boolean speechDetected = detectSpeech(samples, audioStream.getFormat().getSampleRate());
-            features.put("speechDetected", speechDetected);
+            // Détection de parole par le détecteur d'activité vocale
+            VoiceActivity activity = voiceActivityDetector.classify(samples, samples.length);
+            features.put("voiceActivity", activity);
+            features.put("speechDetected", activity == VoiceActivity.VOICE);
             
             // Autres caractéristiques à implémenter selon les besoins
             
@@ -209,45 +317,21 @@ public class AudioPatternDetector {
     }
     
     /**
-     * Calcule le niveau sonore (Root Mean Square) d'un signal audio.
-     * @param samples Échantillons audio
-     * @return Valeur RMS
-     */
-    private double calculateRMS(float[] samples) {
-        double sum = 0.0;
-        for (float sample : samples) {
-            sum += sample * sample;
-        }
-        return Math.sqrt(sum / samples.length);
-    }
-    
-    /**
-     * Détecte la présence de parole dans un signal audio (implémentation simplifiée).
-     * Une implémentation réelle utiliserait des techniques de traitement du signal plus avancées.
+     * Récupère les statistiques du filtrage par l'activité vocale.
      * 
-     * @param samples Échantillons audio
-     * @param sampleRate Taux d'échantillonnage
-     * @return true si de la parole est détectée, false sinon
+     * @return fenêtres par activité, inférences lancées et ignorées, et extraction incrémentale des MFCC
      */
-    private boolean detectSpeech(float[] samples, float sampleRate) {
-        // Une implémentation simplifiée basée sur l'énergie et le taux de passage par zéro
-        
-        // Calcul de l'énergie
-        double energy = calculateRMS(samples);
-        
-        // Calcul du taux de passage par zéro
-        int zeroCrossings = 0;
-        for (int i = 1; i < samples.length; i++) {
-            if ((samples[i] > 0 && samples[i-1] <= 0) || 
-                (samples[i] < 0 && samples[i-1] >= 0)) {
-                zeroCrossings++;
-            }
-        }
-        double zeroCrossingRate = zeroCrossings / (double) samples.length;
-        
-        // Heuristique simplifiée : la parole a généralement une énergie modérée
-        // et un taux de passage par zéro dans une certaine plage
-        return energy > 0.01 && energy < 0.2 && 
-               zeroCrossingRate > 0.01 && zeroCrossingRate < 0.1;
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long inferences = inferenceCount.get();
+        long skipped = skippedCount.get();
+        stats.put("vadEnabled", config.isVadEnabled());
+        activityCounts.forEach((activity, count) -> stats.put(activity.name().toLowerCase(), count.get()));
+        stats.put("inferences", inferences);
+        stats.put("skippedInferences", skipped);
+        stats.put("skippedFraction", inferences + skipped > 0
+                ? Math.round(skipped * 1000.0 / (inferences + skipped)) / 1000.0 : 0.0);
+        stats.put("mfccStreams", featureStreams.getStats());
+        return stats;
     }
 }
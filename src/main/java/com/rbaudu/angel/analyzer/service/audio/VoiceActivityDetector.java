@@ -0,0 +1,131 @@
+package com.rbaudu.angel.analyzer.service.audio;
+
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.model.VoiceActivity;
+import com.rbaudu.angel.analyzer.util.AudioKernels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HammingWindow;
+
+import java.util.Arrays;
+
+/**
+ * Détecteur d'activité vocale placé devant le modèle de classification audio.
+ * <p>
+ * La fenêtre est découpée en trames de {@value #FRAME_SIZE} échantillons. Les
+ * trames dont le niveau RMS est sous le seuil de silence sont ignorées ; si
+ * aucune ne le dépasse, la fenêtre est un silence. Sinon, le taux de passage
+ * par zéro et la planéité spectrale (moyenne géométrique sur moyenne
+ * arithmétique du spectre de puissance) des trames actives distinguent la
+ * voix, harmonique et de taux de passage par zéro modéré, du bruit, dont le
+ * spectre est plat.
+ */
+@Service
+public class VoiceActivityDetector {
+    private static final Logger logger = LoggerFactory.getLogger(VoiceActivityDetector.class);
+    
+    /**
+     * Taille des trames d'analyse, en échantillons (puissance de 2 pour la FFT)
+     */
+    static final int FRAME_SIZE = 1024;
+    
+    // Plage de taux de passage par zéro de la parole, par échantillon
+    private static final double MIN_VOICE_ZCR = 0.01;
+    private static final double MAX_VOICE_ZCR = 0.1;
+    
+    // Plancher de puissance évitant log(0) dans la moyenne géométrique
+    private static final double POWER_FLOOR = 1e-12;
+    
+    private final AnalyzerConfig config;
+    
+    // Tampons de FFT propres à chaque thread d'analyse
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+    
+    /**
+     * Constructeur avec injection de dépendances.
+     * @param config Configuration de l'analyseur
+     */
+    public VoiceActivityDetector(AnalyzerConfig config) {
+        this.config = config;
+    }
+    
+    /**
+     * Classe une fenêtre audio en silence, bruit ou voix.
+     * @param samples Échantillons mono normalisés entre -1.0 et 1.0
+     * @param length Nombre d'échantillons significatifs
+     * @return l'activité vocale de la fenêtre
+     */
+    public VoiceActivity classify(float[] samples, int length) {
+        if (length <= 0) {
+            return VoiceActivity.SILENCE;
+        }
+        
+        double silenceRms = config.getVadSilenceRms();
+        Workspace workspace = workspaces.get();
+        int activeFrames = 0;
+        double zcrSum = 0.0;
+        double flatnessSum = 0.0;
+        
+        // Une fenêtre plus courte qu'une trame est analysée comme une seule trame complétée par des zéros
+        for (int offset = 0; offset < length; offset += FRAME_SIZE) {
+            int frameLength = Math.min(FRAME_SIZE, length - offset);
+            if (frameLength < FRAME_SIZE / 2 && offset > 0) {
+                break;
+            }
+            if (AudioKernels.rms(samples, offset, frameLength) < silenceRms) {
+                continue;
+            }
+            activeFrames++;
+            zcrSum += AudioKernels.zeroCrossingRate(samples, offset, frameLength);
+            flatnessSum += workspace.spectralFlatness(samples, offset, frameLength);
+        }
+        
+        if (activeFrames == 0) {
+            return VoiceActivity.SILENCE;
+        }
+        
+        double zeroCrossingRate = zcrSum / activeFrames;
+        double flatness = flatnessSum / activeFrames;
+        VoiceActivity activity = zeroCrossingRate > MIN_VOICE_ZCR && zeroCrossingRate < MAX_VOICE_ZCR
+                && flatness < config.getVadFlatnessThreshold()
+                ? VoiceActivity.VOICE : VoiceActivity.NOISE;
+        
+        logger.trace("Activité vocale {} : {} trames actives, ZCR {}, planéité {}",
+                activity, activeFrames, zeroCrossingRate, flatness);
+        return activity;
+    }
+    
+    /**
+     * Tampons d'une FFT de {@value #FRAME_SIZE} points, réutilisés par un thread.
+     */
+    private static final class Workspace {
+        private final FFT fft = new FFT(FRAME_SIZE, new HammingWindow());
+        private final float[] buffer = new float[FRAME_SIZE * 2];
+        private final float[] amplitudes = new float[FRAME_SIZE / 2];
+        
+        /**
+         * Calcule la planéité spectrale d'une trame : proche de 1 pour un bruit
+         * blanc, proche de 0 pour un son harmonique.
+         */
+        double spectralFlatness(float[] samples, int offset, int length) {
+            Arrays.fill(buffer, 0f);
+            System.arraycopy(samples, offset, buffer, 0, length);
+            fft.forwardTransform(buffer);
+            fft.modulus(buffer, amplitudes);
+            
+            // La composante continue est exclue
+            double logSum = 0.0;
+            double sum = 0.0;
+            int bins = amplitudes.length - 1;
+            for (int i = 1; i < amplitudes.length; i++) {
+                double power = (double) amplitudes[i] * amplitudes[i] + POWER_FLOOR;
+                logSum += Math.log(power);
+                sum += power;
+            }
+            return Math.exp(logSum / bins) / (sum / bins);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.rbaudu.angel.analyzer.service.video;
 
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.model.RegionOfInterest;
 import com.rbaudu.angel.analyzer.util.ModelLoader;
 import com.rbaudu.angel.analyzer.util.VideoUtils;
 import static org.bytedeco.opencv.global.opencv_core.*; // Import des constantes OpenCV
@@ -74,15 +75,26 @@ public class PresenceDetector {
      * @return true si une personne est détectée, false sinon
      */
     public boolean isPersonPresent(Mat frame) {
+        return isPersonPresent(frame, null);
+    }
+    
+    /**
+     * Détecte si une personne est présente dans la région d'intérêt de l'image.
+     * Seul le rectangle englobant de la région est soumis au modèle ; pour une
+     * région polygonale, les détections dont le centre est hors du polygone sont ignorées.
+     * @param frame Image à analyser
+     * @param region Région d'intérêt, ou null pour l'image entière
+     * @return true si une personne est détectée dans la région, false sinon
+     */
+    public boolean isPersonPresent(Mat frame, RegionOfInterest region) {
         if (model == null) {
             logger.warn("Détection de présence impossible : modèle non chargé");
             return false;
         }
         
         try {
-            // Redimensionner et prétraiter l'image
-            Mat processedFrame = videoUtils.resizeFrame(frame, 320, 320);
-            Tensor imageTensor = videoUtils.prepareImageForModel(processedFrame, 320, 320);
+            // Recadrer sur la région d'intérêt, redimensionner et prétraiter l'image
+            Tensor imageTensor = videoUtils.prepareImageForModel(frame, 320, 320, region);
             
             // Exécuter l'inférence
             Session.Runner runner = model.session().runner()
@@ -122,6 +134,15 @@ public class PresenceDetector {
                 
                 // Classe 1 pour "personne" dans COCO
                 if (classId == 1 && score > config.getPresenceThreshold()) {
+                    if (region != null && !region.isRectangle()) {
+                        // Coordonnées normalisées sur l'image recadrée : [y1, x1, y2, x2]
+                        double centerX = (result[0][i][1] + result[0][i][3]) / 2.0;
+                        double centerY = (result[0][i][0] + result[0][i][2]) / 2.0;
+                        if (!region.containsCropPoint(centerX, centerY)) {
+                            logger.debug("Personne détectée hors de la région d'intérêt, ignorée");
+                            continue;
+                        }
+                    }
                     logger.debug("Personne détectée avec un score de {}", score);
                     return true;
                 }
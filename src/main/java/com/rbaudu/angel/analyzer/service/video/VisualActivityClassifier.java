@@ -2,6 +2,7 @@ package com.rbaudu.angel.analyzer.service.video;
 
 import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
 import com.rbaudu.angel.analyzer.model.ActivityType;
+import com.rbaudu.angel.analyzer.model.RegionOfInterest;
 import com.rbaudu.angel.analyzer.util.ModelLoader;
 import com.rbaudu.angel.analyzer.util.VideoUtils;
 import org.bytedeco.opencv.opencv_core.Mat;
@@ -69,6 +70,16 @@ public class VisualActivityClassifier {
      * @return Map des types d'activités avec leur score de confiance
      */
     public Map<ActivityType, Double> classifyActivity(Mat frame) {
+        return classifyActivity(frame, null);
+    }
+    
+    /**
+     * Classifie l'activité visible dans la région d'intérêt de l'image.
+     * @param frame Image à analyser
+     * @param region Région d'intérêt, ou null pour l'image entière
+     * @return Map des types d'activités avec leur score de confiance
+     */
+    public Map<ActivityType, Double> classifyActivity(Mat frame, RegionOfInterest region) {
         if (model == null) {
             logger.warn("Classification d'activités impossible : modèle non chargé");
             return new HashMap<>();
@@ -79,7 +90,8 @@ public class VisualActivityClassifier {
             Tensor imageTensor = videoUtils.prepareImageForModel(
                     frame, 
                     config.getInputImageWidth(),
-                    config.getInputImageHeight());
+                    config.getInputImageHeight(),
+                    region);
             
             // Exécution de la classification avec TensorFlow
             Session.Runner runner = model.session().runner()
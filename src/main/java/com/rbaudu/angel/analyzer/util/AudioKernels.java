@@ -0,0 +1,272 @@
+package com.rbaudu.angel.analyzer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Noyaux de calcul sur les échantillons audio : crête, moyenne absolue, RMS,
+ * dBFS, taux de passage par zéro et énergie spectrale.
+ * <p>
+ * Les noyaux opèrent sur des échantillons flottants normalisés entre -1.0 et
+ * 1.0. L'implémentation par défaut est scalaire. Une implémentation avec l'API
+ * Vector du JDK ({@code jdk.incubator.vector}), {@code VectorAudioKernels}, est
+ * compilée par le profil Maven {@code vector} seulement, et chargée par
+ * réflexion lorsqu'elle est présente et que le module est chargé au démarrage
+ * ({@code --add-modules jdk.incubator.vector}) : le reste de l'application ne
+ * dépend pas du module incubateur. La propriété système
+ * {@code angel.dsp.vector=false} force l'implémentation scalaire.
+ */
+public final class AudioKernels {
+    private static final Logger logger = LoggerFactory.getLogger(AudioKernels.class);
+
+    /**
+     * Niveau minimal retourné par {@link #toDbfs(double)}, pour un signal nul.
+     */
+    public static final double MIN_DBFS = -120.0;
+
+    private static final String VECTOR_CLASS = "com.rbaudu.angel.analyzer.util.VectorAudioKernels";
+
+    /**
+     * Implémentation scalaire, toujours disponible.
+     */
+    static final Backend SCALAR = new ScalarKernels();
+
+    /**
+     * Implémentation vectorielle, ou null si elle n'est pas compilée ou si le module est absent.
+     */
+    static final Backend VECTOR = loadVectorKernels();
+
+    private static final Backend BACKEND = selectBackend();
+
+    private AudioKernels() {
+    }
+
+    /**
+     * Opérations dont dépendent les noyaux publics, fournies par chaque implémentation.
+     * Les bornes sont vérifiées par l'appelant.
+     */
+    interface Backend {
+        float peak(float[] samples, int offset, int length);
+
+        double sumAbs(float[] samples, int offset, int length);
+
+        double sumSquares(float[] samples, int offset, int length);
+
+        double sumSquares(float[] real, float[] imaginary, int offset, int length);
+
+        int zeroCrossings(float[] samples, int offset, int length);
+    }
+
+    /**
+     * Charge l'implémentation vectorielle si elle a été compilée et si le module est présent.
+     *
+     * @return l'implémentation vectorielle, ou null
+     */
+    private static Backend loadVectorKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Backend) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            // Construit sans le profil vector
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("API Vector indisponible, noyaux audio scalaires", e);
+            return null;
+        }
+    }
+
+    private static Backend selectBackend() {
+        if (VECTOR == null) {
+            logger.info("Noyaux audio scalaires");
+            return SCALAR;
+        }
+        if (!Boolean.parseBoolean(System.getProperty("angel.dsp.vector", "true"))) {
+            logger.info("Noyaux audio vectoriels désactivés par configuration");
+            return SCALAR;
+        }
+        logger.info("Noyaux audio vectoriels actifs");
+        return VECTOR;
+    }
+
+    /**
+     * @return true si les noyaux utilisent l'API Vector
+     */
+    public static boolean isVectorized() {
+        return BACKEND != SCALAR;
+    }
+
+    /**
+     * Convertit des échantillons PCM 16 bits signés little-endian en flottants normalisés.
+     *
+     * @param pcm données PCM
+     * @param length nombre d'octets significatifs
+     * @param target tableau de destination, d'au moins length / 2 éléments
+     * @return le nombre d'échantillons convertis
+     */
+    public static int pcm16ToFloat(byte[] pcm, int length, float[] target) {
+        int count = Math.min(length / 2, target.length);
+        for (int i = 0; i < count; i++) {
+            target[i] = (short) ((pcm[2 * i] & 0xFF) | (pcm[2 * i + 1] << 8)) / 32768.0f;
+        }
+        return count;
+    }
+
+    /**
+     * Calcule la valeur crête (maximum de la valeur absolue).
+     *
+     * @param samples échantillons
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @return la crête, 0 pour une plage vide
+     */
+    public static float peak(float[] samples, int offset, int length) {
+        checkRange(samples.length, offset, length);
+        return BACKEND.peak(samples, offset, length);
+    }
+
+    /**
+     * Calcule la moyenne de la valeur absolue.
+     *
+     * @param samples échantillons
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @return la moyenne absolue, 0 pour une plage vide
+     */
+    public static double meanAbs(float[] samples, int offset, int length) {
+        checkRange(samples.length, offset, length);
+        if (length == 0) {
+            return 0.0;
+        }
+        return BACKEND.sumAbs(samples, offset, length) / length;
+    }
+
+    /**
+     * Calcule la somme des carrés des échantillons.
+     *
+     * @param samples échantillons
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @return l'énergie de la plage
+     */
+    public static double energy(float[] samples, int offset, int length) {
+        checkRange(samples.length, offset, length);
+        return BACKEND.sumSquares(samples, offset, length);
+    }
+
+    /**
+     * Calcule le niveau RMS (Root Mean Square).
+     *
+     * @param samples échantillons
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @return la valeur RMS, 0 pour une plage vide
+     */
+    public static double rms(float[] samples, int offset, int length) {
+        return length > 0 ? Math.sqrt(energy(samples, offset, length) / length) : 0.0;
+    }
+
+    /**
+     * Convertit un niveau normalisé (0-1) en dBFS, borné à {@link #MIN_DBFS}.
+     *
+     * @param level niveau normalisé
+     * @return niveau en dBFS
+     */
+    public static double toDbfs(double level) {
+        return level > 0 ? Math.max(MIN_DBFS, 20 * Math.log10(level)) : MIN_DBFS;
+    }
+
+    /**
+     * Calcule le taux de passage par zéro : proportion des échantillons dont le
+     * signe change par rapport au précédent (un zéro compte comme positif en
+     * descente et négatif en montée).
+     *
+     * @param samples échantillons
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @return le taux de passage par zéro entre 0 et 1
+     */
+    public static double zeroCrossingRate(float[] samples, int offset, int length) {
+        checkRange(samples.length, offset, length);
+        if (length < 2) {
+            return 0.0;
+        }
+        return BACKEND.zeroCrossings(samples, offset, length) / (double) length;
+    }
+
+    /**
+     * Calcule l'énergie d'un spectre complexe sur une plage de bandes de fréquence.
+     *
+     * @param real parties réelles du spectre
+     * @param imaginary parties imaginaires du spectre
+     * @param fromBin première bande
+     * @param toBin dernière bande (exclue)
+     * @return la somme des carrés des modules sur la plage
+     */
+    public static double spectralEnergy(float[] real, float[] imaginary, int fromBin, int toBin) {
+        int length = toBin - fromBin;
+        checkRange(Math.min(real.length, imaginary.length), fromBin, length);
+        return BACKEND.sumSquares(real, imaginary, fromBin, length);
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > arrayLength) {
+            throw new IndexOutOfBoundsException(
+                    "Plage [" + offset + ", " + (offset + length) + ") hors du tableau de " + arrayLength + " éléments");
+        }
+    }
+
+    /**
+     * Implémentation scalaire des noyaux.
+     */
+    private static final class ScalarKernels implements Backend {
+
+        @Override
+        public float peak(float[] samples, int offset, int length) {
+            float max = 0f;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                max = Math.max(max, Math.abs(samples[i]));
+            }
+            return max;
+        }
+
+        @Override
+        public double sumAbs(float[] samples, int offset, int length) {
+            double sum = 0.0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                sum += Math.abs(samples[i]);
+            }
+            return sum;
+        }
+
+        @Override
+        public double sumSquares(float[] samples, int offset, int length) {
+            double sum = 0.0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                sum += samples[i] * samples[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public double sumSquares(float[] real, float[] imaginary, int offset, int length) {
+            double sum = 0.0;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                sum += real[i] * real[i] + imaginary[i] * imaginary[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public int zeroCrossings(float[] samples, int offset, int length) {
+            int crossings = 0;
+            for (int i = offset + 1, end = offset + length; i < end; i++) {
+                if ((samples[i] > 0 && samples[i - 1] <= 0) || (samples[i] < 0 && samples[i - 1] >= 0)) {
+                    crossings++;
+                }
+            }
+            return crossings;
+        }
+    }
+}
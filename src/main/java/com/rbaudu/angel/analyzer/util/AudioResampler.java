@@ -0,0 +1,269 @@
+package com.rbaudu.angel.analyzer.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rééchantillonneur polyphase en flux, avec réduction des canaux en mono.
+ * <p>
+ * Convertit des segments PCM 16 bits signés little-endian entrelacés, à la
+ * fréquence de capture, en PCM 16 bits mono à la fréquence cible. Le rapport
+ * des fréquences est réduit à L/M ; le filtre passe-bas (sinus cardinal
+ * fenêtré par Blackman) est décomposé en L phases de quelques coefficients,
+ * de sorte que chaque échantillon produit ne coûte qu'un produit scalaire
+ * court. Les tables de filtre sont immuables et partagées par toutes les
+ * instances de même rapport.
+ * <p>
+ * L'historique nécessaire au filtre est conservé d'un segment à l'autre, et
+ * les tampons d'entrée et de sortie sont réutilisés : une fois dimensionnés
+ * par le premier segment, {@link #process} n'alloue plus. Une instance n'est
+ * pas partagée entre threads.
+ */
+public final class AudioResampler {
+
+    // Passages par zéro du sinus cardinal de chaque côté du centre, par phase
+    private static final int ZERO_CROSSINGS = 16;
+    // Fraction de la fréquence de Nyquist conservée par le passe-bas
+    private static final double ROLLOFF = 0.9;
+    // Au-delà, le rapport des fréquences est trop irrégulier pour une table polyphase
+    private static final int MAX_PHASES = 4096;
+
+    private static final Map<Long, Filter> FILTERS = new ConcurrentHashMap<>();
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int channels;
+    private final Filter filter;
+
+    // Entrée mono : historique du filtre suivi des échantillons du segment courant
+    private float[] input;
+    private int filled;
+    private long bufferStart;
+
+    // Position du prochain échantillon produit : dernier échantillon d'entrée utilisé et phase
+    private long nextInput;
+    private int phase;
+
+    private long inputConsumed;
+    private long outputProduced;
+
+    private byte[] output = new byte[0];
+    private long outputStartNanos;
+
+    /**
+     * Crée un rééchantillonneur.
+     *
+     * @param inputRate fréquence d'entrée
+     * @param channels nombre de canaux entrelacés de l'entrée
+     * @param outputRate fréquence de sortie
+     * @throws IllegalArgumentException si les fréquences ne se prêtent pas à un filtre polyphase
+     */
+    public AudioResampler(int inputRate, int channels, int outputRate) {
+        if (inputRate <= 0 || outputRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Paramètres de rééchantillonnage invalides");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        this.filter = filterFor(inputRate, outputRate);
+        this.input = new float[filter.taps - 1];
+        reset();
+    }
+
+    /**
+     * Récupère la table de filtre d'un rapport de fréquences, construite au premier appel.
+     */
+    private static Filter filterFor(int inputRate, int outputRate) {
+        int gcd = gcd(inputRate, outputRate);
+        int up = outputRate / gcd;
+        int down = inputRate / gcd;
+        if (up > MAX_PHASES) {
+            throw new IllegalArgumentException("Rapport de rééchantillonnage " + inputRate + " -> "
+                    + outputRate + " non pris en charge");
+        }
+        return FILTERS.computeIfAbsent(((long) up << 32) | down, k -> new Filter(up, down));
+    }
+
+    /**
+     * Oublie l'historique, par exemple après une interruption du signal.
+     */
+    public void reset() {
+        // L'historique initial est un silence précédant le premier échantillon
+        Arrays.fill(input, 0f);
+        filled = filter.taps - 1;
+        bufferStart = -(filter.taps - 1);
+        nextInput = 0;
+        phase = 0;
+        inputConsumed = 0;
+        outputProduced = 0;
+    }
+
+    /**
+     * Rééchantillonne un segment. Le résultat est disponible dans {@link #getOutput()}
+     * jusqu'à l'appel suivant.
+     *
+     * @param pcm échantillons PCM 16 bits signés little-endian entrelacés
+     * @param length nombre d'octets significatifs
+     * @param startNanos instant de la première trame du segment, en nanosecondes depuis l'epoch
+     * @return le nombre d'échantillons mono produits
+     */
+    public int process(byte[] pcm, int length, long startNanos) {
+        int frames = length / (2 * channels);
+        appendMono(pcm, frames);
+
+        // Dimensionner la sortie pour le pire cas du segment
+        int maxOutput = (int) ((long) (frames + 1) * filter.up / filter.down) + 1;
+        if (output.length < maxOutput * 2) {
+            output = new byte[maxOutput * 2];
+        }
+
+        // Instant du premier échantillon produit : sa position en entrée, retard du filtre déduit
+        double inputPosition = (double) outputProduced * filter.down / filter.up - filter.delay;
+        outputStartNanos = startNanos + Math.round((inputPosition - inputConsumed) * 1_000_000_000.0 / inputRate);
+
+        int produced = 0;
+        long end = bufferStart + filled;
+        float[] coefficients = filter.coefficients;
+        int taps = filter.taps;
+        while (nextInput < end) {
+            int base = (int) (nextInput - bufferStart) - (taps - 1);
+            int row = phase * taps;
+            float sum = 0f;
+            for (int k = 0; k < taps; k++) {
+                sum += input[base + k] * coefficients[row + k];
+            }
+            int sample = Math.round(sum * 32768f);
+            sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample));
+            output[2 * produced] = (byte) sample;
+            output[2 * produced + 1] = (byte) (sample >> 8);
+            produced++;
+
+            phase += filter.down;
+            nextInput += phase / filter.up;
+            phase %= filter.up;
+        }
+
+        // Ne conserver que l'historique nécessaire au prochain échantillon
+        long keepFrom = Math.min(nextInput - (taps - 1), end);
+        int keep = (int) (end - keepFrom);
+        System.arraycopy(input, filled - keep, input, 0, keep);
+        filled = keep;
+        bufferStart = keepFrom;
+
+        inputConsumed += frames;
+        outputProduced += produced;
+        return produced;
+    }
+
+    /**
+     * Ajoute les trames d'un segment à l'entrée, réduites en mono par moyenne des canaux.
+     */
+    private void appendMono(byte[] pcm, int frames) {
+        if (input.length < filled + frames) {
+            input = Arrays.copyOf(input, filled + frames);
+        }
+        float scale = 1.0f / (32768.0f * channels);
+        int position = 0;
+        for (int i = 0; i < frames; i++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += (short) ((pcm[position] & 0xFF) | (pcm[position + 1] << 8));
+                position += 2;
+            }
+            input[filled + i] = sum * scale;
+        }
+        filled += frames;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * @return les échantillons PCM 16 bits mono produits par le dernier appel à {@link #process}
+     */
+    public byte[] getOutput() {
+        return output;
+    }
+
+    /**
+     * @return l'instant du premier échantillon produit par le dernier appel, en nanosecondes depuis l'epoch
+     */
+    public long getOutputStartNanos() {
+        return outputStartNanos;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    /**
+     * Récupère l'état du rééchantillonneur.
+     *
+     * @return fréquences, rapport, taille du filtre et échantillons traités
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inputRate", inputRate);
+        stats.put("outputRate", outputRate);
+        stats.put("inputChannels", channels);
+        stats.put("ratio", filter.up + "/" + filter.down);
+        stats.put("taps", filter.taps);
+        stats.put("delayMs", Math.round(filter.delay * 100_000.0 / inputRate) / 100.0);
+        stats.put("inputFrames", inputConsumed);
+        stats.put("outputFrames", outputProduced);
+        return stats;
+    }
+
+    /**
+     * Table polyphase d'un rapport L/M : {@code taps} coefficients pour chacune des L phases.
+     */
+    private static final class Filter {
+        private final int up;
+        private final int down;
+        private final int taps;
+        private final double delay;
+        private final float[] coefficients;
+
+        Filter(int up, int down) {
+            this.up = up;
+            this.down = down;
+            // En sous-échantillonnage, le passe-bas est plus étroit et demande plus de coefficients
+            this.taps = 2 * (int) Math.ceil(ZERO_CROSSINGS * Math.max(1.0, (double) down / up));
+            int length = taps * up;
+            // Centre du prototype, ramené en échantillons d'entrée
+            this.delay = (length - 1) / (2.0 * up);
+
+            // Prototype à la fréquence suréchantillonnée : coupure à la plus basse des deux fréquences de Nyquist
+            double cutoff = ROLLOFF * 0.5 / Math.max(up, down);
+            double center = (length - 1) / 2.0;
+            double[] prototype = new double[length];
+            for (int j = 0; j < length; j++) {
+                double x = j - center;
+                double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * j / (length - 1))
+                        + 0.08 * Math.cos(4 * Math.PI * j / (length - 1));
+                prototype[j] = up * sinc * window;
+            }
+
+            // Phase p : coefficients h[k * L + p], rangés du plus ancien au plus récent échantillon d'entrée
+            this.coefficients = new float[up * taps];
+            for (int p = 0; p < up; p++) {
+                for (int k = 0; k < taps; k++) {
+                    coefficients[p * taps + (taps - 1 - k)] = (float) prototype[k * up + p];
+                }
+            }
+        }
+    }
+}
@@ -7,11 +7,6 @@ import org.tensorflow.types.TFloat32;
 
 
 // Imports pour TarsosDSP via JitPack
-import be.tarsos.dsp.AudioDispatcher;
-import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
-import be.tarsos.dsp.io.jvm.JVMAudioInputStream;
-import be.tarsos.dsp.mfcc.MFCC;
 import be.tarsos.dsp.pitch.PitchDetectionHandler;
 import be.tarsos.dsp.pitch.PitchDetectionResult;
 import be.tarsos.dsp.pitch.PitchProcessor;
@@ -25,8 +20,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Utilitaires pour le traitement audio.
@@ -35,7 +28,10 @@ import java.util.List;
 public class AudioUtils {
     
     /**
-     * Conversion d'un format audio à un autre
+     * Conversion d'un format audio à un autre.
+     * Le passage de PCM 16 bits little-endian à du PCM 16 bits mono, cas de
+     * l'analyse audio, utilise le rééchantillonneur polyphase dont les filtres
+     * sont partagés ; les autres conversions passent par JavaSound.
      * @param audioIn Flux audio d'entrée
      * @param targetFormat Format cible
      * @return Flux audio converti
@@ -43,12 +39,31 @@ public class AudioUtils {
      */
     public AudioInputStream convertAudioFormat(AudioInputStream audioIn, 
                                              AudioFormat targetFormat) throws IOException {
-        if (audioIn.getFormat().matches(targetFormat)) {
+        AudioFormat sourceFormat = audioIn.getFormat();
+        if (sourceFormat.matches(targetFormat)) {
             return audioIn;
         }
+        if (isPcm16LittleEndian(sourceFormat) && isPcm16LittleEndian(targetFormat) && targetFormat.getChannels() == 1) {
+            try {
+                AudioResampler resampler = new AudioResampler((int) sourceFormat.getSampleRate(),
+                        sourceFormat.getChannels(), (int) targetFormat.getSampleRate());
+                byte[] data = audioIn.readAllBytes();
+                int frames = resampler.process(data, data.length, 0);
+                return new AudioInputStream(new ByteArrayInputStream(resampler.getOutput(), 0, frames * 2),
+                        targetFormat, frames);
+            } catch (IllegalArgumentException e) {
+                // Rapport de fréquences non pris en charge : conversion JavaSound
+            }
+        }
         return AudioSystem.getAudioInputStream(targetFormat, audioIn);
     }
     
+    private static boolean isPcm16LittleEndian(AudioFormat format) {
+        return AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                && format.getSampleSizeInBits() == 16 && !format.isBigEndian()
+                && format.getSampleRate() == Math.rint(format.getSampleRate());
+    }
+    
     /**
      * Découpage d'un segment audio
      * @param audioIn Flux audio d'entrée
@@ -108,84 +123,63 @@ public class AudioUtils {
     }
     
     /**
-     * Convertit des échantillons audio PCM en MFCC (Mel-Frequency Cepstral Coefficients)
-     * en utilisant TarsosDSP
+     * Convertit des échantillons audio PCM en MFCC (Mel-Frequency Cepstral Coefficients),
+     * moyennés sur toutes les trames du segment
      * @param audioData Données audio PCM
      * @param sampleRate Taux d'échantillonnage
      * @param numCoefficients Nombre de coefficients MFCC à extraire
      * @return Tableau des coefficients MFCC
      */
     public float[] extractMFCC(byte[] audioData, float sampleRate, int numCoefficients) {
+        float[] avgMfcc = new float[numCoefficients];
         try {
-            // Convertir les bytes en échantillons flottants
+            // Les échantillons sont fournis directement à l'extracteur, sans réencodage en flux
             float[] samples = pcmToFloat(audioData);
-            
-            // Créer un format audio pour TarsosDSP
-            AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false);
-            
-            // Créer un flux audio à partir des échantillons
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            DataOutputStream dos = new DataOutputStream(baos);
-            for (float sample : samples) {
-                dos.writeShort((short) (sample * 32767.0f));
-            }
-            byte[] bytes = baos.toByteArray();
-            ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-            AudioInputStream audioStream = new AudioInputStream(bais, format, bytes.length / format.getFrameSize());
-            
-            // Configuration de TarsosDSP pour l'extraction MFCC
-            final List<float[]> mfccValues = new ArrayList<>();
-            
-            AudioDispatcher dispatcher = new AudioDispatcher(
-                    new JVMAudioInputStream(audioStream),
-                    1024, 512);
-            
-            MFCC mfcc = new MFCC(1024, (int) sampleRate, numCoefficients, 40, 300, 3000);
-            dispatcher.addAudioProcessor(mfcc);
-            dispatcher.addAudioProcessor(new AudioProcessor() {
-                @Override
-                public boolean process(AudioEvent audioEvent) {
-                    mfccValues.add(mfcc.getMFCC());
-                    return true;
-                }
-                
-                @Override
-                public void processingFinished() {
-                    // Rien à faire
+            StreamingMfcc mfcc = new StreamingMfcc(
+                    FeaturePlan.of((int) sampleRate, 1024, numCoefficients, 40, 300, 3000), 512);
+            int[] frameCount = new int[1];
+            mfcc.process(samples, 0, samples.length, (frameIndex, endSample, coefficients) -> {
+                for (int i = 0; i < numCoefficients; i++) {
+                    avgMfcc[i] += coefficients[i];
                 }
+                frameCount[0]++;
             });
             
-            // Exécution du traitement
-            dispatcher.run();
-            
             // Calcul de la moyenne des MFCC sur tous les frames
-            if (mfccValues.isEmpty()) {
-                return new float[numCoefficients];
-            }
-            
-            float[] avgMfcc = new float[numCoefficients];
-            for (float[] mfccValue : mfccValues) {
+            if (frameCount[0] > 0) {
                 for (int i = 0; i < numCoefficients; i++) {
-                    avgMfcc[i] += mfccValue[i];
+                    avgMfcc[i] /= frameCount[0];
                 }
             }
-            
-            for (int i = 0; i < numCoefficients; i++) {
-                avgMfcc[i] /= mfccValues.size();
-            }
-            
             return avgMfcc;
             
         } catch (Exception e) {
             // En cas d'erreur, retourner des valeurs par défaut
-            float[] mfcc = new float[numCoefficients];
-            for (int i = 0; i < numCoefficients; i++) {
-                mfcc[i] = 0.0f;
-            }
-            return mfcc;
+            return new float[numCoefficients];
         }
     }
     
+    /**
+     * Calcule le spectrogramme log-mel d'un segment audio PCM, trame par trame,
+     * pour les modèles qui consomment des caractéristiques en deux dimensions.
+     * Les tables d'extraction sont partagées ({@link FeaturePlan}) et ne sont
+     * construites qu'au premier appel pour une configuration donnée.
+     * @param audioData Données audio PCM
+     * @param sampleRate Taux d'échantillonnage
+     * @param melBands Nombre de bandes mel
+     * @return Énergies log-mel, une ligne par trame (aucune si le segment est plus court qu'une trame)
+     */
+    public float[][] extractLogMelSpectrogram(byte[] audioData, float sampleRate, int melBands) {
+        float[] samples = pcmToFloat(audioData);
+        StreamingMfcc extractor = new StreamingMfcc(
+                FeaturePlan.of((int) sampleRate, 1024, 0, melBands, 300, 3000), 512);
+        int frames = samples.length < 1024 ? 0 : (samples.length - 1024) / 512 + 1;
+        float[][] spectrogram = new float[frames][];
+        extractor.processLogMel(samples, 0, samples.length, (frameIndex, endSample, logMel) ->
+                spectrogram[(int) frameIndex] = logMel.clone());
+        return spectrogram;
+    }
+    
     /**
      * Convertit des données PCM brutes en échantillons flottants
      * @param pcmData Données PCM (16 bits)
@@ -212,13 +206,4 @@ public class AudioUtils {
     public TFloat32 audioToTensor(float[] audioData) {
     	return TFloat32.vectorOf(audioData);
     }
-    
-    /**
-     * Classe interne pour écrire des données au format DataOutputStream
-     */
-    private static class DataOutputStream extends java.io.DataOutputStream {
-        public DataOutputStream(ByteArrayOutputStream out) {
-            super(out);
-        }
-    }
 }
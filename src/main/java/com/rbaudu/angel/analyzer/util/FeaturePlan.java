@@ -0,0 +1,254 @@
+package com.rbaudu.angel.analyzer.util;
+
+import be.tarsos.dsp.util.fft.FFT;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plan d'extraction de caractéristiques spectrales : tables précalculées pour
+ * un jeu de paramètres (fréquence d'échantillonnage, taille de trame, nombre
+ * de coefficients, nombre de filtres mel, bornes du banc de filtres).
+ * <p>
+ * Un plan contient la fenêtre de Hamming, la FFT de TarsosDSP, le banc de
+ * filtres triangulaires sur l'échelle mel et la table de la DCT-II. Il est
+ * immuable et partagé entre threads : les plans sont mis en cache par
+ * {@link #of(int, int, int, int, float, float)}, de sorte qu'un extracteur ne
+ * reconstruit jamais ces tables. Les méthodes de calcul travaillent dans des
+ * tampons fournis par l'appelant.
+ */
+public final class FeaturePlan {
+
+    /**
+     * Plancher du logarithme des énergies mel, comme le processeur MFCC de TarsosDSP.
+     */
+    public static final float LOG_FLOOR = -50f;
+
+    private static final Map<Key, FeaturePlan> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicLong CACHE_HITS = new AtomicLong();
+    private static final AtomicLong CACHE_MISSES = new AtomicLong();
+
+    private final int sampleRate;
+    private final int frameSize;
+    private final int numCoefficients;
+    private final int filterCount;
+
+    private final float[] window;
+    private final FFT fft;
+    private final int[] filterStart;
+    private final float[][] filterWeights;
+    private final float[][] dctTable;
+
+    /**
+     * Récupère le plan correspondant aux paramètres, en le construisant au premier appel.
+     *
+     * @param sampleRate fréquence d'échantillonnage
+     * @param frameSize taille d'une trame (puissance de 2)
+     * @param numCoefficients nombre de coefficients cepstraux (0 pour le seul spectrogramme log-mel)
+     * @param filterCount nombre de filtres mel
+     * @param minFrequency fréquence basse du banc de filtres (Hz)
+     * @param maxFrequency fréquence haute du banc de filtres (Hz)
+     * @return le plan partagé
+     */
+    public static FeaturePlan of(int sampleRate, int frameSize, int numCoefficients,
+                                 int filterCount, float minFrequency, float maxFrequency) {
+        Key key = new Key(sampleRate, frameSize, numCoefficients, filterCount, minFrequency, maxFrequency);
+        FeaturePlan plan = CACHE.get(key);
+        if (plan != null) {
+            CACHE_HITS.incrementAndGet();
+            return plan;
+        }
+        return CACHE.computeIfAbsent(key, k -> {
+            CACHE_MISSES.incrementAndGet();
+            return new FeaturePlan(sampleRate, frameSize, numCoefficients, filterCount, minFrequency, maxFrequency);
+        });
+    }
+
+    private FeaturePlan(int sampleRate, int frameSize, int numCoefficients,
+                        int filterCount, float minFrequency, float maxFrequency) {
+        if (sampleRate <= 0 || Integer.bitCount(frameSize) != 1 || filterCount <= 0
+                || numCoefficients < 0 || numCoefficients > filterCount || minFrequency >= maxFrequency) {
+            throw new IllegalArgumentException("Paramètres d'extraction invalides");
+        }
+        this.sampleRate = sampleRate;
+        this.frameSize = frameSize;
+        this.numCoefficients = numCoefficients;
+        this.filterCount = filterCount;
+
+        this.window = new float[frameSize];
+        for (int i = 0; i < frameSize; i++) {
+            window[i] = (float) (0.54 - 0.46 * Math.cos(2 * Math.PI * i / (frameSize - 1)));
+        }
+        this.fft = new FFT(frameSize);
+
+        // Banc de filtres triangulaires, centres régulièrement espacés sur l'échelle mel
+        int bins = frameSize / 2;
+        double binHz = (double) sampleRate / frameSize;
+        double minMel = toMel(minFrequency);
+        double maxMel = toMel(Math.min(maxFrequency, sampleRate / 2f));
+        double[] edges = new double[filterCount + 2];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = fromMel(minMel + (maxMel - minMel) * i / (filterCount + 1));
+        }
+        this.filterStart = new int[filterCount];
+        this.filterWeights = new float[filterCount][];
+        for (int m = 0; m < filterCount; m++) {
+            double low = edges[m];
+            double center = edges[m + 1];
+            double high = edges[m + 2];
+            int first = Math.max(1, (int) Math.ceil(low / binHz));
+            int last = Math.min(bins - 1, (int) Math.floor(high / binHz));
+            if (last < first) {
+                // Filtre plus étroit qu'une bande de la FFT : la bande la plus proche du centre
+                first = last = Math.min(bins - 1, Math.max(1, (int) Math.round(center / binHz)));
+            }
+            float[] weights = new float[last - first + 1];
+            for (int k = first; k <= last; k++) {
+                double f = k * binHz;
+                double w = f <= center ? (f - low) / (center - low) : (high - f) / (high - center);
+                weights[k - first] = (float) Math.max(0.0, w);
+            }
+            if (first == last) {
+                weights[0] = 1f;
+            }
+            filterStart[m] = first;
+            filterWeights[m] = weights;
+        }
+
+        this.dctTable = new float[numCoefficients][filterCount];
+        for (int i = 0; i < numCoefficients; i++) {
+            for (int j = 0; j < filterCount; j++) {
+                dctTable[i][j] = (float) Math.cos(Math.PI * i * (j + 0.5) / filterCount);
+            }
+        }
+    }
+
+    /**
+     * Calcule le spectre d'amplitude d'une trame fenêtrée.
+     *
+     * @param frame trame de {@code frameSize} échantillons (non modifiée)
+     * @param fftBuffer tampon de travail d'au moins {@code frameSize} valeurs
+     * @param amplitudes destination, {@code frameSize / 2} valeurs
+     */
+    public void amplitudeSpectrum(float[] frame, float[] fftBuffer, float[] amplitudes) {
+        for (int i = 0; i < frameSize; i++) {
+            fftBuffer[i] = frame[i] * window[i];
+        }
+        // La FFT n'utilise que ses tables précalculées et travaille en place dans le tampon de l'appelant
+        fft.forwardTransform(fftBuffer);
+        fft.modulus(fftBuffer, amplitudes);
+    }
+
+    /**
+     * Applique le banc de filtres mel puis le logarithme à un spectre d'amplitude.
+     *
+     * @param amplitudes spectre d'amplitude de la trame
+     * @param logMel destination, {@code filterCount} valeurs
+     */
+    public void logMel(float[] amplitudes, float[] logMel) {
+        for (int m = 0; m < filterCount; m++) {
+            float[] weights = filterWeights[m];
+            int start = filterStart[m];
+            float energy = 0f;
+            for (int k = 0; k < weights.length; k++) {
+                energy += weights[k] * amplitudes[start + k];
+            }
+            logMel[m] = energy > 0 ? Math.max(LOG_FLOOR, (float) Math.log(energy)) : LOG_FLOOR;
+        }
+    }
+
+    /**
+     * Calcule les coefficients cepstraux (DCT-II) d'un spectre log-mel.
+     *
+     * @param logMel énergies log-mel de la trame
+     * @param coefficients destination, {@code numCoefficients} valeurs
+     */
+    public void cepstrum(float[] logMel, float[] coefficients) {
+        for (int i = 0; i < numCoefficients; i++) {
+            float[] basis = dctTable[i];
+            float sum = 0f;
+            for (int j = 0; j < filterCount; j++) {
+                sum += logMel[j] * basis[j];
+            }
+            coefficients[i] = sum;
+        }
+    }
+
+    private static double toMel(double frequency) {
+        return 2595.0 * Math.log10(1.0 + frequency / 700.0);
+    }
+
+    private static double fromMel(double mel) {
+        return 700.0 * (Math.pow(10.0, mel / 2595.0) - 1.0);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getNumCoefficients() {
+        return numCoefficients;
+    }
+
+    public int getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * Récupère les statistiques du cache de plans.
+     *
+     * @return nombre de plans, plans réutilisés et plans construits
+     */
+    public static Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("plans", CACHE.size());
+        stats.put("hits", CACHE_HITS.get());
+        stats.put("misses", CACHE_MISSES.get());
+        return stats;
+    }
+
+    /**
+     * Clé du cache : paramètres d'un plan.
+     */
+    private static final class Key {
+        private final int sampleRate;
+        private final int frameSize;
+        private final int numCoefficients;
+        private final int filterCount;
+        private final float minFrequency;
+        private final float maxFrequency;
+
+        Key(int sampleRate, int frameSize, int numCoefficients, int filterCount,
+            float minFrequency, float maxFrequency) {
+            this.sampleRate = sampleRate;
+            this.frameSize = frameSize;
+            this.numCoefficients = numCoefficients;
+            this.filterCount = filterCount;
+            this.minFrequency = minFrequency;
+            this.maxFrequency = maxFrequency;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return sampleRate == key.sampleRate && frameSize == key.frameSize
+                    && numCoefficients == key.numCoefficients && filterCount == key.filterCount
+                    && Float.compare(minFrequency, key.minFrequency) == 0
+                    && Float.compare(maxFrequency, key.maxFrequency) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sampleRate, frameSize, numCoefficients, filterCount, minFrequency, maxFrequency);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.rbaudu.angel.analyzer.util;
+
+/**
+ * Extracteur incrémental de coefficients MFCC (Mel-Frequency Cepstral Coefficients).
+ * <p>
+ * Les échantillons sont fournis par morceaux de taille quelconque, directement
+ * en flottants ; le recouvrement entre trames est conservé d'un appel à
+ * l'autre, et chaque trame complète produit ses coefficients au fil de l'eau.
+ * Les tables (fenêtre, FFT, banc de filtres, DCT) proviennent d'un
+ * {@link FeaturePlan} partagé ; seuls les tampons de travail sont propres à
+ * l'instance, qui n'est pas partagée entre threads.
+ * <p>
+ * Pour chaque trame : fenêtre de Hamming, spectre d'amplitude, banc de filtres
+ * triangulaires sur l'échelle mel, logarithme (plancher à -50) puis DCT-II,
+ * comme le processeur MFCC de TarsosDSP utilisé jusqu'ici. Le spectrogramme
+ * log-mel peut être obtenu à la place des coefficients ({@link #processLogMel}).
+ */
+public class StreamingMfcc {
+
+    /**
+     * Reçoit les caractéristiques de chaque trame complète.
+     */
+    public interface FrameListener {
+
+        /**
+         * Appelé pour chaque trame calculée.
+         *
+         * @param frameIndex rang de la trame depuis la construction ou le dernier {@link #reset()}
+         * @param endSample rang de l'échantillon suivant la fin de la trame, sur la même origine
+         * @param coefficients coefficients MFCC ou énergies log-mel de la trame, dans un tableau
+         *                     réutilisé (à copier pour être conservé)
+         */
+        void onFrame(long frameIndex, long endSample, float[] coefficients);
+    }
+
+    private final FeaturePlan plan;
+    private final int frameSize;
+    private final int hopSize;
+
+    // Tampons réutilisés
+    private final float[] frame;
+    private final float[] fftBuffer;
+    private final float[] amplitudes;
+    private final float[] melEnergies;
+    private final float[] coefficients;
+
+    private int filled;
+    private long samplesConsumed;
+    private long frameCount;
+
+    /**
+     * Crée un extracteur sur le plan partagé correspondant aux paramètres.
+     *
+     * @param sampleRate fréquence d'échantillonnage
+     * @param frameSize taille d'une trame (puissance de 2)
+     * @param hopSize pas entre deux trames
+     * @param numCoefficients nombre de coefficients par trame
+     * @param filterCount nombre de filtres mel
+     * @param minFrequency fréquence basse du banc de filtres (Hz)
+     * @param maxFrequency fréquence haute du banc de filtres (Hz)
+     */
+    public StreamingMfcc(int sampleRate, int frameSize, int hopSize, int numCoefficients,
+                         int filterCount, float minFrequency, float maxFrequency) {
+        this(FeaturePlan.of(sampleRate, frameSize, numCoefficients, filterCount, minFrequency, maxFrequency), hopSize);
+    }
+
+    /**
+     * Crée un extracteur sur un plan d'extraction.
+     *
+     * @param plan plan partagé (fenêtre, FFT, banc de filtres, DCT)
+     * @param hopSize pas entre deux trames
+     */
+    public StreamingMfcc(FeaturePlan plan, int hopSize) {
+        if (hopSize <= 0 || hopSize > plan.getFrameSize()) {
+            throw new IllegalArgumentException("Pas entre trames invalide: " + hopSize);
+        }
+        this.plan = plan;
+        this.frameSize = plan.getFrameSize();
+        this.hopSize = hopSize;
+        this.frame = new float[frameSize];
+        this.fftBuffer = new float[frameSize];
+        this.amplitudes = new float[frameSize / 2];
+        this.melEnergies = new float[plan.getFilterCount()];
+        this.coefficients = new float[plan.getNumCoefficients()];
+    }
+
+    /**
+     * Ajoute des échantillons et calcule les trames complétées.
+     *
+     * @param samples échantillons mono normalisés entre -1.0 et 1.0
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @param listener destinataire des coefficients de chaque trame
+     * @return le nombre de trames calculées
+     */
+    public int process(float[] samples, int offset, int length, FrameListener listener) {
+        return process(samples, offset, length, true, listener);
+    }
+
+    /**
+     * Ajoute des échantillons et calcule le spectrogramme log-mel des trames complétées,
+     * sans la DCT, pour les modèles qui consomment des caractéristiques en deux dimensions.
+     *
+     * @param samples échantillons mono normalisés entre -1.0 et 1.0
+     * @param offset premier échantillon
+     * @param length nombre d'échantillons
+     * @param listener destinataire des énergies log-mel de chaque trame
+     * @return le nombre de trames calculées
+     */
+    public int processLogMel(float[] samples, int offset, int length, FrameListener listener) {
+        return process(samples, offset, length, false, listener);
+    }
+
+    private int process(float[] samples, int offset, int length, boolean cepstrum, FrameListener listener) {
+        int frames = 0;
+        int position = offset;
+        int end = offset + length;
+        while (position < end) {
+            int count = Math.min(frameSize - filled, end - position);
+            System.arraycopy(samples, position, frame, filled, count);
+            filled += count;
+            position += count;
+            samplesConsumed += count;
+            if (filled == frameSize) {
+                plan.amplitudeSpectrum(frame, fftBuffer, amplitudes);
+                plan.logMel(amplitudes, melEnergies);
+                if (cepstrum) {
+                    plan.cepstrum(melEnergies, coefficients);
+                }
+                listener.onFrame(frameCount++, samplesConsumed, cepstrum ? coefficients : melEnergies);
+                frames++;
+                // Conserver le recouvrement pour la trame suivante
+                System.arraycopy(frame, hopSize, frame, 0, frameSize - hopSize);
+                filled = frameSize - hopSize;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Oublie les échantillons en attente, par exemple après une interruption du signal.
+     */
+    public void reset() {
+        filled = 0;
+        samplesConsumed = 0;
+        frameCount = 0;
+    }
+
+    public int getSampleRate() {
+        return plan.getSampleRate();
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public int getNumCoefficients() {
+        return plan.getNumCoefficients();
+    }
+
+    public int getFilterCount() {
+        return plan.getFilterCount();
+    }
+}
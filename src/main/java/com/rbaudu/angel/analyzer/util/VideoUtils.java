@@ -1,6 +1,8 @@
 package com.rbaudu.angel.analyzer.util;
 
+import com.rbaudu.angel.analyzer.model.RegionOfInterest;
 import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
 import org.bytedeco.opencv.opencv_core.Size;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.springframework.stereotype.Component;
@@ -108,4 +110,25 @@ public class VideoUtils {
         // Conversion en tensor
         return matToTensor(normalized, targetHeight, targetWidth);
     }
+    
+    /**
+     * Prépare pour le modèle la seule région d'intérêt d'une image.
+     * La région est extraite comme une vue sur les pixels de l'image source,
+     * sans copie, avant le redimensionnement : le modèle consacre ainsi toute
+     * sa résolution d'entrée à la zone utile.
+     * @param frame Image source
+     * @param targetWidth Largeur cible
+     * @param targetHeight Hauteur cible
+     * @param region Région d'intérêt, ou null pour l'image entière
+     * @return Tensor prêt pour l'inférence
+     */
+    public Tensor prepareImageForModel(Mat frame, int targetWidth, int targetHeight, RegionOfInterest region) {
+        if (region == null) {
+            return prepareImageForModel(frame, targetWidth, targetHeight);
+        }
+        try (Rect rect = region.toPixelRect(frame.cols(), frame.rows());
+             Mat view = new Mat(frame, rect)) {
+            return prepareImageForModel(view, targetWidth, targetHeight);
+        }
+    }
 }
@@ -1,5 +1,10 @@
 package com.rbaudu.angel.config;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -22,6 +27,9 @@ public class AppConfig implements WebMvcConfigurer {
     @Value("${angel.capture.video.camera-index:0}")
     private int cameraIndex;
 
+    @Value("${angel.capture.video.sources:}")
+    private String[] videoSources;
+
     @Value("${angel.capture.video.width:640}")
     private int videoWidth;
 
@@ -31,19 +39,124 @@ public class AppConfig implements WebMvcConfigurer {
     @Value("${angel.capture.video.fps:30}")
     private int videoFps;
 
+    @Value("${angel.capture.video.frame-pool-size:32}")
+    private int framePoolSize;
+
+    @Value("${angel.capture.video.frame-pool-policy:DROP_OLDEST}")
+    private String framePoolPolicy;
+
+    @Value("${angel.capture.video.frame-pool-block-timeout-ms:50}")
+    private long framePoolBlockTimeoutMs;
+
+    // Configuration des sources vidéo réseau et fichier
+    @Value("${angel.capture.video.stream.decoder-threads:0}")
+    private int streamDecoderThreads;
+
+    @Value("${angel.capture.video.stream.low-latency:true}")
+    private boolean streamLowLatency;
+
+    @Value("${angel.capture.video.stream.rtsp-transport:tcp}")
+    private String streamRtspTransport;
+
+    @Value("${angel.capture.video.stream.timeout-ms:5000}")
+    private long streamTimeoutMs;
+
+    @Value("${angel.capture.video.stream.reconnect-initial-delay-ms:500}")
+    private long streamReconnectInitialDelayMs;
+
+    @Value("${angel.capture.video.stream.reconnect-max-delay-ms:30000}")
+    private long streamReconnectMaxDelayMs;
+
+    @Value("${angel.capture.video.stream.reconnect-max-attempts:5}")
+    private int streamReconnectMaxAttempts;
+
+    @Value("${angel.capture.video.stream.file-loop:true}")
+    private boolean streamFileLoop;
+
+    @Value("${angel.capture.video.stream.file-realtime:true}")
+    private boolean streamFileRealtime;
+
+    // Configuration de la régulation de cadence par contre-pression
+    @Value("${angel.capture.rate-control.enabled:true}")
+    private boolean rateControlEnabled;
+
+    @Value("${angel.capture.rate-control.interval-ms:500}")
+    private long rateControlIntervalMs;
+
+    @Value("${angel.capture.rate-control.target-sojourn-ms:500}")
+    private double rateControlTargetSojournMs;
+
+    @Value("${angel.capture.rate-control.target-queue-fill:0.5}")
+    private double rateControlTargetQueueFill;
+
+    @Value("${angel.capture.rate-control.min-fps:1}")
+    private int rateControlMinFps;
+
+    @Value("${angel.capture.rate-control.decrease-factor:0.7}")
+    private double rateControlDecreaseFactor;
+
+    @Value("${angel.capture.rate-control.increase-step:0.05}")
+    private double rateControlIncreaseStep;
+
+    // Configuration de la supervision des sources vidéo
+    @Value("${angel.capture.supervisor.enabled:true}")
+    private boolean supervisorEnabled;
+
+    @Value("${angel.capture.supervisor.check-interval-ms:1000}")
+    private long supervisorCheckIntervalMs;
+
+    @Value("${angel.capture.supervisor.stall-timeout-ms:10000}")
+    private long supervisorStallTimeoutMs;
+
+    @Value("${angel.capture.supervisor.backoff-initial-ms:1000}")
+    private long supervisorBackoffInitialMs;
+
+    @Value("${angel.capture.supervisor.backoff-max-ms:60000}")
+    private long supervisorBackoffMaxMs;
+
     // Configuration de la capture audio
     @Value("${angel.capture.audio.enabled:true}")
     private boolean audioEnabled;
 
-    @Value("${angel.capture.audio.device-index:0}")
+    @Value("${angel.capture.audio.device-index:-1}")
     private int audioDeviceIndex;
 
+    @Value("${angel.capture.audio.sources:}")
+    private String[] audioSources;
+
     @Value("${angel.capture.audio.sample-rate:44100}")
     private int audioSampleRate;
 
     @Value("${angel.capture.audio.channels:2}")
     private int audioChannels;
 
+    @Value("${angel.capture.audio.buffer-pool-size:64}")
+    private int audioBufferPoolSize;
+
+    @Value("${angel.capture.audio.ring-buffer-seconds:120}")
+    private int audioRingBufferSeconds;
+
+    @Value("${angel.capture.audio.archive.format:none}")
+    private String audioArchiveFormat;
+
+    @Value("${angel.capture.audio.archive.directory:archive/audio}")
+    private String audioArchiveDirectory;
+
+    @Value("${angel.capture.audio.archive.segment-duration-s:300}")
+    private int audioArchiveSegmentDurationS;
+
+    @Value("${angel.capture.audio.archive.max-segments:48}")
+    private int audioArchiveMaxSegments;
+
+    @Value("${angel.capture.audio.archive.bitrate:64000}")
+    private int audioArchiveBitrate;
+
+    @Value("${angel.capture.audio.archive.queue-capacity:16}")
+    private int audioArchiveQueueCapacity;
+
+    @Value("${angel.capture.audio.archive.source:}")
+    private String audioArchiveSource;
+
     // Configuration de la synchronisation
     @Value("${angel.sync.buffer-size:10}")
     private int syncBufferSize;
@@ -51,6 +164,21 @@ public class AppConfig implements WebMvcConfigurer {
     @Value("${angel.sync.max-delay-ms:100}")
     private int syncMaxDelayMs;
 
+    @Value("${angel.sync.pairs:}")
+    private String[] syncPairs;
+
+    @Value("${angel.sync.pairing-policy:nearest}")
+    private String syncPairingPolicy;
+
+    @Value("${angel.sync.audio-window-ms:1000}")
+    private int syncAudioWindowMs;
+
+    @Value("${angel.sync.drift-correction:false}")
+    private boolean syncDriftCorrection;
+
+    @Value("${angel.sync.drift-window:2000}")
+    private int syncDriftWindow;
+
     // Configuration de l'analyse
     @Value("${angel.analysis.enabled:true}")
     private boolean analysisEnabled;
@@ -58,6 +186,15 @@ public class AppConfig implements WebMvcConfigurer {
     @Value("${angel.analysis.motion-detection:true}")
     private boolean motionDetectionEnabled;
 
+    @Value("${angel.analysis.motion-downscale-width:160}")
+    private int motionDownscaleWidth;
+
+    @Value("${angel.analysis.motion-pixel-threshold:25}")
+    private int motionPixelThreshold;
+
+    @Value("${angel.analysis.motion-area-ratio:0.01}")
+    private double motionAreaRatio;
+
     @Value("${angel.analysis.person-detection:false}")
     private boolean personDetectionEnabled;
 
@@ -75,6 +212,28 @@ public class AppConfig implements WebMvcConfigurer {
         return cameraIndex;
     }
 
+    /**
+     * Liste des sources vidéo à capturer : index de caméra locale, ou URL
+     * rtsp://, http://, https:// ou file:// d'un flux ou d'un fichier.
+     * Si aucune source n'est configurée, seule la caméra camera-index est capturée.
+     *
+     * @return les spécifications de source, dans l'ordre de configuration
+     */
+    public List<String> getVideoSources() {
+        List<String> sources = new ArrayList<>();
+        if (videoSources != null) {
+            for (String source : videoSources) {
+                if (source != null && !source.isBlank()) {
+                    sources.add(source.trim());
+                }
+            }
+        }
+        if (sources.isEmpty()) {
+            sources.add(String.valueOf(cameraIndex));
+        }
+        return sources;
+    }
+
     public int getVideoWidth() {
         return videoWidth;
     }
@@ -87,6 +246,102 @@ public class AppConfig implements WebMvcConfigurer {
         return videoFps;
     }
 
+    public int getFramePoolSize() {
+        return framePoolSize;
+    }
+
+    public String getFramePoolPolicy() {
+        return framePoolPolicy;
+    }
+
+    public long getFramePoolBlockTimeoutMs() {
+        return framePoolBlockTimeoutMs;
+    }
+
+    public int getStreamDecoderThreads() {
+        return streamDecoderThreads;
+    }
+
+    public boolean isStreamLowLatency() {
+        return streamLowLatency;
+    }
+
+    public String getStreamRtspTransport() {
+        return streamRtspTransport;
+    }
+
+    public long getStreamTimeoutMs() {
+        return streamTimeoutMs;
+    }
+
+    public long getStreamReconnectInitialDelayMs() {
+        return streamReconnectInitialDelayMs;
+    }
+
+    public long getStreamReconnectMaxDelayMs() {
+        return streamReconnectMaxDelayMs;
+    }
+
+    public int getStreamReconnectMaxAttempts() {
+        return streamReconnectMaxAttempts;
+    }
+
+    public boolean isStreamFileLoop() {
+        return streamFileLoop;
+    }
+
+    public boolean isStreamFileRealtime() {
+        return streamFileRealtime;
+    }
+
+    public boolean isRateControlEnabled() {
+        return rateControlEnabled;
+    }
+
+    public long getRateControlIntervalMs() {
+        return rateControlIntervalMs;
+    }
+
+    public double getRateControlTargetSojournMs() {
+        return rateControlTargetSojournMs;
+    }
+
+    public double getRateControlTargetQueueFill() {
+        return rateControlTargetQueueFill;
+    }
+
+    public int getRateControlMinFps() {
+        return rateControlMinFps;
+    }
+
+    public double getRateControlDecreaseFactor() {
+        return rateControlDecreaseFactor;
+    }
+
+    public double getRateControlIncreaseStep() {
+        return rateControlIncreaseStep;
+    }
+
+    public boolean isSupervisorEnabled() {
+        return supervisorEnabled;
+    }
+
+    public long getSupervisorCheckIntervalMs() {
+        return supervisorCheckIntervalMs;
+    }
+
+    public long getSupervisorStallTimeoutMs() {
+        return supervisorStallTimeoutMs;
+    }
+
+    public long getSupervisorBackoffInitialMs() {
+        return supervisorBackoffInitialMs;
+    }
+
+    public long getSupervisorBackoffMaxMs() {
+        return supervisorBackoffMaxMs;
+    }
+
     public boolean isAudioEnabled() {
         return audioEnabled;
     }
@@ -95,6 +350,29 @@ public class AppConfig implements WebMvcConfigurer {
         return audioDeviceIndex;
     }
 
+    /**
+     * Liste des microphones à capturer : index d'un périphérique de capture,
+     * partie de son nom, ou "default" pour l'entrée par défaut du système.
+     * Si aucune source n'est configurée, seul le périphérique device-index est
+     * capturé (-1 pour l'entrée par défaut).
+     *
+     * @return les spécifications de source, dans l'ordre de configuration
+     */
+    public List<String> getAudioSources() {
+        List<String> sources = new ArrayList<>();
+        if (audioSources != null) {
+            for (String source : audioSources) {
+                if (source != null && !source.isBlank()) {
+                    sources.add(source.trim());
+                }
+            }
+        }
+        if (sources.isEmpty()) {
+            sources.add(String.valueOf(audioDeviceIndex));
+        }
+        return sources;
+    }
+
     public int getAudioSampleRate() {
         return audioSampleRate;
     }
@@ -103,6 +381,42 @@ public class AppConfig implements WebMvcConfigurer {
         return audioChannels;
     }
 
+    public int getAudioBufferPoolSize() {
+        return audioBufferPoolSize;
+    }
+
+    public int getAudioRingBufferSeconds() {
+        return audioRingBufferSeconds;
+    }
+
+    public String getAudioArchiveFormat() {
+        return audioArchiveFormat;
+    }
+
+    public String getAudioArchiveDirectory() {
+        return audioArchiveDirectory;
+    }
+
+    public int getAudioArchiveSegmentDurationS() {
+        return audioArchiveSegmentDurationS;
+    }
+
+    public int getAudioArchiveMaxSegments() {
+        return audioArchiveMaxSegments;
+    }
+
+    public int getAudioArchiveBitrate() {
+        return audioArchiveBitrate;
+    }
+
+    public int getAudioArchiveQueueCapacity() {
+        return audioArchiveQueueCapacity;
+    }
+
+    public String getAudioArchiveSource() {
+        return audioArchiveSource;
+    }
+
     public int getSyncBufferSize() {
         return syncBufferSize;
     }
@@ -111,6 +425,48 @@ public class AppConfig implements WebMvcConfigurer {
         return syncMaxDelayMs;
     }
 
+    /**
+     * Appariements entre sources vidéo et microphones, sous la forme
+     * "camera-0=mic-0". Une source vidéo non appariée est synchronisée avec le
+     * premier microphone configuré.
+     *
+     * @return l'identifiant du microphone de chaque source vidéo appariée
+     */
+    public Map<String, String> getSyncPairs() {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        if (syncPairs != null) {
+            for (String pair : syncPairs) {
+                int separator = pair != null ? pair.indexOf('=') : -1;
+                if (separator > 0) {
+                    pairs.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+                }
+            }
+        }
+        return pairs;
+    }
+
+    public String getSyncPairingPolicy() {
+        return syncPairingPolicy;
+    }
+
+    /**
+     * Durée de la fenêtre audio jointe à chaque trame par la politique
+     * d'appariement "windowed" ; 0 pour l'intervalle écoulé depuis la trame précédente.
+     *
+     * @return la durée de la fenêtre en millisecondes
+     */
+    public int getSyncAudioWindowMs() {
+        return syncAudioWindowMs;
+    }
+
+    public boolean isSyncDriftCorrection() {
+        return syncDriftCorrection;
+    }
+
+    public int getSyncDriftWindow() {
+        return syncDriftWindow;
+    }
+
     public boolean isAnalysisEnabled() {
         return analysisEnabled;
     }
@@ -119,6 +475,18 @@ public class AppConfig implements WebMvcConfigurer {
         return motionDetectionEnabled;
     }
 
+    public int getMotionDownscaleWidth() {
+        return motionDownscaleWidth;
+    }
+
+    public int getMotionPixelThreshold() {
+        return motionPixelThreshold;
+    }
+
+    public double getMotionAreaRatio() {
+        return motionAreaRatio;
+    }
+
     public boolean isPersonDetectionEnabled() {
         return personDetectionEnabled;
     }
@@ -0,0 +1,68 @@
+package com.rbaudu.angel.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.rbaudu.angel.service.EncodingProfile;
+
+/**
+ * Configuration de l'encodage des trames vidéo.
+ * Cette classe est peuplée à partir des propriétés préfixées par "angel.encoding",
+ * par exemple {@code angel.encoding.profiles.websocket.quality=70}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "angel.encoding")
+public class FrameEncodingConfig {
+
+    /**
+     * Nom de l'encodeur à utiliser (opencv ou imageio)
+     */
+    private String encoder = "opencv";
+
+    /**
+     * Toutes les N trames encodées, encode aussi avec les autres encodeurs
+     * pour comparer leurs latences (0 pour désactiver)
+     */
+    private int comparisonInterval = 0;
+
+    /**
+     * Profils d'encodage par consommateur, indexés par nom
+     */
+    private Map<String, EncodingProfile> profiles = new LinkedHashMap<>();
+
+    /**
+     * Constructeur par défaut
+     */
+    public FrameEncodingConfig() {
+    }
+
+    /**
+     * Getters et Setters
+     */
+    public String getEncoder() {
+        return encoder;
+    }
+
+    public void setEncoder(String encoder) {
+        this.encoder = encoder;
+    }
+
+    public int getComparisonInterval() {
+        return comparisonInterval;
+    }
+
+    public void setComparisonInterval(int comparisonInterval) {
+        this.comparisonInterval = comparisonInterval;
+    }
+
+    public Map<String, EncodingProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Map<String, EncodingProfile> profiles) {
+        this.profiles = profiles;
+    }
+}
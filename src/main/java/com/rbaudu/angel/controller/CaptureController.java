@@ -1,6 +1,7 @@
 package com.rbaudu.angel.controller;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -8,12 +9,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.rbaudu.angel.config.AppConfig;
+import com.rbaudu.angel.service.AudioArchiveService;
+import com.rbaudu.angel.service.AudioCaptureService;
+import com.rbaudu.angel.service.CaptureRateController;
 import com.rbaudu.angel.service.CaptureServiceManager;
+import com.rbaudu.angel.service.CaptureSupervisor;
+import com.rbaudu.angel.service.FrameEncodingService;
+import com.rbaudu.angel.service.MediaSynchronizationService;
+import com.rbaudu.angel.service.VideoCaptureService;
 
 /**
  * Contrôleur REST pour gérer les opérations de capture.
@@ -30,6 +39,27 @@ public class CaptureController {
     @Autowired
     private AppConfig config;
     
+    @Autowired
+    private VideoCaptureService videoCaptureService;
+    
+    @Autowired
+    private AudioCaptureService audioCaptureService;
+    
+    @Autowired
+    private AudioArchiveService audioArchiveService;
+    
+    @Autowired
+    private FrameEncodingService frameEncodingService;
+    
+    @Autowired
+    private CaptureRateController captureRateController;
+    
+    @Autowired
+    private CaptureSupervisor captureSupervisor;
+    
+    @Autowired
+    private MediaSynchronizationService mediaSynchronizationService;
+    
     /**
      * Récupère l'état actuel des services de capture.
      * 
@@ -44,6 +74,13 @@ public class CaptureController {
         status.put("videoEnabled", config.isVideoEnabled());
         status.put("audioEnabled", config.isAudioEnabled());
         status.put("analysisEnabled", config.isAnalysisEnabled());
+        status.put("videoSources", videoCaptureService.getSourceStats());
+        status.put("audio", audioCaptureService.getSourceStats());
+        status.put("audioArchive", audioArchiveService.getStats());
+        status.put("encoding", frameEncodingService.getStats());
+        status.put("rateControl", captureRateController.getStats());
+        status.put("supervisor", captureSupervisor.getStats());
+        status.put("sync", mediaSynchronizationService.getStats());
         
         return ResponseEntity.ok(status);
     }
@@ -86,6 +123,65 @@ public class CaptureController {
         return ResponseEntity.ok(result);
     }
     
+    /**
+     * Démarre la capture d'une source vidéo.
+     * 
+     * @param sourceId identifiant de la source (ex: camera-0)
+     * @return résultat de l'opération
+     */
+    @PostMapping("/video/{sourceId}/start")
+    public ResponseEntity<Map<String, Object>> startVideoSource(@PathVariable String sourceId) {
+        log.info("Demande de démarrage de la source vidéo {}", sourceId);
+        
+        if (!videoCaptureService.getSourceIds().contains(sourceId)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        boolean success = captureServiceManager.startVideoSource(sourceId);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", success);
+        result.put("sourceId", sourceId);
+        result.put("running", videoCaptureService.isRunning(sourceId));
+        result.put("message", success ? "Source démarrée avec succès" : "Échec du démarrage de la source");
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Arrête la capture d'une source vidéo.
+     * 
+     * @param sourceId identifiant de la source (ex: camera-0)
+     * @return résultat de l'opération
+     */
+    @PostMapping("/video/{sourceId}/stop")
+    public ResponseEntity<Map<String, Object>> stopVideoSource(@PathVariable String sourceId) {
+        log.info("Demande d'arrêt de la source vidéo {}", sourceId);
+        
+        if (!captureServiceManager.stopVideoSource(sourceId)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("sourceId", sourceId);
+        result.put("running", videoCaptureService.isRunning(sourceId));
+        result.put("message", "Source arrêtée avec succès");
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Liste les périphériques de capture audio disponibles.
+     * 
+     * @return index, identifiant de source et nom de chaque périphérique
+     */
+    @GetMapping("/audio/devices")
+    public ResponseEntity<List<Map<String, Object>>> getAudioDevices() {
+        log.debug("Requête des périphériques de capture audio");
+        return ResponseEntity.ok(audioCaptureService.listDevices());
+    }
+    
     /**
      * Redémarre les services de capture.
      * 
@@ -120,6 +216,7 @@ public class CaptureController {
         Map<String, Object> videoConfig = new HashMap<>();
         videoConfig.put("enabled", config.isVideoEnabled());
         videoConfig.put("cameraIndex", config.getCameraIndex());
+        videoConfig.put("sources", videoCaptureService.getSourceIds());
         videoConfig.put("width", config.getVideoWidth());
         videoConfig.put("height", config.getVideoHeight());
         videoConfig.put("fps", config.getVideoFps());
@@ -129,6 +226,7 @@ public class CaptureController {
         Map<String, Object> audioConfig = new HashMap<>();
         audioConfig.put("enabled", config.isAudioEnabled());
         audioConfig.put("deviceIndex", config.getAudioDeviceIndex());
+        audioConfig.put("sources", audioCaptureService.getSourceIds());
         audioConfig.put("sampleRate", config.getAudioSampleRate());
         audioConfig.put("channels", config.getAudioChannels());
         configMap.put("audio", audioConfig);
@@ -137,6 +235,11 @@ public class CaptureController {
         Map<String, Object> syncConfig = new HashMap<>();
         syncConfig.put("bufferSize", config.getSyncBufferSize());
         syncConfig.put("maxDelayMs", config.getSyncMaxDelayMs());
+        syncConfig.put("pairs", config.getSyncPairs());
+        syncConfig.put("pairingPolicy", config.getSyncPairingPolicy());
+        syncConfig.put("audioWindowMs", config.getSyncAudioWindowMs());
+        syncConfig.put("driftCorrection", config.isSyncDriftCorrection());
+        syncConfig.put("driftWindow", config.getSyncDriftWindow());
         configMap.put("sync", syncConfig);
         
         // Configuration d'analyse
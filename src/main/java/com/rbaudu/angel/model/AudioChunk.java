@@ -2,6 +2,10 @@ package com.rbaudu.angel.model;
 
 import java.time.Instant;
 import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rbaudu.angel.service.AudioBufferLease;
 
 /**
  * Représente un segment audio capturé.
@@ -11,11 +15,38 @@ public class AudioChunk {
     
     /**
      * Données audio encodées en Base64.
+     * Calculées à la première demande si un encodeur différé est défini.
      */
-    private String audioData;
+    private volatile String audioData;
     
     /**
-     * Horodatage de capture du segment audio.
+     * Encodeur différé des données audio, invoqué au plus une fois à la première lecture de audioData.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient Supplier<String> audioDataSupplier;
+    
+    /**
+     * Emprunt du buffer PCM partagé issu du pool de buffers audio.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient AudioBufferLease audioLease;
+    
+    /**
+     * Instant de capture sur l'horloge monotone de la JVM (System.nanoTime), 0 s'il est inconnu.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient long captureNanoTime;
+    
+    /**
+     * Identifiant du microphone d'origine (ex: mic-0).
+     */
+    private String sourceId;
+    
+    /**
+     * Horodatage de la première trame du segment audio, déduit de sa position en échantillons.
      */
     private Instant timestamp;
     
@@ -86,14 +117,98 @@ public class AudioChunk {
     /**
      * Getters et Setters
      */
+    /**
+     * Récupère les données audio encodées en Base64, en les encodant à la
+     * première demande (sérialisation vers un abonné WebSocket par exemple).
+     * 
+     * @return les données encodées, ou null si elles ne sont pas disponibles
+     */
     public String getAudioData() {
-        return audioData;
+        String data = audioData;
+        if (data == null && audioDataSupplier != null) {
+            synchronized (this) {
+                data = audioData;
+                if (data == null && audioDataSupplier != null) {
+                    data = audioDataSupplier.get();
+                    audioData = data;
+                    audioDataSupplier = null;
+                }
+            }
+        }
+        return data;
     }
 
     public void setAudioData(String audioData) {
         this.audioData = audioData;
     }
 
+    /**
+     * Définit l'encodeur différé des données audio, utilisé si audioData n'est pas déjà renseigné.
+     * 
+     * @param audioDataSupplier fonction d'encodage des données audio
+     */
+    public synchronized void setAudioDataSupplier(Supplier<String> audioDataSupplier) {
+        this.audioDataSupplier = audioDataSupplier;
+    }
+
+    @JsonIgnore
+    public AudioBufferLease getAudioLease() {
+        return audioLease;
+    }
+
+    public void setAudioLease(AudioBufferLease audioLease) {
+        this.audioLease = audioLease;
+    }
+    
+    /**
+     * @return l'instant de capture sur l'horloge monotone de la JVM, ou 0 s'il est inconnu
+     */
+    @JsonIgnore
+    public long getCaptureNanoTime() {
+        return captureNanoTime;
+    }
+
+    public void setCaptureNanoTime(long captureNanoTime) {
+        this.captureNanoTime = captureNanoTime;
+    }
+    
+    /**
+     * Indique si les échantillons PCM sont disponibles, sous forme brute ou encodée.
+     * 
+     * @return true si le segment porte des données audio
+     */
+    @JsonIgnore
+    public boolean hasAudioData() {
+        return audioLease != null || audioData != null || audioDataSupplier != null;
+    }
+    
+    /**
+     * Acquiert une référence sur le buffer PCM partagé du segment.
+     * À appeler par tout consommateur qui conserve le segment après la publication.
+     * 
+     * @return false si le buffer partagé a déjà été rendu au pool, true sinon
+     */
+    public boolean retainAudio() {
+        return audioLease == null || audioLease.retain();
+    }
+    
+    /**
+     * Libère une référence acquise avec {@link #retainAudio()}.
+     */
+    public void releaseAudio() {
+        if (audioLease != null) {
+            audioLease.release();
+        }
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
     public Instant getTimestamp() {
         return timestamp;
     }
@@ -102,6 +217,26 @@ public class AudioChunk {
         this.timestamp = timestamp;
     }
 
+    /**
+     * Récupère l'instant du milieu du segment, utilisé pour l'apparier aux trames vidéo.
+     * 
+     * @return l'instant central du segment, ou null si le segment n'est pas horodaté
+     */
+    @JsonIgnore
+    public Instant getCenterTimestamp() {
+        return timestamp != null ? timestamp.plusNanos(durationMs * 500_000L) : null;
+    }
+
+    /**
+     * Récupère l'instant de fin du segment.
+     * 
+     * @return l'instant suivant la dernière trame du segment, ou null si le segment n'est pas horodaté
+     */
+    @JsonIgnore
+    public Instant getEndTimestamp() {
+        return timestamp != null ? timestamp.plusMillis(durationMs) : null;
+    }
+
     public long getSequenceNumber() {
         return sequenceNumber;
     }
@@ -180,6 +315,7 @@ public class AudioChunk {
                durationMs == that.durationMs &&
                soundDetected == that.soundDetected &&
                Objects.equals(audioData, that.audioData) &&
+               Objects.equals(sourceId, that.sourceId) &&
                Objects.equals(timestamp, that.timestamp) &&
                Objects.equals(format, that.format) &&
                Objects.equals(maxSoundLevel, that.maxSoundLevel) &&
@@ -191,7 +327,7 @@ public class AudioChunk {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(audioData, timestamp, sequenceNumber, sampleRate, channels,
+        return Objects.hash(audioData, sourceId, timestamp, sequenceNumber, sampleRate, channels,
                           format, durationMs, maxSoundLevel, avgSoundLevel, soundDetected);
     }
 
@@ -201,7 +337,8 @@ public class AudioChunk {
     @Override
     public String toString() {
         return "AudioChunk{" +
-               "timestamp=" + timestamp +
+               "sourceId='" + sourceId + '\'' +
+               ", timestamp=" + timestamp +
                ", sequenceNumber=" + sequenceNumber +
                ", sampleRate=" + sampleRate +
                ", channels=" + channels +
@@ -223,6 +360,10 @@ public class AudioChunk {
 
     public static class Builder {
         private String audioData;
+        private Supplier<String> audioDataSupplier;
+        private AudioBufferLease audioLease;
+        private long captureNanoTime;
+        private String sourceId;
         private Instant timestamp;
         private long sequenceNumber;
         private int sampleRate;
@@ -238,6 +379,21 @@ public class AudioChunk {
             return this;
         }
 
+        public Builder audioDataSupplier(Supplier<String> audioDataSupplier) {
+            this.audioDataSupplier = audioDataSupplier;
+            return this;
+        }
+
+        public Builder audioLease(AudioBufferLease audioLease) {
+            this.audioLease = audioLease;
+            return this;
+        }
+
+        public Builder sourceId(String sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+
         public Builder timestamp(Instant timestamp) {
             this.timestamp = timestamp;
             return this;
@@ -283,9 +439,19 @@ public class AudioChunk {
             return this;
         }
 
+        public Builder captureNanoTime(long captureNanoTime) {
+            this.captureNanoTime = captureNanoTime;
+            return this;
+        }
+
         public AudioChunk build() {
-            return new AudioChunk(audioData, timestamp, sequenceNumber, sampleRate, channels,
+            AudioChunk audioChunk = new AudioChunk(audioData, timestamp, sequenceNumber, sampleRate, channels,
                                format, durationMs, maxSoundLevel, avgSoundLevel, soundDetected);
+            audioChunk.audioDataSupplier = audioDataSupplier;
+            audioChunk.audioLease = audioLease;
+            audioChunk.sourceId = sourceId;
+            audioChunk.captureNanoTime = captureNanoTime;
+            return audioChunk;
         }
     }
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ package com.rbaudu.angel.model;
 import java.time.Instant;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rbaudu.angel.service.PcmWindow;
+
 /**
  * Représente des médias synchronisés pour l'affichage et l'analyse.
  * Cette classe combine des trames vidéo et des segments audio synchronisés.
@@ -14,6 +17,11 @@ public class SynchronizedMedia {
      */
     private String id;
     
+    /**
+     * Identifiant de la source vidéo (caméra) de ce média synchronisé.
+     */
+    private String sourceId;
+    
     /**
      * Trame vidéo associée.
      */
@@ -24,6 +32,13 @@ public class SynchronizedMedia {
      */
     private AudioChunk audioChunk;
     
+    /**
+     * Vue sur l'audio précédant la trame, lue sans copie dans l'historique du
+     * microphone ; non sérialisée, elle ne vit que le temps de l'analyse.
+     */
+    @JsonIgnore
+    private PcmWindow audioWindow;
+    
     /**
      * Horodatage de synchronisation.
      */
@@ -39,6 +54,13 @@ public class SynchronizedMedia {
      */
     private boolean hasAudio;
     
+    /**
+     * Indique si le segment audio accompagnait déjà la trame précédente de la
+     * source : plusieurs trames partagent un segment quand la vidéo est plus
+     * fréquente que l'audio, et son analyse n'a pas à être refaite.
+     */
+    private boolean audioRepeated;
+    
     /**
      * Délai de synchronisation en millisecondes.
      */
@@ -58,9 +80,10 @@ public class SynchronizedMedia {
     /**
      * Constructeur avec tous les champs
      */
-    public SynchronizedMedia(String id, VideoFrame videoFrame, AudioChunk audioChunk, Instant syncTimestamp,
+    public SynchronizedMedia(String id, String sourceId, VideoFrame videoFrame, AudioChunk audioChunk, Instant syncTimestamp,
                             boolean hasVideo, boolean hasAudio, long syncDelayMs, String analysisResults) {
         this.id = id;
+        this.sourceId = sourceId;
         this.videoFrame = videoFrame;
         this.audioChunk = audioChunk;
         this.syncTimestamp = syncTimestamp;
@@ -81,6 +104,14 @@ public class SynchronizedMedia {
         this.id = id;
     }
 
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
     public VideoFrame getVideoFrame() {
         return videoFrame;
     }
@@ -97,6 +128,15 @@ public class SynchronizedMedia {
         this.audioChunk = audioChunk;
     }
 
+    @JsonIgnore
+    public PcmWindow getAudioWindow() {
+        return audioWindow;
+    }
+
+    public void setAudioWindow(PcmWindow audioWindow) {
+        this.audioWindow = audioWindow;
+    }
+
     public Instant getSyncTimestamp() {
         return syncTimestamp;
     }
@@ -121,6 +161,14 @@ public class SynchronizedMedia {
         this.hasAudio = hasAudio;
     }
 
+    public boolean isAudioRepeated() {
+        return audioRepeated;
+    }
+
+    public void setAudioRepeated(boolean audioRepeated) {
+        this.audioRepeated = audioRepeated;
+    }
+
     public long getSyncDelayMs() {
         return syncDelayMs;
     }
@@ -145,7 +193,8 @@ public class SynchronizedMedia {
      */
     public static SynchronizedMedia ofVideo(VideoFrame videoFrame) {
         return SynchronizedMedia.builder()
-                .id(generateId(videoFrame.getTimestamp()))
+                .id(generateId(videoFrame.getSourceId(), videoFrame.getTimestamp()))
+                .sourceId(videoFrame.getSourceId())
                 .videoFrame(videoFrame)
                 .syncTimestamp(videoFrame.getTimestamp())
                 .hasVideo(true)
@@ -162,7 +211,7 @@ public class SynchronizedMedia {
      */
     public static SynchronizedMedia ofAudio(AudioChunk audioChunk) {
         return SynchronizedMedia.builder()
-                .id(generateId(audioChunk.getTimestamp()))
+                .id(generateId(null, audioChunk.getTimestamp()))
                 .audioChunk(audioChunk)
                 .syncTimestamp(audioChunk.getTimestamp())
                 .hasVideo(false)
@@ -172,13 +221,16 @@ public class SynchronizedMedia {
     }
     
     /**
-     * Génère un identifiant unique basé sur l'horodatage.
+     * Génère un identifiant unique basé sur la source et l'horodatage.
      * 
+     * @param sourceId l'identifiant de la source vidéo, ou null
      * @param timestamp l'horodatage de référence
      * @return un identifiant unique sous forme de chaîne
      */
-    private static String generateId(Instant timestamp) {
-        return "sync-" + timestamp.toEpochMilli();
+    public static String generateId(String sourceId, Instant timestamp) {
+        return sourceId != null
+                ? "sync-" + sourceId + "-" + timestamp.toEpochMilli()
+                : "sync-" + timestamp.toEpochMilli();
     }
 
     /**
@@ -191,8 +243,10 @@ public class SynchronizedMedia {
         SynchronizedMedia that = (SynchronizedMedia) o;
         return hasVideo == that.hasVideo &&
                hasAudio == that.hasAudio &&
+               audioRepeated == that.audioRepeated &&
                syncDelayMs == that.syncDelayMs &&
                Objects.equals(id, that.id) &&
+               Objects.equals(sourceId, that.sourceId) &&
                Objects.equals(videoFrame, that.videoFrame) &&
                Objects.equals(audioChunk, that.audioChunk) &&
                Objects.equals(syncTimestamp, that.syncTimestamp) &&
@@ -204,8 +258,8 @@ public class SynchronizedMedia {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, videoFrame, audioChunk, syncTimestamp, hasVideo,
-                          hasAudio, syncDelayMs, analysisResults);
+        return Objects.hash(id, sourceId, videoFrame, audioChunk, syncTimestamp, hasVideo,
+                          hasAudio, audioRepeated, syncDelayMs, analysisResults);
     }
 
     /**
@@ -215,6 +269,7 @@ public class SynchronizedMedia {
     public String toString() {
         return "SynchronizedMedia{" +
                "id='" + id + '\'' +
+               ", sourceId='" + sourceId + '\'' +
                ", syncTimestamp=" + syncTimestamp +
                ", hasVideo=" + hasVideo +
                ", hasAudio=" + hasAudio +
@@ -231,11 +286,14 @@ public class SynchronizedMedia {
 
     public static class Builder {
         private String id;
+        private String sourceId;
         private VideoFrame videoFrame;
         private AudioChunk audioChunk;
+        private PcmWindow audioWindow;
         private Instant syncTimestamp;
         private boolean hasVideo;
         private boolean hasAudio;
+        private boolean audioRepeated;
         private long syncDelayMs;
         private String analysisResults;
 
@@ -244,6 +302,11 @@ public class SynchronizedMedia {
             return this;
         }
 
+        public Builder sourceId(String sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+
         public Builder videoFrame(VideoFrame videoFrame) {
             this.videoFrame = videoFrame;
             return this;
@@ -254,6 +317,11 @@ public class SynchronizedMedia {
             return this;
         }
 
+        public Builder audioWindow(PcmWindow audioWindow) {
+            this.audioWindow = audioWindow;
+            return this;
+        }
+
         public Builder syncTimestamp(Instant syncTimestamp) {
             this.syncTimestamp = syncTimestamp;
             return this;
@@ -269,6 +337,11 @@ public class SynchronizedMedia {
             return this;
         }
 
+        public Builder audioRepeated(boolean audioRepeated) {
+            this.audioRepeated = audioRepeated;
+            return this;
+        }
+
         public Builder syncDelayMs(long syncDelayMs) {
             this.syncDelayMs = syncDelayMs;
             return this;
@@ -280,8 +353,11 @@ public class SynchronizedMedia {
         }
 
         public SynchronizedMedia build() {
-            return new SynchronizedMedia(id, videoFrame, audioChunk, syncTimestamp,
+            SynchronizedMedia media = new SynchronizedMedia(id, sourceId, videoFrame, audioChunk, syncTimestamp,
                                       hasVideo, hasAudio, syncDelayMs, analysisResults);
+            media.setAudioWindow(audioWindow);
+            media.setAudioRepeated(audioRepeated);
+            return media;
         }
     }
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.rbaudu.angel.model;
 
 import java.time.Instant;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import org.bytedeco.opencv.opencv_core.Mat;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rbaudu.angel.service.FrameLease;
 
 /**
  * Représente une trame vidéo capturée.
@@ -15,8 +17,21 @@ public class VideoFrame {
     
     /**
      * Données d'image encodées en Base64.
+     * Calculées à la première demande si un encodeur différé est défini.
      */
-    private String imageData;
+    private volatile String imageData;
+    
+    /**
+     * Encodeur différé de l'image, invoqué au plus une fois à la première lecture de imageData.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient Supplier<String> imageDataSupplier;
+    
+    /**
+     * Identifiant de la source vidéo (caméra) ayant produit la trame.
+     */
+    private String sourceId;
     
     /**
      * Horodatage de capture de la trame.
@@ -24,7 +39,7 @@ public class VideoFrame {
     private Instant timestamp;
     
     /**
-     * Numéro de séquence de la trame.
+     * Numéro de séquence de la trame, propre à chaque source.
      */
     private long sequenceNumber;
     
@@ -69,6 +84,20 @@ public class VideoFrame {
      */
     @JsonIgnore
     private transient Mat frameMat;
+    
+    /**
+     * Emprunt de la matrice partagée issue du pool de trames.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient FrameLease frameLease;
+
+    /**
+     * Instant de capture sur l'horloge monotone de la JVM (System.nanoTime), 0 s'il est inconnu.
+     * Ce champ est ignoré lors de la sérialisation/désérialisation JSON.
+     */
+    @JsonIgnore
+    private transient long captureNanoTime;
 
     /**
      * Constructeur par défaut
@@ -79,10 +108,11 @@ public class VideoFrame {
     /**
      * Constructeur avec tous les champs
      */
-    public VideoFrame(String imageData, Instant timestamp, long sequenceNumber, int width, int height,
+    public VideoFrame(String imageData, String sourceId, Instant timestamp, long sequenceNumber, int width, int height,
                      String format, boolean motionDetected, boolean personDetected,
-                     Integer personX, Integer personY, Mat frameMat) {
+                     Integer personX, Integer personY, Mat frameMat, FrameLease frameLease) {
         this.imageData = imageData;
+        this.sourceId = sourceId;
         this.timestamp = timestamp;
         this.sequenceNumber = sequenceNumber;
         this.width = width;
@@ -93,19 +123,54 @@ public class VideoFrame {
         this.personX = personX;
         this.personY = personY;
         this.frameMat = frameMat;
+        this.frameLease = frameLease;
     }
 
     /**
      * Getters et Setters
      */
+    /**
+     * Récupère l'image encodée en Base64, en l'encodant à la première demande
+     * (sérialisation vers un abonné WebSocket par exemple).
+     * 
+     * @return l'image encodée, ou null si elle n'est pas disponible
+     */
     public String getImageData() {
-        return imageData;
+        String data = imageData;
+        if (data == null && imageDataSupplier != null) {
+            synchronized (this) {
+                data = imageData;
+                if (data == null && imageDataSupplier != null) {
+                    data = imageDataSupplier.get();
+                    imageData = data;
+                    imageDataSupplier = null;
+                }
+            }
+        }
+        return data;
     }
 
     public void setImageData(String imageData) {
         this.imageData = imageData;
     }
 
+    /**
+     * Définit l'encodeur différé de l'image, utilisé si imageData n'est pas déjà renseigné.
+     * 
+     * @param imageDataSupplier fonction d'encodage de l'image
+     */
+    public synchronized void setImageDataSupplier(Supplier<String> imageDataSupplier) {
+        this.imageDataSupplier = imageDataSupplier;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
     public Instant getTimestamp() {
         return timestamp;
     }
@@ -178,7 +243,11 @@ public class VideoFrame {
         this.personY = personY;
     }
 
+    @JsonIgnore
     public Mat getFrameMat() {
+        if (frameMat == null && frameLease != null) {
+            return frameLease.getMat();
+        }
         return frameMat;
     }
 
@@ -186,6 +255,46 @@ public class VideoFrame {
         this.frameMat = frameMat;
     }
 
+    @JsonIgnore
+    public FrameLease getFrameLease() {
+        return frameLease;
+    }
+
+    public void setFrameLease(FrameLease frameLease) {
+        this.frameLease = frameLease;
+    }
+
+    /**
+     * @return l'instant de capture sur l'horloge monotone de la JVM, ou 0 s'il est inconnu
+     */
+    @JsonIgnore
+    public long getCaptureNanoTime() {
+        return captureNanoTime;
+    }
+
+    public void setCaptureNanoTime(long captureNanoTime) {
+        this.captureNanoTime = captureNanoTime;
+    }
+    
+    /**
+     * Acquiert une référence sur la matrice partagée de la trame.
+     * À appeler par tout consommateur qui conserve la trame après la publication.
+     * 
+     * @return false si la matrice partagée a déjà été rendue au pool, true sinon
+     */
+    public boolean retainFrame() {
+        return frameLease == null || frameLease.retain();
+    }
+    
+    /**
+     * Libère une référence acquise avec {@link #retainFrame()}.
+     */
+    public void releaseFrame() {
+        if (frameLease != null) {
+            frameLease.release();
+        }
+    }
+
     /**
      * Méthode equals pour la comparaison des objets
      */
@@ -200,11 +309,12 @@ public class VideoFrame {
                motionDetected == that.motionDetected &&
                personDetected == that.personDetected &&
                Objects.equals(imageData, that.imageData) &&
+               Objects.equals(sourceId, that.sourceId) &&
                Objects.equals(timestamp, that.timestamp) &&
                Objects.equals(format, that.format) &&
                Objects.equals(personX, that.personX) &&
                Objects.equals(personY, that.personY);
-        // frameMat n'est pas inclus car il peut causer des problèmes de comparaison
+        // frameMat et frameLease ne sont pas inclus car ils peuvent causer des problèmes de comparaison
     }
 
     /**
@@ -212,7 +322,7 @@ public class VideoFrame {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(imageData, timestamp, sequenceNumber, width, height, format,
+        return Objects.hash(imageData, sourceId, timestamp, sequenceNumber, width, height, format,
                            motionDetected, personDetected, personX, personY);
         // frameMat n'est pas inclus car il peut causer des problèmes de hachage
     }
@@ -223,7 +333,8 @@ public class VideoFrame {
     @Override
     public String toString() {
         return "VideoFrame{" +
-               "timestamp=" + timestamp +
+               "sourceId='" + sourceId + '\'' +
+               ", timestamp=" + timestamp +
                ", sequenceNumber=" + sequenceNumber +
                ", width=" + width +
                ", height=" + height +
@@ -245,6 +356,7 @@ public class VideoFrame {
 
     public static class Builder {
         private String imageData;
+        private String sourceId;
         private Instant timestamp;
         private long sequenceNumber;
         private int width;
@@ -255,12 +367,25 @@ public class VideoFrame {
         private Integer personX;
         private Integer personY;
         private Mat frameMat;
+        private FrameLease frameLease;
+        private Supplier<String> imageDataSupplier;
+        private long captureNanoTime;
 
         public Builder imageData(String imageData) {
             this.imageData = imageData;
             return this;
         }
 
+        public Builder imageDataSupplier(Supplier<String> imageDataSupplier) {
+            this.imageDataSupplier = imageDataSupplier;
+            return this;
+        }
+
+        public Builder sourceId(String sourceId) {
+            this.sourceId = sourceId;
+            return this;
+        }
+
         public Builder timestamp(Instant timestamp) {
             this.timestamp = timestamp;
             return this;
@@ -311,9 +436,23 @@ public class VideoFrame {
             return this;
         }
 
+        public Builder frameLease(FrameLease frameLease) {
+            this.frameLease = frameLease;
+            return this;
+        }
+
+        public Builder captureNanoTime(long captureNanoTime) {
+            this.captureNanoTime = captureNanoTime;
+            return this;
+        }
+
         public VideoFrame build() {
-            return new VideoFrame(imageData, timestamp, sequenceNumber, width, height,
-                                format, motionDetected, personDetected, personX, personY, frameMat);
+            VideoFrame videoFrame = new VideoFrame(imageData, sourceId, timestamp, sequenceNumber, width, height,
+                                format, motionDetected, personDetected, personX, personY,
+                                frameMat, frameLease);
+            videoFrame.imageDataSupplier = imageDataSupplier;
+            videoFrame.captureNanoTime = captureNanoTime;
+            return videoFrame;
         }
     }
 }
\ No newline at end of file
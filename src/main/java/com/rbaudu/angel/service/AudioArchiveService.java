@@ -0,0 +1,335 @@
+package com.rbaudu.angel.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.rbaudu.angel.config.AppConfig;
+import com.rbaudu.angel.event.AudioEvent;
+import com.rbaudu.angel.model.AudioChunk;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Archivage optionnel de l'audio capturé dans des fichiers tournants.
+ * <p>
+ * Désactivé par défaut ({@code angel.capture.audio.archive.format=none}).
+ * Lorsqu'il est actif, les segments publiés sont mis dans une file bornée, en
+ * conservant une référence sur leur buffer PCM, puis encodés par FFmpeg sur un
+ * thread dédié : le thread de capture ne bloque jamais sur l'encodeur. Si la
+ * file est pleine, le segment n'est pas archivé et le trou est compté.
+ * Un seul microphone est archivé : celui de {@code angel.capture.audio.archive.source},
+ * ou à défaut le premier microphone configuré.
+ */
+@Service
+public class AudioArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(AudioArchiveService.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Format des fichiers d'archive.
+     */
+    public enum ArchiveFormat {
+        NONE(null, null, 0),
+        WAV("wav", "wav", avcodec.AV_CODEC_ID_PCM_S16LE),
+        FLAC("flac", "flac", avcodec.AV_CODEC_ID_FLAC),
+        OPUS("opus", "ogg", avcodec.AV_CODEC_ID_OPUS);
+
+        private final String extension;
+        private final String container;
+        private final int codecId;
+
+        ArchiveFormat(String extension, String container, int codecId) {
+            this.extension = extension;
+            this.container = container;
+            this.codecId = codecId;
+        }
+    }
+
+    @Autowired
+    private AppConfig config;
+
+    private ArchiveFormat format = ArchiveFormat.NONE;
+    private String archiveSourceId;
+    private BlockingQueue<AudioChunk> pending;
+    private Thread archiveThread;
+    private volatile boolean running;
+
+    // État de l'encodeur, manipulé uniquement par le thread d'archivage
+    private FFmpegFrameRecorder recorder;
+    private long segmentStartNanos;
+    private ShortBuffer samples;
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    private final AtomicLong archivedChunks = new AtomicLong();
+    private final AtomicLong droppedChunks = new AtomicLong();
+    private final AtomicLong encodeErrors = new AtomicLong();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private volatile Path currentSegment;
+
+    /**
+     * Démarre le thread d'archivage si un format est configuré.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            format = ArchiveFormat.valueOf(config.getAudioArchiveFormat().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Format d'archive audio '{}' inconnu, archivage désactivé", config.getAudioArchiveFormat());
+            format = ArchiveFormat.NONE;
+        }
+        if (format == ArchiveFormat.NONE || !config.isAudioEnabled()) {
+            log.info("Archivage audio désactivé");
+            return;
+        }
+
+        String configuredSource = config.getAudioArchiveSource();
+        archiveSourceId = configuredSource != null && !configuredSource.isBlank()
+                ? configuredSource.trim()
+                : AudioDevices.sourceIdFor(config.getAudioSources().get(0));
+        pending = new ArrayBlockingQueue<>(Math.max(1, config.getAudioArchiveQueueCapacity()));
+        running = true;
+        archiveThread = new Thread(this::archiveLoop, "audio-archive");
+        archiveThread.setDaemon(true);
+        archiveThread.start();
+        log.info("Archivage audio actif: source {}, format {}, segments de {} s dans {}",
+                archiveSourceId, format, config.getAudioArchiveSegmentDurationS(), config.getAudioArchiveDirectory());
+    }
+
+    /**
+     * Met en file un segment audio capturé. Appelé sur le thread de capture :
+     * ne fait que retenir le buffer et l'ajouter à la file, sans attendre.
+     *
+     * @param event l'événement de segment audio
+     */
+    @EventListener
+    public void handleAudioEvent(AudioEvent event) {
+        if (!running) {
+            return;
+        }
+        AudioChunk audioChunk = event.getAudioChunk();
+        if (!archiveSourceId.equals(audioChunk.getSourceId())) {
+            return;
+        }
+        if (audioChunk.getAudioLease() == null || !audioChunk.retainAudio()) {
+            return;
+        }
+        if (!pending.offer(audioChunk)) {
+            audioChunk.releaseAudio();
+            droppedChunks.incrementAndGet();
+            log.debug("File d'archivage audio pleine, segment {} non archivé", audioChunk.getSequenceNumber());
+        }
+    }
+
+    /**
+     * Boucle du thread d'archivage : encode les segments en attente.
+     */
+    private void archiveLoop() {
+        try {
+            while (running) {
+                AudioChunk audioChunk = pending.poll(500, TimeUnit.MILLISECONDS);
+                if (audioChunk == null) {
+                    continue;
+                }
+                try {
+                    long start = System.nanoTime();
+                    archive(audioChunk);
+                    encodeLatency.recordNanos(System.nanoTime() - start);
+                    archivedChunks.incrementAndGet();
+                } catch (Exception e) {
+                    encodeErrors.incrementAndGet();
+                    log.error("Erreur lors de l'archivage du segment audio {}", audioChunk.getSequenceNumber(), e);
+                    closeSegment();
+                } finally {
+                    audioChunk.releaseAudio();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            AudioChunk remaining;
+            while ((remaining = pending.poll()) != null) {
+                remaining.releaseAudio();
+            }
+            closeSegment();
+        }
+    }
+
+    /**
+     * Encode un segment dans le fichier courant, en ouvrant un nouveau fichier
+     * lorsque la durée de segment configurée est écoulée.
+     *
+     * @param audioChunk le segment, dont le buffer est retenu
+     * @throws Exception en cas d'erreur FFmpeg ou d'entrée/sortie
+     */
+    private void archive(AudioChunk audioChunk) throws Exception {
+        long segmentNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getAudioArchiveSegmentDurationS()));
+        if (recorder != null && System.nanoTime() - segmentStartNanos >= segmentNanos) {
+            closeSegment();
+        }
+        if (recorder == null) {
+            openSegment(audioChunk.getSampleRate(), audioChunk.getChannels());
+        }
+
+        // Conversion des octets PCM little-endian en échantillons 16 bits dans un buffer direct réutilisé
+        AudioBufferLease lease = audioChunk.getAudioLease();
+        byte[] data = lease.getData();
+        int sampleCount = lease.getLength() / 2;
+        if (samples == null || samples.capacity() < sampleCount) {
+            samples = ByteBuffer.allocateDirect(sampleCount * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        }
+        samples.clear();
+        for (int i = 0; i < sampleCount; i++) {
+            samples.put((short) ((data[2 * i] & 0xFF) | (data[2 * i + 1] << 8)));
+        }
+        samples.flip();
+
+        recorder.recordSamples(audioChunk.getSampleRate(), audioChunk.getChannels(), samples);
+    }
+
+    /**
+     * Ouvre un nouveau fichier d'archive et supprime les plus anciens au-delà du nombre maximal.
+     *
+     * @param sampleRate fréquence d'échantillonnage des segments
+     * @param channels nombre de canaux des segments
+     * @throws Exception en cas d'erreur FFmpeg ou d'entrée/sortie
+     */
+    private void openSegment(int sampleRate, int channels) throws Exception {
+        Path directory = Paths.get(config.getAudioArchiveDirectory());
+        Files.createDirectories(directory);
+        if (segments.isEmpty()) {
+            loadExistingSegments(directory);
+        }
+
+        Path file = directory.resolve("audio-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "." + format.extension);
+        FFmpegFrameRecorder newRecorder = new FFmpegFrameRecorder(file.toFile(), channels);
+        newRecorder.setFormat(format.container);
+        newRecorder.setAudioCodec(format.codecId);
+        newRecorder.setAudioChannels(channels);
+        if (format == ArchiveFormat.OPUS) {
+            // Opus n'accepte que certaines fréquences : FFmpeg rééchantillonne à 48 kHz
+            newRecorder.setAudioCodecName("libopus");
+            newRecorder.setSampleRate(48000);
+            newRecorder.setAudioBitrate(config.getAudioArchiveBitrate());
+        } else {
+            newRecorder.setSampleRate(sampleRate);
+        }
+        newRecorder.start();
+
+        recorder = newRecorder;
+        segmentStartNanos = System.nanoTime();
+        currentSegment = file;
+        segments.addLast(file);
+        log.info("Nouveau fichier d'archive audio: {}", file);
+
+        int maxSegments = config.getAudioArchiveMaxSegments();
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            Path oldest = segments.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+                log.debug("Fichier d'archive audio supprimé: {}", oldest);
+            } catch (IOException e) {
+                log.warn("Impossible de supprimer le fichier d'archive audio {}", oldest, e);
+            }
+        }
+    }
+
+    /**
+     * Reprend les fichiers d'archive déjà présents, du plus ancien au plus récent,
+     * pour que la rotation les prenne en compte après un redémarrage.
+     *
+     * @param directory répertoire d'archive
+     * @throws IOException en cas d'erreur de lecture du répertoire
+     */
+    private void loadExistingSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith("audio-") && name.endsWith("." + format.extension);
+                    })
+                    .sorted()
+                    .forEach(segments::addLast);
+        }
+    }
+
+    /**
+     * Termine le fichier d'archive courant.
+     */
+    private void closeSegment() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.stop();
+            recorder.release();
+        } catch (Exception e) {
+            log.error("Erreur lors de la fermeture du fichier d'archive audio {}", currentSegment, e);
+        } finally {
+            recorder = null;
+            currentSegment = null;
+        }
+    }
+
+    /**
+     * Récupère les statistiques d'archivage.
+     *
+     * @return format, fichier courant, segments archivés ou écartés et latence d'encodage
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("format", format);
+        if (format == ArchiveFormat.NONE) {
+            return stats;
+        }
+        Path segment = currentSegment;
+        stats.put("source", archiveSourceId);
+        stats.put("currentFile", segment != null ? segment.toString() : null);
+        stats.put("queued", pending != null ? pending.size() : 0);
+        stats.put("archived", archivedChunks.get());
+        stats.put("dropped", droppedChunks.get());
+        stats.put("errors", encodeErrors.get());
+        stats.put("encodeLatency", encodeLatency.snapshot());
+        return stats;
+    }
+
+    /**
+     * Arrête l'archivage et termine le fichier courant.
+     */
+    @PreDestroy
+    public void cleanup() {
+        running = false;
+        if (archiveThread != null) {
+            // Pas d'interruption : le thread termine proprement le fichier en cours
+            try {
+                archiveThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.rbaudu.angel.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emprunt à compteur de références d'un buffer PCM de l'{@link AudioBufferPool}.
+ * Le thread de capture détient la première référence ; chaque consommateur
+ * qui conserve le segment au-delà de la publication (synchronisation, analyse...)
+ * doit appeler {@link #retain()} puis {@link #release()} lorsqu'il a terminé.
+ * Le buffer retourne dans le pool lorsque la dernière référence est libérée.
+ */
+public final class AudioBufferLease {
+
+    private final AudioBufferPool pool;
+    private final byte[] data;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private int length;
+
+    /**
+     * Crée un nouvel emprunt avec une référence détenue par l'appelant.
+     *
+     * @param pool le pool d'origine
+     * @param data le buffer emprunté
+     */
+    AudioBufferLease(AudioBufferPool pool, byte[] data) {
+        this.pool = pool;
+        this.data = data;
+    }
+
+    /**
+     * Récupère le buffer emprunté, échantillons PCM 16 bits signés little-endian.
+     * Il n'est valide que tant que l'appelant détient une référence ;
+     * seuls les {@link #getLength()} premiers octets sont significatifs.
+     *
+     * @return le buffer partagé
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return le pool d'origine du buffer
+     */
+    public AudioBufferPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return le nombre d'octets significatifs du buffer
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Définit le nombre d'octets significatifs, après remplissage par le thread de capture.
+     *
+     * @param length nombre d'octets lus
+     */
+    void setLength(int length) {
+        this.length = length;
+    }
+
+    /**
+     * Acquiert une référence supplémentaire sur le buffer.
+     *
+     * @return true si la référence a été acquise, false si le buffer est déjà retourné au pool
+     */
+    public boolean retain() {
+        while (true) {
+            int current = refCount.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (refCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libère une référence. Le buffer retourne au pool à la dernière libération.
+     */
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(data);
+        } else if (remaining < 0) {
+            refCount.set(0);
+            throw new IllegalStateException("Emprunt de buffer audio libéré plus de fois qu'il n'a été acquis");
+        }
+    }
+
+    /**
+     * Indique si le buffer a été retourné au pool.
+     *
+     * @return true si plus aucune référence n'est détenue
+     */
+    public boolean isReleased() {
+        return refCount.get() <= 0;
+    }
+}
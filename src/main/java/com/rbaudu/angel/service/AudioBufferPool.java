@@ -0,0 +1,150 @@
+package com.rbaudu.angel.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool de taille fixe de buffers PCM préalloués pour les segments audio.
+ * Chaque segment est lu directement dans un buffer du pool puis partagé par
+ * emprunt ({@link AudioBufferLease}) entre la synchronisation, l'analyse et
+ * l'aperçu, sans nouvelle allocation par segment.
+ * <p>
+ * Lorsque le pool est épuisé, les détenteurs de segments sont sollicités pour
+ * libérer les plus anciens. Contrairement aux trames vidéo, un segment audio ne
+ * peut pas être abandonné sans créer de trou dans le signal : si aucun buffer
+ * n'a été libéré, un buffer supplémentaire est alloué et compté, puis abandonné
+ * au ramasse-miettes à sa libération si le pool est déjà plein.
+ */
+public class AudioBufferPool {
+    private static final Logger log = LoggerFactory.getLogger(AudioBufferPool.class);
+
+    /**
+     * Détenteur de segments capable d'en libérer sur demande lorsque le pool est épuisé.
+     */
+    public interface ReclaimListener {
+
+        /**
+         * Libère le ou les segments les plus anciens empruntés au pool donné.
+         *
+         * @param pool le pool épuisé
+         */
+        void reclaimBuffers(AudioBufferPool pool);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final List<ReclaimListener> reclaimListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /**
+     * Crée un pool et préalloue tous ses buffers.
+     *
+     * @param name nom du pool (pour les journaux et métriques)
+     * @param capacity nombre de buffers préalloués
+     * @param bufferSize taille d'un buffer en octets
+     */
+    public AudioBufferPool(String name, int capacity, int bufferSize) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité du pool de buffers audio doit être positive");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.bufferSize = bufferSize;
+        this.freeBuffers = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            freeBuffers.add(new byte[bufferSize]);
+        }
+        log.info("Pool de buffers audio '{}' initialisé: {} buffers de {} octets", name, capacity, bufferSize);
+    }
+
+    /**
+     * Ajoute un détenteur de segments sollicité lorsque le pool est épuisé.
+     *
+     * @param listener le détenteur à ajouter
+     */
+    public void addReclaimListener(ReclaimListener listener) {
+        reclaimListeners.add(listener);
+    }
+
+    /**
+     * Emprunte un buffer libre. L'appelant détient la première référence
+     * et doit la libérer avec {@link AudioBufferLease#release()}.
+     *
+     * @return l'emprunt, jamais null
+     */
+    public AudioBufferLease acquire() {
+        byte[] buffer = freeBuffers.poll();
+        if (buffer == null) {
+            for (ReclaimListener listener : reclaimListeners) {
+                listener.reclaimBuffers(this);
+            }
+            buffer = freeBuffers.poll();
+        }
+        if (buffer == null) {
+            overflowCount.incrementAndGet();
+            log.debug("Pool de buffers audio '{}' épuisé, allocation d'un buffer supplémentaire", name);
+            buffer = new byte[bufferSize];
+        }
+        acquiredCount.incrementAndGet();
+        return new AudioBufferLease(this, buffer);
+    }
+
+    /**
+     * Remet un buffer dans le pool. Appelé par {@link AudioBufferLease} à la dernière libération.
+     *
+     * @param buffer le buffer libéré
+     */
+    void recycle(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Nombre de buffers actuellement empruntés.
+     *
+     * @return le nombre de buffers en cours d'utilisation
+     */
+    public int getInUse() {
+        return Math.max(0, capacity - freeBuffers.size());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Récupère les statistiques d'utilisation du pool.
+     *
+     * @return les statistiques sous forme de map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("bufferSize", bufferSize);
+        stats.put("inUse", getInUse());
+        stats.put("acquired", acquiredCount.get());
+        stats.put("overflow", overflowCount.get());
+        return stats;
+    }
+}
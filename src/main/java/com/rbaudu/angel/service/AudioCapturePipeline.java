@@ -0,0 +1,487 @@
+package com.rbaudu.angel.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rbaudu.angel.analyzer.util.AudioKernels;
+import com.rbaudu.angel.analyzer.util.AudioResampler;
+import com.rbaudu.angel.model.AudioChunk;
+
+/**
+ * Chaîne de capture d'un microphone : ligne JavaSound, thread de capture, pool
+ * de buffers PCM, historique continu, horloge et compteur de séquence propres
+ * à la source.
+ * <p>
+ * Les segments sont horodatés d'après leur position en échantillons (voir
+ * {@link AudioClock}), lus directement dans des buffers empruntés au pool et
+ * leurs niveaux calculés sur place : la boucle de capture n'alloue pas de
+ * tableau par segment, et l'encodage Base64 n'a lieu qu'à la première lecture.
+ * <p>
+ * Lorsque la fréquence de capture diffère de celle du modèle audio, chaque
+ * segment est aussi rééchantillonné en mono ({@link AudioResampler}) dans un
+ * historique d'analyse à la fréquence du modèle, où l'analyse lit ses fenêtres
+ * sans conversion.
+ * <p>
+ * Comme les chaînes vidéo, la chaîne expose le battement de sa boucle et l'âge
+ * de son dernier segment au {@link CaptureSupervisor}, qui la redémarre si sa
+ * boucle s'arrête ou cesse de produire des segments.
+ */
+public class AudioCapturePipeline implements SupervisedCapture {
+    private static final Logger log = LoggerFactory.getLogger(AudioCapturePipeline.class);
+
+    private static final int MAX_ERRORS = 10;
+
+    private final String sourceId;
+    private final Mixer.Info mixerInfo;
+    private final AudioFormat format;
+    private final int bufferSize;
+    private final AudioBufferPool bufferPool;
+    private final PcmRingBuffer ringBuffer;
+    private final AudioClock clock;
+    private final AudioResampler analysisResampler; // Réservé au thread de capture
+    private final PcmRingBuffer analysisRing;
+    private final MediaEventPublisher eventPublisher;
+    private final float[] levelSamples; // Échantillons du segment courant, réservés au thread de capture
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong chunkCounter = new AtomicLong(0);
+    private TargetDataLine line;
+    private Thread captureThread;
+
+    // État surveillé par le superviseur
+    private volatile boolean desiredRunning;
+    private volatile long startedNanos = System.nanoTime();
+    private volatile long heartbeatNanos = startedNanos;
+    private volatile long lastChunkNanos = startedNanos;
+
+    // Mesure des allocations du thread de capture par segment
+    private final com.sun.management.ThreadMXBean threadMXBean = allocationMXBean();
+    private final AtomicLong measuredChunks = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private volatile long lastChunkAllocatedBytes;
+
+    /**
+     * Crée la chaîne de capture d'un microphone.
+     *
+     * @param sourceId identifiant de la source
+     * @param mixerInfo mélangeur du microphone, ou null pour la ligne d'entrée par défaut
+     * @param format format de capture (PCM 16 bits signé little-endian)
+     * @param chunkDurationMs durée d'un segment en millisecondes
+     * @param bufferPool pool de buffers dédié à la source, de la taille d'un segment
+     * @param ringBuffer historique continu dédié à la source
+     * @param analysisResampler rééchantillonneur vers la fréquence du modèle, ou null si la capture y est déjà
+     * @param analysisRing historique mono à la fréquence du modèle, ou null sans rééchantillonneur
+     * @param eventPublisher publicateur des segments capturés
+     */
+    public AudioCapturePipeline(String sourceId, Mixer.Info mixerInfo, AudioFormat format, int chunkDurationMs,
+                                AudioBufferPool bufferPool, PcmRingBuffer ringBuffer,
+                                AudioResampler analysisResampler, PcmRingBuffer analysisRing,
+                                MediaEventPublisher eventPublisher) {
+        this.sourceId = sourceId;
+        this.mixerInfo = mixerInfo;
+        this.format = format;
+        this.bufferSize = chunkBytes(format, chunkDurationMs);
+        this.bufferPool = bufferPool;
+        this.ringBuffer = ringBuffer;
+        this.analysisResampler = analysisRing != null ? analysisResampler : null;
+        this.analysisRing = analysisResampler != null ? analysisRing : null;
+        this.eventPublisher = eventPublisher;
+        this.clock = new AudioClock((int) format.getSampleRate());
+        this.levelSamples = new float[bufferSize / 2];
+    }
+
+    /**
+     * Calcule la taille d'un segment, pour dimensionner le pool de buffers de la source.
+     *
+     * @param format format de capture
+     * @param chunkDurationMs durée d'un segment en millisecondes
+     * @return la taille d'un segment en octets
+     */
+    public static int chunkBytes(AudioFormat format, int chunkDurationMs) {
+        return (int) ((long) format.getFrameSize() * (int) format.getSampleRate() * chunkDurationMs / 1000);
+    }
+
+    /**
+     * Ouvre la ligne du microphone et démarre la capture dans son propre thread.
+     */
+    public synchronized void start() {
+        desiredRunning = true;
+        startCapture();
+    }
+
+    /**
+     * Arrête la capture à la demande de l'utilisateur ; le superviseur ne la
+     * redémarrera pas.
+     */
+    public synchronized void stop() {
+        desiredRunning = false;
+        stopCapture();
+    }
+
+    /**
+     * Redémarre la capture après un arrêt de la boucle ou un blocage, à la
+     * demande du superviseur. La ligne est rouverte.
+     *
+     * @return true si la capture a redémarré
+     */
+    @Override
+    public synchronized boolean restart() {
+        if (!desiredRunning) {
+            return false;
+        }
+        stopCapture();
+        startCapture();
+        return running.get();
+    }
+
+    /**
+     * Ouvre la ligne et lance le thread de capture.
+     */
+    private void startCapture() {
+        if (running.get()) {
+            return;
+        }
+
+        if (captureThread != null && captureThread.isAlive()) {
+            log.warn("Le thread de capture audio {} n'est pas encore terminé", sourceId);
+            return;
+        }
+
+        try {
+            log.info("Démarrage de la capture audio {} ({})...", sourceId,
+                    mixerInfo != null ? mixerInfo.getName() : "entrée par défaut");
+
+            // Ligne du mélangeur choisi, ou ligne d'entrée par défaut du système
+            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
+            line = (TargetDataLine) (mixerInfo != null
+                    ? AudioSystem.getMixer(mixerInfo).getLine(info)
+                    : AudioSystem.getLine(info));
+            line.open(format, bufferSize);
+            line.start();
+            clock.start(line.getLongFramePosition());
+
+            // L'historique d'une capture précédente n'est pas contigu avec la nouvelle
+            ringBuffer.reset();
+            if (analysisResampler != null) {
+                analysisResampler.reset();
+                analysisRing.reset();
+            }
+            running.set(true);
+            // Délai de grâce : les âges du battement et du dernier segment partent du démarrage
+            startedNanos = System.nanoTime();
+            heartbeatNanos = startedNanos;
+            lastChunkNanos = startedNanos;
+
+            captureThread = new Thread(this::captureLoop, "audio-capture-" + sourceId);
+            captureThread.setDaemon(true);
+            captureThread.start();
+
+            log.info("Capture audio {} démarrée", sourceId);
+        } catch (Exception e) {
+            log.error("Erreur lors du démarrage de la capture audio {}", sourceId, e);
+            if (line != null) {
+                line.close();
+            }
+        }
+    }
+
+    /**
+     * Arrête le thread de capture et ferme la ligne du microphone.
+     */
+    private void stopCapture() {
+        if (!running.get()) {
+            return;
+        }
+
+        log.info("Arrêt de la capture audio {}...", sourceId);
+        running.set(false);
+
+        try {
+            if (captureThread != null) {
+                captureThread.interrupt();
+                captureThread.join(1000);
+            }
+
+            if (line != null) {
+                line.stop();
+                line.close();
+            }
+
+            log.info("Capture audio {} arrêtée", sourceId);
+        } catch (Exception e) {
+            log.error("Erreur lors de l'arrêt de la capture audio {}", sourceId, e);
+        }
+    }
+
+    /**
+     * Boucle principale de capture audio.
+     * La lecture bloque jusqu'à ce qu'un segment complet soit disponible, ce
+     * qui cadence la boucle sans attente supplémentaire. Une erreur de lecture
+     * n'interrompt la boucle qu'après plusieurs échecs consécutifs ; la ligne
+     * est alors fermée et la chaîne repasse à l'arrêt, puis le superviseur la
+     * redémarre avec un délai croissant entre les tentatives.
+     */
+    private void captureLoop() {
+        TargetDataLine captureLine = line;
+        int errorCount = 0;
+        try {
+            while (running.get() && !Thread.currentThread().isInterrupted()) {
+                heartbeatNanos = System.nanoTime();
+                AudioBufferLease lease = bufferPool.acquire();
+                try {
+                    byte[] buffer = lease.getData();
+                    int bytesRead = captureLine.read(buffer, 0, bufferSize);
+                    long readNanos = System.nanoTime();
+
+                    if (bytesRead > 0) {
+                        lastChunkNanos = readNanos;
+                        lease.setLength(bytesRead);
+                        long chunkStartNanos = clock.onChunkRead(bytesRead / format.getFrameSize(),
+                                captureLine.getLongFramePosition());
+                        long allocatedBefore = threadMXBean != null ? threadMXBean.getCurrentThreadAllocatedBytes() : 0;
+                        processAudioChunk(lease, chunkStartNanos, readNanos);
+                        if (threadMXBean != null) {
+                            recordAllocation(threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+                        }
+                    }
+                    errorCount = 0;
+                } catch (Exception e) {
+                    errorCount++;
+                    log.warn("Erreur de lecture audio sur {}: {} ({}/{})", sourceId, e.getMessage(), errorCount, MAX_ERRORS);
+                    if (errorCount >= MAX_ERRORS) {
+                        log.error("Trop d'erreurs consécutives de capture audio sur {}. Arrêt de la boucle.", sourceId);
+                        break;
+                    }
+                } finally {
+                    // Les consommateurs qui conservent le segment ont acquis leur propre référence
+                    lease.release();
+                }
+            }
+        } finally {
+            // Arrêt de la boucle sans appel à stop() : fermer la ligne pour permettre un redémarrage
+            if (running.compareAndSet(true, false)) {
+                try {
+                    captureLine.stop();
+                    captureLine.close();
+                } catch (Exception e) {
+                    log.error("Erreur lors de la fermeture de la ligne audio {}", sourceId, e);
+                }
+                log.warn("Capture audio {} interrompue", sourceId);
+            }
+        }
+    }
+
+    /**
+     * Traite un segment audio capturé et publie un événement. Appelé par le
+     * thread de capture, ou par les benchmarks d'allocation.
+     *
+     * @param lease emprunt du buffer contenant le segment
+     * @param chunkStartNanos instant de la première trame du segment, en nanosecondes depuis l'epoch
+     * @param captureNanoTime retour de la lecture du segment, sur l'horloge monotone (System.nanoTime)
+     */
+    void processAudioChunk(AudioBufferLease lease, long chunkStartNanos, long captureNanoTime) {
+        try {
+            byte[] buffer = lease.getData();
+            int bytesRead = lease.getLength();
+
+            // Calculer le niveau sonore moyen et maximal sur les échantillons
+            // 16 bits signés little-endian, convertis dans un tableau réutilisé
+            int sampleCount = AudioKernels.pcm16ToFloat(buffer, bytesRead, levelSamples);
+            double maxLevelDb = AudioKernels.toDbfs(AudioKernels.peak(levelSamples, 0, sampleCount));
+            double avgLevelDb = AudioKernels.toDbfs(AudioKernels.meanAbs(levelSamples, 0, sampleCount));
+
+            // Conserver le segment dans l'historique continu, horodaté à sa première trame
+            ringBuffer.write(buffer, bytesRead, chunkStartNanos);
+            if (analysisResampler != null) {
+                int resampled = analysisResampler.process(buffer, bytesRead, chunkStartNanos);
+                analysisRing.write(analysisResampler.getOutput(), resampled * 2, analysisResampler.getOutputStartNanos());
+            }
+            int sampleRate = (int) format.getSampleRate();
+            int durationMs = (int) ((long) (bytesRead / format.getFrameSize()) * 1000 / sampleRate);
+
+            // Créer l'objet AudioChunk, encodé en Base64 seulement si un consommateur le lit
+            AudioChunk audioChunk = AudioChunk.builder()
+                    .audioLease(lease)
+                    .audioDataSupplier(() -> encodeLeasedAudio(lease))
+                    .sourceId(sourceId)
+                    .timestamp(Instant.ofEpochSecond(0, chunkStartNanos))
+                    .captureNanoTime(captureNanoTime)
+                    .sequenceNumber(chunkCounter.incrementAndGet())
+                    .sampleRate(sampleRate)
+                    .channels(format.getChannels())
+                    .format("PCM")
+                    .durationMs(durationMs)
+                    .maxSoundLevel(maxLevelDb)
+                    .avgSoundLevel(avgLevelDb)
+                    .soundDetected(maxLevelDb > -30) // Seuil de détection de son
+                    .build();
+
+            // Publier l'événement
+            eventPublisher.publishAudioChunk(audioChunk);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du traitement du segment audio {}", sourceId, e);
+        }
+    }
+
+    /**
+     * Encode en Base64 le segment d'un buffer emprunté.
+     * Une référence est acquise pendant l'encodage ; si le buffer a déjà été
+     * rendu au pool, aucune donnée n'est produite.
+     *
+     * @param lease emprunt du buffer du segment
+     * @return données encodées en base64, ou null si le buffer n'est plus disponible
+     */
+    private String encodeLeasedAudio(AudioBufferLease lease) {
+        if (!lease.retain()) {
+            return null;
+        }
+
+        try {
+            byte[] data = lease.getData();
+            int length = lease.getLength();
+            return Base64.getEncoder().encodeToString(
+                    length == data.length ? data : Arrays.copyOf(data, length));
+        } finally {
+            lease.release();
+        }
+    }
+
+    /**
+     * Enregistre les octets alloués par le thread de capture pour un segment.
+     *
+     * @param bytes octets alloués
+     */
+    private void recordAllocation(long bytes) {
+        lastChunkAllocatedBytes = bytes;
+        allocatedBytes.addAndGet(bytes);
+        measuredChunks.incrementAndGet();
+    }
+
+    /**
+     * Récupère le bean de mesure des allocations par thread, s'il est pris en charge par la JVM.
+     *
+     * @return le bean, ou null si la mesure n'est pas disponible
+     */
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (Exception e) {
+            log.debug("Mesure des allocations par thread indisponible", e);
+        }
+        return null;
+    }
+
+    /**
+     * Ouvre une fenêtre sur l'audio capturé entre deux instants, lue
+     * directement dans l'historique continu sans copie.
+     *
+     * @param from début de l'intervalle
+     * @param to fin de l'intervalle (exclue)
+     * @return la fenêtre, réduite à la partie encore présente, ou null si l'audio n'est pas disponible
+     */
+    public PcmWindow getAudioWindow(Instant from, Instant to) {
+        return ringBuffer.window(from, to);
+    }
+
+    /**
+     * Ouvre une fenêtre sur l'audio destiné à l'analyse entre deux instants :
+     * l'historique rééchantillonné à la fréquence du modèle s'il existe, sinon
+     * l'historique de capture.
+     *
+     * @param from début de l'intervalle
+     * @param to fin de l'intervalle (exclue)
+     * @return la fenêtre, réduite à la partie encore présente, ou null si l'audio n'est pas disponible
+     */
+    public PcmWindow getAnalysisWindow(Instant from, Instant to) {
+        return analysisRing != null ? analysisRing.window(from, to) : ringBuffer.window(from, to);
+    }
+
+    @Override
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public boolean isDesiredRunning() {
+        return desiredRunning;
+    }
+
+    @Override
+    public boolean isCaptureThreadAlive() {
+        Thread thread = captureThread;
+        return thread != null && thread.isAlive();
+    }
+
+    @Override
+    public long getHeartbeatAgeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heartbeatNanos);
+    }
+
+    @Override
+    public long getLastFrameAgeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastChunkNanos);
+    }
+
+    @Override
+    public boolean hasCapturedSinceStart() {
+        return lastChunkNanos - startedNanos > 0;
+    }
+
+    @Override
+    public long getUptimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Récupère les statistiques de la source.
+     *
+     * @return périphérique, segments capturés, pool de buffers, historiques, horloge et octets alloués par segment
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("device", mixerInfo != null ? mixerInfo.getName() : AudioDevices.DEFAULT_DEVICE);
+        stats.put("running", running.get());
+        stats.put("chunks", chunkCounter.get());
+        if (running.get()) {
+            stats.put("heartbeatAgeMs", getHeartbeatAgeMs());
+            stats.put("lastChunkAgeMs", getLastFrameAgeMs());
+        }
+        stats.put("bufferPool", bufferPool.getStats());
+        stats.put("ringBuffer", ringBuffer.getStats());
+        stats.put("clock", clock.getStats());
+        if (analysisResampler != null) {
+            stats.put("analysisResampler", analysisResampler.getStats());
+            stats.put("analysisRing", analysisRing.getStats());
+        }
+        long chunks = measuredChunks.get();
+        stats.put("allocationTracking", threadMXBean != null);
+        stats.put("allocatedBytesPerChunk", chunks > 0 ? allocatedBytes.get() / chunks : 0);
+        stats.put("lastChunkAllocatedBytes", lastChunkAllocatedBytes);
+        return stats;
+    }
+}
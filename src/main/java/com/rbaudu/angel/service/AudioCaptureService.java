@@ -1,34 +1,36 @@
 package com.rbaudu.angel.service;
 
-import java.nio.ByteBuffer;
-import java.nio.ShortBuffer;
 import java.time.Instant;
-import java.util.Base64;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.TargetDataLine;
+import javax.sound.sampled.Mixer;
 
-import org.bytedeco.ffmpeg.global.avcodec;
-import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.util.AudioResampler;
 import com.rbaudu.angel.config.AppConfig;
-import com.rbaudu.angel.model.AudioChunk;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
 /**
  * Service responsable de la capture des flux audio.
- * Utilise JavaSound et FFmpeg pour capturer l'audio du système.
+ * Utilise JavaSound pour capturer un ou plusieurs microphones, chacun dans sa
+ * propre chaîne de capture (voir {@link AudioCapturePipeline}) avec son thread,
+ * son historique continu et son espace de numéros de séquence. Si la fréquence
+ * de capture diffère de celle du modèle audio, chaque chaîne alimente aussi un
+ * historique d'analyse rééchantillonné en mono à la fréquence du modèle. L'archivage
+ * éventuel est confié à {@link AudioArchiveService}, sur son propre thread.
  */
 @Service
 public class AudioCaptureService {
@@ -38,21 +40,23 @@ public class AudioCaptureService {
     @Autowired
     private AppConfig config;
     
+    @Autowired
+    private AnalyzerConfig analyzerConfig;
+    
     @Autowired
     private MediaEventPublisher eventPublisher;
     
-    private TargetDataLine line;
+    @Autowired(required = false)
+    private List<AudioBufferPool.ReclaimListener> reclaimListeners;
+    
     private AudioFormat format;
-    private AtomicBoolean running;
-    private AtomicLong chunkCounter;
-    private Thread captureThread;
-    private FFmpegFrameRecorder recorder;
-    private ByteBuffer audioBuffer;
-    private int bufferSize;
     private int chunkDurationMs = 100; // Durée d'un segment audio en ms
     
+    // Chaînes de capture indexées par identifiant de source, dans l'ordre de configuration
+    private final Map<String, AudioCapturePipeline> pipelines = new LinkedHashMap<>();
+    
     /**
-     * Initialise le service de capture audio.
+     * Initialise le service de capture audio et une chaîne de capture par microphone.
      */
     @PostConstruct
     public void init() {
@@ -61,190 +65,161 @@ public class AudioCaptureService {
             return;
         }
         
-        try {
-            log.info("Initialisation du service de capture audio...");
-            
-            // Configurer le format audio
-            format = new AudioFormat(
-                    config.getAudioSampleRate(), // Fréquence d'échantillonnage
-                    16, // Bits par échantillon
-                    config.getAudioChannels(), // Nombre de canaux
-                    true, // Signé
-                    false // Little Endian
-            );
-            
-            // Calculer la taille du buffer en fonction de la durée du chunk
-            int bytesPerSample = format.getSampleSizeInBits() / 8;
-            int bytesPerFrame = bytesPerSample * format.getChannels();
-            int bytesPerSecond = bytesPerFrame * (int)format.getSampleRate();
-            bufferSize = (bytesPerSecond * chunkDurationMs) / 1000;
-            
-            // Initialiser les variables d'état
-            running = new AtomicBoolean(false);
-            chunkCounter = new AtomicLong(0);
-            audioBuffer = ByteBuffer.allocate(bufferSize);
-            
-            log.info("Service de capture audio initialisé");
-        } catch (Exception e) {
-            log.error("Erreur lors de l'initialisation du service de capture audio", e);
+        log.info("Initialisation du service de capture audio...");
+        
+        // Configurer le format audio, commun à tous les microphones
+        format = new AudioFormat(
+                config.getAudioSampleRate(), // Fréquence d'échantillonnage
+                16, // Bits par échantillon
+                config.getAudioChannels(), // Nombre de canaux
+                true, // Signé
+                false // Little Endian
+        );
+        int bufferSize = AudioCapturePipeline.chunkBytes(format, chunkDurationMs);
+        
+        for (String spec : config.getAudioSources()) {
+            try {
+                String sourceId = AudioDevices.sourceIdFor(spec);
+                if (pipelines.containsKey(sourceId)) {
+                    log.warn("Source audio {} configurée plusieurs fois, ignorée", sourceId);
+                    continue;
+                }
+                Mixer.Info mixerInfo = AudioDevices.resolve(spec, format);
+                
+                AudioBufferPool bufferPool = new AudioBufferPool(sourceId, config.getAudioBufferPoolSize(), bufferSize);
+                if (reclaimListeners != null) {
+                    reclaimListeners.forEach(bufferPool::addReclaimListener);
+                }
+                PcmRingBuffer ringBuffer = new PcmRingBuffer(sourceId, config.getAudioSampleRate(),
+                        config.getAudioChannels(), config.getAudioRingBufferSeconds());
+                
+                // Historique d'analyse à la fréquence du modèle, si elle diffère de celle de capture
+                AudioResampler analysisResampler = null;
+                PcmRingBuffer analysisRing = null;
+                int analysisRate = analyzerConfig.getAudioSampleRate();
+                if (analysisRate > 0 && analysisRate != config.getAudioSampleRate()) {
+                    try {
+                        analysisResampler = new AudioResampler(config.getAudioSampleRate(), config.getAudioChannels(), analysisRate);
+                        analysisRing = new PcmRingBuffer(sourceId, analysisRate, 1, analysisRingSeconds());
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Rééchantillonnage {} -> {} Hz impossible pour la source {}, conversion à l'analyse",
+                                config.getAudioSampleRate(), analysisRate, sourceId, e);
+                    }
+                }
+                
+                pipelines.put(sourceId, new AudioCapturePipeline(
+                        sourceId,
+                        mixerInfo,
+                        format,
+                        chunkDurationMs,
+                        bufferPool,
+                        ringBuffer,
+                        analysisResampler,
+                        analysisRing,
+                        eventPublisher));
+                log.info("Source audio {}: {}", sourceId, mixerInfo != null ? mixerInfo.getName() : "entrée par défaut");
+            } catch (Exception e) {
+                log.error("Erreur lors de l'initialisation de la source audio '{}'", spec, e);
+            }
         }
+        log.info("Service de capture audio initialisé avec {} source(s): {}", pipelines.size(), pipelines.keySet());
     }
     
     /**
-     * Démarre la capture audio dans un thread séparé.
+     * Calcule la durée conservée par l'historique d'analyse : de quoi couvrir
+     * largement le contexte audio et le retard de l'analyse, sans dépasser
+     * l'historique de capture.
+     * 
+     * @return la durée en secondes
+     */
+    private int analysisRingSeconds() {
+        int contextSeconds = (int) Math.ceil(analyzerConfig.getAudioContextMs() / 1000.0);
+        return Math.max(1, Math.min(config.getAudioRingBufferSeconds(), Math.max(30, 4 * contextSeconds)));
+    }
+    
+    /**
+     * Démarre la capture de tous les microphones.
      */
     public void start() {
-        if (!config.isAudioEnabled() || running.get()) {
+        if (!config.isAudioEnabled()) {
             return;
         }
-        
-        try {
-            log.info("Démarrage de la capture audio...");
-            
-            // Obtenir la ligne audio d'entrée
-            DataLine.Info info = new DataLine.Info(TargetDataLine.class, format);
-            line = (TargetDataLine) AudioSystem.getLine(info);
-            line.open(format, bufferSize);
-            line.start();
-            
-            // Configurer le recorder FFmpeg pour encoder l'audio
-            recorder = new FFmpegFrameRecorder("dummy.wav", config.getAudioChannels());
-            recorder.setAudioOption("crf", "0");
-            recorder.setAudioQuality(0);
-            recorder.setAudioBitrate(192000);
-            recorder.setSampleRate(config.getAudioSampleRate());
-            recorder.setAudioChannels(config.getAudioChannels());
-            recorder.setAudioCodec(avcodec.AV_CODEC_ID_PCM_S16LE);
-            recorder.start();
-            
-            running.set(true);
-            
-            captureThread = new Thread(() -> {
-                captureLoop();
-            }, "audio-capture-thread");
-            captureThread.setDaemon(true);
-            captureThread.start();
-            
-            log.info("Capture audio démarrée");
-        } catch (Exception e) {
-            log.error("Erreur lors du démarrage de la capture audio", e);
-        }
+        pipelines.values().forEach(AudioCapturePipeline::start);
     }
     
     /**
-     * Arrête la capture audio.
+     * Arrête la capture de tous les microphones.
      */
     public void stop() {
-        if (!running.get()) {
-            return;
-        }
-        
-        log.info("Arrêt de la capture audio...");
-        running.set(false);
-        
-        try {
-            if (captureThread != null) {
-                captureThread.interrupt();
-                captureThread.join(1000);
-            }
-            
-            if (line != null) {
-                line.stop();
-                line.close();
-            }
-            
-            if (recorder != null) {
-                recorder.stop();
-                recorder.release();
-            }
-            
-            log.info("Capture audio arrêtée");
-        } catch (Exception e) {
-            log.error("Erreur lors de l'arrêt de la capture audio", e);
-        }
+        pipelines.values().forEach(AudioCapturePipeline::stop);
     }
     
     /**
-     * Boucle principale de capture audio.
+     * Ouvre une fenêtre sur l'audio capturé par un microphone entre deux
+     * instants, lue directement dans son historique continu sans copie.
+     * 
+     * @param sourceId identifiant de la source audio
+     * @param from début de l'intervalle
+     * @param to fin de l'intervalle (exclue)
+     * @return la fenêtre, réduite à la partie encore présente, ou null si l'audio n'est pas disponible
      */
-    private void captureLoop() {
-        try {
-            byte[] buffer = new byte[bufferSize];
-            
-            while (running.get() && !Thread.currentThread().isInterrupted()) {
-                int bytesRead = line.read(buffer, 0, buffer.length);
-                
-                if (bytesRead > 0) {
-                    processAudioChunk(buffer, bytesRead);
-                }
-                
-                // Pause courte pour éviter de surcharger le CPU
-                TimeUnit.MILLISECONDS.sleep(10);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.info("Thread de capture audio interrompu");
-        } catch (Exception e) {
-            log.error("Erreur dans la boucle de capture audio", e);
-        }
+    public PcmWindow getAudioWindow(String sourceId, Instant from, Instant to) {
+        AudioCapturePipeline pipeline = sourceId != null ? pipelines.get(sourceId) : null;
+        return pipeline != null ? pipeline.getAudioWindow(from, to) : null;
     }
     
     /**
-     * Traite un segment audio capturé et publie un événement.
+     * Ouvre une fenêtre sur l'audio d'un microphone destiné à l'analyse, à la
+     * fréquence du modèle lorsque la source est rééchantillonnée.
      * 
-     * @param buffer buffer audio
-     * @param bytesRead nombre d'octets lus
+     * @param sourceId identifiant de la source audio
+     * @param from début de l'intervalle
+     * @param to fin de l'intervalle (exclue)
+     * @return la fenêtre, réduite à la partie encore présente, ou null si l'audio n'est pas disponible
      */
-    private void processAudioChunk(byte[] buffer, int bytesRead) {
-        try {
-            // Convertir les octets en échantillons audio (16 bits signés)
-            ShortBuffer shortBuffer = ByteBuffer.wrap(buffer, 0, bytesRead).asShortBuffer();
-            short[] samples = new short[shortBuffer.limit()];
-            shortBuffer.get(samples);
-            
-            // Calculer le niveau sonore moyen et maximal
-            double maxLevel = 0;
-            double sumLevel = 0;
-            double scale = 32768.0; // Échelle pour normaliser les échantillons 16 bits
-            
-            for (short sample : samples) {
-                double normalizedSample = Math.abs(sample) / scale;
-                sumLevel += normalizedSample;
-                maxLevel = Math.max(maxLevel, normalizedSample);
-            }
-            
-            double avgLevel = sumLevel / samples.length;
-            
-            // Convertir en dB
-            double maxLevelDb = 20 * Math.log10(maxLevel);
-            double avgLevelDb = 20 * Math.log10(avgLevel);
-            
-            // Encoder l'audio avec FFmpeg
-            ByteBuffer encodedBuffer = ByteBuffer.allocate(bytesRead);
-            encodedBuffer.put(buffer, 0, bytesRead);
-            encodedBuffer.flip();
-            recorder.recordSamples(config.getAudioSampleRate(), config.getAudioChannels(), encodedBuffer);
-            
-            // Créer l'objet AudioChunk
-            AudioChunk audioChunk = AudioChunk.builder()
-                    .audioData(Base64.getEncoder().encodeToString(buffer))
-                    .timestamp(Instant.now())
-                    .sequenceNumber(chunkCounter.incrementAndGet())
-                    .sampleRate(config.getAudioSampleRate())
-                    .channels(config.getAudioChannels())
-                    .format("PCM")
-                    .durationMs(chunkDurationMs)
-                    .maxSoundLevel(maxLevelDb)
-                    .avgSoundLevel(avgLevelDb)
-                    .soundDetected(maxLevelDb > -30) // Seuil de détection de son
-                    .build();
-            
-            // Publier l'événement
-            eventPublisher.publishAudioChunk(audioChunk);
-            
-        } catch (Exception e) {
-            log.error("Erreur lors du traitement du segment audio", e);
-        }
+    public PcmWindow getAnalysisWindow(String sourceId, Instant from, Instant to) {
+        AudioCapturePipeline pipeline = sourceId != null ? pipelines.get(sourceId) : null;
+        return pipeline != null ? pipeline.getAnalysisWindow(from, to) : null;
+    }
+    
+    /**
+     * Liste les périphériques de capture disponibles au format configuré.
+     * 
+     * @return index, identifiant de source et nom de chaque périphérique
+     */
+    public List<Map<String, Object>> listDevices() {
+        AudioFormat deviceFormat = format != null ? format
+                : new AudioFormat(config.getAudioSampleRate(), 16, config.getAudioChannels(), true, false);
+        return AudioDevices.describeCaptureMixers(deviceFormat);
+    }
+    
+    /**
+     * Récupère les identifiants des microphones configurés.
+     * 
+     * @return les identifiants, dans l'ordre de configuration
+     */
+    public List<String> getSourceIds() {
+        return new ArrayList<>(pipelines.keySet());
+    }
+    
+    /**
+     * Récupère les chaînes de capture des microphones, pour leur supervision.
+     * 
+     * @return les chaînes de capture, dans l'ordre de configuration
+     */
+    public Collection<AudioCapturePipeline> getPipelines() {
+        return Collections.unmodifiableCollection(pipelines.values());
+    }
+    
+    /**
+     * Récupère les statistiques de chaque microphone.
+     * 
+     * @return périphérique, segments capturés, pool de buffers, historique et horloge, indexés par source
+     */
+    public Map<String, Object> getSourceStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        pipelines.forEach((sourceId, pipeline) -> stats.put(sourceId, pipeline.getStats()));
+        return stats;
     }
     
     /**
@@ -254,4 +229,4 @@ public class AudioCaptureService {
     public void cleanup() {
         stop();
     }
-}
\ No newline at end of file
+}
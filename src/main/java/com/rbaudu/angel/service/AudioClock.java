@@ -0,0 +1,119 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Horloge d'une ligne audio : horodate les segments à partir de leur position
+ * en échantillons plutôt qu'à l'heure de retour de la lecture.
+ * <p>
+ * L'instant d'une trame est l'ancre prise au démarrage de la ligne, plus sa
+ * position divisée par la fréquence d'échantillonnage, plus une correction.
+ * À chaque lecture, la position de la ligne ({@code getLongFramePosition}) est
+ * comparée à l'horloge murale : l'écart, bruité par l'ordonnancement, est
+ * lissé par une moyenne glissante exponentielle qui absorbe la dérive entre
+ * l'horloge de la carte son et celle du système sans reporter la gigue sur
+ * les horodatages. Une instance par ligne ; elle n'est utilisée que par le
+ * thread de capture.
+ */
+public class AudioClock {
+
+    private static final double OFFSET_SMOOTHING = 0.02;
+
+    private final int sampleRate;
+
+    private long anchorEpochNanos;
+    private long anchorNanoTime;
+    private long startPosition;
+    private long framesRead;
+    private boolean calibrated;
+    private volatile double initialOffsetNanos;
+
+    private volatile double offsetNanos;
+    private volatile double jitterNanos;
+    private volatile long lastErrorNanos;
+    private volatile long elapsedNanos;
+
+    /**
+     * Crée l'horloge d'une ligne audio.
+     *
+     * @param sampleRate fréquence d'échantillonnage de la ligne
+     */
+    public AudioClock(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Ancre l'horloge au démarrage de la ligne, dont la trame 0 est capturée maintenant.
+     *
+     * @param startFramePosition position de la ligne au démarrage
+     */
+    public void start(long startFramePosition) {
+        anchorEpochNanos = PcmRingBuffer.toEpochNanos(Instant.now());
+        anchorNanoTime = System.nanoTime();
+        startPosition = startFramePosition;
+        framesRead = 0;
+        calibrated = false;
+        offsetNanos = 0;
+        jitterNanos = 0;
+    }
+
+    /**
+     * Horodate un segment qui vient d'être lu et recale l'horloge.
+     *
+     * @param frames nombre de trames du segment
+     * @param linePosition position de la ligne après la lecture (trames capturées depuis l'ouverture)
+     * @return l'instant de la première trame du segment, en nanosecondes depuis l'epoch
+     */
+    public long onChunkRead(int frames, long linePosition) {
+        long now = System.nanoTime();
+        elapsedNanos = now - anchorNanoTime;
+
+        // Écart entre l'heure murale et l'instant nominal de la dernière trame capturée
+        long error = elapsedNanos - framesToNanos(Math.max(linePosition - startPosition, framesRead + frames));
+        lastErrorNanos = error;
+        if (!calibrated) {
+            offsetNanos = error;
+            initialOffsetNanos = error;
+            calibrated = true;
+        } else {
+            double offset = offsetNanos + OFFSET_SMOOTHING * (error - offsetNanos);
+            jitterNanos = jitterNanos + OFFSET_SMOOTHING * (Math.abs(error - offset) - jitterNanos);
+            offsetNanos = offset;
+        }
+
+        long chunkStart = anchorEpochNanos + framesToNanos(framesRead) + (long) offsetNanos;
+        framesRead += frames;
+        return chunkStart;
+    }
+
+    /**
+     * Convertit une position en durée. Le produit direct par 10^9 déborderait
+     * au-delà de 9,2·10^9 trames (deux jours à 48 kHz) : la position est
+     * séparée en secondes entières et en reste.
+     */
+    private long framesToNanos(long frames) {
+        long seconds = Math.floorDiv(frames, sampleRate);
+        long remainder = Math.floorMod(frames, sampleRate);
+        return seconds * 1_000_000_000L + remainder * 1_000_000_000L / sampleRate;
+    }
+
+    /**
+     * Récupère l'état de l'horloge.
+     *
+     * @return correction appliquée, gigue lissée, dernier écart mesuré et dérive estimée
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        double offset = offsetNanos;
+        long elapsed = elapsedNanos;
+        stats.put("offsetMs", Math.round(offset / 10_000.0) / 100.0);
+        stats.put("jitterMs", Math.round(jitterNanos / 10_000.0) / 100.0);
+        stats.put("lastErrorMs", Math.round(lastErrorNanos / 10_000.0) / 100.0);
+        // La dérive est l'évolution de la correction depuis le démarrage, rapportée au temps écoulé
+        double drift = elapsed > 1_000_000_000L ? (offset - initialOffsetNanos) / elapsed * 1e6 : 0.0;
+        stats.put("driftPpm", Math.round(drift * 10.0) / 10.0);
+        return stats;
+    }
+}
@@ -0,0 +1,125 @@
+package com.rbaudu.angel.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.TargetDataLine;
+
+/**
+ * Énumération des périphériques de capture audio et résolution des sources configurées.
+ * <p>
+ * Une source audio est désignée par l'index d'un périphérique dans la liste
+ * des mélangeurs JavaSound capables de capturer au format demandé, par une
+ * partie de son nom, ou par {@code default} (ou {@code -1}) pour la ligne
+ * d'entrée par défaut du système. L'identifiant de la source ne dépend que de
+ * sa désignation, pour pouvoir être référencé dans la configuration avant
+ * l'ouverture des périphériques.
+ */
+public final class AudioDevices {
+
+    /**
+     * Désignation de la ligne d'entrée par défaut du système.
+     */
+    public static final String DEFAULT_DEVICE = "default";
+
+    private AudioDevices() {
+    }
+
+    /**
+     * Liste les mélangeurs offrant une ligne de capture au format donné.
+     *
+     * @param format format de capture
+     * @return les mélangeurs, dans l'ordre de JavaSound (leur position est leur index)
+     */
+    public static List<Mixer.Info> listCaptureMixers(AudioFormat format) {
+        DataLine.Info lineInfo = new DataLine.Info(TargetDataLine.class, format);
+        List<Mixer.Info> mixers = new ArrayList<>();
+        for (Mixer.Info info : AudioSystem.getMixerInfo()) {
+            if (AudioSystem.getMixer(info).isLineSupported(lineInfo)) {
+                mixers.add(info);
+            }
+        }
+        return mixers;
+    }
+
+    /**
+     * Décrit les mélangeurs de capture, pour l'API de configuration.
+     *
+     * @param format format de capture
+     * @return index, identifiant de source, nom, description et fabricant de chaque mélangeur
+     */
+    public static List<Map<String, Object>> describeCaptureMixers(AudioFormat format) {
+        List<Map<String, Object>> devices = new ArrayList<>();
+        List<Mixer.Info> mixers = listCaptureMixers(format);
+        for (int i = 0; i < mixers.size(); i++) {
+            Mixer.Info info = mixers.get(i);
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("index", i);
+            device.put("sourceId", sourceIdFor(String.valueOf(i)));
+            device.put("name", info.getName());
+            device.put("description", info.getDescription());
+            device.put("vendor", info.getVendor());
+            devices.add(device);
+        }
+        return devices;
+    }
+
+    /**
+     * Calcule l'identifiant d'une source audio à partir de sa désignation.
+     *
+     * @param spec index, partie du nom, ou {@code default}
+     * @return l'identifiant de la source (ex: mic-0, mic-default, mic-usb-audio)
+     */
+    public static String sourceIdFor(String spec) {
+        String trimmed = spec.trim();
+        if (isDefault(trimmed)) {
+            return "mic-" + DEFAULT_DEVICE;
+        }
+        if (trimmed.matches("\\d+")) {
+            return "mic-" + Integer.parseInt(trimmed);
+        }
+        return "mic-" + trimmed.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+    }
+
+    /**
+     * Résout la désignation d'une source en mélangeur de capture.
+     *
+     * @param spec index, partie du nom, ou {@code default}
+     * @param format format de capture
+     * @return le mélangeur, ou null pour la ligne d'entrée par défaut
+     * @throws IllegalArgumentException si aucun mélangeur de capture ne correspond
+     */
+    public static Mixer.Info resolve(String spec, AudioFormat format) {
+        String trimmed = spec.trim();
+        if (isDefault(trimmed)) {
+            return null;
+        }
+        List<Mixer.Info> mixers = listCaptureMixers(format);
+        if (trimmed.matches("\\d+")) {
+            int index = Integer.parseInt(trimmed);
+            if (index >= mixers.size()) {
+                throw new IllegalArgumentException("Périphérique audio " + index + " introuvable ("
+                        + mixers.size() + " périphérique(s) de capture)");
+            }
+            return mixers.get(index);
+        }
+        String needle = trimmed.toLowerCase(Locale.ROOT);
+        for (Mixer.Info info : mixers) {
+            if (info.getName().toLowerCase(Locale.ROOT).contains(needle)) {
+                return info;
+            }
+        }
+        throw new IllegalArgumentException("Aucun périphérique de capture audio ne correspond à '" + trimmed + "'");
+    }
+
+    private static boolean isDefault(String spec) {
+        return spec.isEmpty() || spec.equals("-1") || spec.equalsIgnoreCase(DEFAULT_DEVICE);
+    }
+}
@@ -0,0 +1,189 @@
+package com.rbaudu.angel.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rbaudu.angel.config.AppConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Régulateur de cadence de capture piloté par la contre-pression de l'analyse.
+ * <p>
+ * À intervalle régulier, le régulateur compare le temps de séjour des
+ * analyses (attente dans la file et inférence) et le remplissage de la file
+ * d'analyse à leurs cibles. La durée d'inférence seule ne dépend pas de la
+ * cadence de capture ; l'attente, si. En cas de dépassement, le
+ * facteur de cadence appliqué aux sources vidéo est réduit de façon
+ * multiplicative ; s'il reste de la marge, il remonte par petits pas (AIMD).
+ */
+@Service
+public class CaptureRateController {
+    private static final Logger log = LoggerFactory.getLogger(CaptureRateController.class);
+
+    /**
+     * Consommateur des trames capturées qui expose sa charge au régulateur.
+     */
+    public interface LoadSource {
+        /**
+         * @return le temps de séjour récent des traitements, de leur soumission à leur fin,
+         *         en millisecondes, ou 0 si rien n'est en cours
+         */
+        double getSojournTimeMs();
+
+        /**
+         * @return le nombre de traitements en attente
+         */
+        int getQueueDepth();
+
+        /**
+         * @return la capacité de la file d'attente
+         */
+        int getQueueCapacity();
+    }
+
+    /**
+     * État du régulateur.
+     */
+    public enum State {
+        STEADY, DECREASING, INCREASING
+    }
+
+    @Autowired
+    private AppConfig config;
+
+    @Autowired
+    private VideoCaptureService videoCaptureService;
+
+    @Autowired(required = false)
+    private List<LoadSource> loadSources;
+
+    private ScheduledExecutorService controlExecutor;
+
+    private volatile double rateFactor = 1.0;
+    private volatile State state = State.STEADY;
+    private volatile double lastSojournMs;
+    private volatile double lastQueueFill;
+    private final AtomicLong decreases = new AtomicLong();
+    private final AtomicLong increases = new AtomicLong();
+
+    /**
+     * Démarre la boucle de régulation.
+     */
+    @PostConstruct
+    public void init() {
+        if (!config.isRateControlEnabled()) {
+            log.info("Régulation de la cadence de capture désactivée");
+            return;
+        }
+
+        controlExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "capture-rate-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        controlExecutor.scheduleAtFixedRate(
+                this::regulate,
+                config.getRateControlIntervalMs(),
+                config.getRateControlIntervalMs(),
+                TimeUnit.MILLISECONDS
+        );
+        log.info("Régulation de la cadence de capture active: temps de séjour cible {} ms, remplissage cible {}",
+                config.getRateControlTargetSojournMs(), config.getRateControlTargetQueueFill());
+    }
+
+    /**
+     * Un pas de régulation : mesure la charge et ajuste le facteur de cadence.
+     */
+    void regulate() {
+        try {
+            if (loadSources == null || loadSources.isEmpty()) {
+                return;
+            }
+
+            // La charge retenue est celle du consommateur le plus en retard
+            double sojournMs = 0;
+            double queueFill = 0;
+            for (LoadSource source : loadSources) {
+                sojournMs = Math.max(sojournMs, source.getSojournTimeMs());
+                if (source.getQueueCapacity() > 0) {
+                    queueFill = Math.max(queueFill, (double) source.getQueueDepth() / source.getQueueCapacity());
+                }
+            }
+            lastSojournMs = sojournMs;
+            lastQueueFill = queueFill;
+
+            double targetSojourn = config.getRateControlTargetSojournMs();
+            double targetFill = config.getRateControlTargetQueueFill();
+            double minFactor = Math.min(1.0, (double) config.getRateControlMinFps() / Math.max(1, config.getVideoFps()));
+            double factor = rateFactor;
+
+            if (sojournMs > targetSojourn || queueFill > targetFill) {
+                // Surcharge : réduction multiplicative
+                factor = Math.max(minFactor, factor * config.getRateControlDecreaseFactor());
+                state = factor < rateFactor ? State.DECREASING : State.STEADY;
+            } else if (sojournMs < targetSojourn * 0.8 && queueFill <= targetFill / 2) {
+                // Marge disponible : augmentation additive
+                factor = Math.min(1.0, factor + config.getRateControlIncreaseStep());
+                state = factor > rateFactor ? State.INCREASING : State.STEADY;
+            } else {
+                state = State.STEADY;
+            }
+
+            if (factor != rateFactor) {
+                if (factor < rateFactor) {
+                    decreases.incrementAndGet();
+                } else {
+                    increases.incrementAndGet();
+                }
+                rateFactor = factor;
+                videoCaptureService.setRateFactor(factor);
+                log.debug("Facteur de cadence: {} (séjour {} ms, remplissage {})",
+                        String.format("%.2f", factor), String.format("%.1f", sojournMs), String.format("%.2f", queueFill));
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de la régulation de la cadence de capture", e);
+        }
+    }
+
+    /**
+     * Récupère l'état du régulateur.
+     *
+     * @return facteur de cadence, cadence cible, dernières mesures et compteurs d'ajustement
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isRateControlEnabled());
+        stats.put("state", state);
+        stats.put("rateFactor", Math.round(rateFactor * 1000.0) / 1000.0);
+        stats.put("targetFps", Math.round(config.getVideoFps() * rateFactor * 100.0) / 100.0);
+        stats.put("sojournMs", Math.round(lastSojournMs * 10.0) / 10.0);
+        stats.put("targetSojournMs", config.getRateControlTargetSojournMs());
+        stats.put("queueFill", Math.round(lastQueueFill * 1000.0) / 1000.0);
+        stats.put("targetQueueFill", config.getRateControlTargetQueueFill());
+        stats.put("decreases", decreases.get());
+        stats.put("increases", increases.get());
+        return stats;
+    }
+
+    /**
+     * Arrête la boucle de régulation.
+     */
+    @PreDestroy
+    public void cleanup() {
+        if (controlExecutor != null) {
+            controlExecutor.shutdownNow();
+        }
+    }
+}
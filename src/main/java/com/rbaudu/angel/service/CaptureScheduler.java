@@ -0,0 +1,153 @@
+package com.rbaudu.angel.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ordonnanceur de capture piloté par des échéances monotones (System.nanoTime).
+ * Chaque créneau de capture a une échéance fixe sur une grille idéale : le temps
+ * passé dans la capture et le traitement est donc compensé, et les créneaux
+ * manqués sont sautés au lieu de décaler toute la cadence.
+ * Les méthodes d'attente et d'enregistrement sont appelées par le seul thread de capture.
+ */
+public class CaptureScheduler {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private volatile long periodNanos;
+    private volatile double targetFps;
+
+    private volatile boolean rebaseRequested;
+    private long startNanos;
+    private long startFrames;
+    private long nextDeadlineNanos;
+    private long windowStartNanos;
+    private long windowFrames;
+
+    private final AtomicLong capturedFrames = new AtomicLong();
+    private final AtomicLong lateSlots = new AtomicLong();
+    private final AtomicLong skippedSlots = new AtomicLong();
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private volatile double achievedFps;
+    private volatile long driftNanos;
+
+    /**
+     * Crée un ordonnanceur pour la cadence cible donnée.
+     *
+     * @param targetFps cadence cible en images par seconde
+     */
+    public CaptureScheduler(double targetFps) {
+        setTargetFps(targetFps);
+    }
+
+    /**
+     * Modifie la cadence cible. La nouvelle période s'applique dès la prochaine échéance.
+     *
+     * @param fps la nouvelle cadence en images par seconde
+     */
+    public void setTargetFps(double fps) {
+        double effective = Math.max(0.1, fps);
+        this.targetFps = effective;
+        this.periodNanos = (long) (NANOS_PER_SECOND / effective);
+        // La dérive est recalculée par rapport à la nouvelle période
+        this.rebaseRequested = true;
+    }
+
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Réinitialise la grille d'échéances au démarrage de la capture.
+     */
+    public void start() {
+        long now = System.nanoTime();
+        startNanos = now;
+        startFrames = 0;
+        rebaseRequested = false;
+        nextDeadlineNanos = now;
+        windowStartNanos = now;
+        windowFrames = 0;
+        capturedFrames.set(0);
+        driftNanos = 0;
+    }
+
+    /**
+     * Attend l'échéance du prochain créneau de capture. Si le thread est en retard
+     * d'au moins une période, les créneaux manqués sont sautés.
+     *
+     * @return le nombre de créneaux sautés
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    public int awaitNextSlot() throws InterruptedException {
+        long period = periodNanos;
+        long now = System.nanoTime();
+        long remaining = nextDeadlineNanos - now;
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+            now = System.nanoTime();
+        }
+
+        // Écart entre le début effectif du créneau et son échéance
+        long lateness = now - nextDeadlineNanos;
+        jitter.recordNanos(Math.abs(lateness));
+
+        int skipped = 0;
+        if (lateness >= period) {
+            skipped = (int) (lateness / period);
+            lateSlots.incrementAndGet();
+            skippedSlots.addAndGet(skipped);
+            nextDeadlineNanos += skipped * period;
+        }
+        nextDeadlineNanos += period;
+        return skipped;
+    }
+
+    /**
+     * Enregistre une trame effectivement capturée et met à jour la cadence atteinte.
+     */
+    public void recordFrame() {
+        long now = System.nanoTime();
+        long frames = capturedFrames.incrementAndGet();
+        windowFrames++;
+
+        long windowDuration = now - windowStartNanos;
+        if (windowDuration >= NANOS_PER_SECOND) {
+            achievedFps = windowFrames * (double) NANOS_PER_SECOND / windowDuration;
+            windowStartNanos = now;
+            windowFrames = 0;
+        }
+
+        if (rebaseRequested) {
+            rebaseRequested = false;
+            startNanos = now;
+            startFrames = frames;
+        }
+
+        // Dérive : temps écoulé moins le temps idéal pour le nombre de trames capturées
+        driftNanos = (now - startNanos) - (frames - startFrames) * periodNanos;
+    }
+
+    /**
+     * Récupère les statistiques de l'ordonnanceur.
+     *
+     * @return cadence cible et atteinte, créneaux en retard et sautés, gigue et dérive
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("targetFps", targetFps);
+        stats.put("achievedFps", Math.round(achievedFps * 100.0) / 100.0);
+        stats.put("capturedFrames", capturedFrames.get());
+        stats.put("lateFrames", lateSlots.get());
+        stats.put("skippedFrames", skippedSlots.get());
+        stats.put("driftMs", driftNanos / 1_000_000L);
+        stats.put("jitter", jitter.snapshot());
+        return stats;
+    }
+}
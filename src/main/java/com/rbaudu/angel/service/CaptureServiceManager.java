@@ -87,6 +87,28 @@ public class CaptureServiceManager {
         }
     }
     
+    /**
+     * Démarre la capture d'une seule source vidéo, sans toucher aux autres sources.
+     * 
+     * @param sourceId identifiant de la source vidéo
+     * @return true si la source existe et est en cours de capture
+     */
+    public synchronized boolean startVideoSource(String sourceId) {
+        log.info("Démarrage de la source vidéo {}...", sourceId);
+        return videoCaptureService.start(sourceId) && videoCaptureService.isRunning(sourceId);
+    }
+    
+    /**
+     * Arrête la capture d'une seule source vidéo, sans toucher aux autres sources.
+     * 
+     * @param sourceId identifiant de la source vidéo
+     * @return true si la source existe
+     */
+    public synchronized boolean stopVideoSource(String sourceId) {
+        log.info("Arrêt de la source vidéo {}...", sourceId);
+        return videoCaptureService.stop(sourceId);
+    }
+    
     /**
      * Redémarre les services de capture.
      * 
@@ -0,0 +1,78 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.bytedeco.javacv.Frame;
+
+/**
+ * Source de trames vidéo d'une chaîne de capture : caméra locale, flux réseau
+ * (RTSP, HTTP) ou fichier enregistré.
+ * Les méthodes de capture sont appelées par le seul thread de capture de la chaîne.
+ */
+public interface CaptureSource {
+
+    /**
+     * @return l'identifiant de la source (ex: camera-0, stream-0)
+     */
+    String getId();
+
+    /**
+     * Ouvre la source.
+     *
+     * @throws Exception si la source ne peut pas être ouverte
+     */
+    void start() throws Exception;
+
+    /**
+     * Capture la trame suivante.
+     *
+     * @return la trame capturée, ou null si aucune image n'est disponible
+     * @throws Exception en cas d'erreur de capture
+     */
+    Frame grab() throws Exception;
+
+    /**
+     * Horodatage de la dernière trame retournée par {@link #grab()}.
+     *
+     * @return l'instant de capture de la trame
+     */
+    Instant getFrameTimestamp();
+
+    /**
+     * Indique si la source impose elle-même sa cadence (flux réseau bloquant
+     * ou lecture de fichier au rythme de ses PTS). La chaîne de capture
+     * n'applique alors pas son propre ordonnancement.
+     *
+     * @return true si la source impose sa cadence
+     */
+    boolean isSelfPaced();
+
+    /**
+     * Indique si la source n'a plus de trames à fournir (fin d'un fichier non rebouclé).
+     *
+     * @return true si la capture doit s'arrêter
+     */
+    default boolean isExhausted() {
+        return false;
+    }
+
+    /**
+     * Ferme la source ; elle peut être rouverte avec {@link #start()}.
+     *
+     * @throws Exception en cas d'erreur de fermeture
+     */
+    void stop() throws Exception;
+
+    /**
+     * Libère définitivement les ressources natives de la source.
+     *
+     * @throws Exception en cas d'erreur de libération
+     */
+    void release() throws Exception;
+
+    /**
+     * @return les informations et statistiques propres à la source
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,242 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rbaudu.angel.config.AppConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Superviseur des chaînes de capture vidéo et audio.
+ * <p>
+ * À intervalle régulier, il vérifie pour chaque source qui doit tourner que
+ * le thread de capture est vivant, que sa boucle bat encore et qu'il produit
+ * des trames ou des segments. Une source défaillante est redémarrée avec un délai exponentiel
+ * entre les tentatives, sur un thread dédié pour ne pas retarder la
+ * surveillance des autres sources. Le délai ne revient à sa valeur initiale
+ * qu'une fois la source rétablie : des trames capturées depuis le
+ * redémarrage, et une capture tenue au-delà du délai de blocage.
+ */
+@Service
+public class CaptureSupervisor {
+    private static final Logger log = LoggerFactory.getLogger(CaptureSupervisor.class);
+
+    /**
+     * État de santé d'une source supervisée.
+     */
+    private static final class SourceHealth {
+        private final AtomicBoolean restarting = new AtomicBoolean();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong restarts = new AtomicLong();
+        private final AtomicLong failedRestarts = new AtomicLong();
+        private final AtomicLong stalls = new AtomicLong();
+        private final AtomicLong crashes = new AtomicLong();
+        private volatile long nextAttemptNanos;
+        private volatile String lastIssue;
+        private volatile Instant lastRestart;
+    }
+
+    @Autowired
+    private AppConfig config;
+
+    @Autowired
+    private VideoCaptureService videoCaptureService;
+
+    @Autowired
+    private AudioCaptureService audioCaptureService;
+
+    private ScheduledExecutorService watchdogExecutor;
+    private ExecutorService restartExecutor;
+    private final Map<String, SourceHealth> health = new ConcurrentHashMap<>();
+
+    /**
+     * Démarre la surveillance périodique des sources.
+     */
+    @PostConstruct
+    public void init() {
+        if (!config.isSupervisorEnabled()) {
+            log.info("Supervision de la capture désactivée");
+            return;
+        }
+
+        watchdogExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "capture-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger restartThreads = new AtomicInteger();
+        restartExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "capture-supervisor-restart-" + restartThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchdogExecutor.scheduleWithFixedDelay(
+                this::checkSources,
+                config.getSupervisorCheckIntervalMs(),
+                config.getSupervisorCheckIntervalMs(),
+                TimeUnit.MILLISECONDS
+        );
+        log.info("Supervision de la capture active: vérification toutes les {} ms, blocage après {} ms",
+                config.getSupervisorCheckIntervalMs(), config.getSupervisorStallTimeoutMs());
+    }
+
+    /**
+     * Vérifie l'état de chaque source et planifie le redémarrage des sources défaillantes.
+     */
+    void checkSources() {
+        try {
+            for (VideoCapturePipeline pipeline : videoCaptureService.getPipelines()) {
+                checkSource(pipeline);
+            }
+            for (AudioCapturePipeline pipeline : audioCaptureService.getPipelines()) {
+                checkSource(pipeline);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de la supervision de la capture", e);
+        }
+    }
+
+    /**
+     * Vérifie l'état d'une source.
+     *
+     * @param pipeline la chaîne de capture de la source
+     */
+    private void checkSource(SupervisedCapture pipeline) {
+        SourceHealth sourceHealth = health.computeIfAbsent(pipeline.getSourceId(), id -> new SourceHealth());
+        if (!pipeline.isDesiredRunning() || sourceHealth.restarting.get()) {
+            return;
+        }
+
+        long stallTimeout = config.getSupervisorStallTimeoutMs();
+        boolean crashed = !pipeline.isRunning() || !pipeline.isCaptureThreadAlive();
+        String issue = null;
+        if (crashed) {
+            issue = "thread de capture arrêté";
+        } else if (pipeline.getHeartbeatAgeMs() > stallTimeout) {
+            issue = "boucle de capture bloquée depuis " + pipeline.getHeartbeatAgeMs() + " ms";
+        } else if (pipeline.getLastFrameAgeMs() > stallTimeout) {
+            issue = "aucune capture depuis " + pipeline.getLastFrameAgeMs() + " ms";
+        }
+
+        if (issue == null) {
+            // Les échecs passés ne sont oubliés qu'une fois la source rétablie : juste après un
+            // redémarrage, les âges du battement et de la dernière trame partent de zéro
+            if (pipeline.hasCapturedSinceStart() && pipeline.getUptimeMs() > stallTimeout) {
+                sourceHealth.consecutiveFailures.set(0);
+            }
+            return;
+        }
+
+        if (System.nanoTime() - sourceHealth.nextAttemptNanos < 0) {
+            return; // Délai d'attente entre deux tentatives non écoulé
+        }
+
+        if (sourceHealth.restarting.compareAndSet(false, true)) {
+            (crashed ? sourceHealth.crashes : sourceHealth.stalls).incrementAndGet();
+            sourceHealth.lastIssue = issue;
+            log.warn("Source {} défaillante ({}), redémarrage", pipeline.getSourceId(), issue);
+            restartExecutor.execute(() -> restart(pipeline, sourceHealth));
+        }
+    }
+
+    /**
+     * Redémarre une source et calcule le délai avant la prochaine tentative.
+     *
+     * @param pipeline la chaîne de capture de la source
+     * @param sourceHealth l'état de santé de la source
+     */
+    private void restart(SupervisedCapture pipeline, SourceHealth sourceHealth) {
+        try {
+            boolean restarted = pipeline.restart();
+            sourceHealth.restarts.incrementAndGet();
+            sourceHealth.lastRestart = Instant.now();
+
+            int failures = sourceHealth.consecutiveFailures.incrementAndGet();
+            long delay = backoffDelayMs(failures, config.getSupervisorBackoffInitialMs(),
+                    config.getSupervisorBackoffMaxMs());
+            sourceHealth.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+
+            if (restarted) {
+                log.info("Source {} redémarrée (tentative {})", pipeline.getSourceId(), failures);
+            } else {
+                sourceHealth.failedRestarts.incrementAndGet();
+                log.warn("Échec du redémarrage de la source {} (tentative {}), nouvel essai dans {} ms",
+                        pipeline.getSourceId(), failures, delay);
+            }
+        } catch (Exception e) {
+            sourceHealth.failedRestarts.incrementAndGet();
+            log.error("Erreur lors du redémarrage de la source {}", pipeline.getSourceId(), e);
+        } finally {
+            sourceHealth.restarting.set(false);
+        }
+    }
+
+    /**
+     * Calcule le délai avant la tentative suivante : le délai initial, doublé à
+     * chaque échec consécutif, dans la limite du délai maximal.
+     *
+     * @param failures nombre d'échecs consécutifs, tentative courante comprise
+     * @param initialMs délai après le premier échec
+     * @param maxMs délai maximal
+     * @return le délai en millisecondes
+     */
+    static long backoffDelayMs(int failures, long initialMs, long maxMs) {
+        int shift = Math.max(0, Math.min(failures - 1, 20));
+        return Math.min(maxMs, initialMs << shift);
+    }
+
+    /**
+     * Récupère les compteurs de supervision de chaque source.
+     *
+     * @return redémarrages, blocages et arrêts de thread, indexés par source
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isSupervisorEnabled());
+        Map<String, Object> sources = new LinkedHashMap<>();
+        health.forEach((sourceId, sourceHealth) -> {
+            Map<String, Object> sourceStats = new LinkedHashMap<>();
+            sourceStats.put("restarts", sourceHealth.restarts.get());
+            sourceStats.put("failedRestarts", sourceHealth.failedRestarts.get());
+            sourceStats.put("stalls", sourceHealth.stalls.get());
+            sourceStats.put("crashes", sourceHealth.crashes.get());
+            sourceStats.put("consecutiveFailures", sourceHealth.consecutiveFailures.get());
+            sourceStats.put("restarting", sourceHealth.restarting.get());
+            sourceStats.put("lastIssue", sourceHealth.lastIssue);
+            sourceStats.put("lastRestart", sourceHealth.lastRestart);
+            sources.put(sourceId, sourceStats);
+        });
+        stats.put("sources", sources);
+        return stats;
+    }
+
+    /**
+     * Arrête la surveillance.
+     */
+    @PreDestroy
+    public void cleanup() {
+        if (watchdogExecutor != null) {
+            watchdogExecutor.shutdownNow();
+        }
+        if (restartExecutor != null) {
+            restartExecutor.shutdownNow();
+        }
+    }
+}
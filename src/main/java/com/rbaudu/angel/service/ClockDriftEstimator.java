@@ -0,0 +1,256 @@
+package com.rbaudu.angel.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimation en ligne du décalage et de la dérive entre les horloges d'une
+ * source vidéo et d'un microphone.
+ * <p>
+ * Les deux horloges sont comparées à une référence commune, l'horloge monotone
+ * de la JVM ({@code System.nanoTime}), relevée à la capture de chaque trame et
+ * de chaque segment. Pour chaque flux, l'avance de son horodatage sur la
+ * référence est modélisée comme une droite du temps, {@code décalage + dérive × t},
+ * ajustée par moindres carrés pondérés exponentiellement : les observations
+ * s'effacent sur une fenêtre d'environ {@code window} médias, de sorte que
+ * l'estimation suit une dérive qui varie lentement. Les moyennes et covariances
+ * sont mises à jour de façon incrémentale (forme de Welford), sans perte de
+ * précision quand les horodatages deviennent grands.
+ * <p>
+ * L'écart entre les horloges à un instant est la différence des deux avances.
+ * Il ne dépend que des captures : les appariements, faits sur des horodatages
+ * déjà corrigés, ne sont jamais observés, ce qui empêcherait la correction de
+ * s'entretenir elle-même. Le bruit de capture se moyenne sur la fenêtre ;
+ * l'écart-type des résidus est publié avec l'estimation.
+ * <p>
+ * Une observation très éloignée de la droite de son flux (rafale de lecture
+ * après un blocage réseau, par exemple) est écartée. Si les observations
+ * écartées se succèdent, l'horodatage du flux a changé d'origine (redémarrage
+ * ou réancrage de la source) : les observations de ce flux sont oubliées et
+ * son avance est réestimée depuis la nouvelle origine. Les méthodes sont
+ * synchronisées : l'estimateur est alimenté par les threads de capture et lu
+ * par l'appariement et les statistiques.
+ */
+public class ClockDriftEstimator {
+
+    // Observations de chaque flux nécessaires avant de corriger les horodatages
+    private static final int MIN_SAMPLES = 20;
+    // Étendue minimale des observations, en secondes, pour estimer une dérive
+    private static final double MIN_SPAN_SECONDS = 10.0;
+    // Écart à la droite, en écarts-types des résidus et au minimum en microsecondes, au-delà duquel
+    // une observation est écartée
+    private static final double OUTLIER_SIGMAS = 5.0;
+    private static final double MIN_OUTLIER_MICROS = 20_000;
+    // Observations écartées consécutives qui signalent un changement d'origine du flux
+    private static final int STEP_SAMPLES = 30;
+
+    private final LinearFit video;
+    private final LinearFit audio;
+
+    // Origines communes aux deux flux : référence en nanosecondes, horodatages en microsecondes
+    private boolean anchored;
+    private long originNanoTime;
+    private long originMicros;
+    private long resets;
+
+    /**
+     * Crée un estimateur.
+     *
+     * @param window nombre d'observations de chaque flux sur lequel porte l'estimation
+     */
+    public ClockDriftEstimator(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("La fenêtre d'estimation de dérive doit compter au moins 2 observations");
+        }
+        double forgetting = 1.0 - 1.0 / window;
+        this.video = new LinearFit(forgetting);
+        this.audio = new LinearFit(forgetting);
+    }
+
+    /**
+     * Ajoute une trame capturée.
+     *
+     * @param timeMicros horodatage de la trame, en microsecondes depuis l'epoch
+     * @param captureNanoTime instant de capture sur l'horloge monotone
+     */
+    public synchronized void updateVideo(long timeMicros, long captureNanoTime) {
+        observe(video, timeMicros, captureNanoTime);
+    }
+
+    /**
+     * Ajoute un segment capturé.
+     *
+     * @param timeMicros horodatage de la fin du segment, en microsecondes depuis l'epoch
+     * @param captureNanoTime instant de la fin de sa lecture sur l'horloge monotone
+     */
+    public synchronized void updateAudio(long timeMicros, long captureNanoTime) {
+        observe(audio, timeMicros, captureNanoTime);
+    }
+
+    private void observe(LinearFit fit, long timeMicros, long captureNanoTime) {
+        if (!anchored) {
+            originNanoTime = captureNanoTime;
+            originMicros = timeMicros;
+            anchored = true;
+        }
+        double referenceMicros = (captureNanoTime - originNanoTime) / 1_000.0;
+        double time = referenceMicros / 1_000_000.0;
+        double value = (timeMicros - originMicros) - referenceMicros;
+        if (fit.isOutlier(time, value)) {
+            fit.outliers++;
+            if (++fit.consecutiveOutliers < STEP_SAMPLES) {
+                return;
+            }
+            // Changement d'origine : l'avance est réestimée à partir de cette observation
+            fit.reset();
+            fit.steps++;
+        }
+        fit.consecutiveOutliers = 0;
+        fit.add(time, value);
+    }
+
+    /**
+     * Prédit l'écart entre les horloges à un instant.
+     *
+     * @param timeMicros horodatage de la trame, en microsecondes depuis l'epoch
+     * @return l'écart estimé (trame moins audio) en microsecondes, ou 0 tant que l'estimation n'est pas fiable
+     */
+    public synchronized long offsetAt(long timeMicros) {
+        if (video.samples < MIN_SAMPLES || audio.samples < MIN_SAMPLES) {
+            return 0;
+        }
+        return Math.round(offset(referenceAt(timeMicros)));
+    }
+
+    /**
+     * Corrige l'horodatage d'une trame vers l'horloge du microphone.
+     *
+     * @param timeMicros horodatage de la trame, en microsecondes depuis l'epoch
+     * @return l'horodatage corrigé, inchangé tant que l'estimation n'est pas fiable
+     */
+    public long correct(long timeMicros) {
+        return timeMicros - offsetAt(timeMicros);
+    }
+
+    /**
+     * @return l'instant de référence, en secondes depuis l'origine, où l'horloge vidéo indique cet horodatage
+     */
+    private double referenceAt(long timeMicros) {
+        double elapsed = (timeMicros - originMicros) / 1_000_000.0;
+        // L'avance varie de quelques ppm : l'évaluer à l'horodatage plutôt qu'à la référence est sans effet
+        return elapsed - video.predict(elapsed) / 1_000_000.0;
+    }
+
+    private double offset(double time) {
+        return video.predict(time) - audio.predict(time);
+    }
+
+    /**
+     * Oublie les observations, par exemple quand une source est recréée.
+     */
+    public synchronized void reset() {
+        anchored = false;
+        video.reset();
+        audio.reset();
+        resets++;
+    }
+
+    /**
+     * Récupère l'état de l'estimation.
+     *
+     * @return observations de chaque flux, décalage courant, dérive, écart-type des résidus,
+     *         observations écartées et réinitialisations
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("videoSamples", video.samples);
+        stats.put("audioSamples", audio.samples);
+        boolean observed = video.samples > 0 && audio.samples > 0;
+        stats.put("offsetMs", observed ? Math.round(offset(video.lastTime) / 10.0) / 100.0 : 0.0);
+        stats.put("driftPpm", Math.round((video.slope() - audio.slope()) * 10.0) / 10.0);
+        stats.put("residualMs", Math.round(Math.sqrt(video.residualVariance + audio.residualVariance) / 10.0) / 100.0);
+        stats.put("correcting", video.samples >= MIN_SAMPLES && audio.samples >= MIN_SAMPLES);
+        stats.put("outliers", video.outliers + audio.outliers);
+        stats.put("videoSteps", video.steps);
+        stats.put("audioSteps", audio.steps);
+        stats.put("resets", resets);
+        return stats;
+    }
+
+    /**
+     * Droite des moindres carrés pondérés exponentiellement : avance d'un flux
+     * (en microsecondes) en fonction de la référence (en secondes).
+     */
+    private static final class LinearFit {
+        private final double forgetting;
+
+        private long samples;
+        private double weight;
+        private double meanTime;
+        private double meanValue;
+        private double timeVariance;
+        private double covariance;
+        private double residualVariance;
+        private double lastTime;
+        // Observations écartées, au total et depuis la dernière retenue, et changements d'origine
+        private long outliers;
+        private int consecutiveOutliers;
+        private long steps;
+
+        LinearFit(double forgetting) {
+            this.forgetting = forgetting;
+        }
+
+        void add(double time, double value) {
+            if (samples >= MIN_SAMPLES) {
+                double residual = value - predict(time);
+                residualVariance = forgetting * residualVariance + (1 - forgetting) * residual * residual;
+            }
+
+            weight = forgetting * weight + 1;
+            double dt = time - meanTime;
+            double dy = value - meanValue;
+            meanTime += dt / weight;
+            meanValue += dy / weight;
+            timeVariance = forgetting * timeVariance + dt * (time - meanTime);
+            covariance = forgetting * covariance + dt * (value - meanValue);
+            lastTime = time;
+            samples++;
+        }
+
+        /**
+         * @return true si l'observation est trop éloignée de la droite déjà ajustée pour être retenue
+         */
+        boolean isOutlier(double time, double value) {
+            if (samples < MIN_SAMPLES) {
+                return false;
+            }
+            double limit = Math.max(OUTLIER_SIGMAS * Math.sqrt(residualVariance), MIN_OUTLIER_MICROS);
+            return Math.abs(value - predict(time)) > limit;
+        }
+
+        double predict(double time) {
+            return meanValue + slope() * (time - meanTime);
+        }
+
+        /**
+         * @return la pente en microsecondes par seconde (ppm), ou 0 si les observations sont trop rapprochées
+         */
+        double slope() {
+            double spread = weight > 0 ? timeVariance / weight : 0;
+            return spread >= MIN_SPAN_SECONDS * MIN_SPAN_SECONDS / 12 ? covariance / timeVariance : 0;
+        }
+
+        void reset() {
+            samples = 0;
+            weight = 0;
+            meanTime = 0;
+            meanValue = 0;
+            timeVariance = 0;
+            covariance = 0;
+            residualVariance = 0;
+            lastTime = 0;
+            consecutiveOutliers = 0;
+        }
+    }
+}
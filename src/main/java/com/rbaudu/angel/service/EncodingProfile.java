@@ -0,0 +1,117 @@
+package com.rbaudu.angel.service;
+
+/**
+ * Paramètres d'encodage d'une trame vidéo pour un consommateur donné
+ * (format, qualité, facteur de réduction).
+ */
+public class EncodingProfile {
+
+    /**
+     * Formats d'image supportés par les encodeurs de trames.
+     */
+    public enum Format {
+        JPEG("jpg", "image/jpeg"),
+        WEBP("webp", "image/webp"),
+        PNG("png", "image/png");
+
+        private final String extension;
+        private final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    /**
+     * Nom du profil (ex: websocket).
+     */
+    private String name;
+
+    /**
+     * Format de sortie.
+     */
+    private Format format = Format.JPEG;
+
+    /**
+     * Qualité de 0 à 100 (JPEG/WebP) ; pour PNG, convertie en niveau de compression.
+     */
+    private int quality = 80;
+
+    /**
+     * Facteur de réduction appliqué avant encodage (1.0 = taille d'origine).
+     */
+    private double scale = 1.0;
+
+    /**
+     * Constructeur par défaut
+     */
+    public EncodingProfile() {
+    }
+
+    /**
+     * Constructeur avec tous les champs
+     */
+    public EncodingProfile(String name, Format format, int quality, double scale) {
+        this.name = name;
+        this.format = format;
+        this.quality = quality;
+        this.scale = scale;
+    }
+
+    /**
+     * Getters et Setters
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public void setQuality(int quality) {
+        this.quality = Math.max(0, Math.min(100, quality));
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void setScale(double scale) {
+        this.scale = scale > 0 && scale <= 1.0 ? scale : 1.0;
+    }
+
+    /**
+     * Méthode toString
+     */
+    @Override
+    public String toString() {
+        return "EncodingProfile{" +
+               "name='" + name + '\'' +
+               ", format=" + format +
+               ", quality=" + quality +
+               ", scale=" + scale +
+               '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.rbaudu.angel.service;
+
+import java.nio.ByteBuffer;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * Interface de fournisseur (SPI) pour l'encodage des trames vidéo en image compressée.
+ * Les implémentations sont des beans Spring sélectionnés par leur nom dans
+ * la configuration {@code angel.encoding.encoder}.
+ */
+public interface FrameEncoder {
+
+    /**
+     * Nom de l'encodeur utilisé dans la configuration et les métriques.
+     *
+     * @return le nom de l'encodeur (ex: opencv, imageio)
+     */
+    String getName();
+
+    /**
+     * Indique si l'encodeur sait produire le format demandé.
+     *
+     * @param format le format de sortie
+     * @return true si le format est supporté
+     */
+    boolean supports(EncodingProfile.Format format);
+
+    /**
+     * Encode une trame BGR selon le profil donné.
+     * Le buffer retourné peut appartenir à l'encodeur et être réutilisé par
+     * l'appel suivant sur le même thread : il doit être consommé immédiatement.
+     *
+     * @param frame la matrice BGR à encoder
+     * @param profile le profil d'encodage
+     * @return les octets encodés, entre position et limite
+     * @throws Exception en cas d'erreur d'encodage
+     */
+    ByteBuffer encode(Mat frame, EncodingProfile profile) throws Exception;
+}
@@ -0,0 +1,205 @@
+package com.rbaudu.angel.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.rbaudu.angel.config.FrameEncodingConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service d'encodage des trames vidéo pour les différents consommateurs.
+ * Sélectionne l'encodeur configuré, applique le profil du consommateur et
+ * mesure la latence d'encodage de chaque encodeur. Les encodages de
+ * comparaison avec les autres encodeurs s'exécutent sur un thread de basse
+ * priorité, pour ne pas retarder la sérialisation des trames.
+ */
+@Service
+public class FrameEncodingService {
+    private static final Logger log = LoggerFactory.getLogger(FrameEncodingService.class);
+
+    /**
+     * Profil utilisé pour la diffusion des trames sur /topic/video.
+     */
+    public static final String WEBSOCKET_PROFILE = "websocket";
+
+    @Autowired
+    private FrameEncodingConfig config;
+
+    @Autowired
+    private List<FrameEncoder> availableEncoders;
+
+    private final Map<String, FrameEncoder> encoders = new HashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong encodedCount = new AtomicLong();
+    private final AtomicLong skippedComparisons = new AtomicLong();
+    private FrameEncoder defaultEncoder;
+    private ThreadPoolExecutor comparisonExecutor;
+
+    /**
+     * Initialise les encodeurs et les profils par défaut.
+     */
+    @PostConstruct
+    public void init() {
+        for (FrameEncoder encoder : availableEncoders) {
+            encoders.put(encoder.getName(), encoder);
+            latencies.put(encoder.getName(), new LatencyHistogram());
+        }
+
+        defaultEncoder = encoders.get(config.getEncoder());
+        if (defaultEncoder == null) {
+            log.warn("Encodeur de trames '{}' inconnu, utilisation de l'encodeur opencv", config.getEncoder());
+            defaultEncoder = encoders.get("opencv");
+        }
+
+        config.getProfiles().forEach((name, profile) -> profile.setName(name));
+        config.getProfiles().computeIfAbsent(WEBSOCKET_PROFILE,
+                name -> new EncodingProfile(name, EncodingProfile.Format.JPEG, 80, 1.0));
+
+        // Une seule comparaison en attente : les suivantes sont sautées tant qu'elle n'est pas traitée
+        comparisonExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                r -> {
+                    Thread thread = new Thread(r, "frame-encoder-comparison");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        log.info("Encodeur de trames: {}, profils: {}", defaultEncoder.getName(), config.getProfiles().values());
+    }
+
+    /**
+     * Récupère un profil d'encodage par son nom.
+     *
+     * @param profileName le nom du profil
+     * @return le profil, ou le profil websocket si le nom est inconnu
+     */
+    public EncodingProfile getProfile(String profileName) {
+        EncodingProfile profile = config.getProfiles().get(profileName);
+        return profile != null ? profile : config.getProfiles().get(WEBSOCKET_PROFILE);
+    }
+
+    /**
+     * Encode une trame selon un profil et retourne l'image en Base64.
+     *
+     * @param lease emprunt de la matrice BGR à encoder, dont l'appelant détient une référence
+     * @param profileName le nom du profil du consommateur
+     * @return l'image encodée en Base64, ou null en cas d'erreur
+     */
+    public String encodeToBase64(FrameLease lease, String profileName) {
+        Mat frame = lease.getMat();
+        EncodingProfile profile = getProfile(profileName);
+        FrameEncoder encoder = defaultEncoder.supports(profile.getFormat()) ? defaultEncoder : encoders.get("opencv");
+
+        long start = System.nanoTime();
+        try {
+            ByteBuffer encoded = encoder.encode(frame, profile);
+            ByteBuffer base64 = Base64.getEncoder().encode(encoded);
+            latencies.get(encoder.getName()).recordNanos(System.nanoTime() - start);
+            
+            String result = new String(base64.array(), base64.arrayOffset(), base64.remaining(), StandardCharsets.US_ASCII);
+            if (config.getComparisonInterval() > 0
+                    && encodedCount.incrementAndGet() % config.getComparisonInterval() == 0) {
+                scheduleComparison(lease, profile, encoder);
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Erreur lors de l'encodage de la trame avec l'encodeur {}", encoder.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Confie la comparaison des encodeurs au thread de comparaison, en retenant
+     * la matrice de la trame jusqu'à la fin des encodages. Si une comparaison
+     * est déjà en attente, celle-ci est sautée.
+     *
+     * @param lease emprunt de la matrice de la trame
+     * @param profile le profil d'encodage
+     * @param used l'encodeur déjà utilisé
+     */
+    private void scheduleComparison(FrameLease lease, EncodingProfile profile, FrameEncoder used) {
+        if (!lease.retain()) {
+            return;
+        }
+        try {
+            comparisonExecutor.execute(() -> {
+                try {
+                    measureOtherEncoders(lease.getMat(), profile, used);
+                } finally {
+                    lease.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lease.release();
+            skippedComparisons.incrementAndGet();
+        }
+    }
+
+    /**
+     * Encode la même trame avec les autres encodeurs pour comparer leurs latences.
+     * Le résultat est ignoré, seule la latence est enregistrée.
+     * 
+     * @param frame la matrice BGR
+     * @param profile le profil d'encodage
+     * @param used l'encodeur déjà utilisé
+     */
+    private void measureOtherEncoders(Mat frame, EncodingProfile profile, FrameEncoder used) {
+        for (FrameEncoder other : encoders.values()) {
+            if (other == used || !other.supports(profile.getFormat())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                other.encode(frame, profile);
+                latencies.get(other.getName()).recordNanos(System.nanoTime() - start);
+            } catch (Exception e) {
+                log.debug("Échec de l'encodage de comparaison avec {}: {}", other.getName(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Récupère les statistiques de latence d'encodage par encodeur.
+     *
+     * @return les histogrammes de latence indexés par nom d'encodeur
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("encoder", defaultEncoder != null ? defaultEncoder.getName() : null);
+        Map<String, Object> histograms = new HashMap<>();
+        latencies.forEach((name, histogram) -> histograms.put(name, histogram.snapshot()));
+        stats.put("latency", histograms);
+        stats.put("skippedComparisons", skippedComparisons.get());
+        return stats;
+    }
+
+    /**
+     * Arrête le thread de comparaison des encodeurs.
+     */
+    @PreDestroy
+    public void cleanup() {
+        if (comparisonExecutor != null) {
+            comparisonExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.rbaudu.angel.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+
+/**
+ * Emprunt à compteur de références d'une matrice du {@link FramePool}.
+ * Le thread de capture détient la première référence ; chaque consommateur
+ * qui conserve la trame au-delà de la publication (synchronisation, analyse...)
+ * doit appeler {@link #retain()} puis {@link #release()} lorsqu'il a terminé.
+ * La matrice retourne dans le pool lorsque la dernière référence est libérée.
+ */
+public final class FrameLease {
+
+    private final FramePool pool;
+    private final Mat mat;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    /**
+     * Crée un nouvel emprunt avec une référence détenue par l'appelant.
+     *
+     * @param pool le pool d'origine
+     * @param mat la matrice empruntée
+     */
+    FrameLease(FramePool pool, Mat mat) {
+        this.pool = pool;
+        this.mat = mat;
+    }
+
+    /**
+     * Récupère la matrice empruntée. Elle n'est valide que tant que
+     * l'appelant détient une référence.
+     *
+     * @return la matrice OpenCV partagée
+     */
+    public Mat getMat() {
+        return mat;
+    }
+
+    /**
+     * Récupère le pool d'origine de cet emprunt.
+     *
+     * @return le pool
+     */
+    public FramePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Acquiert une référence supplémentaire sur la matrice.
+     *
+     * @return true si la référence a été acquise, false si la matrice est déjà retournée au pool
+     */
+    public boolean retain() {
+        while (true) {
+            int current = refCount.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (refCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libère une référence. La matrice retourne au pool à la dernière libération.
+     */
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(mat);
+        } else if (remaining < 0) {
+            refCount.set(0);
+            throw new IllegalStateException("Emprunt de trame libéré plus de fois qu'il n'a été acquis");
+        }
+    }
+
+    /**
+     * Indique si la matrice a été retournée au pool.
+     *
+     * @return true si plus aucune référence n'est détenue
+     */
+    public boolean isReleased() {
+        return refCount.get() <= 0;
+    }
+
+    /**
+     * Nombre de références actuellement détenues.
+     *
+     * @return le compteur de références
+     */
+    public int getRefCount() {
+        return Math.max(0, refCount.get());
+    }
+}
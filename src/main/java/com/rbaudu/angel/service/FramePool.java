@@ -0,0 +1,198 @@
+package com.rbaudu.angel.service;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_8UC3;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool de taille fixe de matrices OpenCV préallouées pour les trames vidéo.
+ * Les trames capturées sont copiées dans une matrice du pool puis partagées
+ * par emprunt ({@link FrameLease}) entre la synchronisation, l'analyse et
+ * l'aperçu, sans nouvelle allocation native par trame.
+ */
+public class FramePool {
+    private static final Logger log = LoggerFactory.getLogger(FramePool.class);
+
+    /**
+     * Politique appliquée lorsque toutes les matrices sont empruntées.
+     */
+    public enum ExhaustionPolicy {
+        /**
+         * Demande aux détenteurs de libérer leurs trames les plus anciennes,
+         * puis abandonne la nouvelle trame si aucune matrice n'a été libérée.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Attend qu'une matrice soit libérée, dans la limite du délai configuré.
+         */
+        BLOCK
+    }
+
+    /**
+     * Détenteur de trames capable d'en libérer sur demande lorsque le pool est épuisé.
+     */
+    public interface ReclaimListener {
+
+        /**
+         * Libère la ou les trames les plus anciennes empruntées au pool donné.
+         *
+         * @param pool le pool épuisé
+         */
+        void reclaimFrames(FramePool pool);
+    }
+
+    private final String name;
+    private final int capacity;
+    private final ExhaustionPolicy policy;
+    private final long blockTimeoutMs;
+    private final BlockingQueue<Mat> freeMats;
+    private final List<ReclaimListener> reclaimListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Crée un pool et préalloue toutes ses matrices.
+     *
+     * @param name nom du pool (pour les journaux et métriques)
+     * @param capacity nombre de matrices préallouées
+     * @param width largeur des trames
+     * @param height hauteur des trames
+     * @param policy politique en cas d'épuisement
+     * @param blockTimeoutMs délai d'attente maximal pour la politique BLOCK
+     */
+    public FramePool(String name, int capacity, int width, int height,
+                     ExhaustionPolicy policy, long blockTimeoutMs) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité du pool de trames doit être positive");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.freeMats = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            freeMats.add(new Mat(height, width, CV_8UC3));
+        }
+        log.info("Pool de trames '{}' initialisé: {} matrices {}x{}, politique {}",
+                name, capacity, width, height, policy);
+    }
+
+    /**
+     * Ajoute un détenteur de trames sollicité lorsque le pool est épuisé.
+     *
+     * @param listener le détenteur à ajouter
+     */
+    public void addReclaimListener(ReclaimListener listener) {
+        reclaimListeners.add(listener);
+    }
+
+    /**
+     * Emprunte une matrice libre. L'appelant détient la première référence
+     * et doit la libérer avec {@link FrameLease#release()}.
+     *
+     * @return l'emprunt, ou null si la trame doit être abandonnée
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    public FrameLease acquire() throws InterruptedException {
+        if (closed) {
+            return null;
+        }
+
+        Mat mat = freeMats.poll();
+        if (mat == null) {
+            exhaustedCount.incrementAndGet();
+            if (policy == ExhaustionPolicy.BLOCK) {
+                mat = freeMats.poll(blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } else {
+                for (ReclaimListener listener : reclaimListeners) {
+                    listener.reclaimFrames(this);
+                }
+                mat = freeMats.poll();
+            }
+
+            if (mat == null) {
+                droppedCount.incrementAndGet();
+                log.debug("Pool de trames '{}' épuisé, trame abandonnée", name);
+                return null;
+            }
+        }
+
+        acquiredCount.incrementAndGet();
+        return new FrameLease(this, mat);
+    }
+
+    /**
+     * Remet une matrice dans le pool. Appelé par {@link FrameLease} à la dernière libération.
+     *
+     * @param mat la matrice libérée
+     */
+    void recycle(Mat mat) {
+        if (closed || !freeMats.offer(mat)) {
+            mat.close();
+        }
+    }
+
+    /**
+     * Nombre de matrices actuellement empruntées.
+     *
+     * @return le nombre de matrices en cours d'utilisation
+     */
+    public int getInUse() {
+        return capacity - freeMats.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public ExhaustionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Récupère les statistiques d'utilisation du pool.
+     *
+     * @return les statistiques sous forme de map
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("inUse", getInUse());
+        stats.put("policy", policy.name());
+        stats.put("acquired", acquiredCount.get());
+        stats.put("exhausted", exhaustedCount.get());
+        stats.put("dropped", droppedCount.get());
+        return stats;
+    }
+
+    /**
+     * Ferme le pool et libère les matrices libres. Les matrices encore
+     * empruntées sont libérées lors de leur retour.
+     */
+    public void close() {
+        closed = true;
+        Mat mat;
+        while ((mat = freeMats.poll()) != null) {
+            mat.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.rbaudu.angel.service;
+
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodeur de trames historique basé sur javax.imageio, via une conversion
+ * en BufferedImage. Conservé comme référence de comparaison et solution de
+ * secours ; il ne supporte pas le format WebP.
+ */
+@Component
+public class ImageIoFrameEncoder implements FrameEncoder {
+
+    // Les convertisseurs JavaCV ne sont pas thread-safe
+    private static final ThreadLocal<OpenCVFrameConverter.ToMat> MAT_CONVERTER =
+            ThreadLocal.withInitial(OpenCVFrameConverter.ToMat::new);
+    private static final ThreadLocal<Java2DFrameConverter> JAVA2D_CONVERTER =
+            ThreadLocal.withInitial(Java2DFrameConverter::new);
+
+    @Override
+    public String getName() {
+        return "imageio";
+    }
+
+    @Override
+    public boolean supports(EncodingProfile.Format format) {
+        return format != EncodingProfile.Format.WEBP;
+    }
+
+    @Override
+    public ByteBuffer encode(Mat frame, EncodingProfile profile) throws Exception {
+        if (!supports(profile.getFormat())) {
+            throw new UnsupportedOperationException("Format non supporté par ImageIO: " + profile.getFormat());
+        }
+
+        Mat source = frame;
+        if (profile.getScale() < 1.0) {
+            source = new Mat();
+            int width = Math.max(1, (int) Math.round(frame.cols() * profile.getScale()));
+            int height = Math.max(1, (int) Math.round(frame.rows() * profile.getScale()));
+            try (Size size = new Size(width, height)) {
+                resize(frame, source, size, 0, 0, INTER_AREA);
+            }
+        }
+
+        try {
+            Frame converted = MAT_CONVERTER.get().convert(source);
+            BufferedImage image = JAVA2D_CONVERTER.get().convert(converted);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            if (profile.getFormat() == EncodingProfile.Format.JPEG) {
+                writeJpeg(image, profile.getQuality(), outputStream);
+            } else {
+                ImageIO.write(image, profile.getFormat().getExtension(), outputStream);
+            }
+            return ByteBuffer.wrap(outputStream.toByteArray());
+        } finally {
+            if (source != frame) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Écrit une image JPEG avec la qualité demandée.
+     *
+     * @param image l'image à écrire
+     * @param quality la qualité de 0 à 100
+     * @param outputStream le flux de sortie
+     * @throws Exception en cas d'erreur d'écriture
+     */
+    private void writeJpeg(BufferedImage image, int quality, ByteArrayOutputStream outputStream) throws Exception {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("Aucun encodeur JPEG ImageIO disponible");
+        }
+
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality / 100.0f);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.rbaudu.angel.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences à seaux logarithmiques (puissances de 2 en microsecondes).
+ * L'enregistrement est sans verrou et sans allocation, utilisable depuis un chemin critique.
+ */
+public class LatencyHistogram {
+
+    // Seau i : latences dans ]2^(i-1), 2^i] µs ; le dernier seau regroupe les valeurs supérieures
+    private static final int BUCKET_COUNT = 25;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Enregistre une latence mesurée avec System.nanoTime().
+     *
+     * @param nanos la latence en nanosecondes
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1_000L);
+    }
+
+    /**
+     * Enregistre une latence en microsecondes.
+     *
+     * @param micros la latence en microsecondes
+     */
+    public void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        int bucket = value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+        buckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+        count.incrementAndGet();
+        sumMicros.addAndGet(value);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Nombre de mesures enregistrées.
+     *
+     * @return le nombre de mesures
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Latence moyenne.
+     *
+     * @return la moyenne en microsecondes, 0 si aucune mesure
+     */
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (double) sumMicros.get() / n;
+    }
+
+    /**
+     * Estime un percentile à partir des seaux (borne supérieure du seau atteint).
+     *
+     * @param percentile le percentile souhaité, entre 0 et 100
+     * @return la borne supérieure estimée en microsecondes
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(n * percentile / 100.0);
+        long cumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulated += buckets.get(i);
+            if (cumulated >= threshold) {
+                return i == BUCKET_COUNT - 1 ? maxMicros.get() : 1L << i;
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Remet l'histogramme à zéro.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sumMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * Produit un instantané de l'histogramme pour l'exposition via l'API.
+     *
+     * @return les statistiques et les seaux non vides
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", count.get());
+        snapshot.put("meanUs", Math.round(getMeanMicros()));
+        snapshot.put("p50Us", getPercentileMicros(50));
+        snapshot.put("p90Us", getPercentileMicros(90));
+        snapshot.put("p99Us", getPercentileMicros(99));
+        snapshot.put("maxUs", maxMicros.get());
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long value = buckets.get(i);
+            if (value > 0) {
+                String label = i == BUCKET_COUNT - 1 ? ">" + (1L << (i - 1)) + "us" : "<=" + (1L << i) + "us";
+                histogram.put(label, value);
+            }
+        }
+        snapshot.put("buckets", histogram);
+        return snapshot;
+    }
+}
@@ -0,0 +1,82 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameGrabber;
+
+/**
+ * Source de capture d'une caméra locale, via OpenCVFrameGrabber.
+ * Les trames sont horodatées à leur réception.
+ */
+public class LocalCameraSource implements CaptureSource {
+
+    private final String id;
+    private final int cameraIndex;
+    private final OpenCVFrameGrabber grabber;
+    private Instant frameTimestamp;
+
+    /**
+     * Crée la source d'une caméra locale.
+     *
+     * @param cameraIndex index de la caméra
+     * @param width largeur demandée
+     * @param height hauteur demandée
+     * @param fps cadence demandée
+     */
+    public LocalCameraSource(int cameraIndex, int width, int height, int fps) {
+        this.id = "camera-" + cameraIndex;
+        this.cameraIndex = cameraIndex;
+        this.grabber = new OpenCVFrameGrabber(cameraIndex);
+        this.grabber.setImageWidth(width);
+        this.grabber.setImageHeight(height);
+        this.grabber.setFrameRate(fps);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void start() throws Exception {
+        grabber.start();
+    }
+
+    @Override
+    public Frame grab() throws Exception {
+        Frame frame = grabber.grab();
+        frameTimestamp = Instant.now();
+        return frame;
+    }
+
+    @Override
+    public Instant getFrameTimestamp() {
+        return frameTimestamp != null ? frameTimestamp : Instant.now();
+    }
+
+    @Override
+    public boolean isSelfPaced() {
+        return false;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        grabber.stop();
+    }
+
+    @Override
+    public void release() throws Exception {
+        grabber.release();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "camera");
+        stats.put("cameraIndex", cameraIndex);
+        return stats;
+    }
+}
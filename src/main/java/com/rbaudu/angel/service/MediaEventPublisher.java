@@ -28,6 +28,9 @@ public class MediaEventPublisher {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private SubscriptionTracker subscriptionTracker;
+    
     /**
      * Publie un événement pour une trame vidéo.
      * 
@@ -39,8 +42,9 @@ public class MediaEventPublisher {
             VideoEvent event = new VideoEvent(this, videoFrame);
             eventPublisher.publishEvent(event);
             
-            // Publier la trame via WebSocket pour l'affichage temps réel
-            messagingTemplate.convertAndSend("/topic/video", videoFrame);
+            // Publier la trame via WebSocket pour l'affichage temps réel,
+            // uniquement si un client est abonné (l'encodage de l'image est fait à la sérialisation)
+            sendIfSubscribed("/topic/video", videoFrame);
             
             log.debug("Trame vidéo publiée: {}", videoFrame.getSequenceNumber());
         } catch (Exception e) {
@@ -60,7 +64,7 @@ public class MediaEventPublisher {
             eventPublisher.publishEvent(event);
             
             // Publier le segment via WebSocket pour l'affichage temps réel
-            messagingTemplate.convertAndSend("/topic/audio", audioChunk);
+            sendIfSubscribed("/topic/audio", audioChunk);
             
             log.debug("Segment audio publié: {}", audioChunk.getSequenceNumber());
         } catch (Exception e) {
@@ -80,11 +84,23 @@ public class MediaEventPublisher {
             eventPublisher.publishEvent(event);
             
             // Publier le média via WebSocket pour l'affichage temps réel
-            messagingTemplate.convertAndSend("/topic/synchronized", media);
+            sendIfSubscribed("/topic/synchronized", media);
             
             log.debug("Média synchronisé publié: {}", media.getId());
         } catch (Exception e) {
             log.error("Erreur lors de la publication du média synchronisé", e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Envoie un message WebSocket seulement si la destination a au moins un abonné.
+     * 
+     * @param destination la destination STOMP
+     * @param payload le contenu à sérialiser et envoyer
+     */
+    private void sendIfSubscribed(String destination, Object payload) {
+        if (subscriptionTracker.hasSubscribers(destination)) {
+            messagingTemplate.convertAndSend(destination, payload);
+        }
+    }
+}
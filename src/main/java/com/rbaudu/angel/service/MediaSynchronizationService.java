@@ -1,16 +1,17 @@
 package com.rbaudu.angel.service;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
@@ -27,22 +28,103 @@ import jakarta.annotation.PreDestroy;
 /**
  * Service responsable de la synchronisation des flux audio et vidéo.
  * Ce service écoute les événements de capture et synchronise les flux.
+ * Les trames et segments audio mis en buffer conservent une référence sur
+ * leur matrice ou leur buffer PCM partagé, libérée à leur retrait du buffer. Chaque source vidéo et
+ * chaque microphone dispose de son propre buffer ({@link TimeIndexedBuffer}), ordonné par
+ * horodatage : le média le plus proche d'un instant est trouvé en O(log n), sans parcourir le buffer.
+ * <p>
+ * Les buffers sont purgés au fil des événements, sans thread de nettoyage : un média plus ancien
+ * que le filigrane du flux opposé (son horodatage le plus récent) moins {@code angel.sync.max-delay-ms}
+ * ne peut plus être apparié et est évincé aussitôt. Chaque buffer est en outre borné à
+ * {@code angel.sync.buffer-size} médias.
+ * Une source vidéo n'est appariée qu'aux segments de son microphone ({@code angel.sync.pairs}),
+ * ou à défaut du premier microphone configuré.
+ * <p>
+ * Chaque trame produit au plus un média synchronisé : elle est retirée de son buffer dès que
+ * l'audio l'a dépassée (le segment le plus proche ne peut plus changer) et appariée une seule
+ * fois, selon la politique {@code angel.sync.pairing-policy}, au segment le plus proche. Une
+ * trame n'est sans audio que si aucun segment n'est à moins de {@code angel.sync.max-delay-ms}.
+ * Plusieurs trames peuvent partager un segment ; un curseur par source vidéo marque le dernier
+ * segment consommé, pour ne compter chaque segment qu'une fois.
+ * <p>
+ * La politique {@code windowed} ne met pas les segments en buffer : chaque trame, une fois
+ * dépassée par la fin du dernier segment de son microphone, est publiée avec une vue
+ * ({@link PcmWindow}) sur tout l'audio de l'intervalle {@code [t - w, t]}, lue sans copie dans
+ * l'historique d'analyse du microphone, où {@code w} vaut {@code angel.sync.audio-window-ms}.
+ * <p>
+ * Les horloges d'une caméra et d'un microphone dérivent l'une par rapport à l'autre. Chaque
+ * couple source vidéo/microphone dispose d'un {@link ClockDriftEstimator}, alimenté par
+ * l'instant de capture monotone des trames et des segments, jamais par les appariements :
+ * l'horodatage de chaque trame est corrigé du décalage estimé avant la recherche du segment,
+ * si {@code angel.sync.drift-correction} est actif. Les buffers vidéo restent indexés par
+ * l'horodatage d'origine des trames. L'estimation repart de zéro quand le numéro de séquence
+ * d'une source recule, signe que sa chaîne de capture a été recréée.
  */
 @Service
-public class MediaSynchronizationService {
+public class MediaSynchronizationService implements FramePool.ReclaimListener, AudioBufferPool.ReclaimListener {
 
     private static final Logger log = LoggerFactory.getLogger(MediaSynchronizationService.class);
 
+    /**
+     * Politique d'appariement des trames et des segments audio.
+     */
+    public enum PairingPolicy {
+        /**
+         * Chaque trame est appariée au segment le plus proche ; des trames plus
+         * fréquentes que les segments partagent le même segment, et chaque
+         * reprise d'un segment par la trame suivante est marquée
+         * ({@link SynchronizedMedia#isAudioRepeated()}) pour que son analyse
+         * audio ne soit pas refaite.
+         */
+        NEAREST,
+        /**
+         * Chaque trame porte le segment le plus proche et consomme tous les segments
+         * écoulés depuis la trame précédente jusqu'à elle : adapté à une vidéo moins
+         * fréquente que les segments audio.
+         */
+        VIDEO_TO_N_AUDIO,
+        /**
+         * Chaque trame porte une fenêtre sur tout l'audio qui la précède, sur une
+         * durée fixe ou depuis la trame précédente, au lieu d'un seul segment.
+         */
+        WINDOWED
+    }
+
     @Autowired
     private AppConfig config;
     
     @Autowired
     private MediaEventPublisher eventPublisher;
     
-    private final Map<Long, VideoFrame> videoFramesBuffer = new ConcurrentHashMap<>();
-    private final Map<Long, AudioChunk> audioChunksBuffer = new ConcurrentHashMap<>();
+    // Le service de capture audio notifie ce service quand ses pools s'épuisent : injection différée
+    @Autowired
+    @Lazy
+    private AudioCaptureService audioCaptureService;
+    
+    private final Map<String, VideoStream> videoStreams = new ConcurrentHashMap<>();
+    private final Map<String, TimeIndexedBuffer<AudioChunk>> audioChunksBuffers = new ConcurrentHashMap<>();
+    
+    // Fin du dernier segment reçu de chaque microphone, en microsecondes (politique windowed)
+    private final Map<String, AtomicLong> audioEndWatermarks = new ConcurrentHashMap<>();
+    
+    // Sources vidéo appariées à chaque microphone
+    private final Map<String, List<VideoStream>> pairedVideoStreams = new ConcurrentHashMap<>();
+    
+    private PairingPolicy pairingPolicy = PairingPolicy.NEAREST;
+    private final AtomicLong unpairedFrames = new AtomicLong();
+    private final AtomicLong pairedChunks = new AtomicLong();
+    private final AtomicLong repeatedChunks = new AtomicLong();
+    private final AtomicLong windowedFrames = new AtomicLong();
     
-    private ScheduledExecutorService cleanupExecutor;
+    // Microphone apparié à chaque source vidéo, et microphone des sources non appariées
+    private Map<String, String> syncPairs = Map.of();
+    private String defaultAudioSource;
+    
+    // Écarts de synchronisation entre trames et segments appariés
+    private final LatencyHistogram syncDelays = new LatencyHistogram();
+    private final AtomicLong synchronizedCount = new AtomicLong();
+    private volatile double meanOffsetMicros;
+    private static final double OFFSET_SMOOTHING = 0.05;
     
     /**
      * Initialise le service de synchronisation.
@@ -51,14 +133,22 @@ public class MediaSynchronizationService {
     public void init() {
         log.info("Initialisation du service de synchronisation des médias...");
         
-        // Planifier un nettoyage périodique des buffers
-        cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
-        cleanupExecutor.scheduleAtFixedRate(
-                this::cleanupOldBuffers,
-                10,
-                10,
-                TimeUnit.SECONDS
-        );
+        syncPairs = config.getSyncPairs();
+        defaultAudioSource = AudioDevices.sourceIdFor(config.getAudioSources().get(0));
+        if (!syncPairs.isEmpty()) {
+            log.info("Appariements vidéo/audio: {} (par défaut: {})", syncPairs, defaultAudioSource);
+        }
+        String policy = config.getSyncPairingPolicy().trim().toUpperCase().replace('-', '_');
+        try {
+            // Ancien nom de la politique du segment le plus proche, qui n'a jamais été un appariement un pour un
+            pairingPolicy = "ONE_TO_ONE".equals(policy) ? PairingPolicy.NEAREST : PairingPolicy.valueOf(policy);
+        } catch (IllegalArgumentException e) {
+            log.warn("Politique d'appariement '{}' inconnue, {} utilisée", config.getSyncPairingPolicy(), PairingPolicy.NEAREST);
+            pairingPolicy = PairingPolicy.NEAREST;
+        }
+        log.info("Politique d'appariement: {}", pairingPolicy);
+        log.info("Correction de la dérive d'horloge: {} (fenêtre de {} observations)",
+                config.isSyncDriftCorrection() ? "active" : "inactive", config.getSyncDriftWindow());
         
         log.info("Service de synchronisation des médias initialisé");
     }
@@ -72,16 +162,32 @@ public class MediaSynchronizationService {
     public void handleVideoEvent(VideoEvent event) {
         VideoFrame videoFrame = event.getVideoFrame();
         
-        // Stocker la trame dans le buffer
-        videoFramesBuffer.put(videoFrame.getSequenceNumber(), videoFrame);
-        
-        // Essayer de trouver un segment audio correspondant
-        findMatchingAudioAndSynchronize(videoFrame);
-        
         // Publier un média synchronisé même s'il n'y a pas d'audio
         if (!config.isAudioEnabled()) {
             publishVideoOnly(videoFrame);
+            return;
+        }
+        
+        // Stocker la trame dans le buffer de sa source en conservant une référence sur sa matrice
+        VideoStream stream = videoStream(videoFrame.getSourceId());
+        long videoMicros = TimeIndexedBuffer.toEpochMicros(videoFrame.getTimestamp());
+        // Une séquence qui recule vient d'une source recréée : la dérive observée ne la décrit plus.
+        // Un redémarrage ou un réancrage de la même source est détecté par l'estimateur lui-même
+        if (videoFrame.getSequenceNumber() <= stream.lastSequence) {
+            log.info("Source vidéo {} recréée, estimation de la dérive réinitialisée", stream.sourceId);
+            stream.clock.reset();
+        }
+        stream.lastSequence = videoFrame.getSequenceNumber();
+        if (videoFrame.getCaptureNanoTime() != 0) {
+            stream.clock.updateVideo(videoMicros, videoFrame.getCaptureNanoTime());
         }
+        if (videoFrame.retainFrame()) {
+            stream.buffer.put(videoMicros, videoFrame);
+        }
+        
+        // Apparier la trame si l'audio l'a déjà dépassée
+        pairReadyFrames(stream);
+        evictBehindWatermarks(pairedAudioSource(stream.sourceId));
     }
     
     /**
@@ -93,72 +199,210 @@ public class MediaSynchronizationService {
     public void handleAudioEvent(AudioEvent event) {
         AudioChunk audioChunk = event.getAudioChunk();
         
-        // Stocker le segment dans le buffer
-        audioChunksBuffer.put(audioChunk.getSequenceNumber(), audioChunk);
-        
-        // Essayer de trouver une trame vidéo correspondante
-        findMatchingVideoAndSynchronize(audioChunk);
-        
         // Publier un média synchronisé même s'il n'y a pas de vidéo
         if (!config.isVideoEnabled()) {
             publishAudioOnly(audioChunk);
+            return;
         }
+        
+        // Stocker le segment dans le buffer en conservant une référence sur son buffer PCM ;
+        // en fenêtre, l'audio est relu dans l'historique du microphone et seule sa fin est retenue
+        String audioSourceId = audioSourceId(audioChunk);
+        if (pairingPolicy == PairingPolicy.WINDOWED) {
+            audioEndWatermarks.computeIfAbsent(audioSourceId, id -> new AtomicLong(Long.MIN_VALUE))
+                    .accumulateAndGet(TimeIndexedBuffer.toEpochMicros(audioChunk.getEndTimestamp()), Math::max);
+        } else if (audioChunk.retainAudio()) {
+            audioBuffer(audioSourceId).put(TimeIndexedBuffer.toEpochMicros(audioChunk.getCenterTimestamp()), audioChunk);
+        }
+        
+        // Apparier les trames que ce segment a dépassées, pour chaque source appariée à ce microphone
+        List<VideoStream> streams = pairedVideoStreams.get(audioSourceId);
+        if (streams != null) {
+            // Les estimateurs de dérive observent l'instant de capture de la fin du segment
+            boolean observed = audioChunk.getCaptureNanoTime() != 0 && audioChunk.getTimestamp() != null;
+            long endMicros = observed ? TimeIndexedBuffer.toEpochMicros(audioChunk.getEndTimestamp()) : 0;
+            for (VideoStream stream : streams) {
+                if (observed) {
+                    stream.clock.updateAudio(endMicros, audioChunk.getCaptureNanoTime());
+                }
+                pairReadyFrames(stream);
+            }
+        }
+        evictBehindWatermarks(audioSourceId);
     }
     
     /**
-     * Cherche un segment audio correspondant à une trame vidéo et les synchronise.
+     * Apparie, dans l'ordre, les trames d'une source que l'audio de son microphone
+     * a dépassées : un segment plus proche ne peut plus arriver pour elles.
+     * Chaque trame est retirée de son buffer et appariée une seule fois.
      * 
+     * @param stream la source vidéo
+     */
+    private void pairReadyFrames(VideoStream stream) {
+        String audioSourceId = pairedAudioSource(stream.sourceId);
+        TimeIndexedBuffer<AudioChunk> audioChunksBuffer = audioChunksBuffers.get(audioSourceId);
+        if (audioWatermark(audioSourceId) == Long.MIN_VALUE) {
+            return;
+        }
+        
+        // Un seul thread apparie une source donnée : le curseur avance dans l'ordre des trames
+        synchronized (stream) {
+            // Filigrane audio ramené sur l'horloge de la source vidéo
+            long audioWatermark = audioWatermark(audioSourceId) + clockOffset(stream, stream.buffer.getWatermark());
+            Map.Entry<Long, VideoFrame> frame;
+            while ((frame = stream.buffer.takeOldest(audioWatermark)) != null) {
+                try {
+                    if (pairingPolicy == PairingPolicy.WINDOWED) {
+                        bundleFrame(stream, audioSourceId, frame.getKey(), frame.getValue());
+                    } else {
+                        pairFrame(stream, frame.getKey(), frame.getValue(), audioChunksBuffer);
+                    }
+                } finally {
+                    // La référence du buffer est rendue après la publication
+                    frame.getValue().releaseFrame();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Apparie une trame au segment le plus proche, sur l'horloge du microphone. Le curseur de
+     * la source ne sert qu'à compter les segments consommés : il n'exclut aucun segment de la
+     * recherche.
+     * 
+     * @param stream la source vidéo, dont le verrou est détenu
+     * @param videoMicros horodatage de la trame
      * @param videoFrame la trame vidéo
+     * @param audioChunksBuffer le buffer du microphone apparié
      */
-    private void findMatchingAudioAndSynchronize(VideoFrame videoFrame) {
-        Instant videoTimestamp = videoFrame.getTimestamp();
+    private void pairFrame(VideoStream stream, long videoMicros, VideoFrame videoFrame,
+                           TimeIndexedBuffer<AudioChunk> audioChunksBuffer) {
+        long correctedMicros = correctedMicros(stream, videoMicros);
+        Map.Entry<Long, AudioChunk> bestMatch = audioChunksBuffer.nearest(correctedMicros, maxDelayMicros());
+        if (bestMatch == null) {
+            unpairedFrames.incrementAndGet();
+            log.debug("Aucun segment audio pour la trame {}/{}", stream.sourceId, videoFrame.getSequenceNumber());
+            return;
+        }
         
-        // Trouver le segment audio le plus proche en temps
-        AudioChunk bestMatch = null;
-        long minTimeDifference = Long.MAX_VALUE;
+        // Segment déjà porté par la trame précédente de la source : son analyse est déjà faite
+        boolean repeated = bestMatch.getKey() == stream.lastPairedChunkMicros;
+        stream.lastPairedChunkMicros = bestMatch.getKey();
+        if (repeated) {
+            repeatedChunks.incrementAndGet();
+        }
         
-        for (AudioChunk audioChunk : audioChunksBuffer.values()) {
-            Instant audioTimestamp = audioChunk.getTimestamp();
-            long timeDiff = Math.abs(ChronoUnit.MILLIS.between(videoTimestamp, audioTimestamp));
-            
-            if (timeDiff < minTimeDifference && timeDiff <= config.getSyncMaxDelayMs()) {
-                minTimeDifference = timeDiff;
-                bestMatch = audioChunk;
+        long previousCursor = stream.audioCursor;
+        if (pairingPolicy == PairingPolicy.NEAREST) {
+            // Un segment partagé par plusieurs trames n'est compté qu'une fois
+            if (bestMatch.getKey() > previousCursor) {
+                stream.audioCursor = bestMatch.getKey();
+                pairedChunks.incrementAndGet();
             }
+        } else {
+            // La trame consomme tous les segments écoulés jusqu'à elle
+            stream.audioCursor = Math.max(previousCursor, Math.max(bestMatch.getKey(), correctedMicros));
+            pairedChunks.addAndGet(audioChunksBuffer.countBetween(previousCursor, stream.audioCursor));
         }
         
-        // Si un segment audio correspondant est trouvé, créer un média synchronisé
-        if (bestMatch != null) {
-            createSynchronizedMedia(videoFrame, bestMatch, minTimeDifference);
-        }
+        createSynchronizedMedia(videoFrame, bestMatch.getValue(), correctedMicros - bestMatch.getKey(), repeated);
     }
     
     /**
-     * Cherche une trame vidéo correspondant à un segment audio et les synchronise.
+     * Publie une trame avec la fenêtre audio qui la précède, sans copier les échantillons :
+     * les {@code angel.sync.audio-window-ms} dernières millisecondes, ou à défaut l'intervalle
+     * écoulé depuis la trame précédente de la source.
      * 
-     * @param audioChunk le segment audio
+     * @param stream la source vidéo, dont le verrou est détenu
+     * @param audioSourceId identifiant du microphone apparié
+     * @param videoMicros horodatage de la trame
+     * @param videoFrame la trame vidéo
      */
-    private void findMatchingVideoAndSynchronize(AudioChunk audioChunk) {
-        Instant audioTimestamp = audioChunk.getTimestamp();
-        
-        // Trouver la trame vidéo la plus proche en temps
-        VideoFrame bestMatch = null;
-        long minTimeDifference = Long.MAX_VALUE;
+    private void bundleFrame(VideoStream stream, String audioSourceId, long videoMicros, VideoFrame videoFrame) {
+        long windowMicros = config.getSyncAudioWindowMs() * 1000L;
+        long endMicros = correctedMicros(stream, videoMicros);
+        long fromMicros;
+        if (windowMicros > 0) {
+            fromMicros = endMicros - windowMicros;
+        } else {
+            // Intervalle de la trame : chaque échantillon accompagne une seule trame de la source
+            fromMicros = stream.audioCursor != Long.MIN_VALUE ? stream.audioCursor : endMicros - maxDelayMicros();
+        }
+        stream.audioCursor = endMicros;
         
-        for (VideoFrame videoFrame : videoFramesBuffer.values()) {
-            Instant videoTimestamp = videoFrame.getTimestamp();
-            long timeDiff = Math.abs(ChronoUnit.MILLIS.between(audioTimestamp, videoTimestamp));
-            
-            if (timeDiff < minTimeDifference && timeDiff <= config.getSyncMaxDelayMs()) {
-                minTimeDifference = timeDiff;
-                bestMatch = videoFrame;
-            }
+        PcmWindow window = fromMicros < endMicros
+                ? audioCaptureService.getAnalysisWindow(audioSourceId,
+                        Instant.ofEpochSecond(0, fromMicros * 1000L), Instant.ofEpochSecond(0, endMicros * 1000L))
+                : null;
+        if (window == null || window.getFrameCount() == 0) {
+            unpairedFrames.incrementAndGet();
+            log.debug("Aucun audio disponible pour la trame {}/{}", stream.sourceId, videoFrame.getSequenceNumber());
+            return;
         }
         
-        // Si une trame vidéo correspondante est trouvée, créer un média synchronisé
-        if (bestMatch != null) {
-            createSynchronizedMedia(bestMatch, audioChunk, minTimeDifference);
+        // Écart entre la trame et le dernier échantillon de la fenêtre
+        long windowEndMicros = TimeIndexedBuffer.toEpochMicros(window.getStartTime())
+                + window.getFrameCount() * 1_000_000L / window.getSampleRate();
+        long offsetMicros = endMicros - windowEndMicros;
+        recordSyncOffset(offsetMicros);
+        windowedFrames.incrementAndGet();
+        
+        SynchronizedMedia synchronizedMedia = SynchronizedMedia.builder()
+                .id(SynchronizedMedia.generateId(videoFrame.getSourceId(), Instant.now()))
+                .sourceId(videoFrame.getSourceId())
+                .videoFrame(videoFrame)
+                .audioWindow(window)
+                .syncTimestamp(videoFrame.getTimestamp())
+                .hasVideo(true)
+                .hasAudio(true)
+                .syncDelayMs(Math.abs(offsetMicros) / 1000)
+                .build();
+        eventPublisher.publishSynchronizedMedia(synchronizedMedia);
+        
+        log.debug("Média synchronisé créé: source={}, vidéo={}, fenêtre audio={}ms", 
+                videoFrame.getSourceId(), videoFrame.getSequenceNumber(), window.getDurationMs());
+    }
+    
+    /**
+     * Récupère le filigrane de l'audio d'un microphone : le milieu du dernier segment mis en
+     * buffer, ou en fenêtre la fin du dernier segment reçu.
+     * 
+     * @param audioSourceId identifiant du microphone
+     * @return l'horodatage en microsecondes, ou {@link Long#MIN_VALUE} si aucun segment n'a été reçu
+     */
+    private long audioWatermark(String audioSourceId) {
+        if (pairingPolicy == PairingPolicy.WINDOWED) {
+            AtomicLong watermark = audioEndWatermarks.get(audioSourceId);
+            return watermark != null ? watermark.get() : Long.MIN_VALUE;
         }
+        TimeIndexedBuffer<AudioChunk> audioChunksBuffer = audioChunksBuffers.get(audioSourceId);
+        return audioChunksBuffer != null ? audioChunksBuffer.getWatermark() : Long.MIN_VALUE;
+    }
+    
+    /**
+     * Estime l'écart entre l'horloge d'une source vidéo et celle de son microphone.
+     * 
+     * @param stream la source vidéo
+     * @param videoMicros horodatage sur l'horloge de la source
+     * @return l'écart à retrancher aux horodatages de la source, ou 0 si la correction est désactivée
+     */
+    private long clockOffset(VideoStream stream, long videoMicros) {
+        return config.isSyncDriftCorrection() && videoMicros != Long.MIN_VALUE ? stream.clock.offsetAt(videoMicros) : 0;
+    }
+    
+    /**
+     * Ramène l'horodatage d'une trame sur l'horloge de son microphone.
+     * 
+     * @param stream la source vidéo
+     * @param videoMicros horodatage sur l'horloge de la source
+     * @return l'horodatage corrigé de l'écart estimé, ou inchangé si la correction est désactivée
+     */
+    private long correctedMicros(VideoStream stream, long videoMicros) {
+        return config.isSyncDriftCorrection() ? stream.clock.correct(videoMicros) : videoMicros;
+    }
+    
+    private long maxDelayMicros() {
+        return config.getSyncMaxDelayMs() * 1000L;
     }
     
     /**
@@ -166,19 +410,28 @@ public class MediaSynchronizationService {
      * 
      * @param videoFrame la trame vidéo
      * @param audioChunk le segment audio
-     * @param syncDelayMs le délai de synchronisation en millisecondes
+     * @param offsetMicros écart signé entre la trame, corrigée de la dérive, et le milieu du segment
+     * @param audioRepeated true si le segment accompagnait déjà la trame précédente de la source
      */
-    private void createSynchronizedMedia(VideoFrame videoFrame, AudioChunk audioChunk, long syncDelayMs) {
+    private void createSynchronizedMedia(VideoFrame videoFrame, AudioChunk audioChunk, long offsetMicros,
+                                         boolean audioRepeated) {
+        long syncDelayMs = Math.abs(offsetMicros) / 1000;
+        
         // Déterminer le timestamp de synchronisation (le plus récent des deux)
         Instant syncTimestamp = videoFrame.getTimestamp().isAfter(audioChunk.getTimestamp()) 
                 ? videoFrame.getTimestamp() 
                 : audioChunk.getTimestamp();
         
+        // Mesurer l'écart signé entre la trame et le milieu du segment audio
+        recordSyncOffset(offsetMicros);
+        
         // Créer l'objet de média synchronisé
         SynchronizedMedia synchronizedMedia = SynchronizedMedia.builder()
-                .id("sync-" + System.currentTimeMillis())
+                .id(SynchronizedMedia.generateId(videoFrame.getSourceId(), Instant.now()))
+                .sourceId(videoFrame.getSourceId())
                 .videoFrame(videoFrame)
                 .audioChunk(audioChunk)
+                .audioRepeated(audioRepeated)
                 .syncTimestamp(syncTimestamp)
                 .hasVideo(true)
                 .hasAudio(true)
@@ -188,8 +441,57 @@ public class MediaSynchronizationService {
         // Publier l'événement
         eventPublisher.publishSynchronizedMedia(synchronizedMedia);
         
-        log.debug("Média synchronisé créé: vidéo={}, audio={}, délai={}ms", 
-                videoFrame.getSequenceNumber(), audioChunk.getSequenceNumber(), syncDelayMs);
+        log.debug("Média synchronisé créé: source={}, vidéo={}, audio={}, délai={}ms", 
+                videoFrame.getSourceId(), videoFrame.getSequenceNumber(), audioChunk.getSequenceNumber(), syncDelayMs);
+    }
+    
+    /**
+     * Enregistre l'écart entre une trame vidéo et l'audio auquel elle est appariée.
+     * 
+     * @param offsetMicros écart signé (trame moins milieu du segment, ou fin de la fenêtre audio), en microsecondes
+     */
+    private void recordSyncOffset(long offsetMicros) {
+        syncDelays.recordMicros(Math.abs(offsetMicros));
+        if (synchronizedCount.getAndIncrement() == 0) {
+            meanOffsetMicros = offsetMicros;
+        } else {
+            meanOffsetMicros += OFFSET_SMOOTHING * (offsetMicros - meanOffsetMicros);
+        }
+    }
+    
+    /**
+     * Récupère les statistiques de synchronisation.
+     * 
+     * @return nombre d'appariements, distribution des écarts absolus, écart signé moyen, trames
+     *         sans segment, segments consommés, trames publiées avec une fenêtre audio, état des buffers
+     *         et dérive estimée de chaque couple source vidéo/microphone
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("synchronized", synchronizedCount.get());
+        stats.put("syncDelay", syncDelays.snapshot());
+        stats.put("meanOffsetMs", Math.round(meanOffsetMicros / 10.0) / 100.0);
+        stats.put("bufferedAudio", audioChunksBuffers.values().stream().mapToInt(TimeIndexedBuffer::size).sum());
+        stats.put("pairs", syncPairs);
+        stats.put("pairingPolicy", pairingPolicy);
+        stats.put("unpairedFrames", unpairedFrames.get());
+        stats.put("pairedChunks", pairedChunks.get());
+        stats.put("repeatedChunks", repeatedChunks.get());
+        if (pairingPolicy == PairingPolicy.WINDOWED) {
+            stats.put("audioWindowMs", config.getSyncAudioWindowMs());
+            stats.put("windowedFrames", windowedFrames.get());
+        }
+        Map<String, Object> videoBuffers = new LinkedHashMap<>();
+        videoStreams.forEach((sourceId, stream) -> videoBuffers.put(sourceId, stream.buffer.getStats()));
+        stats.put("videoBuffers", videoBuffers);
+        Map<String, Object> audioBuffers = new LinkedHashMap<>();
+        audioChunksBuffers.forEach((sourceId, buffer) -> audioBuffers.put(sourceId, buffer.getStats()));
+        stats.put("audioBuffers", audioBuffers);
+        Map<String, Object> clockDrift = new LinkedHashMap<>();
+        videoStreams.forEach((sourceId, stream) ->
+                clockDrift.put(sourceId + "/" + pairedAudioSource(sourceId), stream.clock.getStats()));
+        stats.put("clockDrift", clockDrift);
+        return stats;
     }
     
     /**
@@ -200,7 +502,7 @@ public class MediaSynchronizationService {
     private void publishVideoOnly(VideoFrame videoFrame) {
         SynchronizedMedia media = SynchronizedMedia.ofVideo(videoFrame);
         eventPublisher.publishSynchronizedMedia(media);
-        log.debug("Média vidéo-seulement publié: {}", videoFrame.getSequenceNumber());
+        log.debug("Média vidéo-seulement publié: {}/{}", videoFrame.getSourceId(), videoFrame.getSequenceNumber());
     }
     
     /**
@@ -215,21 +517,129 @@ public class MediaSynchronizationService {
     }
     
     /**
-     * Nettoie les buffers des médias obsolètes.
+     * Évince d'un microphone et des sources vidéo qui lui sont appariées les
+     * médias qui ne peuvent plus être appariés : chaque flux étant reçu dans
+     * l'ordre, un média plus ancien que le filigrane du flux opposé moins le
+     * délai maximal de synchronisation ne correspondra à aucun média à venir.
+     * Les segments audio sont conservés pour la source vidéo la plus en retard,
+     * à partir de sa plus ancienne trame en attente d'appariement ou, en
+     * {@link PairingPolicy#VIDEO_TO_N_AUDIO}, de son dernier segment consommé.
+     * 
+     * @param audioSourceId identifiant du microphone
      */
-    private void cleanupOldBuffers() {
-        Instant cutoffTime = Instant.now().minus(30, ChronoUnit.SECONDS);
-        
-        // Nettoyer le buffer vidéo
-        videoFramesBuffer.entrySet().removeIf(entry -> 
-            entry.getValue().getTimestamp().isBefore(cutoffTime));
+    private void evictBehindWatermarks(String audioSourceId) {
+        TimeIndexedBuffer<AudioChunk> audioChunksBuffer = audioChunksBuffers.get(audioSourceId);
+        List<VideoStream> streams = pairedVideoStreams.get(audioSourceId);
+        if (audioChunksBuffer == null || streams == null || streams.isEmpty()) {
+            return;
+        }
+        long maxDelay = maxDelayMicros();
+        long audioWatermark = audioChunksBuffer.getWatermark();
+        long slowestVideoWatermark = Long.MAX_VALUE;
+        for (VideoStream stream : streams) {
+            // Comparaisons faites sur l'horloge du microphone, trames corrigées de la dérive ;
+            // les trames en attente doivent encore trouver le segment qui les précède
+            long pending = stream.buffer.getOldestTimestamp();
+            long videoWatermark = pending != Long.MIN_VALUE ? pending : stream.buffer.getWatermark();
+            long offset = clockOffset(stream, videoWatermark);
+            slowestVideoWatermark = Math.min(slowestVideoWatermark,
+                    videoWatermark != Long.MIN_VALUE ? videoWatermark - offset : Long.MIN_VALUE);
+            if (pairingPolicy == PairingPolicy.VIDEO_TO_N_AUDIO && stream.audioCursor != Long.MIN_VALUE) {
+                // Les segments postérieurs au curseur seront consommés par la prochaine trame
+                slowestVideoWatermark = Math.min(slowestVideoWatermark, stream.audioCursor + maxDelay);
+            }
+            if (audioWatermark != Long.MIN_VALUE) {
+                stream.buffer.evictBefore(audioWatermark + offset - maxDelay);
+            }
+        }
+        if (slowestVideoWatermark != Long.MIN_VALUE) {
+            audioChunksBuffer.evictBefore(slowestVideoWatermark - maxDelay);
+        }
+    }
+    
+    /**
+     * Récupère l'état d'appariement d'une source vidéo, en le créant si nécessaire.
+     * 
+     * @param sourceId identifiant de la source vidéo
+     * @return le buffer des trames de la source et son curseur d'appariement
+     */
+    private VideoStream videoStream(String sourceId) {
+        return videoStreams.computeIfAbsent(sourceId != null ? sourceId : "default", id -> {
+            VideoStream stream = new VideoStream(id, new TimeIndexedBuffer<>(bufferCapacity(), VideoFrame::releaseFrame),
+                    new ClockDriftEstimator(Math.max(2, config.getSyncDriftWindow())));
+            // Rendre la source visible aux segments de son microphone
+            pairedVideoStreams.computeIfAbsent(pairedAudioSource(id), audio -> new CopyOnWriteArrayList<>()).add(stream);
+            return stream;
+        });
+    }
+    
+    /**
+     * Récupère le buffer d'un microphone, en le créant si nécessaire.
+     * 
+     * @param sourceId identifiant du microphone
+     * @return le buffer des segments du microphone, ordonné par horodatage de leur milieu
+     */
+    private TimeIndexedBuffer<AudioChunk> audioBuffer(String sourceId) {
+        return audioChunksBuffers.computeIfAbsent(sourceId,
+                id -> new TimeIndexedBuffer<>(bufferCapacity(), AudioChunk::releaseAudio));
+    }
+    
+    private int bufferCapacity() {
+        return Math.max(1, config.getSyncBufferSize());
+    }
+    
+    private String audioSourceId(AudioChunk audioChunk) {
+        return audioChunk.getSourceId() != null ? audioChunk.getSourceId() : defaultAudioSource;
+    }
+    
+    /**
+     * Détermine le microphone apparié à une source vidéo.
+     * 
+     * @param videoSourceId identifiant de la source vidéo
+     * @return l'identifiant du microphone configuré pour la source, ou du premier microphone
+     */
+    private String pairedAudioSource(String videoSourceId) {
+        return syncPairs.getOrDefault(videoSourceId, defaultAudioSource);
+    }
+    
+    /**
+     * Libère la trame la plus ancienne du buffer empruntée au pool épuisé.
+     * 
+     * @param pool le pool de trames épuisé
+     */
+    @Override
+    public void reclaimFrames(FramePool pool) {
+        // Chaque pool appartient à une seule source, dont il porte l'identifiant
+        VideoStream stream = videoStreams.get(pool.getName());
+        if (stream == null) {
+            return;
+        }
         
-        // Nettoyer le buffer audio
-        audioChunksBuffer.entrySet().removeIf(entry -> 
-            entry.getValue().getTimestamp().isBefore(cutoffTime));
+        VideoFrame oldest = stream.buffer.removeOldest(frame ->
+                frame.getFrameLease() != null && frame.getFrameLease().getPool() == pool);
+        if (oldest != null) {
+            log.debug("Trame {} retirée du buffer pour libérer le pool '{}'", oldest.getSequenceNumber(), pool.getName());
+        }
+    }
+    
+    /**
+     * Libère le segment audio le plus ancien du buffer emprunté au pool épuisé.
+     * 
+     * @param pool le pool de buffers audio épuisé
+     */
+    @Override
+    public void reclaimBuffers(AudioBufferPool pool) {
+        // Chaque pool appartient à un seul microphone, dont il porte l'identifiant
+        TimeIndexedBuffer<AudioChunk> audioChunksBuffer = audioChunksBuffers.get(pool.getName());
+        if (audioChunksBuffer == null) {
+            return;
+        }
         
-        log.debug("Nettoyage des buffers effectué. Vidéo: {}, Audio: {}", 
-                videoFramesBuffer.size(), audioChunksBuffer.size());
+        AudioChunk oldest = audioChunksBuffer.removeOldest(chunk ->
+                chunk.getAudioLease() != null && chunk.getAudioLease().getPool() == pool);
+        if (oldest != null) {
+            log.debug("Segment audio {} retiré du buffer pour libérer le pool '{}'", oldest.getSequenceNumber(), pool.getName());
+        }
     }
     
     /**
@@ -237,19 +647,35 @@ public class MediaSynchronizationService {
      */
     @PreDestroy
     public void cleanup() {
-        if (cleanupExecutor != null) {
-            cleanupExecutor.shutdown();
-            try {
-                if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    cleanupExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                cleanupExecutor.shutdownNow();
-            }
-        }
+        videoStreams.values().forEach(stream -> stream.buffer.clear());
+        videoStreams.clear();
+        pairedVideoStreams.clear();
+        audioChunksBuffers.values().forEach(TimeIndexedBuffer::clear);
+        audioChunksBuffers.clear();
+        audioEndWatermarks.clear();
+    }
+    
+    /**
+     * Trames en attente d'une source vidéo, dernier segment audio qu'elle a consommé
+     * (compté dans les statistiques ; en fenêtre : fin de la dernière fenêtre publiée)
+     * et dérive de son horloge par rapport à son microphone.
+     */
+    private static final class VideoStream {
+        private final String sourceId;
+        private final TimeIndexedBuffer<VideoFrame> buffer;
+        private final ClockDriftEstimator clock;
         
-        videoFramesBuffer.clear();
-        audioChunksBuffer.clear();
+        // Horodatage du dernier segment consommé, modifié sous le verrou de l'instance et lu par l'éviction
+        private volatile long audioCursor = Long.MIN_VALUE;
+        // Horodatage du segment porté par la dernière trame publiée, modifié sous le verrou de l'instance
+        private long lastPairedChunkMicros = Long.MIN_VALUE;
+        // Numéro de séquence de la dernière trame reçue, modifié par le thread de capture de la source
+        private volatile long lastSequence = Long.MIN_VALUE;
+        
+        VideoStream(String sourceId, TimeIndexedBuffer<VideoFrame> buffer, ClockDriftEstimator clock) {
+            this.sourceId = sourceId;
+            this.buffer = buffer;
+            this.clock = clock;
+        }
     }
-}
\ No newline at end of file
+}
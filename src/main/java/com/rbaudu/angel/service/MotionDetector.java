@@ -0,0 +1,136 @@
+package com.rbaudu.angel.service;
+
+import static org.bytedeco.opencv.global.opencv_core.absdiff;
+import static org.bytedeco.opencv.global.opencv_core.countNonZero;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGR2GRAY;
+import static org.bytedeco.opencv.global.opencv_imgproc.GaussianBlur;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.THRESH_BINARY;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+import static org.bytedeco.opencv.global.opencv_imgproc.threshold;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+
+/**
+ * Détecteur de mouvement par différence de trames sous-échantillonnées.
+ * Chaque trame est réduite, convertie en niveaux de gris et lissée, puis
+ * comparée à la précédente : il y a mouvement si la proportion de pixels
+ * ayant changé dépasse un seuil. Le coût est négligeable devant l'inférence.
+ * Une instance par source ; elle n'est utilisée que par le thread de capture.
+ */
+public class MotionDetector {
+
+    private static final Size BLUR_KERNEL = new Size(5, 5);
+
+    private final int downscaleWidth;
+    private final int pixelThreshold;
+    private final double areaRatio;
+
+    // Matrices de travail réutilisées d'une trame à l'autre
+    private final Mat small = new Mat();
+    private Mat gray = new Mat();
+    private Mat previousGray = new Mat();
+    private final Mat diff = new Mat();
+    private boolean hasPrevious;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong motionFrames = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile double lastChangedRatio;
+
+    /**
+     * Crée un détecteur de mouvement.
+     *
+     * @param downscaleWidth largeur de l'image réduite utilisée pour la comparaison
+     * @param pixelThreshold écart de niveau de gris (0-255) au-delà duquel un pixel a changé
+     * @param areaRatio proportion de pixels changés (0-1) au-delà de laquelle il y a mouvement
+     */
+    public MotionDetector(int downscaleWidth, int pixelThreshold, double areaRatio) {
+        this.downscaleWidth = Math.max(16, downscaleWidth);
+        this.pixelThreshold = pixelThreshold;
+        this.areaRatio = areaRatio;
+    }
+
+    /**
+     * Compare une trame à la précédente.
+     * La première trame est considérée comme un mouvement, faute de référence.
+     *
+     * @param frame la trame BGR à analyser
+     * @return true si un mouvement est détecté
+     */
+    public boolean detect(Mat frame) {
+        long start = System.nanoTime();
+
+        int width = Math.min(downscaleWidth, frame.cols());
+        int height = Math.max(1, (int) Math.round((double) frame.rows() * width / frame.cols()));
+        try (Size size = new Size(width, height)) {
+            resize(frame, small, size, 0, 0, INTER_AREA);
+        }
+        cvtColor(small, gray, COLOR_BGR2GRAY);
+        GaussianBlur(gray, gray, BLUR_KERNEL, 0);
+
+        boolean motion;
+        if (!hasPrevious || previousGray.cols() != gray.cols() || previousGray.rows() != gray.rows()) {
+            motion = true;
+            lastChangedRatio = 1.0;
+        } else {
+            absdiff(gray, previousGray, diff);
+            threshold(diff, diff, pixelThreshold, 255, THRESH_BINARY);
+            double changed = (double) countNonZero(diff) / (diff.rows() * diff.cols());
+            lastChangedRatio = changed;
+            motion = changed >= areaRatio;
+        }
+
+        // La trame courante devient la référence de la suivante
+        Mat swap = previousGray;
+        previousGray = gray;
+        gray = swap;
+        hasPrevious = true;
+
+        frames.incrementAndGet();
+        if (motion) {
+            motionFrames.incrementAndGet();
+        }
+        latency.recordNanos(System.nanoTime() - start);
+        return motion;
+    }
+
+    /**
+     * Oublie la trame de référence, par exemple après un redémarrage de la source.
+     */
+    public void reset() {
+        hasPrevious = false;
+    }
+
+    /**
+     * Récupère les statistiques du détecteur.
+     *
+     * @return trames analysées, trames en mouvement, dernier taux de changement et latence
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long total = frames.get();
+        stats.put("frames", total);
+        stats.put("motionFrames", motionFrames.get());
+        stats.put("motionRatio", total > 0 ? Math.round(motionFrames.get() * 1000.0 / total) / 1000.0 : 0.0);
+        stats.put("lastChangedRatio", Math.round(lastChangedRatio * 10000.0) / 10000.0);
+        stats.put("latency", latency.snapshot());
+        return stats;
+    }
+
+    /**
+     * Libère les matrices de travail.
+     */
+    public void close() {
+        small.close();
+        gray.close();
+        previousGray.close();
+        diff.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.rbaudu.angel.service;
+
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_JPEG_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_PNG_COMPRESSION;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMWRITE_WEBP_QUALITY;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imencode;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+import java.nio.ByteBuffer;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodeur de trames basé sur {@code cv::imencode} (libjpeg-turbo, libwebp, libpng
+ * embarqués dans OpenCV). L'encodage part directement de la matrice BGR, sans
+ * conversion en BufferedImage, et réutilise un buffer de sortie par thread.
+ */
+@Component
+public class OpenCvFrameEncoder implements FrameEncoder {
+
+    private static final int INITIAL_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<EncoderBuffers> BUFFERS = ThreadLocal.withInitial(EncoderBuffers::new);
+
+    /**
+     * Buffers de travail propres à un thread d'encodage.
+     */
+    private static final class EncoderBuffers {
+        private final BytePointer output = new BytePointer(INITIAL_BUFFER_SIZE);
+        private final Mat scaled = new Mat();
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    @Override
+    public String getName() {
+        return "opencv";
+    }
+
+    @Override
+    public boolean supports(EncodingProfile.Format format) {
+        return true;
+    }
+
+    @Override
+    public ByteBuffer encode(Mat frame, EncodingProfile profile) throws Exception {
+        EncoderBuffers buffers = BUFFERS.get();
+
+        // Réduction optionnelle de la taille avant encodage
+        Mat source = frame;
+        if (profile.getScale() < 1.0) {
+            int width = Math.max(1, (int) Math.round(frame.cols() * profile.getScale()));
+            int height = Math.max(1, (int) Math.round(frame.rows() * profile.getScale()));
+            try (Size size = new Size(width, height)) {
+                resize(frame, buffers.scaled, size, 0, 0, INTER_AREA);
+            }
+            source = buffers.scaled;
+        }
+
+        try (IntPointer params = encodingParameters(profile)) {
+            if (!imencode("." + profile.getFormat().getExtension(), source, buffers.output, params)) {
+                throw new IllegalStateException("Échec de l'encodage OpenCV au format " + profile.getFormat());
+            }
+        }
+
+        // Copier le résultat dans le tableau réutilisable du thread
+        int length = (int) buffers.output.limit();
+        if (buffers.bytes.length < length) {
+            buffers.bytes = new byte[Math.max(length, buffers.bytes.length * 2)];
+        }
+        buffers.output.position(0).get(buffers.bytes, 0, length);
+        return ByteBuffer.wrap(buffers.bytes, 0, length);
+    }
+
+    /**
+     * Construit les paramètres d'imencode correspondant au profil.
+     *
+     * @param profile le profil d'encodage
+     * @return les paires clé/valeur attendues par OpenCV
+     */
+    private IntPointer encodingParameters(EncodingProfile profile) {
+        switch (profile.getFormat()) {
+            case WEBP:
+                return new IntPointer(IMWRITE_WEBP_QUALITY, Math.max(1, profile.getQuality()));
+            case PNG:
+                // Qualité 100 -> compression minimale (0), qualité 0 -> compression maximale (9)
+                return new IntPointer(IMWRITE_PNG_COMPRESSION, 9 - (profile.getQuality() * 9) / 100);
+            case JPEG:
+            default:
+                return new IntPointer(IMWRITE_JPEG_QUALITY, profile.getQuality());
+        }
+    }
+}
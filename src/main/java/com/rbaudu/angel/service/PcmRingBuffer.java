@@ -0,0 +1,312 @@
+package com.rbaudu.angel.service;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tampon circulaire hors tas de l'audio capturé en continu, sur plusieurs minutes.
+ * <p>
+ * Un seul producteur (le thread de capture) y recopie chaque segment PCM
+ * 16 bits little-endian tel qu'il est lu ; les consommateurs, en nombre
+ * quelconque, y obtiennent sans verrou une {@link PcmWindow} sur n'importe
+ * quel intervalle [t0, t1) encore présent, lue directement dans le tampon sans
+ * copier l'historique.
+ * <p>
+ * Les positions sont des numéros de trame d'échantillons absolus depuis la
+ * création du tampon. Avant d'écrire, le producteur publie la limite de la
+ * zone qu'il va écraser, qu'une barrière rend visible avant le premier octet
+ * écrasé ; il publie la fin des trames écrites une fois la copie terminée. Un
+ * lecteur vérifie après lecture, derrière une barrière d'acquisition, que sa
+ * fenêtre n'a pas été atteinte ({@link PcmWindow#isValid()}), sur le principe
+ * d'un seqlock. La correspondance entre temps et position repose sur
+ * l'horodatage du dernier segment écrit, publié lui aussi sous seqlock ; elle
+ * est calculée sans débordement quelle que soit la durée de la capture.
+ */
+public class PcmRingBuffer {
+
+    private final String name;
+    private final int sampleRate;
+    private final int channels;
+    private final int frameBytes;
+    private final long capacityFrames;
+    private final ByteBuffer buffer;
+
+    // Positions publiées par le producteur
+    private volatile long writtenFrames;
+    private volatile long writeLimitFrames;
+    private volatile long firstValidFrame;
+
+    // Horodatage de la première trame du dernier segment, sous seqlock
+    private volatile long anchorSeq;
+    private volatile long anchorFrame;
+    private volatile long anchorEpochNanos;
+
+    private final AtomicLong windows = new AtomicLong();
+    private final AtomicLong clampedWindows = new AtomicLong();
+
+    /**
+     * Crée un tampon et alloue sa mémoire hors tas.
+     *
+     * @param name nom du tampon (pour les métriques)
+     * @param sampleRate fréquence d'échantillonnage
+     * @param channels nombre de canaux entrelacés
+     * @param capacitySeconds durée d'audio conservée
+     */
+    public PcmRingBuffer(String name, int sampleRate, int channels, int capacitySeconds) {
+        if (sampleRate <= 0 || channels <= 0 || capacitySeconds <= 0) {
+            throw new IllegalArgumentException("Paramètres du tampon audio invalides");
+        }
+        long bytes = (long) sampleRate * channels * 2 * capacitySeconds;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Tampon audio trop grand: " + bytes + " octets");
+        }
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.frameBytes = channels * 2;
+        this.capacityFrames = (long) sampleRate * capacitySeconds;
+        this.buffer = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Ajoute un segment à la suite du tampon. Réservé au thread producteur.
+     *
+     * @param data échantillons PCM 16 bits little-endian entrelacés
+     * @param length nombre d'octets significatifs
+     * @param epochNanos horodatage de la première trame du segment, en nanosecondes depuis l'epoch
+     */
+    public void write(byte[] data, int length, long epochNanos) {
+        int frames = length / frameBytes;
+        if (frames <= 0) {
+            return;
+        }
+        if (frames > capacityFrames) {
+            // Seule la fin d'un segment plus long que le tampon peut être conservée
+            long skipped = frames - capacityFrames;
+            epochNanos += skipped * 1_000_000_000L / sampleRate;
+            copyFrames(data, (int) skipped * frameBytes, (int) capacityFrames);
+        } else {
+            copyFrames(data, 0, frames);
+        }
+
+        long start = writtenFrames - Math.min(frames, capacityFrames);
+        publishAnchor(start, epochNanos);
+    }
+
+    private void copyFrames(byte[] data, int offset, int frames) {
+        long start = writtenFrames;
+        long end = start + frames;
+        // Les lecteurs des trames [end - capacité, ...) doivent revalider leur fenêtre :
+        // la limite doit être visible avant le premier octet écrasé
+        writeLimitFrames = end;
+        VarHandle.storeStoreFence();
+
+        ByteBuffer target = buffer.duplicate();
+        int position = (int) (start % capacityFrames) * frameBytes;
+        int length = frames * frameBytes;
+        int firstPart = Math.min(length, buffer.capacity() - position);
+        target.position(position);
+        target.put(data, offset, firstPart);
+        if (firstPart < length) {
+            target.position(0);
+            target.put(data, offset + firstPart, length - firstPart);
+        }
+
+        // Écriture volatile : les trames copiées sont visibles avant la nouvelle fin
+        writtenFrames = end;
+    }
+
+    private void publishAnchor(long frame, long epochNanos) {
+        long seq = anchorSeq;
+        anchorSeq = seq + 1;
+        anchorFrame = frame;
+        anchorEpochNanos = epochNanos;
+        anchorSeq = seq + 2;
+    }
+
+    /**
+     * Convertit un instant en position de trame, d'après l'horodatage du dernier segment.
+     *
+     * @param epochNanos instant en nanosecondes depuis l'epoch
+     * @return la position de trame correspondante (éventuellement hors du tampon)
+     */
+    public long frameAt(long epochNanos) {
+        long frame;
+        long anchorNanos;
+        long seq;
+        do {
+            seq = anchorSeq;
+            frame = anchorFrame;
+            anchorNanos = anchorEpochNanos;
+        } while ((seq & 1) != 0 || seq != anchorSeq);
+        // Secondes et nanosecondes séparées : le produit par la fréquence ne déborde pas
+        long delta = epochNanos - anchorNanos;
+        long seconds = Math.floorDiv(delta, 1_000_000_000L);
+        long nanos = Math.floorMod(delta, 1_000_000_000L);
+        return frame + seconds * sampleRate + nanos * sampleRate / 1_000_000_000L;
+    }
+
+    /**
+     * Convertit une position de trame en instant, d'après l'horodatage du dernier segment.
+     *
+     * @param frame position de trame
+     * @return l'instant en nanosecondes depuis l'epoch
+     */
+    public long epochNanosAt(long frame) {
+        long anchor;
+        long anchorNanos;
+        long seq;
+        do {
+            seq = anchorSeq;
+            anchor = anchorFrame;
+            anchorNanos = anchorEpochNanos;
+        } while ((seq & 1) != 0 || seq != anchorSeq);
+        long delta = frame - anchor;
+        long seconds = Math.floorDiv(delta, sampleRate);
+        long frames = Math.floorMod(delta, sampleRate);
+        return anchorNanos + seconds * 1_000_000_000L + frames * 1_000_000_000L / sampleRate;
+    }
+
+    /**
+     * Ouvre une fenêtre sur l'intervalle [from, to), réduit à la partie encore présente.
+     *
+     * @param from début de l'intervalle
+     * @param to fin de l'intervalle (exclue)
+     * @return la fenêtre, ou null si aucune trame de l'intervalle n'est disponible
+     */
+    public PcmWindow window(Instant from, Instant to) {
+        return window(toEpochNanos(from), toEpochNanos(to));
+    }
+
+    /**
+     * Ouvre une fenêtre sur l'intervalle [fromNanos, toNanos), réduit à la partie encore présente.
+     *
+     * @param fromNanos début de l'intervalle, en nanosecondes depuis l'epoch
+     * @param toNanos fin de l'intervalle (exclue), en nanosecondes depuis l'epoch
+     * @return la fenêtre, ou null si aucune trame de l'intervalle n'est disponible
+     */
+    public PcmWindow window(long fromNanos, long toNanos) {
+        if (writtenFrames == firstValidFrame || toNanos <= fromNanos) {
+            return null;
+        }
+        long start = frameAt(fromNanos);
+        long end = frameAt(toNanos);
+
+        long newest = writtenFrames;
+        long oldest = Math.max(firstValidFrame, writeLimitFrames - capacityFrames);
+        long clampedStart = Math.max(start, oldest);
+        long clampedEnd = Math.min(end, newest);
+        if (clampedEnd <= clampedStart) {
+            return null;
+        }
+        if (clampedStart != start || clampedEnd != end) {
+            clampedWindows.incrementAndGet();
+        }
+        windows.incrementAndGet();
+        return new PcmWindow(this, clampedStart, (int) (clampedEnd - clampedStart), epochNanosAt(clampedStart));
+    }
+
+    /**
+     * Indique si les trames à partir d'une position n'ont pas été écrasées.
+     *
+     * @param startFrame première trame lue
+     * @return true si les trames lues depuis startFrame sont intactes
+     */
+    boolean isIntact(long startFrame) {
+        // Les lectures des échantillons précèdent celle de la limite
+        VarHandle.acquireFence();
+        return writeLimitFrames - capacityFrames <= startFrame && firstValidFrame <= startFrame;
+    }
+
+    /**
+     * Lit un échantillon 16 bits directement dans le tampon.
+     *
+     * @param frame position de trame absolue
+     * @param channel canal
+     * @return l'échantillon signé
+     */
+    short sampleAt(long frame, int channel) {
+        return buffer.getShort((int) (frame % capacityFrames) * frameBytes + channel * 2);
+    }
+
+    /**
+     * Copie des octets PCM du tampon, en gérant le retour au début du tampon.
+     *
+     * @param startFrame position de trame absolue de référence
+     * @param byteOffset décalage en octets depuis le début de cette trame
+     * @param target tableau de destination
+     * @param offset position dans le tableau de destination
+     * @param count nombre d'octets à copier (au plus la capacité du tampon)
+     */
+    void copyBytes(long startFrame, long byteOffset, byte[] target, int offset, int count) {
+        int capacityBytes = buffer.capacity();
+        int position = (int) (((startFrame % capacityFrames) * frameBytes + byteOffset) % capacityBytes);
+        int firstPart = Math.min(count, capacityBytes - position);
+        buffer.get(position, target, offset, firstPart);
+        if (firstPart < count) {
+            buffer.get(0, target, offset + firstPart, count - firstPart);
+        }
+    }
+
+    /**
+     * Vide le tampon, par exemple au redémarrage de la capture. Réservé au producteur.
+     */
+    public void reset() {
+        // Les positions restent croissantes : les fenêtres déjà ouvertes deviennent invalides
+        firstValidFrame = writtenFrames;
+    }
+
+    /**
+     * @param instant un instant
+     * @return l'instant en nanosecondes depuis l'epoch
+     */
+    static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    public long getCapacityFrames() {
+        return capacityFrames;
+    }
+
+    public long getWrittenFrames() {
+        return writtenFrames;
+    }
+
+    /**
+     * Récupère les statistiques du tampon.
+     *
+     * @return capacité, remplissage et fenêtres ouvertes
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long written = writtenFrames;
+        stats.put("capacitySeconds", capacityFrames / sampleRate);
+        stats.put("capacityBytes", buffer.capacity());
+        stats.put("bufferedSeconds", Math.round(Math.min(written - firstValidFrame, capacityFrames) * 100.0 / sampleRate) / 100.0);
+        stats.put("writtenFrames", written);
+        stats.put("windows", windows.get());
+        stats.put("clampedWindows", clampedWindows.get());
+        return stats;
+    }
+}
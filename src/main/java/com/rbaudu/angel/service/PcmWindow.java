@@ -0,0 +1,193 @@
+package com.rbaudu.angel.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Vue sur un intervalle du {@link PcmRingBuffer}, lue directement dans le
+ * tampon circulaire sans copie préalable.
+ * <p>
+ * Le producteur peut écraser la fenêtre si elle est lue trop longtemps après
+ * son ouverture : les lectures en bloc et le flux retourné par
+ * {@link #openStream()} le vérifient, et un consommateur qui lit échantillon
+ * par échantillon doit appeler {@link #isValid()} après sa lecture.
+ */
+public final class PcmWindow {
+
+    private final PcmRingBuffer ring;
+    private final long startFrame;
+    private final int frameCount;
+    private final long startEpochNanos;
+
+    PcmWindow(PcmRingBuffer ring, long startFrame, int frameCount, long startEpochNanos) {
+        this.ring = ring;
+        this.startFrame = startFrame;
+        this.frameCount = frameCount;
+        this.startEpochNanos = startEpochNanos;
+    }
+
+    /**
+     * Lit un échantillon de la fenêtre.
+     *
+     * @param frame trame relative au début de la fenêtre
+     * @param channel canal
+     * @return l'échantillon normalisé entre -1.0 et 1.0
+     */
+    public float sample(int frame, int channel) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Trame " + frame + " hors de la fenêtre de " + frameCount + " trames");
+        }
+        return ring.sampleAt(startFrame + frame, channel) / 32768.0f;
+    }
+
+    /**
+     * Copie la fenêtre, réduite en mono par moyenne des canaux, dans un tableau fourni par l'appelant.
+     *
+     * @param target tableau de destination
+     * @param offset position de la première trame dans le tableau
+     * @return le nombre de trames copiées
+     * @throws IllegalStateException si la fenêtre a été écrasée pendant la lecture
+     */
+    public int readMono(float[] target, int offset) {
+        return readMono(0, target, offset, Math.min(frameCount, target.length - offset));
+    }
+
+    /**
+     * Copie une partie de la fenêtre, réduite en mono par moyenne des canaux,
+     * dans un tableau fourni par l'appelant.
+     *
+     * @param fromFrame première trame, relative au début de la fenêtre
+     * @param target tableau de destination
+     * @param offset position de la première trame dans le tableau
+     * @param count nombre de trames à copier
+     * @return le nombre de trames copiées
+     * @throws IllegalStateException si la fenêtre a été écrasée pendant la lecture
+     */
+    public int readMono(int fromFrame, float[] target, int offset, int count) {
+        int frames = Math.max(0, Math.min(count, Math.min(frameCount - fromFrame, target.length - offset)));
+        int channels = ring.getChannels();
+        float scale = 1.0f / (32768.0f * channels);
+        for (int i = 0; i < frames; i++) {
+            long frame = startFrame + fromFrame + i;
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += ring.sampleAt(frame, c);
+            }
+            target[offset + i] = sum * scale;
+        }
+        if (!isValid()) {
+            throw new IllegalStateException("Fenêtre audio écrasée pendant la lecture");
+        }
+        return frames;
+    }
+
+    /**
+     * Ouvre un flux sur les octets PCM 16 bits little-endian de la fenêtre,
+     * au format de capture, pour les analyseurs qui consomment un AudioInputStream.
+     *
+     * @return le flux audio de la fenêtre
+     */
+    public AudioInputStream openStream() {
+        AudioFormat format = new AudioFormat(ring.getSampleRate(), 16, ring.getChannels(), true, false);
+        return new AudioInputStream(new WindowInputStream(), format, frameCount);
+    }
+
+    /**
+     * Indique si la fenêtre est encore intacte, c'est-à-dire si le producteur
+     * n'a pas commencé à écraser ses trames.
+     *
+     * @return true si les lectures faites jusqu'ici sont valides
+     */
+    public boolean isValid() {
+        return ring.isIntact(startFrame);
+    }
+
+    /**
+     * @return l'identifiant de la source audio de la fenêtre
+     */
+    public String getSourceId() {
+        return ring.getName();
+    }
+
+    /**
+     * @return la position absolue, dans l'historique de la source, de la première trame de la fenêtre
+     */
+    public long getStartFrame() {
+        return startFrame;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getSampleRate() {
+        return ring.getSampleRate();
+    }
+
+    public int getChannels() {
+        return ring.getChannels();
+    }
+
+    /**
+     * @return l'horodatage de la première trame de la fenêtre
+     */
+    public Instant getStartTime() {
+        return Instant.ofEpochSecond(0, startEpochNanos);
+    }
+
+    /**
+     * @return la durée de la fenêtre en millisecondes
+     */
+    public long getDurationMs() {
+        return frameCount * 1000L / ring.getSampleRate();
+    }
+
+    /**
+     * Flux d'octets lus directement dans le tampon circulaire.
+     */
+    private final class WindowInputStream extends InputStream {
+        private final long length = (long) frameCount * ring.getFrameBytes();
+        private long position;
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int count) throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+            int n = (int) Math.min(count, length - position);
+            ring.copyBytes(startFrame, position, target, offset, n);
+            position += n;
+            checkValid();
+            return n;
+        }
+
+        @Override
+        public long skip(long count) {
+            long skipped = Math.max(0, Math.min(count, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+
+        private void checkValid() throws IOException {
+            if (!isValid()) {
+                throw new IOException("Fenêtre audio écrasée pendant la lecture");
+            }
+        }
+    }
+}
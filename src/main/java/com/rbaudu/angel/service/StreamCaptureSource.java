@@ -0,0 +1,443 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Source de capture d'un flux réseau (rtsp://, http://, https://) ou d'un
+ * fichier enregistré (file://), décodé par FFmpegFrameGrabber.
+ * <p>
+ * Les trames sont horodatées à partir de leur PTS, ancré sur l'horloge murale
+ * à la première trame : l'écart entre deux trames est celui de l'encodeur et
+ * non celui de l'arrivée des paquets. L'ancrage est refait à chaque reconnexion,
+ * rebouclage ou discontinuité de PTS.
+ * <p>
+ * En cas d'erreur ou de fin de flux, la source se reconnecte avec un délai
+ * exponentiel, à raison d'une tentative au plus par appel de {@link #grab()} :
+ * entre deux tentatives, la lecture rend la main à la boucle de capture, qui
+ * continue de battre. Au-delà du nombre maximal de tentatives, la lecture
+ * échoue et le redémarrage revient au superviseur. Un fichier est relu au
+ * rythme de ses PTS, et peut être rebouclé pour les tests de non-régression.
+ */
+public class StreamCaptureSource implements CaptureSource {
+    private static final Logger log = LoggerFactory.getLogger(StreamCaptureSource.class);
+
+    // Au-delà de cet écart, un saut de PTS est traité comme une discontinuité
+    private static final long MAX_PTS_GAP_MICROS = 5_000_000L;
+    // Écart maximal toléré entre l'horodatage PTS d'un flux en direct et l'horloge murale
+    private static final long MAX_LIVE_SKEW_MICROS = 2_000_000L;
+    // Attente maximale d'un appel de grab() avant la prochaine tentative de reconnexion
+    private static final long RECONNECT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String id;
+    private final String url;
+    private final boolean file;
+    private final int width;
+    private final int height;
+    private final int decoderThreads;
+    private final boolean lowLatency;
+    private final String rtspTransport;
+    private final long timeoutMs;
+    private final long reconnectInitialDelayMs;
+    private final long reconnectMaxDelayMs;
+    private final int reconnectMaxAttempts;
+    private final boolean loop;
+    private final boolean realtime;
+
+    private FFmpegFrameGrabber grabber;
+    private volatile boolean connected;
+    private volatile boolean exhausted;
+
+    // Reconnexion en cours, gérée par le seul thread de capture
+    private int reconnectAttempts;
+    private long nextReconnectNanos;
+
+    // Ancrage PTS -> horloge murale, utilisé par le seul thread de capture
+    private boolean anchored;
+    private Instant anchorWallClock;
+    private long anchorNanos;
+    private long anchorPtsMicros;
+    private long lastPtsMicros;
+    private Instant frameTimestamp;
+
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong discontinuities = new AtomicLong();
+    private final AtomicLong loops = new AtomicLong();
+
+    private StreamCaptureSource(Builder builder) {
+        this.id = builder.id;
+        this.url = builder.url;
+        this.file = builder.url.startsWith("file:");
+        this.width = builder.width;
+        this.height = builder.height;
+        this.decoderThreads = builder.decoderThreads;
+        this.lowLatency = builder.lowLatency;
+        this.rtspTransport = builder.rtspTransport;
+        this.timeoutMs = builder.timeoutMs;
+        this.reconnectInitialDelayMs = builder.reconnectInitialDelayMs;
+        this.reconnectMaxDelayMs = builder.reconnectMaxDelayMs;
+        this.reconnectMaxAttempts = builder.reconnectMaxAttempts;
+        this.loop = builder.loop;
+        this.realtime = builder.realtime;
+    }
+
+    /**
+     * Indique si une spécification de source désigne un flux ou un fichier.
+     *
+     * @param spec la spécification de source configurée
+     * @return true pour une URL rtsp://, http://, https:// ou file://
+     */
+    public static boolean isStreamUrl(String spec) {
+        String lower = spec.toLowerCase();
+        return lower.startsWith("rtsp://") || lower.startsWith("rtsps://")
+                || lower.startsWith("http://") || lower.startsWith("https://")
+                || lower.startsWith("file:");
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void start() throws Exception {
+        reconnectAttempts = 0;
+        nextReconnectNanos = 0;
+        open();
+    }
+
+    /**
+     * Ouvre le grabber FFmpeg avec les options de décodage et de latence.
+     *
+     * @throws Exception si le flux ne peut pas être ouvert
+     */
+    private void open() throws Exception {
+        FFmpegFrameGrabber newGrabber = new FFmpegFrameGrabber(file ? filePath(url) : url);
+        // Mise à l'échelle par FFmpeg pour correspondre aux matrices du pool de trames
+        newGrabber.setImageWidth(width);
+        newGrabber.setImageHeight(height);
+
+        if (decoderThreads > 0) {
+            newGrabber.setVideoOption("threads", String.valueOf(decoderThreads));
+        }
+
+        if (!file) {
+            if (lowLatency) {
+                newGrabber.setOption("fflags", "nobuffer");
+                newGrabber.setOption("flags", "low_delay");
+                newGrabber.setVideoOption("flags", "low_delay");
+            }
+            long timeoutMicros = TimeUnit.MILLISECONDS.toMicros(timeoutMs);
+            if (url.toLowerCase().startsWith("rtsp")) {
+                newGrabber.setOption("rtsp_transport", rtspTransport);
+                newGrabber.setOption("timeout", String.valueOf(timeoutMicros));
+            } else {
+                newGrabber.setOption("rw_timeout", String.valueOf(timeoutMicros));
+            }
+        }
+
+        newGrabber.start();
+        grabber = newGrabber;
+        connected = true;
+        exhausted = false;
+        anchored = false;
+        log.info("Flux {} ouvert: {} ({}x{}, {} fps, codec {})", id, redactedUrl(),
+                grabber.getImageWidth(), grabber.getImageHeight(),
+                grabber.getFrameRate(), grabber.getVideoCodecName());
+    }
+
+    @Override
+    public Frame grab() throws Exception {
+        if (grabber == null && !reconnect()) {
+            return null;
+        }
+
+        Frame frame;
+        try {
+            frame = grabber.grabImage();
+        } catch (Exception e) {
+            log.warn("Erreur de lecture du flux {}: {}", id, e.getMessage());
+            closeGrabber();
+            return null;
+        }
+
+        if (frame == null) {
+            // Fin de flux : rebouclage d'un fichier, ou reconnexion d'un flux en direct
+            if (file && !loop) {
+                exhausted = true;
+                return null;
+            }
+            if (file) {
+                loops.incrementAndGet();
+                log.debug("Fin du fichier {}, relecture", id);
+            }
+            closeGrabber();
+            return null;
+        }
+
+        reconnectAttempts = 0;
+        frameTimestamp = toWallClock(frame.timestamp);
+        if (file && realtime) {
+            awaitPresentationTime(frame.timestamp);
+        }
+        return frame;
+    }
+
+    /**
+     * Convertit le PTS d'une trame en horodatage mural, en réancrant la
+     * correspondance en cas de discontinuité.
+     *
+     * @param ptsMicros PTS de la trame en microsecondes
+     * @return l'horodatage de la trame
+     */
+    private Instant toWallClock(long ptsMicros) {
+        boolean discontinuity = anchored
+                && (ptsMicros < lastPtsMicros || ptsMicros - lastPtsMicros > MAX_PTS_GAP_MICROS);
+        if (!discontinuity && anchored && !file) {
+            // Un flux en direct ne doit pas s'écarter durablement de l'horloge murale
+            long expectedNanos = anchorNanos + (ptsMicros - anchorPtsMicros) * 1000L;
+            discontinuity = Math.abs(System.nanoTime() - expectedNanos) / 1000L > MAX_LIVE_SKEW_MICROS;
+        }
+
+        if (!anchored || discontinuity) {
+            if (discontinuity) {
+                discontinuities.incrementAndGet();
+                log.debug("Discontinuité de PTS sur {}, réancrage", id);
+            }
+            anchorWallClock = Instant.now();
+            anchorNanos = System.nanoTime();
+            anchorPtsMicros = ptsMicros;
+            anchored = true;
+        }
+        lastPtsMicros = ptsMicros;
+        return anchorWallClock.plus(ptsMicros - anchorPtsMicros, ChronoUnit.MICROS);
+    }
+
+    /**
+     * Attend l'instant de présentation d'une trame de fichier, pour une relecture en temps réel.
+     *
+     * @param ptsMicros PTS de la trame en microsecondes
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     */
+    private void awaitPresentationTime(long ptsMicros) throws InterruptedException {
+        long remaining = anchorNanos + (ptsMicros - anchorPtsMicros) * 1000L - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    /**
+     * Rouvre le flux fermé, en une seule tentative. Avant l'échéance de la
+     * tentative suivante, l'appel attend au plus {@link #RECONNECT_POLL_NANOS}
+     * et rend la main, pour que la boucle de capture continue de battre.
+     *
+     * @return true si le flux est rouvert
+     * @throws InterruptedException si le thread est interrompu pendant l'attente
+     * @throws IllegalStateException si le nombre maximal de tentatives est atteint
+     */
+    private boolean reconnect() throws InterruptedException {
+        long remaining = nextReconnectNanos - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, RECONNECT_POLL_NANOS));
+            return false;
+        }
+        if (reconnectMaxAttempts > 0 && reconnectAttempts >= reconnectMaxAttempts) {
+            throw new IllegalStateException("Reconnexion du flux " + id + " impossible après "
+                    + reconnectAttempts + " tentatives");
+        }
+
+        reconnectAttempts++;
+        try {
+            open();
+            reconnects.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            long delay = CaptureSupervisor.backoffDelayMs(reconnectAttempts, reconnectInitialDelayMs, reconnectMaxDelayMs);
+            nextReconnectNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            log.warn("Reconnexion du flux {} échouée (tentative {}), nouvel essai dans {} ms: {}",
+                    id, reconnectAttempts, delay, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Instant getFrameTimestamp() {
+        return frameTimestamp != null ? frameTimestamp : Instant.now();
+    }
+
+    @Override
+    public boolean isSelfPaced() {
+        // Un flux en direct bloque jusqu'à la trame suivante ; un fichier est lu au rythme
+        // de ses PTS, ou le plus vite possible hors temps réel
+        return true;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        closeGrabber();
+    }
+
+    /**
+     * Ferme le grabber courant en ignorant les erreurs.
+     */
+    private void closeGrabber() {
+        connected = false;
+        if (grabber != null) {
+            try {
+                grabber.stop();
+                grabber.release();
+            } catch (Exception e) {
+                log.debug("Erreur lors de la fermeture du flux {}: {}", id, e.getMessage());
+            }
+            grabber = null;
+        }
+    }
+
+    @Override
+    public void release() throws Exception {
+        closeGrabber();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", file ? "file" : "stream");
+        stats.put("url", redactedUrl());
+        stats.put("connected", connected);
+        stats.put("decoderThreads", decoderThreads);
+        stats.put("lowLatency", lowLatency);
+        stats.put("reconnects", reconnects.get());
+        stats.put("ptsDiscontinuities", discontinuities.get());
+        if (file) {
+            stats.put("loops", loops.get());
+        }
+        return stats;
+    }
+
+    /**
+     * @return l'URL du flux sans les identifiants éventuels
+     */
+    private String redactedUrl() {
+        return url.replaceFirst("//[^/@]+@", "//***@");
+    }
+
+    /**
+     * Convertit une URL file:// en chemin local.
+     *
+     * @param fileUrl l'URL du fichier
+     * @return le chemin du fichier
+     */
+    private static String filePath(String fileUrl) {
+        String path = fileUrl.substring("file:".length());
+        return path.startsWith("//") ? path.substring(2) : path;
+    }
+
+    /**
+     * Builder statique pour créer des instances de StreamCaptureSource
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String id;
+        private String url;
+        private int width;
+        private int height;
+        private int decoderThreads;
+        private boolean lowLatency = true;
+        private String rtspTransport = "tcp";
+        private long timeoutMs = 5000;
+        private long reconnectInitialDelayMs = 500;
+        private long reconnectMaxDelayMs = 30000;
+        private int reconnectMaxAttempts = 5;
+        private boolean loop = true;
+        private boolean realtime = true;
+
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder width(int width) {
+            this.width = width;
+            return this;
+        }
+
+        public Builder height(int height) {
+            this.height = height;
+            return this;
+        }
+
+        public Builder decoderThreads(int decoderThreads) {
+            this.decoderThreads = decoderThreads;
+            return this;
+        }
+
+        public Builder lowLatency(boolean lowLatency) {
+            this.lowLatency = lowLatency;
+            return this;
+        }
+
+        public Builder rtspTransport(String rtspTransport) {
+            this.rtspTransport = rtspTransport;
+            return this;
+        }
+
+        public Builder timeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+            return this;
+        }
+
+        public Builder reconnectInitialDelayMs(long reconnectInitialDelayMs) {
+            this.reconnectInitialDelayMs = Math.max(1, reconnectInitialDelayMs);
+            return this;
+        }
+
+        public Builder reconnectMaxDelayMs(long reconnectMaxDelayMs) {
+            this.reconnectMaxDelayMs = reconnectMaxDelayMs;
+            return this;
+        }
+
+        public Builder reconnectMaxAttempts(int reconnectMaxAttempts) {
+            this.reconnectMaxAttempts = reconnectMaxAttempts;
+            return this;
+        }
+
+        public Builder loop(boolean loop) {
+            this.loop = loop;
+            return this;
+        }
+
+        public Builder realtime(boolean realtime) {
+            this.realtime = realtime;
+            return this;
+        }
+
+        public StreamCaptureSource build() {
+            if (id == null || url == null) {
+                throw new IllegalStateException("L'identifiant et l'URL du flux sont obligatoires");
+            }
+            return new StreamCaptureSource(this);
+        }
+    }
+}
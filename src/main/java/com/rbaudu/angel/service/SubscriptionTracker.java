@@ -0,0 +1,113 @@
+package com.rbaudu.angel.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+/**
+ * Service qui suit les abonnements STOMP actifs par destination.
+ * Permet de ne sérialiser et publier un flux WebSocket que lorsqu'au moins
+ * un client y est abonné.
+ */
+@Service
+public class SubscriptionTracker {
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionTracker.class);
+
+    // Abonnements par session : identifiant d'abonnement -> destination
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+
+    // Nombre d'abonnements actifs par destination
+    private final Map<String, AtomicInteger> destinationCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Enregistre un nouvel abonnement.
+     *
+     * @param event l'événement d'abonnement
+     */
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+
+        String previous = sessionSubscriptions
+                .computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        destinationCounts.computeIfAbsent(destination, d -> new AtomicInteger()).incrementAndGet();
+        log.debug("Abonnement {} de la session {} à {}", subscriptionId, sessionId, destination);
+    }
+
+    /**
+     * Retire un abonnement.
+     *
+     * @param event l'événement de désabonnement
+     */
+    @EventListener
+    public void handleUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            String destination = subscriptions.remove(accessor.getSubscriptionId());
+            if (destination != null) {
+                decrement(destination);
+            }
+        }
+    }
+
+    /**
+     * Retire tous les abonnements d'une session déconnectée.
+     *
+     * @param event l'événement de déconnexion
+     */
+    @EventListener
+    public void handleDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    /**
+     * Indique si au moins un client est abonné à la destination.
+     *
+     * @param destination la destination STOMP (ex: /topic/video)
+     * @return true si la destination a au moins un abonné
+     */
+    public boolean hasSubscribers(String destination) {
+        return getSubscriberCount(destination) > 0;
+    }
+
+    /**
+     * Nombre d'abonnements actifs sur une destination.
+     *
+     * @param destination la destination STOMP
+     * @return le nombre d'abonnements
+     */
+    public int getSubscriberCount(String destination) {
+        AtomicInteger count = destinationCounts.get(destination);
+        return count != null ? count.get() : 0;
+    }
+
+    private void decrement(String destination) {
+        AtomicInteger count = destinationCounts.get(destination);
+        if (count != null && count.decrementAndGet() < 0) {
+            count.set(0);
+        }
+    }
+}
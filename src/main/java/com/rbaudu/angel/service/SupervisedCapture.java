@@ -0,0 +1,55 @@
+package com.rbaudu.angel.service;
+
+/**
+ * Chaîne de capture surveillée par le {@link CaptureSupervisor} : caméra,
+ * flux vidéo ou microphone.
+ */
+public interface SupervisedCapture {
+
+    /**
+     * @return l'identifiant de la source
+     */
+    String getSourceId();
+
+    /**
+     * @return true si la capture doit tourner (démarrée et non arrêtée par l'utilisateur)
+     */
+    boolean isDesiredRunning();
+
+    /**
+     * @return true si la capture est en cours
+     */
+    boolean isRunning();
+
+    /**
+     * @return true si le thread de capture est vivant
+     */
+    boolean isCaptureThreadAlive();
+
+    /**
+     * @return le temps écoulé depuis le dernier tour de la boucle de capture, en millisecondes
+     */
+    long getHeartbeatAgeMs();
+
+    /**
+     * @return le temps écoulé depuis le dernier média capturé, en millisecondes
+     */
+    long getLastFrameAgeMs();
+
+    /**
+     * @return true si au moins un média a été capturé depuis le dernier démarrage de la capture
+     */
+    boolean hasCapturedSinceStart();
+
+    /**
+     * @return le temps écoulé depuis le dernier démarrage de la capture, en millisecondes
+     */
+    long getUptimeMs();
+
+    /**
+     * Redémarre la capture d'une source défaillante, à la demande du superviseur.
+     *
+     * @return true si la capture a redémarré
+     */
+    boolean restart();
+}
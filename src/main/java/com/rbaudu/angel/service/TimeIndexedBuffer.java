@@ -0,0 +1,242 @@
+package com.rbaudu.angel.service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Buffer borné de médias d'une source, ordonné par horodatage en microsecondes depuis l'epoch.
+ * <p>
+ * La recherche du média le plus proche d'un instant ne parcourt pas le
+ * buffer : elle compare les deux voisins immédiats ({@code floorEntry} et
+ * {@code ceilingEntry}), en O(log n) quelle que soit sa taille. Le buffer
+ * retient son filigrane, l'horodatage le plus récent reçu, et ne dépasse
+ * jamais sa capacité : au-delà, les médias les plus anciens sont évincés dès
+ * l'ajout. Chaque média retiré ou remplacé est remis à la fonction de
+ * libération fournie à la construction, qui rend sa référence sur la matrice
+ * ou le buffer PCM partagé.
+ *
+ * @param <T> type des médias
+ */
+public class TimeIndexedBuffer<T> {
+
+    private final ConcurrentSkipListMap<Long, T> entries = new ConcurrentSkipListMap<>();
+    private final int capacity;
+    private final Consumer<T> releaser;
+
+    // La taille d'une ConcurrentSkipListMap se calcule en la parcourant : elle est tenue à part
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong watermark = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong watermarkEvictions = new AtomicLong();
+    private final AtomicLong capacityEvictions = new AtomicLong();
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    /**
+     * Crée un buffer vide.
+     *
+     * @param capacity nombre maximal de médias conservés
+     * @param releaser libère la référence d'un média retiré du buffer
+     */
+    public TimeIndexedBuffer(int capacity, Consumer<T> releaser) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacité du buffer de synchronisation doit être positive");
+        }
+        this.capacity = capacity;
+        this.releaser = releaser;
+    }
+
+    /**
+     * Convertit un instant en clé du buffer.
+     *
+     * @param instant un instant
+     * @return l'instant en microsecondes depuis l'epoch
+     */
+    public static long toEpochMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    /**
+     * Ajoute un média, dont l'appelant a déjà retenu la référence, et avance le
+     * filigrane. Un média de même horodatage déjà présent est remplacé et libéré ;
+     * si la capacité est dépassée, les plus anciens sont évincés.
+     *
+     * @param timestampMicros horodatage du média
+     * @param media le média
+     */
+    public void put(long timestampMicros, T media) {
+        watermark.accumulateAndGet(timestampMicros, Math::max);
+        T previous = entries.put(timestampMicros, media);
+        if (previous == null) {
+            size.incrementAndGet();
+        } else if (previous != media) {
+            releaser.accept(previous);
+        }
+        while (size.get() > capacity) {
+            Map.Entry<Long, T> oldest = entries.pollFirstEntry();
+            if (oldest == null) {
+                break;
+            }
+            size.decrementAndGet();
+            releaser.accept(oldest.getValue());
+            capacityEvictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Cherche le média le plus proche d'un instant.
+     *
+     * @param timestampMicros instant recherché
+     * @param maxDeltaMicros écart maximal accepté
+     * @return l'entrée (horodatage, média) la plus proche, ou null si aucune n'est assez proche
+     */
+    public Map.Entry<Long, T> nearest(long timestampMicros, long maxDeltaMicros) {
+        Map.Entry<Long, T> before = entries.floorEntry(timestampMicros);
+        Map.Entry<Long, T> after = entries.ceilingEntry(timestampMicros);
+        Map.Entry<Long, T> best;
+        if (before == null) {
+            best = after;
+        } else if (after == null) {
+            best = before;
+        } else {
+            best = timestampMicros - before.getKey() <= after.getKey() - timestampMicros ? before : after;
+        }
+        if (best == null || Math.abs(best.getKey() - timestampMicros) > maxDeltaMicros) {
+            return null;
+        }
+        return best;
+    }
+
+    /**
+     * Retire le plus ancien média s'il n'est pas postérieur à un instant, sans le
+     * libérer : l'appelant reprend la référence retenue par le buffer.
+     *
+     * @param timestampMicros instant limite (inclus)
+     * @return l'entrée retirée, ou null si le buffer ne contient aucun média jusqu'à cet instant
+     */
+    public Map.Entry<Long, T> takeOldest(long timestampMicros) {
+        Map.Entry<Long, T> oldest;
+        while ((oldest = entries.firstEntry()) != null && oldest.getKey() <= timestampMicros) {
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                size.decrementAndGet();
+                return oldest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compte les médias dont l'horodatage est compris dans un intervalle.
+     *
+     * @param fromMicros début de l'intervalle (exclu)
+     * @param toMicros fin de l'intervalle (incluse)
+     * @return le nombre de médias de l'intervalle
+     */
+    public int countBetween(long fromMicros, long toMicros) {
+        return fromMicros < toMicros ? entries.subMap(fromMicros, false, toMicros, true).size() : 0;
+    }
+
+    /**
+     * Évince les médias antérieurs à un instant, qui ne peuvent plus être appariés.
+     *
+     * @param timestampMicros instant limite (exclu)
+     * @return le nombre de médias évincés
+     */
+    public int evictBefore(long timestampMicros) {
+        int removed = 0;
+        ConcurrentNavigableMap<Long, T> head = entries.headMap(timestampMicros);
+        Map.Entry<Long, T> entry;
+        while ((entry = head.pollFirstEntry()) != null) {
+            size.decrementAndGet();
+            releaser.accept(entry.getValue());
+            removed++;
+        }
+        if (removed > 0) {
+            watermarkEvictions.addAndGet(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Retire et libère le plus ancien média satisfaisant une condition.
+     *
+     * @param condition condition sur le média
+     * @return le média retiré, ou null si aucun ne la satisfait
+     */
+    public T removeOldest(Predicate<T> condition) {
+        for (Iterator<Map.Entry<Long, T>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, T> entry = it.next();
+            if (condition.test(entry.getValue()) && entries.remove(entry.getKey(), entry.getValue())) {
+                size.decrementAndGet();
+                releaser.accept(entry.getValue());
+                reclaimed.incrementAndGet();
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retire et libère tous les médias.
+     */
+    public void clear() {
+        Map.Entry<Long, T> entry;
+        while ((entry = entries.pollFirstEntry()) != null) {
+            size.decrementAndGet();
+            releaser.accept(entry.getValue());
+        }
+    }
+
+    /**
+     * @return les médias, du plus ancien au plus récent
+     */
+    public Collection<T> values() {
+        return entries.values();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return l'horodatage du plus ancien média présent, ou {@link Long#MIN_VALUE} si le buffer est vide
+     */
+    public long getOldestTimestamp() {
+        Map.Entry<Long, T> oldest = entries.firstEntry();
+        return oldest != null ? oldest.getKey() : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return l'horodatage le plus récent reçu, ou {@link Long#MIN_VALUE} si le buffer n'a jamais rien reçu
+     */
+    public long getWatermark() {
+        return watermark.get();
+    }
+
+    /**
+     * Récupère l'état du buffer.
+     *
+     * @return taille, capacité et médias évincés par filigrane, par capacité ou pour libérer un pool
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size.get());
+        stats.put("capacity", capacity);
+        stats.put("watermarkEvictions", watermarkEvictions.get());
+        stats.put("capacityEvictions", capacityEvictions.get());
+        stats.put("reclaimed", reclaimed.get());
+        return stats;
+    }
+}
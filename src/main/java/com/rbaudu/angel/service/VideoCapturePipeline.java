@@ -0,0 +1,534 @@
+package com.rbaudu.angel.service;
+
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_BGRA2BGR;
+import static org.bytedeco.opencv.global.opencv_imgproc.COLOR_GRAY2BGR;
+import static org.bytedeco.opencv.global.opencv_imgproc.INTER_AREA;
+import static org.bytedeco.opencv.global.opencv_imgproc.cvtColor;
+import static org.bytedeco.opencv.global.opencv_imgproc.resize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rbaudu.angel.model.VideoFrame;
+
+/**
+ * Chaîne de capture d'une source vidéo : source de trames, thread de capture, pool de
+ * trames, ordonnanceur et compteur de séquence propres à la source.
+ * Chaque caméra configurée dispose de sa propre chaîne, de sorte que les
+ * captures s'exécutent en parallèle sur des threads distincts.
+ */
+public class VideoCapturePipeline implements SupervisedCapture {
+    private static final Logger log = LoggerFactory.getLogger(VideoCapturePipeline.class);
+
+    private static final int MAX_RETRY_COUNT = 3;
+
+    private final String sourceId;
+    private final CaptureSource source;
+    private final MediaEventPublisher eventPublisher;
+    private final FrameEncodingService frameEncodingService;
+    private final OpenCVFrameConverter.ToMat converter;
+    private final FramePool framePool;
+    private final CaptureScheduler scheduler;
+    private final MotionDetector motionDetector;
+    private final int nominalFps;
+    private volatile double rateFactor = 1.0;
+    private long lastPublishedNanos;
+    private final AtomicLong decimatedFrames = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean cameraAvailable = new AtomicBoolean(true);
+    private final AtomicLong frameCounter = new AtomicLong(0);
+    private Thread captureThread;
+    private int cameraRetryCount;
+
+    // Trames d'un autre format que les matrices du pool : conversion réutilisée d'une trame à l'autre
+    private final Mat converted = new Mat();
+    private final AtomicLong convertedFrames = new AtomicLong();
+    private boolean formatMismatchLogged;
+
+    // État observé par le superviseur de capture
+    private volatile boolean desiredRunning;
+    private volatile long heartbeatNanos;
+    private volatile long lastFrameNanos;
+    private volatile long startedNanos;
+
+    /**
+     * Crée la chaîne de capture d'une source.
+     *
+     * @param source source des trames (caméra locale, flux ou fichier)
+     * @param fps cadence cible, appliquée si la source n'impose pas la sienne
+     * @param framePool pool de trames dédié à la source
+     * @param motionDetector détecteur de mouvement de la source, ou null si la détection est désactivée
+     * @param eventPublisher publicateur des trames capturées
+     * @param frameEncodingService service d'encodage différé des trames
+     */
+    public VideoCapturePipeline(CaptureSource source, int fps, FramePool framePool, MotionDetector motionDetector,
+                                MediaEventPublisher eventPublisher, FrameEncodingService frameEncodingService) {
+        this.sourceId = source.getId();
+        this.motionDetector = motionDetector;
+        this.source = source;
+        this.framePool = framePool;
+        this.eventPublisher = eventPublisher;
+        this.frameEncodingService = frameEncodingService;
+        this.converter = new OpenCVFrameConverter.ToMat();
+        this.scheduler = new CaptureScheduler(fps);
+        this.nominalFps = fps;
+    }
+
+    /**
+     * Applique un facteur à la cadence nominale de la source, sur demande du
+     * régulateur de cadence. Les sources qui imposent leur propre cadence sont
+     * décimées : les trames excédentaires sont lues mais pas publiées.
+     *
+     * @param factor facteur de cadence, entre 0 et 1
+     */
+    public void setRateFactor(double factor) {
+        this.rateFactor = factor;
+        scheduler.setTargetFps(nominalFps * factor);
+    }
+
+    /**
+     * Démarre la capture de la source dans son propre thread.
+     */
+    public synchronized void start() {
+        desiredRunning = true;
+        startCapture();
+    }
+
+    /**
+     * Arrête la capture de la source à la demande de l'utilisateur ;
+     * le superviseur ne la redémarrera pas.
+     */
+    public synchronized void stop() {
+        desiredRunning = false;
+        stopCapture();
+    }
+
+    /**
+     * Redémarre la capture d'une source défaillante, à la demande du superviseur.
+     * La disponibilité de la caméra et le compteur de tentatives sont réinitialisés.
+     *
+     * @return true si la capture a redémarré
+     */
+    @Override
+    public synchronized boolean restart() {
+        if (!desiredRunning) {
+            return false;
+        }
+        stopCapture();
+        cameraAvailable.set(true);
+        cameraRetryCount = 0;
+        startCapture();
+        return running.get();
+    }
+
+    /**
+     * Ouvre la source et lance le thread de capture.
+     */
+    private void startCapture() {
+        if (running.get() || !cameraAvailable.get()) {
+            if (!cameraAvailable.get()) {
+                log.warn("Démarrage de la source {} impossible: caméra non disponible", sourceId);
+            }
+            return;
+        }
+
+        if (captureThread != null && captureThread.isAlive()) {
+            log.warn("Le thread de capture de la source {} n'est pas encore terminé", sourceId);
+            return;
+        }
+
+        log.info("Démarrage de la capture vidéo de la source {}...", sourceId);
+        try {
+            source.start();
+            cameraRetryCount = 0;
+        } catch (Exception e) {
+            cameraRetryCount++;
+            if (cameraRetryCount >= MAX_RETRY_COUNT) {
+                cameraAvailable.set(false);
+                log.error("La caméra {} n'est pas disponible après {} tentatives. Désactivation de la source.",
+                        sourceId, MAX_RETRY_COUNT);
+                return;
+            }
+            log.warn("Erreur lors du démarrage de la caméra {} (tentative {}/{}), nouvelle tentative...",
+                    sourceId, cameraRetryCount, MAX_RETRY_COUNT);
+            return;
+        }
+
+        running.set(true);
+        if (motionDetector != null) {
+            motionDetector.reset();
+        }
+        // Délai de grâce : les âges du battement et de la dernière trame partent du démarrage
+        startedNanos = System.nanoTime();
+        heartbeatNanos = startedNanos;
+        lastFrameNanos = startedNanos;
+
+        captureThread = new Thread(this::captureLoop, "video-capture-" + sourceId);
+        captureThread.setDaemon(true);
+        captureThread.start();
+
+        log.info("Capture vidéo de la source {} démarrée", sourceId);
+    }
+
+    /**
+     * Arrête le thread de capture. La source est fermée par le thread de
+     * capture lui-même, pour ne jamais la fermer pendant une lecture en cours.
+     */
+    private void stopCapture() {
+        if (!running.get()) {
+            return;
+        }
+
+        log.info("Arrêt de la capture vidéo de la source {}...", sourceId);
+        running.set(false);
+
+        try {
+            if (captureThread != null) {
+                captureThread.interrupt();
+                captureThread.join(1000);
+                if (captureThread.isAlive()) {
+                    log.warn("Le thread de capture de la source {} est toujours bloqué en lecture", sourceId);
+                    return;
+                }
+            }
+            log.info("Capture vidéo de la source {} arrêtée", sourceId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Erreur lors de l'arrêt de la capture vidéo de la source {}", sourceId, e);
+        }
+    }
+
+    /**
+     * Capture une trame hors de la boucle de capture, pour les tests de détection.
+     *
+     * @return la trame capturée, ou null en cas d'erreur
+     */
+    public Mat grabSingleFrame() {
+        try {
+            Frame frame = source.grab();
+            if (frame != null && frame.image != null) {
+                return converter.convert(frame);
+            }
+        } catch (Exception e) {
+            log.error("Erreur lors de la capture d'une frame pour le test sur la source {}", sourceId, e);
+        }
+        return null;
+    }
+
+    /**
+     * Boucle principale de capture de la source.
+     * La cadence est pilotée par les échéances de l'ordonnanceur : le temps de
+     * capture et de traitement est déduit de l'attente, et les créneaux manqués
+     * sont sautés pour rattraper le retard. Les sources qui imposent leur propre
+     * cadence (flux réseau, fichiers) sont lues sans attente supplémentaire.
+     */
+    private void captureLoop() {
+        int errorCount = 0;
+        final int MAX_ERRORS = 10;
+
+        try {
+            scheduler.start();
+            while (running.get() && !Thread.currentThread().isInterrupted()) {
+                heartbeatNanos = System.nanoTime();
+                
+                // Respecter la cadence configurée
+                if (!source.isSelfPaced()) {
+                    int skipped = scheduler.awaitNextSlot();
+                    if (skipped > 0) {
+                        log.debug("Capture de {} en retard: {} créneau(x) sauté(s)", sourceId, skipped);
+                    }
+                }
+
+                try {
+                    Frame frame = source.grab();
+
+                    if (frame != null && frame.image != null) {
+                        errorCount = 0;  // Réinitialiser le compteur d'erreurs en cas de réussite
+                        lastFrameNanos = System.nanoTime();
+                        if (isDecimated()) {
+                            continue;
+                        }
+                        scheduler.recordFrame();
+                        processFrame(frame, lastFrameNanos);
+                    } else if (source.isExhausted()) {
+                        // Fin normale : le superviseur ne doit pas relancer la source
+                        log.info("Fin de la source {}", sourceId);
+                        desiredRunning = false;
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    errorCount++;
+                    log.warn("Erreur de capture de trame sur {}: {} ({}/{})",
+                            sourceId, e.getMessage(), errorCount, MAX_ERRORS);
+
+                    if (errorCount >= MAX_ERRORS) {
+                        log.error("Trop d'erreurs consécutives de capture sur {}. Arrêt de la boucle.", sourceId);
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Thread de capture vidéo de {} interrompu", sourceId);
+        } catch (Exception e) {
+            log.error("Erreur dans la boucle de capture vidéo de {}", sourceId, e);
+        } finally {
+            running.set(false);
+            try {
+                source.stop();
+            } catch (Exception e) {
+                log.error("Erreur lors de la fermeture de la source {}", sourceId, e);
+            }
+        }
+    }
+
+    /**
+     * Indique si la trame qui vient d'être lue doit être écartée pour respecter
+     * la cadence réduite d'une source qui impose sa propre cadence.
+     *
+     * @return true si la trame ne doit pas être publiée
+     */
+    private boolean isDecimated() {
+        if (!source.isSelfPaced() || rateFactor >= 1.0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        // Tolérance de 10 % pour ne pas écarter une trame arrivée légèrement en avance
+        if (now - lastPublishedNanos < scheduler.getPeriodNanos() * 9 / 10) {
+            decimatedFrames.incrementAndGet();
+            return true;
+        }
+        lastPublishedNanos = now;
+        return false;
+    }
+
+    /**
+     * Traite une trame capturée et publie un événement.
+     * Les pixels sont copiés dans une matrice préallouée du pool, puis partagés
+     * par emprunt avec les consommateurs de la trame.
+     *
+     * @param frame trame capturée
+     * @param captureNanoTime retour de la lecture de la trame, sur l'horloge monotone (System.nanoTime)
+     * @throws InterruptedException si le thread est interrompu en attendant le pool
+     */
+    private void processFrame(Frame frame, long captureNanoTime) throws InterruptedException {
+        FrameLease lease = framePool.acquire();
+        if (lease == null) {
+            // Pool épuisé : la trame est abandonnée
+            return;
+        }
+
+        try {
+            // Convertir la trame en Mat et la copier dans la matrice du pool
+            Mat mat = converter.convert(frame);
+            copyToPooledMat(mat, lease.getMat());
+            
+            // Différence avec la trame précédente, avant toute inférence coûteuse
+            boolean motion = motionDetector != null && motionDetector.detect(lease.getMat());
+
+            // Créer l'objet VideoFrame
+            // L'encodage de l'image n'est réalisé qu'à la demande d'un consommateur
+            EncodingProfile profile = frameEncodingService.getProfile(FrameEncodingService.WEBSOCKET_PROFILE);
+            VideoFrame videoFrame = VideoFrame.builder()
+                    .imageDataSupplier(() -> encodeLeasedFrame(lease, profile.getName()))
+                    .sourceId(sourceId)
+                    .timestamp(source.getFrameTimestamp())
+                    .captureNanoTime(captureNanoTime)
+                    .sequenceNumber(frameCounter.incrementAndGet())
+                    .width(lease.getMat().cols())
+                    .height(lease.getMat().rows())
+                    .format(profile.getFormat().getExtension())
+                    .motionDetected(motion)
+                    .personDetected(false) // Sera mis à jour par le service d'analyse
+                    .frameLease(lease) // Matrice partagée, sans copie, pour l'analyse
+                    .build();
+
+            // Publier l'événement
+            eventPublisher.publishVideoFrame(videoFrame);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du traitement de la trame vidéo de {}", sourceId, e);
+        } finally {
+            // Libérer la référence du thread de capture ; les consommateurs ont pris la leur
+            lease.release();
+        }
+    }
+
+    /**
+     * Copie une trame dans une matrice du pool sans jamais la réallouer. Une
+     * trame d'une autre taille que celle configurée (flux, caméra qui ignore la
+     * résolution demandée) y est redimensionnée, et une trame en niveaux de gris
+     * ou avec canal alpha y est convertie en BGR.
+     *
+     * @param mat trame capturée
+     * @param pooled matrice empruntée au pool
+     */
+    private void copyToPooledMat(Mat mat, Mat pooled) {
+        if (mat.cols() == pooled.cols() && mat.rows() == pooled.rows() && mat.type() == pooled.type()) {
+            mat.copyTo(pooled);
+            return;
+        }
+
+        if (!formatMismatchLogged) {
+            formatMismatchLogged = true;
+            log.warn("La source {} produit des trames {}x{} à {} canaux au lieu de {}x{} à {} canaux : "
+                    + "elles sont converties dans les matrices du pool",
+                    sourceId, mat.cols(), mat.rows(), mat.channels(), pooled.cols(), pooled.rows(), pooled.channels());
+        }
+        convertedFrames.incrementAndGet();
+
+        Mat bgr = mat;
+        if (mat.channels() != pooled.channels()) {
+            cvtColor(mat, converted, mat.channels() == 1 ? COLOR_GRAY2BGR : COLOR_BGRA2BGR);
+            bgr = converted;
+        }
+        if (bgr.cols() == pooled.cols() && bgr.rows() == pooled.rows()) {
+            bgr.copyTo(pooled);
+        } else {
+            try (Size size = new Size(pooled.cols(), pooled.rows())) {
+                resize(bgr, pooled, size, 0, 0, INTER_AREA);
+            }
+        }
+    }
+
+    /**
+     * Encode à la demande la matrice empruntée d'une trame.
+     * Une référence est acquise pendant l'encodage ; si la matrice a déjà été
+     * rendue au pool, aucune image n'est produite.
+     *
+     * @param lease emprunt de la matrice de la trame
+     * @param profileName profil d'encodage du consommateur
+     * @return image encodée en base64, ou null si la matrice n'est plus disponible
+     */
+    private String encodeLeasedFrame(FrameLease lease, String profileName) {
+        if (!lease.retain()) {
+            return null;
+        }
+
+        try {
+            return frameEncodingService.encodeToBase64(lease, profileName);
+        } finally {
+            lease.release();
+        }
+    }
+
+    @Override
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public boolean isCameraAvailable() {
+        return cameraAvailable.get();
+    }
+
+    /**
+     * @return true si la capture doit tourner (démarrée et non arrêtée par l'utilisateur)
+     */
+    @Override
+    public boolean isDesiredRunning() {
+        return desiredRunning;
+    }
+
+    /**
+     * @return true si le thread de capture est vivant
+     */
+    @Override
+    public boolean isCaptureThreadAlive() {
+        Thread thread = captureThread;
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * @return le temps écoulé depuis le dernier tour de la boucle de capture, en millisecondes
+     */
+    @Override
+    public long getHeartbeatAgeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heartbeatNanos);
+    }
+
+    /**
+     * @return le temps écoulé depuis la dernière trame capturée, en millisecondes
+     */
+    @Override
+    public long getLastFrameAgeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameNanos);
+    }
+
+    /**
+     * @return true si au moins une trame a été capturée depuis le dernier démarrage de la capture
+     */
+    @Override
+    public boolean hasCapturedSinceStart() {
+        return lastFrameNanos - startedNanos > 0;
+    }
+
+    /**
+     * @return le temps écoulé depuis le dernier démarrage de la capture, en millisecondes
+     */
+    @Override
+    public long getUptimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Récupère les statistiques de la source.
+     *
+     * @return état, trames produites, trames converties au format du pool, pool de trames et cadence de capture
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("source", source.getStats());
+        stats.put("running", running.get());
+        if (running.get()) {
+            stats.put("heartbeatAgeMs", getHeartbeatAgeMs());
+            stats.put("lastFrameAgeMs", getLastFrameAgeMs());
+        }
+        stats.put("available", cameraAvailable.get());
+        stats.put("frames", frameCounter.get());
+        stats.put("rateFactor", Math.round(rateFactor * 1000.0) / 1000.0);
+        stats.put("decimatedFrames", decimatedFrames.get());
+        stats.put("convertedFrames", convertedFrames.get());
+        stats.put("framePool", framePool.getStats());
+        stats.put("scheduler", scheduler.getStats());
+        if (motionDetector != null) {
+            stats.put("motion", motionDetector.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Arrête la capture et libère la source et le pool de trames.
+     */
+    public void close() {
+        stop();
+
+        try {
+            source.release();
+        } catch (Exception e) {
+            log.error("Erreur lors de la libération de la source {}", sourceId, e);
+        }
+        framePool.close();
+        converted.close();
+        if (motionDetector != null) {
+            motionDetector.close();
+        }
+    }
+}
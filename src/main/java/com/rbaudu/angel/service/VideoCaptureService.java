@@ -1,17 +1,12 @@
 package com.rbaudu.angel.service;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.time.Instant;
-import java.util.Base64;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.Java2DFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameGrabber;
 import org.bytedeco.opencv.opencv_core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,16 +14,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.rbaudu.angel.config.AppConfig;
-import com.rbaudu.angel.model.VideoFrame;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 
-import javax.imageio.ImageIO;
-
 /**
  * Service responsable de la capture des flux vidéo.
- * Utilise JavaCV et OpenCV pour capturer les flux de la caméra.
+ * Utilise JavaCV pour capturer les caméras locales (OpenCV) et les flux réseau
+ * ou fichiers (FFmpeg) configurés, chacun dans sa propre chaîne de capture.
  */
 @Service
 public class VideoCaptureService {
@@ -36,23 +29,22 @@ public class VideoCaptureService {
 
     @Autowired
     private AppConfig config;
-    
+
     @Autowired
     private MediaEventPublisher eventPublisher;
-    
-    private OpenCVFrameGrabber grabber;
-    private OpenCVFrameConverter.ToMat converter;
-    private Java2DFrameConverter java2dConverter;
-    private AtomicBoolean running;
-    private AtomicLong frameCounter;
-    private Thread captureThread;
-    private AtomicBoolean cameraAvailable;
-    private int cameraRetryCount;
-    private static final int MAX_RETRY_COUNT = 3;
 
-    
+    @Autowired
+    private FrameEncodingService frameEncodingService;
+
+    @Autowired(required = false)
+    private List<FramePool.ReclaimListener> reclaimListeners;
+
+    // Chaînes de capture indexées par identifiant de source, dans l'ordre de configuration
+    private final Map<String, VideoCapturePipeline> pipelines = new LinkedHashMap<>();
+
+
     /**
-     * Initialise le service de capture vidéo.
+     * Initialise le service de capture vidéo et une chaîne de capture par source.
      */
     @PostConstruct
     public void init() {
@@ -60,223 +52,212 @@ public class VideoCaptureService {
             log.info("Capture vidéo désactivée");
             return;
         }
-        
-        try {
-            log.info("Initialisation du service de capture vidéo...");
-            grabber = new OpenCVFrameGrabber(config.getCameraIndex());
-            grabber.setImageWidth(config.getVideoWidth());
-            grabber.setImageHeight(config.getVideoHeight());
-            grabber.setFrameRate(config.getVideoFps());
-            converter = new OpenCVFrameConverter.ToMat();
-            java2dConverter = new Java2DFrameConverter();
-            running = new AtomicBoolean(false);
-            cameraAvailable = new AtomicBoolean(true);
-            cameraRetryCount = 0;
-            frameCounter = new AtomicLong(0);
-            log.info("Service de capture vidéo initialisé");
-        } catch (Exception e) {
-            log.error("Erreur lors de l'initialisation du service de capture vidéo", e);
-            cameraAvailable.set(false);
 
+        log.info("Initialisation du service de capture vidéo...");
+        int streamCount = 0;
+        for (String spec : config.getVideoSources()) {
+            try {
+                CaptureSource source;
+                if (StreamCaptureSource.isStreamUrl(spec)) {
+                    source = createStreamSource("stream-" + streamCount++, spec);
+                } else {
+                    source = new LocalCameraSource(Integer.parseInt(spec),
+                            config.getVideoWidth(), config.getVideoHeight(), config.getVideoFps());
+                }
+                
+                String sourceId = source.getId();
+                if (pipelines.containsKey(sourceId)) {
+                    log.warn("Source vidéo {} configurée plusieurs fois, ignorée", sourceId);
+                    continue;
+                }
+
+                FramePool framePool = new FramePool(
+                        sourceId,
+                        config.getFramePoolSize(),
+                        config.getVideoWidth(),
+                        config.getVideoHeight(),
+                        FramePool.ExhaustionPolicy.valueOf(config.getFramePoolPolicy().toUpperCase()),
+                        config.getFramePoolBlockTimeoutMs());
+                if (reclaimListeners != null) {
+                    reclaimListeners.forEach(framePool::addReclaimListener);
+                }
+
+                MotionDetector motionDetector = config.isMotionDetectionEnabled()
+                        ? new MotionDetector(config.getMotionDownscaleWidth(),
+                                config.getMotionPixelThreshold(), config.getMotionAreaRatio())
+                        : null;
+
+                pipelines.put(sourceId, new VideoCapturePipeline(
+                        source,
+                        config.getVideoFps(),
+                        framePool,
+                        motionDetector,
+                        eventPublisher,
+                        frameEncodingService));
+            } catch (Exception e) {
+                log.error("Erreur lors de l'initialisation de la source vidéo '{}'", spec, e);
+            }
         }
+        log.info("Service de capture vidéo initialisé avec {} source(s): {}", pipelines.size(), pipelines.keySet());
     }
     
     /**
-     * Démarre la capture vidéo dans un thread séparé.
+     * Crée une source de flux réseau ou de fichier décodée par FFmpeg.
+     * 
+     * @param sourceId identifiant de la source
+     * @param url URL du flux ou du fichier
+     * @return la source configurée
+     */
+    private CaptureSource createStreamSource(String sourceId, String url) {
+        return StreamCaptureSource.builder()
+                .id(sourceId)
+                .url(url)
+                .width(config.getVideoWidth())
+                .height(config.getVideoHeight())
+                .decoderThreads(config.getStreamDecoderThreads())
+                .lowLatency(config.isStreamLowLatency())
+                .rtspTransport(config.getStreamRtspTransport())
+                .timeoutMs(config.getStreamTimeoutMs())
+                .reconnectInitialDelayMs(config.getStreamReconnectInitialDelayMs())
+                .reconnectMaxDelayMs(config.getStreamReconnectMaxDelayMs())
+                .reconnectMaxAttempts(config.getStreamReconnectMaxAttempts())
+                .loop(config.isStreamFileLoop())
+                .realtime(config.isStreamFileRealtime())
+                .build();
+    }
+
+    /**
+     * Démarre la capture de toutes les sources vidéo.
      */
     public void start() {
-        if (!config.isVideoEnabled() || running.get() || !cameraAvailable.get()) {
-            if (!cameraAvailable.get()) {
-                log.warn("Démarrage de la vidéo impossible: caméra non disponible");
-            }
+        if (!config.isVideoEnabled()) {
             return;
         }
-        
-        try {
-            log.info("Démarrage de la capture vidéo...");
-            try {
-                grabber.start();
-                cameraRetryCount = 0;
-            } catch (Exception e) {
-                cameraRetryCount++;
-                if (cameraRetryCount >= MAX_RETRY_COUNT) {
-                    cameraAvailable.set(false);
-                    log.error("La caméra n'est pas disponible après {} tentatives. Désactivation de la capture vidéo.", MAX_RETRY_COUNT);
-                    return;
-                }
-                log.warn("Erreur lors du démarrage de la caméra (tentative {}/{}), nouvelle tentative...", 
-                        cameraRetryCount, MAX_RETRY_COUNT);
-                return;
-            }
-            
-            running.set(true);
-            
-            captureThread = new Thread(() -> {
-                captureLoop();
-            }, "video-capture-thread");
-            captureThread.setDaemon(true);
-            captureThread.start();
-            
-            log.info("Capture vidéo démarrée");
-        } catch (Exception e) {
-            log.error("Erreur lors du démarrage de la capture vidéo", e);
+        pipelines.values().forEach(VideoCapturePipeline::start);
+    }
+
+    /**
+     * Démarre la capture d'une source vidéo.
+     *
+     * @param sourceId identifiant de la source
+     * @return false si la source est inconnue
+     */
+    public boolean start(String sourceId) {
+        VideoCapturePipeline pipeline = pipelines.get(sourceId);
+        if (pipeline == null) {
+            log.warn("Source vidéo inconnue: {}", sourceId);
+            return false;
         }
+        pipeline.start();
+        return true;
     }
-    
+
     /**
-     * Arrête la capture vidéo.
+     * Arrête la capture de toutes les sources vidéo.
      */
     public void stop() {
-        if (!running.get()) {
-            return;
-        }
-        
-        log.info("Arrêt de la capture vidéo...");
-        running.set(false);
-        
-        try {
-            if (captureThread != null) {
-                captureThread.interrupt();
-                captureThread.join(1000);
-            }
-            
-            if (grabber != null) {
-                grabber.stop();
-            }
-            
-            log.info("Capture vidéo arrêtée");
-        } catch (Exception e) {
-            log.error("Erreur lors de l'arrêt de la capture vidéo", e);
+        pipelines.values().forEach(VideoCapturePipeline::stop);
+    }
+
+    /**
+     * Arrête la capture d'une source vidéo.
+     *
+     * @param sourceId identifiant de la source
+     * @return false si la source est inconnue
+     */
+    public boolean stop(String sourceId) {
+        VideoCapturePipeline pipeline = pipelines.get(sourceId);
+        if (pipeline == null) {
+            log.warn("Source vidéo inconnue: {}", sourceId);
+            return false;
         }
+        pipeline.stop();
+        return true;
     }
 
- // Dans VideoCaptureService.java
+    /**
+     * Applique un facteur de cadence à toutes les sources vidéo.
+     *
+     * @param factor facteur appliqué à la cadence nominale, entre 0 et 1
+     */
+    public void setRateFactor(double factor) {
+        pipelines.values().forEach(pipeline -> pipeline.setRateFactor(factor));
+    }
+
+    /**
+     * Capture une trame de la première source, pour les tests de détection.
+     *
+     * @return la trame capturée, ou null si aucune source n'est disponible
+     */
     public Mat getLastFrameMat() {
-        // Retourner la dernière frame capturée
-        // Si vous stockez déjà les VideoFrame quelque part, récupérez la dernière
-        // Sinon, capturez une nouvelle frame
-        try {
-            Frame frame = grabber.grab();
-            if (frame != null && frame.image != null) {
-                return converter.convert(frame);
+        for (VideoCapturePipeline pipeline : pipelines.values()) {
+            if (pipeline.isCameraAvailable()) {
+                return pipeline.grabSingleFrame();
             }
-        } catch (Exception e) {
-            log.error("Erreur lors de la capture d'une frame pour le test", e);
         }
         return null;
     }
+
     /**
-     * Boucle principale de capture vidéo.
+     * Indique si au moins une caméra est disponible.
+     *
+     * @return true si une caméra est disponible, false sinon
      */
-    private void captureLoop() {
-        int errorCount = 0;
-        final int MAX_ERRORS = 10;
-        
-        try {
-            while (running.get() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    Frame frame = grabber.grab();
-                    
-                    if (frame != null && frame.image != null) {
-                        errorCount = 0;  // Réinitialiser le compteur d'erreurs en cas de réussite
-                        processFrame(frame);
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    log.warn("Erreur de capture de trame: {} ({}/{})", e.getMessage(), errorCount, MAX_ERRORS);
-                    
-                    if (errorCount >= MAX_ERRORS) {
-                        log.error("Trop d'erreurs consécutives de capture. Arrêt de la boucle.");
-                        break;
-                    }
-                }
-                
-                // Respecter la cadence configurée
-                TimeUnit.MILLISECONDS.sleep(1000 / config.getVideoFps());
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.info("Thread de capture vidéo interrompu");
-        } catch (Exception e) {
-            log.error("Erreur dans la boucle de capture vidéo", e);
-        } finally {
-            running.set(false);
-        }
+    public boolean isCameraAvailable() {
+        return pipelines.values().stream().anyMatch(VideoCapturePipeline::isCameraAvailable);
     }
-    
+
     /**
-     * Traite une trame capturée et publie un événement.
-     * 
-     * @param frame trame capturée
+     * Indique si une source vidéo est en cours de capture.
+     *
+     * @param sourceId identifiant de la source
+     * @return true si la source existe et capture
      */
-    private void processFrame(Frame frame) {
-        try {
-            // Convertir la trame en Mat pour le traitement OpenCV
-            Mat mat = converter.convert(frame);
-            
-            // Convertir la trame en BufferedImage pour l'encodage
-            BufferedImage bufferedImage = java2dConverter.convert(frame);
-            
-            // Encoder l'image en base64
-            String imageData = encodeToBase64(bufferedImage, "jpg");
-            
-            // Créer l'objet VideoFrame
-            VideoFrame videoFrame = VideoFrame.builder()
-                    .imageData(imageData)
-                    .timestamp(Instant.now())
-                    .sequenceNumber(frameCounter.incrementAndGet())
-                    .width(frame.imageWidth)
-                    .height(frame.imageHeight)
-                    .format("jpg")
-                    .motionDetected(false) // Sera mis à jour par le service d'analyse
-                    .personDetected(false) // Sera mis à jour par le service d'analyse
-                    .frameMat(mat.clone()) // Stocker une copie de la matrice pour l'analyse
-                    .build();
-            
-            // Publier l'événement
-            eventPublisher.publishVideoFrame(videoFrame);
-            
-        } catch (Exception e) {
-            log.error("Erreur lors du traitement de la trame vidéo", e);
-        }
+    public boolean isRunning(String sourceId) {
+        VideoCapturePipeline pipeline = pipelines.get(sourceId);
+        return pipeline != null && pipeline.isRunning();
     }
-    
+
     /**
-     * Encode une image BufferedImage en chaîne base64.
-     * 
-     * @param image image à encoder
-     * @param format format de l'image
-     * @return image encodée en base64
-     * @throws Exception en cas d'erreur d'encodage
+     * Récupère les identifiants des sources vidéo configurées.
+     *
+     * @return les identifiants, dans l'ordre de configuration
      */
-    private String encodeToBase64(BufferedImage image, String format) throws Exception {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(image, format, outputStream);
-        return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+    public List<String> getSourceIds() {
+        return new ArrayList<>(pipelines.keySet());
     }
-    
+
     /**
-     * Indique si la caméra est disponible.
-     * 
-     * @return true si la caméra est disponible, false sinon
+     * Récupère les chaînes de capture, pour leur supervision.
+     *
+     * @return les chaînes de capture, dans l'ordre de configuration
      */
-    public boolean isCameraAvailable() {
-        return cameraAvailable.get();
+    public Collection<VideoCapturePipeline> getPipelines() {
+        return Collections.unmodifiableCollection(pipelines.values());
     }
-    
+
+    /**
+     * Récupère les statistiques de chaque source vidéo.
+     *
+     * @return état, pool de trames et cadence de capture, indexés par source
+     */
+    public Map<String, Object> getSourceStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        pipelines.forEach((sourceId, pipeline) -> stats.put(sourceId, pipeline.getStats()));
+        return stats;
+    }
+
     /**
      * Nettoyage des ressources avant la destruction du bean.
      */
     @PreDestroy
     public void cleanup() {
-        stop();
-        
-        try {
-            if (grabber != null) {
-                grabber.release();
+        for (VideoCapturePipeline pipeline : pipelines.values()) {
+            try {
+                pipeline.close();
+            } catch (Exception e) {
+                log.error("Erreur lors du nettoyage de la source vidéo {}", pipeline.getSourceId(), e);
             }
-        } catch (Exception e) {
-            log.error("Erreur lors du nettoyage du service de capture vidéo", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package com.rbaudu.angel.analyzer.service.audio;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.service.PcmRingBuffer;
+import com.rbaudu.angel.service.PcmWindow;
+
+class AudioFeatureStreamsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 1_700_000_000L * SECOND;
+
+    private AudioFeatureStreams streams;
+
+    @BeforeEach
+    void setUp() {
+        streams = new AudioFeatureStreams(new AnalyzerConfig());
+    }
+
+    /**
+     * Historique mono de quatre secondes d'un la 440 Hz.
+     */
+    private static PcmRingBuffer ring(int sampleRate) {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", sampleRate, 1, 8);
+        byte[] data = new byte[sampleRate * 2];
+        for (int second = 0; second < 4; second++) {
+            for (int i = 0; i < sampleRate; i++) {
+                short sample = (short) (16000 * Math.sin(2 * Math.PI * 440 * (second * sampleRate + i) / sampleRate));
+                data[2 * i] = (byte) sample;
+                data[2 * i + 1] = (byte) (sample >> 8);
+            }
+            ring.write(data, data.length, T0 + second * SECOND);
+        }
+        return ring;
+    }
+
+    private static PcmWindow window(PcmRingBuffer ring, long fromSecond, long toSecond) {
+        return ring.window(T0 + fromSecond * SECOND, T0 + toSecond * SECOND);
+    }
+
+    @Test
+    void overlappingWindowsReuseComputedFrames() {
+        PcmRingBuffer ring = ring(16000);
+        float[] first = streams.averageMfcc(window(ring, 0, 2));
+        float[] second = streams.averageMfcc(window(ring, 1, 3));
+
+        assertEquals(0L, streams.getStats().get("resets"));
+        assertTrue((long) streams.getStats().get("reusedFrames") > 0);
+        // Signal stationnaire : les deux fenêtres ont les mêmes coefficients moyens
+        assertArrayEquals(first, second, 0.5f);
+    }
+
+    @Test
+    void sampleRateChangeRebuildsTheExtractor() {
+        streams.averageMfcc(window(ring(16000), 0, 2));
+
+        PcmRingBuffer resampled = ring(8000);
+        float[] average = streams.averageMfcc(window(resampled, 1, 3));
+
+        // Mêmes coefficients qu'un extracteur construit directement à 8 kHz
+        float[] expected = new AudioFeatureStreams(new AnalyzerConfig()).averageMfcc(window(resampled, 1, 3));
+        assertArrayEquals(expected, average, 0f);
+        assertEquals(1L, streams.getStats().get("resets"));
+        assertEquals(1, streams.getStats().get("sources"));
+    }
+}
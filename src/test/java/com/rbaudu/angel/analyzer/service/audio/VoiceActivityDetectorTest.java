@@ -0,0 +1,89 @@
+package com.rbaudu.angel.analyzer.service.audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.rbaudu.angel.analyzer.config.AnalyzerConfig;
+import com.rbaudu.angel.analyzer.model.VoiceActivity;
+
+class VoiceActivityDetectorTest {
+
+    private static final int RATE = 16000;
+
+    private VoiceActivityDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = new VoiceActivityDetector(new AnalyzerConfig());
+    }
+
+    /**
+     * Son voisé : fondamentale de 150 Hz et harmoniques décroissantes.
+     */
+    private static float[] voiced(int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            double t = (double) i / RATE;
+            double value = 0;
+            for (int h = 1; h <= 5; h++) {
+                value += Math.sin(2 * Math.PI * 150 * h * t) / h;
+            }
+            samples[i] = (float) (0.2 * value);
+        }
+        return samples;
+    }
+
+    private static float[] whiteNoise(int length, double amplitude) {
+        Random random = new Random(7);
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (amplitude * random.nextGaussian());
+        }
+        return samples;
+    }
+
+    @Test
+    void emptyOrQuietWindowIsSilence() {
+        assertEquals(VoiceActivity.SILENCE, detector.classify(new float[RATE], 0));
+        assertEquals(VoiceActivity.SILENCE, detector.classify(new float[RATE], RATE));
+        assertEquals(VoiceActivity.SILENCE, detector.classify(whiteNoise(RATE, 0.001), RATE));
+    }
+
+    @Test
+    void harmonicSoundIsVoice() {
+        assertEquals(VoiceActivity.VOICE, detector.classify(voiced(RATE), RATE));
+    }
+
+    @Test
+    void windowShorterThanAFrameIsAnalysed() {
+        assertEquals(VoiceActivity.VOICE, detector.classify(voiced(600), 600));
+    }
+
+    @Test
+    void whiteNoiseIsNoise() {
+        assertEquals(VoiceActivity.NOISE, detector.classify(whiteNoise(RATE, 0.2), RATE));
+    }
+
+    @Test
+    void highPitchedToneIsNoise() {
+        // Spectre harmonique, mais taux de passage par zéro hors de la plage de la parole
+        float[] samples = new float[RATE];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (0.3 * Math.sin(2 * Math.PI * 3000 * i / RATE));
+        }
+        assertEquals(VoiceActivity.NOISE, detector.classify(samples, RATE));
+    }
+
+    @Test
+    void onlyTheSignificantSamplesAreClassified() {
+        // Voix suivie d'un bruit fort hors de la longueur significative
+        float[] samples = new float[2 * RATE];
+        System.arraycopy(voiced(RATE), 0, samples, 0, RATE);
+        System.arraycopy(whiteNoise(RATE, 0.5), 0, samples, RATE, RATE);
+        assertEquals(VoiceActivity.VOICE, detector.classify(samples, RATE));
+    }
+}
@@ -0,0 +1,86 @@
+package com.rbaudu.angel.analyzer.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare les implémentations scalaire et vectorielle des {@link AudioKernels}
+ * sur des segments de capture usuels (100 ms à 16 et 48 kHz).
+ * <p>
+ * L'implémentation vectorielle n'existe que dans une construction avec le
+ * profil {@code vector} :
+ * {@code mvn -Pvector,benchmark test-compile exec:exec -Djmh.args="AudioKernelsBenchmark"}.
+ * Sans ce profil, limiter la mesure à l'implémentation scalaire avec
+ * {@code -Djmh.args="AudioKernelsBenchmark -p backend=scalar"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AudioKernelsBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String backend;
+
+    @Param({"1600", "4800"})
+    public int length;
+
+    private AudioKernels.Backend kernels;
+    private float[] samples;
+    private float[] imaginary;
+
+    @Setup
+    public void setUp() {
+        kernels = "vector".equals(backend) ? AudioKernels.VECTOR : AudioKernels.SCALAR;
+        if (kernels == null) {
+            throw new IllegalStateException(
+                    "Noyaux vectoriels indisponibles : construire avec -Pvector,benchmark");
+        }
+        Random random = new Random(42);
+        samples = new float[length];
+        imaginary = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * i / 16000.0) + 0.05 * random.nextGaussian());
+            imaginary[i] = (float) random.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    public float peak() {
+        return kernels.peak(samples, 0, length);
+    }
+
+    @Benchmark
+    public double sumAbs() {
+        return kernels.sumAbs(samples, 0, length);
+    }
+
+    @Benchmark
+    public double energy() {
+        return kernels.sumSquares(samples, 0, length);
+    }
+
+    @Benchmark
+    public double spectralEnergy() {
+        return kernels.sumSquares(samples, imaginary, 0, length);
+    }
+
+    @Benchmark
+    public int zeroCrossings() {
+        return kernels.zeroCrossings(samples, 0, length);
+    }
+}
@@ -0,0 +1,150 @@
+package com.rbaudu.angel.analyzer.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+class AudioResamplerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 1_700_000_000L * SECOND;
+
+    /**
+     * Sinusoïde PCM 16 bits, identique sur tous les canaux.
+     */
+    private static byte[] sine(double frequency, int rate, int channels, int frames) {
+        byte[] pcm = new byte[frames * channels * 2];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(16384 * Math.sin(2 * Math.PI * frequency * i / rate));
+            for (int c = 0; c < channels; c++) {
+                int position = (i * channels + c) * 2;
+                pcm[position] = (byte) sample;
+                pcm[position + 1] = (byte) (sample >> 8);
+            }
+        }
+        return pcm;
+    }
+
+    private static short sampleAt(byte[] pcm, int index) {
+        return (short) ((pcm[2 * index] & 0xFF) | (pcm[2 * index + 1] << 8));
+    }
+
+    /**
+     * Rééchantillonne un signal par segments et concatène la sortie.
+     */
+    private static byte[] resample(AudioResampler resampler, byte[] pcm, int chunkBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int position = 0; position < pcm.length; position += chunkBytes) {
+            int length = Math.min(chunkBytes, pcm.length - position);
+            byte[] chunk = new byte[length];
+            System.arraycopy(pcm, position, chunk, 0, length);
+            int produced = resampler.process(chunk, length, T0);
+            out.write(resampler.getOutput(), 0, produced * 2);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void producesTheOutputRateWorthOfSamples() {
+        AudioResampler resampler = new AudioResampler(48000, 2, 16000);
+        byte[] chunk = sine(440, 48000, 2, 4800);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1600, resampler.process(chunk, chunk.length, T0 + i * SECOND / 10));
+        }
+
+        // Rapport irrégulier : 160/441, le compte est juste sur la durée totale
+        AudioResampler irregular = new AudioResampler(44100, 1, 16000);
+        byte[] second = sine(440, 44100, 1, 44100);
+        assertEquals(16000, resample(irregular, second, 4410 * 2).length / 2);
+        assertEquals(44100L, irregular.getStats().get("inputFrames"));
+        assertEquals(16000L, irregular.getStats().get("outputFrames"));
+    }
+
+    @Test
+    void timestampsAreContinuousAndAccountForTheFilterDelay() {
+        AudioResampler resampler = new AudioResampler(44100, 1, 16000);
+        byte[] chunk = sine(440, 44100, 1, 4410);
+
+        long produced = resampler.process(chunk, chunk.length, T0);
+        long firstOutput = resampler.getOutputStartNanos();
+        double delayMs = (double) resampler.getStats().get("delayMs");
+        assertEquals(delayMs * 1_000_000, T0 - firstOutput, 10_000);
+
+        for (int i = 1; i < 50; i++) {
+            long start = T0 + i * SECOND / 10;
+            int count = resampler.process(chunk, chunk.length, start);
+            // Le premier échantillon du segment suit exactement ceux déjà produits
+            assertEquals(firstOutput + produced * SECOND / 16000, resampler.getOutputStartNanos(), 1_000);
+            produced += count;
+        }
+    }
+
+    @Test
+    void sineSurvivesDownsampling() {
+        AudioResampler resampler = new AudioResampler(48000, 1, 16000);
+        byte[] input = sine(1000, 48000, 1, 48000);
+        int produced = resampler.process(input, input.length, T0);
+        byte[] output = resampler.getOutput();
+        double delaySeconds = (T0 - resampler.getOutputStartNanos()) / 1e9;
+
+        // Sortie j : instant j / 16000 de l'entrée, retardé du filtre
+        double maxError = 0;
+        for (int j = 200; j < produced - 200; j++) {
+            double time = j / 16000.0 - delaySeconds;
+            double expected = 16384 * Math.sin(2 * Math.PI * 1000 * time);
+            maxError = Math.max(maxError, Math.abs(sampleAt(output, j) - expected));
+        }
+        assertTrue(maxError < 16384 * 0.01, "erreur maximale " + maxError);
+    }
+
+    @Test
+    void frequenciesAboveTheOutputNyquistAreRemoved() {
+        AudioResampler resampler = new AudioResampler(48000, 1, 16000);
+        byte[] output = resample(resampler, sine(12000, 48000, 1, 48000), 4800 * 2);
+
+        double energy = 0;
+        int count = 0;
+        for (int j = 200; j < output.length / 2; j++) {
+            energy += (double) sampleAt(output, j) * sampleAt(output, j);
+            count++;
+        }
+        double rms = Math.sqrt(energy / count);
+        // Une sinusoïde d'amplitude 16384 a un RMS d'environ 11585 : au moins 40 dB d'atténuation
+        assertTrue(rms < 116, "RMS du repliement " + rms);
+    }
+
+    @Test
+    void chunkBoundariesDoNotChangeTheOutput() {
+        byte[] input = sine(440, 44100, 2, 44100);
+        byte[] whole = resample(new AudioResampler(44100, 2, 16000), input, input.length);
+        byte[] chunked = resample(new AudioResampler(44100, 2, 16000), input, 1000 * 4);
+        assertArrayEquals(whole, chunked);
+    }
+
+    @Test
+    void channelsAreAveragedToMono() {
+        // Canaux en opposition de phase : la moyenne est un silence
+        byte[] pcm = sine(440, 48000, 2, 4800);
+        for (int i = 0; i < 4800; i++) {
+            short right = (short) -sampleAt(pcm, 2 * i);
+            pcm[4 * i + 2] = (byte) right;
+            pcm[4 * i + 3] = (byte) (right >> 8);
+        }
+        AudioResampler resampler = new AudioResampler(48000, 2, 16000);
+        int produced = resampler.process(pcm, pcm.length, T0);
+        for (int j = 0; j < produced; j++) {
+            assertTrue(Math.abs(sampleAt(resampler.getOutput(), j)) <= 1);
+        }
+    }
+
+    @Test
+    void unsupportedRatiosAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AudioResampler(44100, 1, 16001));
+        assertThrows(IllegalArgumentException.class, () -> new AudioResampler(0, 1, 16000));
+    }
+}
@@ -0,0 +1,144 @@
+package com.rbaudu.angel.analyzer.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingMfccTest {
+
+    private static final int RATE = 16000;
+    private static final int FRAME_SIZE = 1024;
+    private static final int HOP_SIZE = 512;
+
+    private static StreamingMfcc newMfcc() {
+        return new StreamingMfcc(RATE, FRAME_SIZE, HOP_SIZE, 13, 40, 300, 3000);
+    }
+
+    private static float[] tone(double frequency, int length) {
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / RATE));
+        }
+        return samples;
+    }
+
+    /**
+     * Trames reçues par le listener : rang, fin et copie des coefficients.
+     */
+    private static final class Frames implements StreamingMfcc.FrameListener {
+        final List<Long> indices = new ArrayList<>();
+        final List<Long> ends = new ArrayList<>();
+        final List<float[]> values = new ArrayList<>();
+
+        @Override
+        public void onFrame(long frameIndex, long endSample, float[] coefficients) {
+            indices.add(frameIndex);
+            ends.add(endSample);
+            values.add(coefficients.clone());
+        }
+    }
+
+    @Test
+    void framesAdvanceByTheHopSize() {
+        Frames frames = new Frames();
+        int computed = newMfcc().process(tone(440, 4096), 0, 4096, frames);
+
+        // 1 + (4096 - 1024) / 512 trames complètes
+        assertEquals(7, computed);
+        assertEquals(7, frames.values.size());
+        for (int i = 0; i < computed; i++) {
+            assertEquals(i, (long) frames.indices.get(i));
+            assertEquals(FRAME_SIZE + (long) i * HOP_SIZE, (long) frames.ends.get(i));
+            assertEquals(13, frames.values.get(i).length);
+        }
+    }
+
+    @Test
+    void chunkedInputGivesTheSameCoefficients() {
+        float[] samples = tone(440, 8000);
+        Frames whole = new Frames();
+        newMfcc().process(samples, 0, samples.length, whole);
+
+        Frames chunked = new Frames();
+        StreamingMfcc mfcc = newMfcc();
+        int[] chunks = {1, 100, 511, 1024, 3, 2000};
+        int position = 0;
+        for (int i = 0; position < samples.length; i++) {
+            int count = Math.min(chunks[i % chunks.length], samples.length - position);
+            mfcc.process(samples, position, count, chunked);
+            position += count;
+        }
+
+        assertEquals(whole.values.size(), chunked.values.size());
+        for (int i = 0; i < whole.values.size(); i++) {
+            assertEquals(whole.ends.get(i), chunked.ends.get(i));
+            assertArrayEquals(whole.values.get(i), chunked.values.get(i), 0f);
+        }
+    }
+
+    @Test
+    void resetDropsPendingSamples() {
+        StreamingMfcc mfcc = newMfcc();
+        Frames frames = new Frames();
+        mfcc.process(tone(440, 1500), 0, 1500, frames);
+        assertEquals(1, frames.values.size());
+
+        mfcc.reset();
+        frames = new Frames();
+        assertEquals(0, mfcc.process(tone(440, 1000), 0, 1000, frames));
+        assertEquals(1, mfcc.process(tone(440, 24), 0, 24, frames));
+        assertEquals(0, (long) frames.indices.get(0));
+        assertEquals(FRAME_SIZE, (long) frames.ends.get(0));
+    }
+
+    @Test
+    void logMelFollowsTheToneFrequency() {
+        int low = loudestFilter(800);
+        int high = loudestFilter(2000);
+        assertTrue(low < high, "filtre " + low + " pour 800 Hz, " + high + " pour 2000 Hz");
+    }
+
+    private static int loudestFilter(double frequency) {
+        Frames frames = new Frames();
+        newMfcc().processLogMel(tone(frequency, FRAME_SIZE), 0, FRAME_SIZE, frames);
+        float[] logMel = frames.values.get(0);
+        assertEquals(40, logMel.length);
+        int loudest = 0;
+        for (int m = 1; m < logMel.length; m++) {
+            if (logMel[m] > logMel[loudest]) {
+                loudest = m;
+            }
+        }
+        return loudest;
+    }
+
+    @Test
+    void silenceIsFlooredInTheLogMelSpectrum() {
+        Frames frames = new Frames();
+        newMfcc().processLogMel(new float[FRAME_SIZE], 0, FRAME_SIZE, frames);
+        for (float value : frames.values.get(0)) {
+            assertEquals(FeaturePlan.LOG_FLOOR, value);
+        }
+    }
+
+    @Test
+    void extractorsShareTheirPlan() {
+        assertSame(FeaturePlan.of(RATE, FRAME_SIZE, 13, 40, 300, 3000),
+                FeaturePlan.of(RATE, FRAME_SIZE, 13, 40, 300, 3000));
+        assertEquals(RATE, newMfcc().getSampleRate());
+    }
+
+    @Test
+    void invalidHopSizeIsRejected() {
+        FeaturePlan plan = FeaturePlan.of(RATE, FRAME_SIZE, 13, 40, 300, 3000);
+        assertThrows(IllegalArgumentException.class, () -> new StreamingMfcc(plan, 0));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingMfcc(plan, FRAME_SIZE + 1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.rbaudu.angel.service;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.AudioFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rbaudu.angel.analyzer.util.AudioResampler;
+import com.rbaudu.angel.model.AudioChunk;
+
+/**
+ * Allocations du chemin de capture audio, par segment de 100 ms : emprunt
+ * d'un buffer au pool, niveaux, historiques continu et d'analyse, publication.
+ * <p>
+ * À lancer avec le profileur GC pour lire les octets alloués par segment
+ * ({@code gc.alloc.rate.norm}) :
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="AudioCaptureBenchmark -prof gc"}.
+ * Seuls les quelques objets décrivant le segment (AudioChunk, horodatage)
+ * doivent apparaître : aucun tableau d'échantillons n'est alloué, que la
+ * source soit rééchantillonnée ou non.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AudioCaptureBenchmark {
+
+    private static final int CHUNK_MS = 100;
+    private static final int ANALYSIS_RATE = 16000;
+
+    /**
+     * Fréquence de capture : celle du modèle, ou une fréquence à rééchantillonner.
+     */
+    @Param({"16000", "48000"})
+    public int captureRate;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    private AudioCapturePipeline pipeline;
+    private AudioBufferPool bufferPool;
+    private byte[] pcm;
+    private long chunkStartNanos;
+    private AudioChunk published;
+
+    @Setup
+    public void setUp() {
+        AudioFormat format = new AudioFormat(captureRate, 16, channels, true, false);
+        int chunkBytes = AudioCapturePipeline.chunkBytes(format, CHUNK_MS);
+        bufferPool = new AudioBufferPool("benchmark", 4, chunkBytes);
+        PcmRingBuffer ringBuffer = new PcmRingBuffer("benchmark", captureRate, channels, 60);
+
+        AudioResampler resampler = null;
+        PcmRingBuffer analysisRing = null;
+        if (captureRate != ANALYSIS_RATE) {
+            resampler = new AudioResampler(captureRate, channels, ANALYSIS_RATE);
+            analysisRing = new PcmRingBuffer("benchmark", ANALYSIS_RATE, 1, 60);
+        }
+
+        // Le segment publié est seulement conservé, comme le ferait un consommateur
+        MediaEventPublisher publisher = new MediaEventPublisher() {
+            @Override
+            public void publishAudioChunk(AudioChunk audioChunk) {
+                published = audioChunk;
+            }
+        };
+        pipeline = new AudioCapturePipeline("benchmark", null, format, CHUNK_MS, bufferPool, ringBuffer,
+                resampler, analysisRing, publisher);
+
+        // Sinusoïde de 440 Hz à -6 dBFS
+        pcm = new byte[chunkBytes];
+        int frames = chunkBytes / (2 * channels);
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (16384 * Math.sin(2 * Math.PI * 440 * i / captureRate));
+            for (int c = 0; c < channels; c++) {
+                int position = (i * channels + c) * 2;
+                pcm[position] = (byte) sample;
+                pcm[position + 1] = (byte) (sample >> 8);
+            }
+        }
+        chunkStartNanos = System.currentTimeMillis() * 1_000_000L;
+    }
+
+    @Benchmark
+    public AudioChunk processChunk() {
+        AudioBufferLease lease = bufferPool.acquire();
+        try {
+            // Équivalent de la lecture de la ligne dans le buffer emprunté
+            System.arraycopy(pcm, 0, lease.getData(), 0, pcm.length);
+            lease.setLength(pcm.length);
+            pipeline.processAudioChunk(lease, chunkStartNanos, System.nanoTime());
+            chunkStartNanos += CHUNK_MS * 1_000_000L;
+        } finally {
+            lease.release();
+        }
+        return published;
+    }
+}
@@ -0,0 +1,49 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AudioClockTest {
+
+    private static final int SAMPLE_RATE = 48_000;
+    private static final int CHUNK_FRAMES = 4_800;
+    private static final long CHUNK_NANOS = 100_000_000L;
+
+    private static long nowEpochNanos() {
+        return PcmRingBuffer.toEpochNanos(Instant.now());
+    }
+
+    @Test
+    void chunksAreSpacedByTheirDuration() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE);
+        clock.start(0);
+
+        long first = clock.onChunkRead(CHUNK_FRAMES, CHUNK_FRAMES);
+        long second = clock.onChunkRead(CHUNK_FRAMES, 2 * CHUNK_FRAMES);
+
+        // La correction ne bouge que d'une fraction de l'écart mesuré entre les deux lectures
+        assertEquals(CHUNK_NANOS, second - first, 5_000_000);
+    }
+
+    @Test
+    void positionBeyondTheProductRangeDoesNotOverflow() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE);
+        clock.start(0);
+        // Ligne ouverte depuis plus de deux jours : pendant ce segment, la position
+        // franchit Long.MAX_VALUE / 10^9 trames, au-delà de laquelle le produit par 10^9 déborde
+        long position = Long.MAX_VALUE / 1_000_000_000L - 1_000;
+        ReflectionTestUtils.setField(clock, "framesRead", position);
+
+        long before = nowEpochNanos();
+        long first = clock.onChunkRead(CHUNK_FRAMES, position + CHUNK_FRAMES);
+        long second = clock.onChunkRead(CHUNK_FRAMES, position + 2 * CHUNK_FRAMES);
+
+        // La dernière trame lue est capturée maintenant : le segment a commencé une durée de segment plus tôt
+        assertEquals(before - CHUNK_NANOS, first, 50_000_000);
+        assertEquals(CHUNK_NANOS, second - first, 5_000_000);
+    }
+}
@@ -0,0 +1,128 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rbaudu.angel.config.AppConfig;
+
+class CaptureRateControllerTest {
+
+    private static final int VIDEO_FPS = 10;
+    private static final int MIN_FPS = 2;
+
+    private CaptureRateController controller;
+    private VideoCaptureService videoCaptureService;
+    private final Load load = new Load();
+
+    /**
+     * Charge simulée d'un consommateur de trames.
+     */
+    private static final class Load implements CaptureRateController.LoadSource {
+        double sojournMs;
+        int queueDepth;
+
+        @Override
+        public double getSojournTimeMs() {
+            return sojournMs;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        @Override
+        public int getQueueCapacity() {
+            return 10;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = mock(AppConfig.class);
+        when(config.isRateControlEnabled()).thenReturn(true);
+        when(config.getVideoFps()).thenReturn(VIDEO_FPS);
+        when(config.getRateControlTargetSojournMs()).thenReturn(500.0);
+        when(config.getRateControlTargetQueueFill()).thenReturn(0.5);
+        when(config.getRateControlMinFps()).thenReturn(MIN_FPS);
+        when(config.getRateControlDecreaseFactor()).thenReturn(0.5);
+        when(config.getRateControlIncreaseStep()).thenReturn(0.1);
+
+        videoCaptureService = mock(VideoCaptureService.class);
+        controller = new CaptureRateController();
+        ReflectionTestUtils.setField(controller, "config", config);
+        ReflectionTestUtils.setField(controller, "videoCaptureService", videoCaptureService);
+        ReflectionTestUtils.setField(controller, "loadSources", List.of(load));
+    }
+
+    private double rateFactor() {
+        return (double) controller.getStats().get("rateFactor");
+    }
+
+    @Test
+    void overloadLowersTheRateToTheMinimumThenRecoveryRestoresIt() {
+        // Analyses qui s'accumulent : le séjour dépasse la cible
+        load.sojournMs = 2000;
+        load.queueDepth = 8;
+        controller.regulate();
+        assertEquals(0.5, rateFactor(), 1e-9);
+        assertEquals(CaptureRateController.State.DECREASING, controller.getStats().get("state"));
+        verify(videoCaptureService).setRateFactor(0.5);
+
+        controller.regulate();
+        controller.regulate();
+        assertEquals((double) MIN_FPS / VIDEO_FPS, rateFactor(), 1e-9);
+        // Cadence minimale atteinte : la surcharge persistante ne la réduit plus
+        controller.regulate();
+        assertEquals((double) MIN_FPS / VIDEO_FPS, rateFactor(), 1e-9);
+        assertEquals(CaptureRateController.State.STEADY, controller.getStats().get("state"));
+        assertEquals(3L, controller.getStats().get("decreases"));
+
+        // File vidée : la cadence remonte par pas jusqu'à la cadence nominale
+        load.sojournMs = 0;
+        load.queueDepth = 0;
+        controller.regulate();
+        assertEquals(0.3, rateFactor(), 1e-9);
+        assertEquals(CaptureRateController.State.INCREASING, controller.getStats().get("state"));
+        for (int i = 0; i < 20; i++) {
+            controller.regulate();
+        }
+        assertEquals(1.0, rateFactor(), 1e-9);
+        assertEquals(CaptureRateController.State.STEADY, controller.getStats().get("state"));
+        verify(videoCaptureService, atLeastOnce()).setRateFactor(1.0);
+    }
+
+    @Test
+    void fullQueueAloneIsOverload() {
+        load.sojournMs = 100;
+        load.queueDepth = 9;
+        controller.regulate();
+
+        assertEquals(0.5, rateFactor(), 1e-9);
+    }
+
+    @Test
+    void loadBetweenBothThresholdsKeepsTheRate() {
+        load.sojournMs = 2000;
+        controller.regulate();
+
+        // Séjour juste sous la cible : ni surcharge, ni marge suffisante pour remonter
+        load.sojournMs = 450;
+        controller.regulate();
+        controller.regulate();
+        assertEquals(0.5, rateFactor(), 1e-9);
+        assertEquals(CaptureRateController.State.STEADY, controller.getStats().get("state"));
+        verify(videoCaptureService, times(1)).setRateFactor(anyDouble());
+    }
+}
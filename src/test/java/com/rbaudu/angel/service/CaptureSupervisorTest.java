@@ -0,0 +1,154 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rbaudu.angel.config.AppConfig;
+
+class CaptureSupervisorTest {
+
+    private static final long STALL_TIMEOUT_MS = 1000;
+
+    private CaptureSupervisor supervisor;
+    private VideoCapturePipeline pipeline;
+    private AudioCapturePipeline microphone;
+    private ExecutorService restartExecutor;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = mock(AppConfig.class);
+        when(config.getSupervisorStallTimeoutMs()).thenReturn(STALL_TIMEOUT_MS);
+        when(config.getSupervisorBackoffInitialMs()).thenReturn(0L);
+        when(config.getSupervisorBackoffMaxMs()).thenReturn(0L);
+
+        pipeline = mock(VideoCapturePipeline.class);
+        when(pipeline.getSourceId()).thenReturn("camera-0");
+        when(pipeline.isDesiredRunning()).thenReturn(true);
+        when(pipeline.isRunning()).thenReturn(true);
+        when(pipeline.isCaptureThreadAlive()).thenReturn(true);
+        when(pipeline.restart()).thenReturn(true);
+
+        VideoCaptureService videoCaptureService = mock(VideoCaptureService.class);
+        when(videoCaptureService.getPipelines()).thenReturn(List.of(pipeline));
+
+        microphone = mock(AudioCapturePipeline.class);
+        when(microphone.getSourceId()).thenReturn("mic-0");
+        when(microphone.isDesiredRunning()).thenReturn(true);
+        when(microphone.isRunning()).thenReturn(true);
+        when(microphone.isCaptureThreadAlive()).thenReturn(true);
+        when(microphone.restart()).thenReturn(true);
+
+        AudioCaptureService audioCaptureService = mock(AudioCaptureService.class);
+        when(audioCaptureService.getPipelines()).thenReturn(List.of(microphone));
+
+        restartExecutor = Executors.newSingleThreadExecutor();
+        supervisor = new CaptureSupervisor();
+        ReflectionTestUtils.setField(supervisor, "config", config);
+        ReflectionTestUtils.setField(supervisor, "videoCaptureService", videoCaptureService);
+        ReflectionTestUtils.setField(supervisor, "audioCaptureService", audioCaptureService);
+        ReflectionTestUtils.setField(supervisor, "restartExecutor", restartExecutor);
+    }
+
+    @Test
+    void backoffDoublesFromInitialDelayUpToMaximum() {
+        assertEquals(500, CaptureSupervisor.backoffDelayMs(1, 500, 60_000));
+        assertEquals(1000, CaptureSupervisor.backoffDelayMs(2, 500, 60_000));
+        assertEquals(4000, CaptureSupervisor.backoffDelayMs(4, 500, 60_000));
+        assertEquals(60_000, CaptureSupervisor.backoffDelayMs(10, 500, 60_000));
+        assertEquals(60_000, CaptureSupervisor.backoffDelayMs(1_000, 500, 60_000));
+    }
+
+    @Test
+    void backoffTreatsNonPositiveFailureCountAsFirstAttempt() {
+        assertEquals(500, CaptureSupervisor.backoffDelayMs(0, 500, 60_000));
+    }
+
+    @Test
+    void failuresAccumulateWhileRestartedSourceDeliversNoFrame() throws Exception {
+        stall();
+        assertEquals(1, consecutiveFailures());
+
+        // Juste après le redémarrage, les âges repartent de zéro sans qu'aucune trame n'arrive
+        healthy(false, 5 * STALL_TIMEOUT_MS);
+        assertEquals(1, consecutiveFailures());
+
+        stall();
+        assertEquals(2, consecutiveFailures());
+    }
+
+    @Test
+    void failuresResetOnceSourceHasRecovered() throws Exception {
+        stall();
+        stall();
+        assertEquals(2, consecutiveFailures());
+
+        // Trames reçues, mais capture pas encore tenue au-delà du délai de blocage
+        healthy(true, STALL_TIMEOUT_MS / 2);
+        assertEquals(2, consecutiveFailures());
+
+        healthy(true, 2 * STALL_TIMEOUT_MS);
+        assertEquals(0, consecutiveFailures());
+    }
+
+    @Test
+    void microphoneWhoseLoopStoppedIsRestartedWithBackoff() throws Exception {
+        healthy(true, 2 * STALL_TIMEOUT_MS);
+
+        // Boucle audio arrêtée après trop d'erreurs de lecture
+        when(microphone.isRunning()).thenReturn(false);
+        when(microphone.isCaptureThreadAlive()).thenReturn(false);
+        supervisor.checkSources();
+        awaitRestart();
+
+        verify(microphone).restart();
+        assertEquals(1, consecutiveFailures("mic-0"));
+        assertEquals(0, consecutiveFailures("camera-0"));
+        assertEquals(1L, sourceStats("mic-0").get("crashes"));
+    }
+
+    private void stall() throws Exception {
+        when(pipeline.getHeartbeatAgeMs()).thenReturn(0L);
+        when(pipeline.getLastFrameAgeMs()).thenReturn(2 * STALL_TIMEOUT_MS);
+        supervisor.checkSources();
+        awaitRestart();
+    }
+
+    private void healthy(boolean capturedSinceStart, long uptimeMs) {
+        when(pipeline.getHeartbeatAgeMs()).thenReturn(0L);
+        when(pipeline.getLastFrameAgeMs()).thenReturn(0L);
+        when(pipeline.hasCapturedSinceStart()).thenReturn(capturedSinceStart);
+        when(pipeline.getUptimeMs()).thenReturn(uptimeMs);
+        supervisor.checkSources();
+    }
+
+    private void awaitRestart() throws Exception {
+        // Le redémarrage s'exécute sur le thread dédié : attendre qu'il soit traité
+        restartExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private int consecutiveFailures() {
+        return consecutiveFailures("camera-0");
+    }
+
+    private int consecutiveFailures(String sourceId) {
+        return (Integer) sourceStats(sourceId).get("consecutiveFailures");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> sourceStats(String sourceId) {
+        Map<String, Object> sources = (Map<String, Object>) supervisor.getStats().get("sources");
+        return (Map<String, Object>) sources.get(sourceId);
+    }
+}
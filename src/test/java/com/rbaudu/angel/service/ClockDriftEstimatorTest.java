@@ -0,0 +1,141 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ClockDriftEstimatorTest {
+
+    private static final long EPOCH_MICROS = 1_700_000_000_000_000L;
+    private static final long NANO_TIME_ORIGIN = 5_000_000_000_000L;
+
+    private final Random random = new Random(42);
+
+    /**
+     * Capture simulée : trames à 30 images/s et segments de 100 ms, horodatés
+     * par des horloges qui avancent de videoAdvanceMicros sur la référence et
+     * dérivent de videoPpm et audioPpm, avec une gigue de ±2 ms.
+     */
+    private void capture(ClockDriftEstimator estimator, double seconds, long videoAdvanceMicros,
+                         double videoPpm, double audioPpm) {
+        capture(estimator, 0, seconds, videoAdvanceMicros, videoPpm, audioPpm);
+    }
+
+    /**
+     * Capture simulée entre deux instants de la référence, en secondes.
+     */
+    private void capture(ClockDriftEstimator estimator, double fromSeconds, double toSeconds,
+                         long videoAdvanceMicros, double videoPpm, double audioPpm) {
+        long videoPeriod = 1_000_000 / 30;
+        long audioPeriod = 100_000;
+        long start = Math.round(fromSeconds * 1_000_000);
+        long nextVideo = start;
+        long nextAudio = start + audioPeriod;
+        while (Math.min(nextVideo, nextAudio) < toSeconds * 1_000_000) {
+            if (nextVideo <= nextAudio) {
+                long media = EPOCH_MICROS + videoAdvanceMicros + Math.round(nextVideo * (1 + videoPpm * 1e-6));
+                estimator.updateVideo(media, NANO_TIME_ORIGIN + (nextVideo + jitter()) * 1_000);
+                nextVideo += videoPeriod;
+            } else {
+                long media = EPOCH_MICROS + Math.round(nextAudio * (1 + audioPpm * 1e-6));
+                estimator.updateAudio(media, NANO_TIME_ORIGIN + (nextAudio + jitter()) * 1_000);
+                nextAudio += audioPeriod;
+            }
+        }
+    }
+
+    private long jitter() {
+        return random.nextInt(4_001) - 2_000;
+    }
+
+    private static long videoMicrosAt(double seconds, long videoAdvanceMicros, double videoPpm) {
+        return EPOCH_MICROS + videoAdvanceMicros + Math.round(seconds * 1e6 * (1 + videoPpm * 1e-6));
+    }
+
+    @Test
+    void constantOffsetBetweenTheClocks() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        capture(estimator, 30, 40_000, 0, 0);
+
+        assertEquals(40_000, estimator.offsetAt(videoMicrosAt(20, 40_000, 0)), 300);
+        assertEquals(0.0, (double) estimator.getStats().get("driftPpm"), 10.0);
+        assertTrue((boolean) estimator.getStats().get("correcting"));
+    }
+
+    @Test
+    void driftIsTheDifferenceBetweenBothClockRates() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        // Caméra en avance de 150 ppm, microphone de 50 ppm : 100 µs d'écart en plus chaque seconde
+        capture(estimator, 60, 40_000, 150, 50);
+
+        assertEquals(100.0, (double) estimator.getStats().get("driftPpm"), 10.0);
+        assertEquals(40_000 + 100 * 30, estimator.offsetAt(videoMicrosAt(30, 40_000, 150)), 300);
+        assertEquals(40_000 + 100 * 60, estimator.offsetAt(videoMicrosAt(60, 40_000, 150)), 500);
+        long corrected = estimator.correct(videoMicrosAt(60, 40_000, 150));
+        assertEquals(EPOCH_MICROS + Math.round(60e6 * (1 + 50e-6)), corrected, 500);
+    }
+
+    @Test
+    void noCorrectionUntilBothStreamsAreObserved() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        for (int i = 0; i < 100; i++) {
+            estimator.updateVideo(EPOCH_MICROS + 40_000 + i * 33_333L, NANO_TIME_ORIGIN + i * 33_333_000L);
+        }
+
+        assertEquals(0, estimator.offsetAt(EPOCH_MICROS + 1_000_000));
+        assertFalse((boolean) estimator.getStats().get("correcting"));
+        assertEquals(0L, estimator.getStats().get("audioSamples"));
+    }
+
+    @Test
+    void resetForgetsTheObservations() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        capture(estimator, 10, 40_000, 0, 0);
+        estimator.reset();
+
+        assertEquals(0, estimator.offsetAt(videoMicrosAt(5, 40_000, 0)));
+        assertEquals(0L, estimator.getStats().get("videoSamples"));
+
+        // Nouvelle origine : l'écart est de nouveau estimé après le redémarrage
+        capture(estimator, 10, -25_000, 0, 0);
+        assertEquals(-25_000, estimator.offsetAt(videoMicrosAt(5, -25_000, 0)), 300);
+    }
+
+    @Test
+    void isolatedOutliersAreDiscarded() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        capture(estimator, 20, 40_000, 0, 0);
+        // Rafale de trames restées bloquées une demi-seconde avant d'être lues
+        for (int i = 0; i < 5; i++) {
+            long reference = 20_000_000L + i * 33_333L;
+            estimator.updateVideo(EPOCH_MICROS + 40_000 + reference, NANO_TIME_ORIGIN + (reference + 500_000) * 1_000);
+        }
+        capture(estimator, 20.2, 30, 40_000, 0, 0);
+
+        assertEquals(40_000, estimator.offsetAt(videoMicrosAt(25, 40_000, 0)), 300);
+        assertEquals(5L, estimator.getStats().get("outliers"));
+        assertEquals(0L, estimator.getStats().get("videoSteps"));
+    }
+
+    @Test
+    void originChangeIsReestimated() {
+        ClockDriftEstimator estimator = new ClockDriftEstimator(2000);
+        capture(estimator, 20, 40_000, 0, 0);
+        // Source réancrée : ses horodatages reculent de 65 ms
+        capture(estimator, 20, 60, -25_000, 0, 0);
+
+        assertEquals(-25_000, estimator.offsetAt(videoMicrosAt(50, -25_000, 0)), 300);
+        assertEquals(1L, estimator.getStats().get("videoSteps"));
+        assertEquals(0L, estimator.getStats().get("audioSteps"));
+    }
+
+    @Test
+    void windowMustCoverTwoObservations() {
+        assertThrows(IllegalArgumentException.class, () -> new ClockDriftEstimator(1));
+    }
+}
@@ -0,0 +1,353 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.rbaudu.angel.config.AppConfig;
+import com.rbaudu.angel.event.AudioEvent;
+import com.rbaudu.angel.event.VideoEvent;
+import com.rbaudu.angel.model.AudioChunk;
+import com.rbaudu.angel.model.SynchronizedMedia;
+import com.rbaudu.angel.model.VideoFrame;
+
+class MediaSynchronizationServiceTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+    private static final int CHUNK_MS = 100;
+    private static final int MAX_DELAY_MS = 100;
+    private static final long NANO_TIME_ORIGIN = 5_000_000_000_000L;
+    private static final int ANALYSIS_RATE = 16_000;
+
+    private AppConfig config;
+    private MediaSynchronizationService service;
+    private final List<SynchronizedMedia> published = new ArrayList<>();
+    // Avance de l'horloge de la caméra sur celle du microphone
+    private long videoAdvanceMs;
+    // Politique windowed : intervalles demandés à l'historique d'analyse et fenêtres rendues
+    private final List<long[]> requestedWindows = new ArrayList<>();
+    private BiFunction<Long, Long, PcmWindow> analysisWindows;
+    // Emprunts des matrices des trames, pour vérifier leur libération
+    private final List<FrameLease> leases = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        config = new AppConfig();
+        ReflectionTestUtils.setField(config, "videoEnabled", true);
+        ReflectionTestUtils.setField(config, "audioEnabled", true);
+        ReflectionTestUtils.setField(config, "audioSources", new String[] {"0"});
+        ReflectionTestUtils.setField(config, "syncBufferSize", 64);
+        ReflectionTestUtils.setField(config, "syncMaxDelayMs", MAX_DELAY_MS);
+        ReflectionTestUtils.setField(config, "syncPairingPolicy", "nearest");
+        ReflectionTestUtils.setField(config, "syncDriftWindow", 2000);
+
+        MediaEventPublisher publisher = new MediaEventPublisher() {
+            @Override
+            public void publishSynchronizedMedia(SynchronizedMedia media) {
+                published.add(media);
+            }
+        };
+        service = new MediaSynchronizationService();
+        ReflectionTestUtils.setField(service, "config", config);
+        ReflectionTestUtils.setField(service, "eventPublisher", publisher);
+    }
+
+    /**
+     * Événement de capture et instant de sa réception.
+     */
+    private record Delivery(long atMs, Object event) {
+    }
+
+    private Delivery frame(long sequence, long timestampMs) {
+        VideoFrame frame = VideoFrame.builder()
+                .sourceId("camera-0")
+                .sequenceNumber(sequence)
+                .timestamp(T0.plusMillis(timestampMs + videoAdvanceMs))
+                .captureNanoTime(NANO_TIME_ORIGIN + timestampMs * 1_000_000L)
+                .build();
+        // Matrice empruntée dont le thread de capture détient la première référence
+        FrameLease lease = new FrameLease(null, null);
+        frame.setFrameLease(lease);
+        leases.add(lease);
+        return new Delivery(timestampMs, new VideoEvent(MediaSynchronizationServiceTest.class, frame));
+    }
+
+    private static Delivery chunk(long sequence, long startMs) {
+        AudioChunk chunk = new AudioChunk();
+        chunk.setSourceId("mic-0");
+        chunk.setSequenceNumber(sequence);
+        chunk.setTimestamp(T0.plusMillis(startMs));
+        chunk.setDurationMs(CHUNK_MS);
+        chunk.setCaptureNanoTime(NANO_TIME_ORIGIN + (startMs + CHUNK_MS) * 1_000_000L);
+        // Un segment n'est publié qu'une fois entièrement capturé
+        return new Delivery(startMs + CHUNK_MS, new AudioEvent(MediaSynchronizationServiceTest.class, chunk));
+    }
+
+    /**
+     * Capture simulée : trames toutes les periodMs et segments contigus, sauf ceux de [gapFromMs, gapToMs).
+     * Les instants sont ceux du microphone ; les trames sont horodatées avec l'avance de la caméra.
+     */
+    private void capture(long durationMs, long periodMs, long gapFromMs, long gapToMs) {
+        List<Delivery> deliveries = new ArrayList<>();
+        for (long i = 0; i * periodMs < durationMs; i++) {
+            deliveries.add(frame(i, i * periodMs));
+        }
+        for (long j = 0; j * CHUNK_MS < durationMs; j++) {
+            long start = j * CHUNK_MS;
+            if (start < gapFromMs || start >= gapToMs) {
+                deliveries.add(chunk(j, start));
+            }
+        }
+        deliveries.sort(Comparator.comparingLong(Delivery::atMs));
+        service.init();
+        for (Delivery delivery : deliveries) {
+            if (delivery.event() instanceof VideoEvent video) {
+                service.handleVideoEvent(video);
+            } else {
+                service.handleAudioEvent((AudioEvent) delivery.event());
+            }
+        }
+    }
+
+    private static long centerMs(AudioChunk chunk) {
+        return chunk.getCenterTimestamp().toEpochMilli() - T0.toEpochMilli();
+    }
+
+    private static long frameMs(SynchronizedMedia media) {
+        return media.getVideoFrame().getTimestamp().toEpochMilli() - T0.toEpochMilli();
+    }
+
+    @Test
+    void everyFrameGetsTheNearestChunkWhenVideoIsFasterThanAudio() {
+        capture(3000, 33, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // Toutes les trames dépassées par l'audio (milieu du dernier segment à 2950 ms) sont publiées
+        long expectedFrames = 2950 / 33 + 1;
+        assertEquals(expectedFrames, published.size());
+        assertEquals(0L, service.getStats().get("unpairedFrames"));
+
+        Set<Long> chunks = new HashSet<>();
+        long previousChunk = -1;
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media);
+            long center = centerMs(media.getAudioChunk());
+            assertTrue(Math.abs(frame - center) <= CHUNK_MS / 2,
+                    "trame " + frame + " ms appariée au segment centré à " + center + " ms");
+            long chunk = media.getAudioChunk().getSequenceNumber();
+            // Seule la première trame d'un segment déclenche son analyse audio
+            assertEquals(chunk == previousChunk, media.isAudioRepeated(), "trame " + frame + " ms");
+            chunks.add(chunk);
+            previousChunk = chunk;
+        }
+        // Plusieurs trames partagent un segment, compté une seule fois
+        assertEquals(30, chunks.size());
+        assertEquals((long) chunks.size(), service.getStats().get("pairedChunks"));
+        assertEquals(published.size() - (long) chunks.size(), service.getStats().get("repeatedChunks"));
+    }
+
+    @Test
+    void frameIsUnpairedOnlyWithoutAChunkWithinTheMaximumDelay() {
+        // Pas d'audio de 1000 à 1600 ms : segments centrés à 950 puis 1650 ms
+        capture(3000, 40, 1000, 1600);
+
+        long unpaired = 0;
+        for (long t = 0; t <= 2950; t += 40) {
+            if (t - 950 > MAX_DELAY_MS && 1650 - t > MAX_DELAY_MS) {
+                unpaired++;
+            }
+        }
+        assertEquals(unpaired, service.getStats().get("unpairedFrames"));
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media);
+            assertEquals(nearestCenter(frame, 1000, 1600), centerMs(media.getAudioChunk()), "trame " + frame + " ms");
+        }
+    }
+
+    /**
+     * Milieu du segment reçu le plus proche d'un instant ; à égale distance, le plus ancien.
+     */
+    private static long nearestCenter(long timestampMs, long gapFromMs, long gapToMs) {
+        long best = Long.MIN_VALUE;
+        for (long start = 0; start < 3000; start += CHUNK_MS) {
+            long center = start + CHUNK_MS / 2;
+            if ((start < gapFromMs || start >= gapToMs)
+                    && (best == Long.MIN_VALUE || Math.abs(center - timestampMs) < Math.abs(best - timestampMs))) {
+                best = center;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void slowVideoConsumesTheChunksSinceThePreviousFrame() {
+        ReflectionTestUtils.setField(config, "syncPairingPolicy", "video-to-n-audio");
+        capture(3000, 500, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // Trames à 0, 500, ..., 2500 ms
+        assertEquals(6, published.size());
+        for (SynchronizedMedia media : published) {
+            assertTrue(Math.abs(frameMs(media) - centerMs(media.getAudioChunk())) <= CHUNK_MS / 2);
+        }
+        // Chaque segment jusqu'à la dernière trame est consommé une fois, même entre deux trames
+        assertEquals(25L, service.getStats().get("pairedChunks"));
+    }
+
+    /**
+     * Politique windowed : l'historique d'analyse du microphone contient l'audio de toute la
+     * capture, et les fenêtres sont lues par un service de capture audio simulé.
+     */
+    private void windowed(int audioWindowMs, long durationMs) {
+        ReflectionTestUtils.setField(config, "syncPairingPolicy", "windowed");
+        ReflectionTestUtils.setField(config, "syncAudioWindowMs", audioWindowMs);
+
+        PcmRingBuffer ring = new PcmRingBuffer("mic-0", ANALYSIS_RATE, 1, 10);
+        byte[] pcm = new byte[ANALYSIS_RATE * CHUNK_MS / 1000 * 2];
+        for (long start = 0; start < durationMs; start += CHUNK_MS) {
+            ring.write(pcm, pcm.length, PcmRingBuffer.toEpochNanos(T0.plusMillis(start)));
+        }
+        analysisWindows = (fromMs, toMs) -> ring.window(T0.plusMillis(fromMs), T0.plusMillis(toMs));
+
+        AudioCaptureService audioCaptureService = new AudioCaptureService() {
+            @Override
+            public PcmWindow getAnalysisWindow(String sourceId, Instant from, Instant to) {
+                assertEquals("mic-0", sourceId);
+                long fromMs = Duration.between(T0, from).toMillis();
+                long toMs = Duration.between(T0, to).toMillis();
+                requestedWindows.add(new long[] {fromMs, toMs});
+                return analysisWindows.apply(fromMs, toMs);
+            }
+        };
+        ReflectionTestUtils.setField(service, "audioCaptureService", audioCaptureService);
+    }
+
+    private static long windowStartMs(SynchronizedMedia media) {
+        return Duration.between(T0, media.getAudioWindow().getStartTime()).toMillis();
+    }
+
+    private static long windowEndMs(SynchronizedMedia media) {
+        PcmWindow window = media.getAudioWindow();
+        return windowStartMs(media) + window.getFrameCount() * 1000L / window.getSampleRate();
+    }
+
+    @Test
+    void fixedWindowEndsAtEachFrame() {
+        windowed(300, 3000);
+        capture(3000, 40, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // La première trame n'est précédée d'aucun audio
+        assertEquals(1L, service.getStats().get("unpairedFrames"));
+        assertTrue(published.size() > 60);
+        for (long[] interval : requestedWindows) {
+            assertEquals(300, interval[1] - interval[0]);
+        }
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media);
+            assertEquals(frame, windowEndMs(media), "trame " + frame + " ms");
+            // Les premières trames n'ont que l'audio capturé depuis le début
+            assertEquals(Math.max(0, frame - 300), windowStartMs(media), "trame " + frame + " ms");
+            assertNull(media.getAudioChunk());
+        }
+        assertEquals((long) published.size(), service.getStats().get("windowedFrames"));
+    }
+
+    @Test
+    void zeroWindowCoversTheIntervalSinceThePreviousFrame() {
+        windowed(0, 3000);
+        capture(3000, 40, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // Aucun audio n'a été capturé avant la première trame
+        assertEquals(1L, service.getStats().get("unpairedFrames"));
+        assertTrue(published.size() > 60);
+        long previousEnd = 0;
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media);
+            // Fenêtres jointives : chaque échantillon accompagne exactement une trame
+            assertEquals(previousEnd, windowStartMs(media), "trame " + frame + " ms");
+            assertEquals(frame, windowEndMs(media), "trame " + frame + " ms");
+            previousEnd = frame;
+        }
+    }
+
+    @Test
+    void frameWithoutAudioWindowIsUnpaired() {
+        windowed(300, 3000);
+        PcmRingBuffer empty = new PcmRingBuffer("mic-0", ANALYSIS_RATE, 1, 1);
+        BiFunction<Long, Long, PcmWindow> available = analysisWindows;
+        // Historique indisponible de 1000 à 1400 ms, puis fenêtre vide jusqu'à 1800 ms
+        analysisWindows = (fromMs, toMs) -> toMs > 1000 && toMs <= 1400 ? null
+                : toMs > 1400 && toMs <= 1800 ? new PcmWindow(empty, 0, 0, 0)
+                : available.apply(fromMs, toMs);
+        capture(3000, 40, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        // La première trame n'est précédée d'aucun audio
+        long unpaired = 1;
+        for (long t = 0; t <= 2960; t += 40) {
+            if (t > 1000 && t <= 1800) {
+                unpaired++;
+            }
+        }
+        assertEquals(unpaired, service.getStats().get("unpairedFrames"));
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media);
+            assertTrue(frame > 0 && (frame <= 1000 || frame > 1800), "trame " + frame + " ms publiée sans audio");
+        }
+    }
+
+    @Test
+    void framesAreReleasedOncePublished() {
+        windowed(300, 3000);
+        List<Integer> refCountsAtPublish = new ArrayList<>();
+        ReflectionTestUtils.setField(service, "eventPublisher", new MediaEventPublisher() {
+            @Override
+            public void publishSynchronizedMedia(SynchronizedMedia media) {
+                published.add(media);
+                refCountsAtPublish.add(media.getVideoFrame().getFrameLease().getRefCount());
+            }
+        });
+        BiFunction<Long, Long, PcmWindow> available = analysisWindows;
+        analysisWindows = (fromMs, toMs) -> toMs > 1000 && toMs <= 1400 ? null : available.apply(fromMs, toMs);
+        capture(3000, 40, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        assertTrue((long) service.getStats().get("unpairedFrames") > 0);
+        // Pendant la publication, le buffer de synchronisation détient encore sa référence
+        for (int refCount : refCountsAtPublish) {
+            assertEquals(2, refCount);
+        }
+        // Publiée ou non appariée, chaque trame traitée ne garde que la référence de la capture
+        long processed = published.size() + (long) service.getStats().get("unpairedFrames");
+        for (int i = 0; i < processed; i++) {
+            assertEquals(1, leases.get(i).getRefCount(), "trame " + i);
+        }
+    }
+
+    @Test
+    void driftCorrectionUsesTheCaptureInstantsOfBothStreams() {
+        ReflectionTestUtils.setField(config, "syncDriftCorrection", true);
+        videoAdvanceMs = 60;
+        capture(8000, 33, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        for (SynchronizedMedia media : published) {
+            long frame = frameMs(media) - videoAdvanceMs;
+            if (frame >= 3000) {
+                // Une fois l'écart estimé, chaque trame rejoint le segment capturé au même instant
+                long center = centerMs(media.getAudioChunk());
+                assertTrue(Math.abs(frame - center) <= CHUNK_MS / 2,
+                        "trame " + frame + " ms appariée au segment centré à " + center + " ms");
+            }
+        }
+        assertEquals(0L, service.getStats().get("unpairedFrames"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PcmRingBufferTest {
+
+    private static final int RATE = 1000;
+    private static final long SECOND = 1_000_000_000L;
+    private static final long T0 = 1_700_000_000L * SECOND;
+
+    /**
+     * Segment mono dont l'échantillon i vaut first + i.
+     */
+    private static byte[] ramp(int first, int frames) {
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) (first + i);
+            data[2 * i] = (byte) sample;
+            data[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return data;
+    }
+
+    private static void writeSeconds(PcmRingBuffer ring, int fromSecond, int seconds) {
+        for (int s = fromSecond; s < fromSecond + seconds; s++) {
+            ring.write(ramp(s * RATE, RATE), RATE * 2, T0 + s * SECOND);
+        }
+    }
+
+    @Test
+    void windowReadsTheRequestedInterval() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", RATE, 1, 4);
+        writeSeconds(ring, 0, 2);
+
+        PcmWindow window = ring.window(T0 + 500_000_000L, T0 + 1_500_000_000L);
+        assertNotNull(window);
+        assertEquals(500, window.getStartFrame());
+        assertEquals(1000, window.getFrameCount());
+        assertEquals(T0 + 500_000_000L, PcmRingBuffer.toEpochNanos(window.getStartTime()));
+
+        float[] samples = new float[1000];
+        assertEquals(1000, window.readMono(samples, 0));
+        assertEquals(500 / 32768.0f, samples[0]);
+        assertEquals(1499 / 32768.0f, samples[999]);
+        assertTrue(window.isValid());
+    }
+
+    @Test
+    void windowIsClampedToBufferedAudio() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", RATE, 1, 4);
+        assertNull(ring.window(T0, T0 + SECOND));
+
+        writeSeconds(ring, 0, 2);
+        PcmWindow window = ring.window(T0 - SECOND, T0 + 5 * SECOND);
+        assertEquals(0, window.getStartFrame());
+        assertEquals(2000, window.getFrameCount());
+        assertNull(ring.window(T0 + 3 * SECOND, T0 + 4 * SECOND));
+    }
+
+    @Test
+    void readsAcrossTheWrapAround() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", RATE, 1, 4);
+        writeSeconds(ring, 0, 6);
+
+        // Les secondes 3 à 5 occupent les positions 3, 0 et 1 du tampon
+        PcmWindow window = ring.window(T0 + 3 * SECOND, T0 + 6 * SECOND);
+        float[] samples = new float[3000];
+        assertEquals(3000, window.readMono(samples, 0));
+        for (int i = 0; i < samples.length; i++) {
+            assertEquals((short) (3000 + i) / 32768.0f, samples[i]);
+        }
+    }
+
+    @Test
+    void overwrittenWindowIsInvalidated() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", RATE, 1, 4);
+        writeSeconds(ring, 0, 4);
+        PcmWindow window = ring.window(T0, T0 + SECOND);
+        assertTrue(window.isValid());
+
+        writeSeconds(ring, 4, 1);
+        assertFalse(window.isValid());
+        assertThrows(IllegalStateException.class, () -> window.readMono(new float[RATE], 0));
+
+        // Une fenêtre ouverte après l'écrasement part de la plus ancienne trame intacte
+        PcmWindow oldest = ring.window(T0, T0 + 2 * SECOND);
+        assertEquals(1000, oldest.getStartFrame());
+        assertTrue(oldest.isValid());
+    }
+
+    @Test
+    void resetInvalidatesOpenWindows() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", RATE, 1, 4);
+        writeSeconds(ring, 0, 2);
+        PcmWindow window = ring.window(T0, T0 + SECOND);
+
+        ring.reset();
+        assertFalse(window.isValid());
+        assertNull(ring.window(T0, T0 + 2 * SECOND));
+    }
+
+    @Test
+    void timeConversionDoesNotOverflowFarFromTheAnchor() {
+        PcmRingBuffer ring = new PcmRingBuffer("mic", 44100, 2, 1);
+        ring.write(new byte[4 * 4410], 4 * 4410, T0);
+
+        // (t - ancre) × fréquence dépasse Long.MAX_VALUE au-delà d'environ 58 heures à 44,1 kHz
+        long days = 30;
+        long later = T0 + days * 86_400L * SECOND;
+        assertEquals(days * 86_400L * 44100, ring.frameAt(later));
+        assertEquals(-days * 86_400L * 44100, ring.frameAt(T0 - days * 86_400L * SECOND));
+        assertEquals(later, ring.epochNanosAt(days * 86_400L * 44100));
+
+        // Arrondi vers le bas, y compris avant l'ancre
+        assertEquals(0, ring.frameAt(T0 + 22_000));
+        assertEquals(1, ring.frameAt(T0 + 23_000));
+        assertEquals(-1, ring.frameAt(T0 - 1));
+    }
+}
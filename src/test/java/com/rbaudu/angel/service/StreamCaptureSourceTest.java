@@ -0,0 +1,193 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamCaptureSourceTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final long FRAME_MICROS = 40_000;
+
+    @TempDir
+    Path dir;
+
+    private StreamCaptureSource source;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (source != null) {
+            source.release();
+        }
+    }
+
+    /**
+     * Enregistre un clip MPEG-4 à 25 images/s dont les trames portent les PTS donnés.
+     */
+    private File clip(String name, long... ptsMicros) throws Exception {
+        File file = dir.resolve(name).toFile();
+        Frame image = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3);
+        try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file, WIDTH, HEIGHT)) {
+            recorder.setFormat("mp4");
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+            recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+            recorder.setFrameRate(25);
+            recorder.start();
+            for (int i = 0; i < ptsMicros.length; i++) {
+                ByteBuffer pixels = (ByteBuffer) image.image[0];
+                for (int p = 0; p < pixels.capacity(); p++) {
+                    pixels.put(p, (byte) (i * 20));
+                }
+                recorder.setTimestamp(ptsMicros[i]);
+                recorder.record(image);
+            }
+            recorder.stop();
+        }
+        return file;
+    }
+
+    private static long[] regularPts(int count, long startMicros) {
+        long[] pts = new long[count];
+        for (int i = 0; i < count; i++) {
+            pts[i] = startMicros + i * FRAME_MICROS;
+        }
+        return pts;
+    }
+
+    private StreamCaptureSource open(File file, boolean loop) throws Exception {
+        source = StreamCaptureSource.builder()
+                .id("stream-0")
+                .url("file://" + file.getAbsolutePath())
+                .width(WIDTH)
+                .height(HEIGHT)
+                .loop(loop)
+                .realtime(false)
+                .reconnectInitialDelayMs(1)
+                .reconnectMaxDelayMs(2)
+                .reconnectMaxAttempts(3)
+                .build();
+        source.start();
+        return source;
+    }
+
+    /**
+     * Lit les trames jusqu'à la fin d'un fichier non rebouclé.
+     */
+    private List<Instant> readAll(StreamCaptureSource source) throws Exception {
+        List<Instant> timestamps = new ArrayList<>();
+        Frame frame;
+        while ((frame = source.grab()) != null) {
+            assertNotNull(frame.image);
+            timestamps.add(source.getFrameTimestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    void ptsIsMappedToTheWallClock() throws Exception {
+        Instant before = Instant.now();
+        List<Instant> timestamps = readAll(open(clip("regular.mp4", regularPts(10, 0)), false));
+
+        assertEquals(10, timestamps.size());
+        // Ancrage à la première trame, puis l'écart entre trames est celui des PTS et non de la lecture
+        assertTrue(Duration.between(before, timestamps.get(0)).abs().toMillis() < 1000);
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertEquals(FRAME_MICROS, Duration.between(timestamps.get(0), timestamps.get(i)).toNanos() / 1000 / i);
+        }
+        assertEquals(0L, source.getStats().get("ptsDiscontinuities"));
+    }
+
+    @Test
+    void fileWithoutLoopIsExhausted() throws Exception {
+        StreamCaptureSource source = open(clip("once.mp4", regularPts(10, 0)), false);
+
+        assertEquals(10, readAll(source).size());
+        assertTrue(source.isExhausted());
+        assertNull(source.grab());
+        assertEquals(0L, source.getStats().get("loops"));
+    }
+
+    @Test
+    void loopedFileIsReadAgain() throws Exception {
+        StreamCaptureSource source = open(clip("loop.mp4", regularPts(10, 0)), true);
+
+        int frames = 0;
+        for (int i = 0; i < 35; i++) {
+            if (source.grab() != null) {
+                frames++;
+            }
+        }
+        // Chaque fin de fichier rend une lecture vide, puis le fichier est rouvert
+        assertTrue(frames >= 30, frames + " trames lues");
+        assertTrue((long) source.getStats().get("loops") >= 3);
+        assertFalse(source.isExhausted());
+        // Une réouverture réancre les PTS sans compter de discontinuité
+        assertEquals(0L, source.getStats().get("ptsDiscontinuities"));
+    }
+
+    @Test
+    void ptsJumpReanchorsTheTimestamps() throws Exception {
+        long[] pts = new long[10];
+        System.arraycopy(regularPts(5, 0), 0, pts, 0, 5);
+        System.arraycopy(regularPts(5, 20_000_000L), 0, pts, 5, 5);
+        List<Instant> timestamps = readAll(open(clip("jump.mp4", pts), false));
+
+        assertEquals(10, timestamps.size());
+        assertEquals(1L, source.getStats().get("ptsDiscontinuities"));
+        // Le saut de 20 s n'est pas reporté sur l'horloge murale
+        assertTrue(Duration.between(timestamps.get(4), timestamps.get(5)).toMillis() < 1000);
+        for (int i = 6; i < 10; i++) {
+            assertEquals(FRAME_MICROS, Duration.between(timestamps.get(i - 1), timestamps.get(i)).toNanos() / 1000);
+        }
+    }
+
+    @Test
+    void reconnectionIsBoundedAndNeverBlocksTheLoop() throws Exception {
+        File file = clip("vanishing.mp4", regularPts(3, 0));
+        StreamCaptureSource source = open(file, true);
+        Files.delete(file.toPath());
+
+        IllegalStateException failure = null;
+        int calls = 0;
+        while (failure == null && calls < 100) {
+            long start = System.nanoTime();
+            try {
+                source.grab();
+            } catch (IllegalStateException e) {
+                failure = e;
+            }
+            calls++;
+            // Chaque appel fait au plus une tentative et rend la main à la boucle de capture
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        }
+        assertNotNull(failure, "la reconnexion doit échouer après le nombre maximal de tentatives");
+        assertEquals(0L, source.getStats().get("reconnects"));
+
+        // Un redémarrage par le superviseur repart d'un compte de tentatives nul
+        clip("vanishing.mp4", regularPts(3, 0));
+        source.stop();
+        source.start();
+        assertNotNull(source.grab());
+    }
+}
@@ -0,0 +1,137 @@
+package com.rbaudu.angel.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimeIndexedBufferTest {
+
+    private final List<String> released = new ArrayList<>();
+    private TimeIndexedBuffer<String> buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new TimeIndexedBuffer<>(4, released::add);
+    }
+
+    @Test
+    void nearestComparesBothNeighbours() {
+        buffer.put(1_000, "a");
+        buffer.put(2_000, "b");
+
+        assertEquals("a", buffer.nearest(1_400, 500).getValue());
+        assertEquals("b", buffer.nearest(1_600, 500).getValue());
+        // À égale distance, le plus ancien l'emporte
+        assertEquals("a", buffer.nearest(1_500, 500).getValue());
+        assertEquals("b", buffer.nearest(2_300, 500).getValue());
+        assertEquals("a", buffer.nearest(700, 500).getValue());
+    }
+
+    @Test
+    void nearestRespectsTheMaximumDelta() {
+        buffer.put(1_000, "a");
+
+        assertEquals(1_000L, (long) buffer.nearest(1_100, 100).getKey());
+        assertNull(buffer.nearest(1_101, 100));
+        assertNull(buffer.nearest(899, 100));
+        assertNull(new TimeIndexedBuffer<String>(1, released::add).nearest(0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void capacityEvictsAndReleasesTheOldest() {
+        for (int i = 0; i < 6; i++) {
+            buffer.put(i * 1_000L, "m" + i);
+        }
+
+        assertEquals(4, buffer.size());
+        assertEquals(List.of("m0", "m1"), released);
+        assertEquals(2_000L, buffer.getOldestTimestamp());
+        assertEquals(5_000L, buffer.getWatermark());
+        assertEquals(2L, buffer.getStats().get("capacityEvictions"));
+    }
+
+    @Test
+    void sameTimestampReplacesAndReleasesThePrevious() {
+        buffer.put(1_000, "a");
+        buffer.put(1_000, "b");
+        buffer.put(1_000, "b");
+
+        assertEquals(1, buffer.size());
+        assertEquals(List.of("a"), released);
+        assertEquals("b", buffer.nearest(1_000, 0).getValue());
+    }
+
+    @Test
+    void takeOldestHandsOverWithoutReleasing() {
+        buffer.put(1_000, "a");
+        buffer.put(2_000, "b");
+
+        assertNull(buffer.takeOldest(999));
+        Map.Entry<Long, String> taken = buffer.takeOldest(1_500);
+        assertEquals("a", taken.getValue());
+        assertNull(buffer.takeOldest(1_500));
+        assertEquals(1, buffer.size());
+        assertEquals(List.of(), released);
+    }
+
+    @Test
+    void evictBeforeKeepsTheLimit() {
+        buffer.put(1_000, "a");
+        buffer.put(2_000, "b");
+        buffer.put(3_000, "c");
+
+        assertEquals(1, buffer.evictBefore(2_000));
+        assertEquals(List.of("a"), released);
+        assertEquals(2_000L, buffer.getOldestTimestamp());
+        assertEquals(1L, buffer.getStats().get("watermarkEvictions"));
+        // Le filigrane ne recule pas avec l'éviction
+        assertEquals(3_000L, buffer.getWatermark());
+    }
+
+    @Test
+    void countBetweenExcludesTheStart() {
+        buffer.put(1_000, "a");
+        buffer.put(2_000, "b");
+        buffer.put(3_000, "c");
+
+        assertEquals(2, buffer.countBetween(1_000, 3_000));
+        assertEquals(3, buffer.countBetween(999, 3_000));
+        assertEquals(0, buffer.countBetween(3_000, 1_000));
+    }
+
+    @Test
+    void removeOldestReleasesTheFirstMatch() {
+        buffer.put(1_000, "a");
+        buffer.put(2_000, "bb");
+        buffer.put(3_000, "cc");
+
+        assertEquals("bb", buffer.removeOldest(value -> value.length() == 2));
+        assertNull(buffer.removeOldest(value -> value.isEmpty()));
+        assertEquals(List.of("bb"), released);
+        assertEquals(1L, buffer.getStats().get("reclaimed"));
+    }
+
+    @Test
+    void emptyBufferHasNoTimestamps() {
+        assertEquals(Long.MIN_VALUE, buffer.getOldestTimestamp());
+        assertEquals(Long.MIN_VALUE, buffer.getWatermark());
+
+        buffer.put(1_000, "a");
+        buffer.clear();
+        assertEquals(Long.MIN_VALUE, buffer.getOldestTimestamp());
+        assertEquals(0, buffer.size());
+        assertEquals(List.of("a"), released);
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeIndexedBuffer<String>(0, released::add));
+    }
+}